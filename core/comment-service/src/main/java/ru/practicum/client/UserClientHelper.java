@@ -1,13 +1,14 @@
 package ru.practicum.client;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Component;
 import ru.practicum.api.user.UserApi;
 
 @Component
 public class UserClientHelper extends UserClientAbstractHelper {
 
-    public UserClientHelper(UserApi userApiClient) {
-        super(userApiClient);
+    public UserClientHelper(UserApi userApiClient, ObjectProvider<UserNearCache> userNearCache) {
+        super(userApiClient, userNearCache.getIfAvailable());
     }
 
 }
\ No newline at end of file
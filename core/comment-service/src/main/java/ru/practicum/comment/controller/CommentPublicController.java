@@ -1,5 +1,6 @@
 package ru.practicum.comment.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.RestController;
@@ -16,6 +17,8 @@ import java.util.Collection;
 public class CommentPublicController implements CommentPublicApi {
 
     private final CommentPublicService commentPublicService;
+    // ответ текущего запроса: методы API общие с Feign-клиентами, поэтому ответ не передается параметром
+    private final HttpServletResponse response;
 
     @Override
     public CommentDto getById(Long comId) {
@@ -23,8 +26,8 @@ public class CommentPublicController implements CommentPublicApi {
     }
 
     @Override
-    public Collection<CommentShortDto> getByEventId(Long eventId, int from, int size) {
-        return commentPublicService.getCommentsByEvent(eventId, from, size);
+    public Collection<CommentShortDto> getByEventId(Long eventId, int from, int size, String after) {
+        return commentPublicService.getCommentsByEvent(eventId, from, size, after).writeNextCursor(response);
     }
 
     @Override
@@ -15,6 +15,7 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Table(name = "comments", indexes = {
         @Index(name = "idx_comments_event_id", columnList = "event_id"),
+        @Index(name = "idx_comments_event_id_create_time", columnList = "event_id, create_time, id"),
         @Index(name = "idx_comments_textual_content", columnList = "textual_content")
 })
 public class Comment {
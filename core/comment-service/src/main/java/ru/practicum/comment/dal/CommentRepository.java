@@ -4,11 +4,30 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
 
     Page<Comment> findAllByEventIdAndApproved(Long eventId, Boolean approved, Pageable pageable);
 
+    // продолжение выдачи после (afterTime, afterId) в порядке create_time, id
+    @Query("""
+            SELECT c FROM Comment as c
+            WHERE c.eventId = :eventId AND c.approved = :approved
+              AND (c.createTime > :afterTime OR (c.createTime = :afterTime AND c.id > :afterId))
+            ORDER BY c.createTime, c.id
+            """)
+    List<Comment> findAllByEventIdAndApprovedAfter(
+            @Param("eventId") Long eventId,
+            @Param("approved") Boolean approved,
+            @Param("afterTime") LocalDateTime afterTime,
+            @Param("afterId") Long afterId,
+            Pageable pageable
+    );
+
     Page<Comment> findAllByAuthorId(Long userId, Pageable pageable);
 
     @Query("""
@@ -2,14 +2,13 @@ package ru.practicum.comment.service;
 
 import ru.practicum.dto.comment.CommentDto;
 import ru.practicum.dto.comment.CommentShortDto;
-
-import java.util.List;
+import ru.practicum.pagination.KeysetSlice;
 
 public interface CommentPublicService {
 
     CommentDto getComment(Long comId);
 
-    List<CommentShortDto> getCommentsByEvent(Long eventId, int from, int size);
+    KeysetSlice<CommentShortDto> getCommentsByEvent(Long eventId, int from, int size, String after);
 
     CommentDto getCommentByEventAndCommentId(Long eventId, Long commentId);
 }
\ No newline at end of file
@@ -15,9 +15,14 @@ import ru.practicum.dto.comment.CommentDto;
 import ru.practicum.dto.comment.CommentShortDto;
 import ru.practicum.dto.event.EventCommentDto;
 import ru.practicum.dto.user.UserDto;
+import ru.practicum.exception.BadRequestException;
 import ru.practicum.exception.ForbiddenException;
 import ru.practicum.exception.NotFoundException;
+import ru.practicum.pagination.KeysetCursor;
+import ru.practicum.pagination.KeysetSlice;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -53,21 +58,31 @@ public class CommentPublicServiceImpl implements CommentPublicService {
     }
 
     @Override
-    public List<CommentShortDto> getCommentsByEvent(Long eventId, int from, int size) {
+    public KeysetSlice<CommentShortDto> getCommentsByEvent(Long eventId, int from, int size, String after) {
         EventCommentDto eventCommentDto = eventClientHelper.retrieveEventCommentDtoByEventId(eventId);
 
-        List<Comment> comments = transactionTemplate.execute(status -> {
-            Pageable pageable = PageRequest.of(from / size, size, Sort.by("createTime").ascending());
-            return commentRepository.findAllByEventIdAndApproved(eventId, true, pageable).getContent();
+        // с курсором страница выбирается по (create_time, id) без OFFSET и без подсчета строк
+        KeysetCursor cursor = KeysetCursor.decode(after);
+        KeysetSlice<Comment> commentSlice = transactionTemplate.execute(status -> {
+            if (cursor != null) {
+                List<Comment> rows = commentRepository.findAllByEventIdAndApprovedAfter(
+                        eventId, true, parseTime(cursor), cursor.id(), PageRequest.of(0, size + 1));
+                return KeysetSlice.ofRows(rows, size, CommentPublicServiceImpl::cursorOf);
+            }
+            Pageable pageable = PageRequest.of(from / size, size, Sort.by("createTime").ascending().and(Sort.by("id")));
+            return KeysetSlice.ofPage(commentRepository.findAllByEventIdAndApproved(eventId, true, pageable),
+                    CommentPublicServiceImpl::cursorOf);
         });
-        if (comments == null || comments.isEmpty()) return List.of();
+        List<Comment> comments = commentSlice.getContent();
+        if (comments.isEmpty()) return new KeysetSlice<>(List.of(), size, null);
 
         Set<Long> userIds = comments.stream().map(Comment::getAuthorId).collect(Collectors.toSet());
         Map<Long, UserDto> userMap = userClientHelper.retrieveUserDtoMapByUserIdList(userIds);
 
-        return comments.stream()
+        List<CommentShortDto> result = comments.stream()
                 .map(c -> CommentMapper.toCommentShortDto(c, userMap.get(c.getAuthorId())))
                 .toList();
+        return new KeysetSlice<>(result, size, commentSlice.getNextCursor());
     }
 
     @Override
@@ -91,4 +106,18 @@ public class CommentPublicServiceImpl implements CommentPublicService {
         return CommentMapper.toCommentDto(comment, userDto, eventCommentDto);
     }
 
+    // PRIVATE METHODS
+
+    private static KeysetCursor cursorOf(Comment comment) {
+        return new KeysetCursor(comment.getCreateTime().toString(), comment.getId());
+    }
+
+    private static LocalDateTime parseTime(KeysetCursor cursor) {
+        try {
+            return LocalDateTime.parse(cursor.key());
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Malformed cursor key " + cursor.key());
+        }
+    }
+
 }
\ No newline at end of file
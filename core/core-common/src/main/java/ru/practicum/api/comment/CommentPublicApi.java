@@ -24,7 +24,8 @@ public interface CommentPublicApi {
     Collection<CommentShortDto> getByEventId(
             @PathVariable @Positive Long eventId,
             @RequestParam(defaultValue = "0") int from,
-            @RequestParam(defaultValue = "10") int size
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String after
     );
 
     @GetMapping("/events/{eventId}/comments/{commentId}")
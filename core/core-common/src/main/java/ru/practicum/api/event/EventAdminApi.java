@@ -28,7 +28,8 @@ public interface EventAdminApi {
             @RequestParam(required = false) @JsonFormat(pattern = DATE_TIME_FORMAT) LocalDateTime rangeStart,
             @RequestParam(required = false) @JsonFormat(pattern = DATE_TIME_FORMAT) LocalDateTime rangeEnd,
             @RequestParam(defaultValue = "0") @PositiveOrZero Integer from,
-            @RequestParam(defaultValue = "10") @Positive Integer size
+            @RequestParam(defaultValue = "10") @Positive Integer size,
+            @RequestParam(required = false) String after
     );
 
     // Редактирование данных события и его статуса (отклонение/публикация).
@@ -29,6 +29,7 @@ public interface EventPublicApi {
             @RequestParam(defaultValue = "EVENT_DATE") EventSort eventSort,
             @RequestParam(defaultValue = "0") Integer from,
             @RequestParam(defaultValue = "10") Integer size,
+            @RequestParam(required = false) String after,
             HttpServletRequest request
     );
 
@@ -62,6 +63,13 @@ public interface EventPublicApi {
             @PathVariable @Positive Long eventId
     );
 
+    // Получение информации о списке событий для сервиса заявок
+    @PostMapping("/events/dto/list/interaction")
+    @ResponseStatus(HttpStatus.OK)
+    Collection<EventInteractionDto> getEventInteractionDtoList(
+            @RequestBody Collection<Long> eventIds
+    );
+
     // рекомендации мероприятий для пользователя
     @GetMapping("/events/recommendations")
     @ResponseStatus(HttpStatus.OK)
@@ -48,7 +48,8 @@ public interface UserApi {
     Collection<UserDto> getUsers(
             @RequestParam(required = false) List<Long> ids,
             @RequestParam(defaultValue = "0") Integer from,
-            @RequestParam(defaultValue = "10") Integer size
+            @RequestParam(defaultValue = "10") Integer size,
+            @RequestParam(required = false) String after
     );
 
     @GetMapping("/admin/users/all/short")
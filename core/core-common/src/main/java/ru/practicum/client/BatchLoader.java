@@ -0,0 +1,128 @@
+package ru.practicum.client;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Объединение одиночных запросов по ключу в один пакетный вызов.
+ * <ul>
+ *     <li>запросы копятся window или до maxBatchSize ключей, затем уходят одним вызовом batchCall;</li>
+ *     <li>одинаковые ключи в окне и ключи, уже запрошенные и ждущие ответа, получают один общий результат;</li>
+ *     <li>ключ, которого нет в ответе batchCall, получает null; ошибка вызова достается всем ключам пакета;</li>
+ *     <li>{@link #get} ждет не дольше timeout, ожидание остальных вызывающих и сам вызов при этом не прерываются.</li>
+ * </ul>
+ */
+public final class BatchLoader<K, V> {
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "batch-loader-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // пакетные вызовы блокируются на сети - каждый на своем виртуальном потоке, таймер не занимают
+    private static final ExecutorService CALLS = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Function<Collection<K>, Map<K, V>> batchCall;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final long timeoutNanos;
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    // под блокировкой this
+    private Map<K, CompletableFuture<V>> pending = new HashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    public BatchLoader(Function<Collection<K>, Map<K, V>> batchCall, Duration window, int maxBatchSize, Duration timeout) {
+        this.batchCall = batchCall;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    public CompletableFuture<V> load(K key) {
+        CompletableFuture<V> running = inFlight.get(key);
+        if (running != null) {
+            return running;
+        }
+        return loadFresh(key);
+    }
+
+    // без присоединения к уже отправленному вызову: ответ отражает состояние не раньше этого обращения
+    public CompletableFuture<V> loadFresh(K key) {
+        synchronized (this) {
+            CompletableFuture<V> future = pending.get(key);
+            if (future != null) {
+                return future;
+            }
+            future = new CompletableFuture<>();
+            pending.put(key, future);
+            if (pending.size() >= maxBatchSize) {
+                dispatch();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = TIMER.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+            }
+            return future;
+        }
+    }
+
+    // ошибки пакетного вызова пробрасываются как есть, чтобы хелперы разбирали их так же, как ошибки одиночного;
+    // срок ставится на копию: общий с другими вызывающими результат не завершается чужим сроком
+    public V get(K key) {
+        return await(load(key));
+    }
+
+    public V getFresh(K key) {
+        return await(loadFresh(key));
+    }
+
+    private V await(CompletableFuture<V> result) {
+        try {
+            return result.copy().orTimeout(timeoutNanos, TimeUnit.NANOSECONDS).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private synchronized void flush() {
+        dispatch();
+    }
+
+    // вызывается под блокировкой this
+    private void dispatch() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<K, CompletableFuture<V>> batch = pending;
+        pending = new HashMap<>();
+        inFlight.putAll(batch);
+        CALLS.execute(() -> call(batch));
+    }
+
+    // ключи снимаются с ожидания до завершения результатов: проснувшийся вызывающий уже не получит тот же ответ
+    // повторно, а ключ, запрошенный заново другим пакетом, не снимается
+    private void call(Map<K, CompletableFuture<V>> batch) {
+        Map<K, V> result;
+        try {
+            result = batchCall.apply(List.copyOf(batch.keySet()));
+        } catch (Throwable e) {
+            batch.forEach(inFlight::remove);
+            batch.values().forEach(future -> future.completeExceptionally(e));
+            return;
+        }
+        batch.forEach(inFlight::remove);
+        batch.forEach((key, future) -> future.complete(result.get(key)));
+    }
+
+}
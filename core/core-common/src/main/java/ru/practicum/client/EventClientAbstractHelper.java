@@ -1,7 +1,6 @@
 package ru.practicum.client;
 
 import feign.FeignException;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import ru.practicum.api.event.EventAllApi;
 import ru.practicum.dto.event.EventCommentDto;
@@ -9,21 +8,46 @@ import ru.practicum.dto.event.EventInteractionDto;
 import ru.practicum.exception.NotFoundException;
 import ru.practicum.exception.ServiceInteractionException;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 @Slf4j
-@RequiredArgsConstructor
 public abstract class EventClientAbstractHelper {
 
+    // одиночные запросы событий за окно уходят в event-service одним списочным вызовом
+    protected static final Duration BATCH_WINDOW = Duration.ofMillis(2);
+    protected static final int MAX_BATCH_SIZE = 100;
+    // ответ event-service дольше не ждем: вызывающий получает ошибку и запасное значение хелпера
+    protected static final Duration BATCH_TIMEOUT = Duration.ofSeconds(5);
+
     protected final EventAllApi eventApiClient;
+    // null, если кэш выключен: тогда каждый вызов идет в event-service
+    protected final EventNearCache eventNearCache;
+    private final BatchLoader<Long, EventInteractionDto> interactionLoader;
+    private final BatchLoader<Long, EventCommentDto> commentLoader;
+
+    protected EventClientAbstractHelper(EventAllApi eventApiClient) {
+        this(eventApiClient, null);
+    }
+
+    protected EventClientAbstractHelper(EventAllApi eventApiClient, EventNearCache eventNearCache) {
+        this.eventApiClient = eventApiClient;
+        this.eventNearCache = eventNearCache;
+        this.interactionLoader = new BatchLoader<>(ids -> eventApiClient.getEventInteractionDtoList(ids).stream()
+                .collect(Collectors.toMap(EventInteractionDto::getId, e -> e)), BATCH_WINDOW, MAX_BATCH_SIZE,
+                BATCH_TIMEOUT);
+        this.commentLoader = new BatchLoader<>(ids -> eventApiClient.getEventCommentDtoList(ids).stream()
+                .collect(Collectors.toMap(EventCommentDto::getId, e -> e)), BATCH_WINDOW, MAX_BATCH_SIZE,
+                BATCH_TIMEOUT);
+    }
 
     // EventInteractionDto
 
     public EventInteractionDto retrieveEventInteractionDtoByEventIdOrFall(Long eventId) {
         try {
-            return eventApiClient.getEventInteractionDto(eventId);
+            return fetchInteraction(eventId);
         } catch (RuntimeException e) {
             if (isNotFoundCode(e)) throw new NotFoundException("Not found Event " + eventId);
 
@@ -34,7 +58,7 @@ public abstract class EventClientAbstractHelper {
 
     public EventInteractionDto retrieveEventInteractionDtoByEventId(Long eventId) {
         try {
-            return eventApiClient.getEventInteractionDto(eventId);
+            return fetchInteraction(eventId);
         } catch (RuntimeException e) {
             if (isNotFoundCode(e)) throw new NotFoundException("Not found Event " + eventId);
 
@@ -47,7 +71,7 @@ public abstract class EventClientAbstractHelper {
 
     public EventCommentDto retrieveEventCommentDtoByEventIdOrFall(Long eventId) {
         try {
-            return eventApiClient.getEventCommentDto(eventId);
+            return loadComment(eventId);
         } catch (RuntimeException e) {
             if (isNotFoundCode(e)) throw new NotFoundException("Not found Event " + eventId);
 
@@ -58,7 +82,7 @@ public abstract class EventClientAbstractHelper {
 
     public EventCommentDto retrieveEventCommentDtoByEventId(Long eventId) {
         try {
-            return eventApiClient.getEventCommentDto(eventId);
+            return loadComment(eventId);
         } catch (RuntimeException e) {
             if (isNotFoundCode(e)) throw new NotFoundException("Not found Event " + eventId);
 
@@ -80,7 +104,27 @@ public abstract class EventClientAbstractHelper {
 
     // PRIVATE METHODS
 
+    // загрузка в кэш не присоединяется к отправленному ранее вызову, см. EventNearCache
+    private EventInteractionDto fetchInteraction(Long eventId) {
+        return eventNearCache != null
+                ? eventNearCache.getInteraction(eventId, id -> checkFound(id, interactionLoader.getFresh(id)))
+                : checkFound(eventId, interactionLoader.get(eventId));
+    }
+
+    // списочный вызов молча пропускает отсутствующие события, поэтому not found определяем сами
+    private EventInteractionDto checkFound(Long eventId, EventInteractionDto event) {
+        if (event == null) throw new NotFoundException("Not found Event " + eventId);
+        return event;
+    }
+
+    private EventCommentDto loadComment(Long eventId) {
+        EventCommentDto event = commentLoader.get(eventId);
+        if (event == null) throw new NotFoundException("Not found Event " + eventId);
+        return event;
+    }
+
     private boolean isNotFoundCode(RuntimeException e) {
+        if (e instanceof NotFoundException) return true;
         if (e instanceof FeignException.NotFound) return true;
         if (e.getCause() != null && e.getCause() instanceof FeignException.NotFound) return true;
         return false;
@@ -0,0 +1,104 @@
+package ru.practicum.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.dto.event.EventInteractionDto;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static ru.practicum.constants.Constants.EVENT_CHANGED_CHANNEL;
+
+/**
+ * Локальный кэш событий перед event-service для хелперов клиента.
+ * <ul>
+ *     <li>event-service при каждом изменении события шлет его id через NOTIFY в общей БД,
+ *     запись сразу вычищается и при следующем обращении читается заново;</li>
+ *     <li>при потере подписки кэш очищается целиком, ttl-ms - страховка на случай потерянного уведомления;</li>
+ *     <li>ответ, загрузка которого пересеклась с вычисткой записи, отдается вызывающему, но не кэшируется:
+ *     он мог быть прочитан до изменения. Поэтому загрузчик должен отправлять новый запрос,
+ *     а не присоединяться к уже отправленному.</li>
+ * </ul>
+ * Метрики попаданий и вытеснений - стандартные cache.* с тегом cache=events.interaction.
+ */
+@Component
+@ConditionalOnProperty(name = "explore-with-me.event-cache.enabled", havingValue = "true")
+public class EventNearCache {
+
+    private final Cache<Long, EventInteractionDto> interactionEvents;
+    private final PgChannelListener listener;
+    private final long maxSize;
+    // поколение записи растет при каждой ее вычистке, эпоха - при очистке всего кэша;
+    // проверка поколения и запись в кэш выполняются под блокировкой ключа в generations
+    private final ConcurrentHashMap<Long, Long> generations = new ConcurrentHashMap<>();
+    private final AtomicLong epoch = new AtomicLong();
+
+    public EventNearCache(@Value("${explore-with-me.event-cache.max-size:10000}") long maxSize,
+                          @Value("${explore-with-me.event-cache.ttl-ms:600000}") long ttlMs,
+                          MeterRegistry meterRegistry,
+                          ObjectProvider<DataSource> dataSource) {
+        this.maxSize = maxSize;
+        this.interactionEvents = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, interactionEvents, "events.interaction");
+
+        // без БД изменения не доходят, запись устаревает только по ttl
+        DataSource db = dataSource.getIfAvailable();
+        this.listener = db == null ? null : new PgChannelListener(db, EVENT_CHANGED_CHANNEL,
+                this::invalidateAll, eventId -> invalidate(Long.valueOf(eventId)));
+    }
+
+    public EventInteractionDto getInteraction(Long eventId, Function<Long, EventInteractionDto> loader) {
+        EventInteractionDto cached = interactionEvents.getIfPresent(eventId);
+        if (cached != null) {
+            return cached;
+        }
+        long loadEpoch = epoch.get();
+        Long loadGeneration = generations.get(eventId);
+        EventInteractionDto loaded = loader.apply(eventId);
+        generations.compute(eventId, (id, generation) -> {
+            if (Objects.equals(generation, loadGeneration) && epoch.get() == loadEpoch) {
+                interactionEvents.put(id, loaded);
+            }
+            return generation;
+        });
+        return loaded;
+    }
+
+    public void invalidate(Long eventId) {
+        generations.merge(eventId, 1L, Long::sum);
+        interactionEvents.invalidate(eventId);
+        // поколения нужны только идущим загрузкам: при переполнении они сбрасываются вместе со сменой эпохи
+        if (generations.size() > maxSize) {
+            invalidateAll();
+        }
+    }
+
+    public void invalidateAll() {
+        epoch.incrementAndGet();
+        generations.clear();
+        interactionEvents.invalidateAll();
+    }
+
+    @PreDestroy
+    public void close() {
+        if (listener != null) {
+            listener.close();
+        }
+    }
+
+}
@@ -0,0 +1,81 @@
+package ru.practicum.client;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Consumer;
+
+/**
+ * Подписка на канал NOTIFY в общей БД в отдельном потоке.
+ * <ul>
+ *     <li>отдельное соединение из пула держится на все время работы;</li>
+ *     <li>при обрыве соединения подписка восстанавливается через LISTEN_RETRY_MS;</li>
+ *     <li>уведомления, пришедшие без подписки, потеряны, поэтому после каждого LISTEN вызывается onSubscribe.</li>
+ * </ul>
+ */
+@Slf4j
+public class PgChannelListener {
+
+    private static final long LISTEN_POLL_MS = 1000;
+    private static final long LISTEN_RETRY_MS = 5000;
+
+    private final DataSource dataSource;
+    private final String channel;
+    private final Runnable onSubscribe;
+    private final Consumer<String> onNotification;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    public PgChannelListener(DataSource dataSource, String channel,
+                             Runnable onSubscribe, Consumer<String> onNotification) {
+        this.dataSource = dataSource;
+        this.channel = channel;
+        this.onSubscribe = onSubscribe;
+        this.onNotification = onNotification;
+        this.thread = new Thread(this::listen, channel + "-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void close() {
+        running = false;
+        thread.interrupt();
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                onSubscribe.run();
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications((int) LISTEN_POLL_MS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        onNotification.accept(notification.getParameter());
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Listener of {} failed, retrying in {} ms: {}", channel, LISTEN_RETRY_MS, e.getMessage());
+                try {
+                    Thread.sleep(LISTEN_RETRY_MS);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+}
@@ -1,7 +1,6 @@
 package ru.practicum.client;
 
 import feign.FeignException;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import ru.practicum.api.user.UserApi;
 import ru.practicum.dto.user.UserDto;
@@ -9,21 +8,46 @@ import ru.practicum.dto.user.UserShortDto;
 import ru.practicum.exception.NotFoundException;
 import ru.practicum.exception.ServiceInteractionException;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 @Slf4j
-@RequiredArgsConstructor
 public abstract class UserClientAbstractHelper {
 
+    // одиночные запросы пользователей за окно уходят в user-service одним списочным вызовом
+    protected static final Duration BATCH_WINDOW = Duration.ofMillis(2);
+    protected static final int MAX_BATCH_SIZE = 100;
+    // дольше пакетный вызов не ждется: вызывающий получает ошибку и запасное значение хелпера
+    protected static final Duration BATCH_TIMEOUT = Duration.ofSeconds(5);
+
     protected final UserApi userApiClient;
+    // null, если кэш выключен: тогда каждый вызов идет в user-service
+    protected final UserNearCache userNearCache;
+    private final BatchLoader<Long, UserShortDto> userShortLoader;
+    private final BatchLoader<Long, UserDto> userLoader;
+
+    protected UserClientAbstractHelper(UserApi userApiClient) {
+        this(userApiClient, null);
+    }
+
+    protected UserClientAbstractHelper(UserApi userApiClient, UserNearCache userNearCache) {
+        this.userApiClient = userApiClient;
+        this.userNearCache = userNearCache;
+        this.userShortLoader = new BatchLoader<>(ids -> userApiClient.getUserShortDtoListByIds(ids).stream()
+                .collect(Collectors.toMap(UserShortDto::getId, u -> u)), BATCH_WINDOW, MAX_BATCH_SIZE,
+                BATCH_TIMEOUT);
+        this.userLoader = new BatchLoader<>(ids -> userApiClient.getUserDtoListByIds(ids).stream()
+                .collect(Collectors.toMap(UserDto::getId, u -> u)), BATCH_WINDOW, MAX_BATCH_SIZE,
+                BATCH_TIMEOUT);
+    }
 
     // UserShortDto
 
     public UserShortDto retrieveUserShortDtoByUserIdOrFall(Long userId) {
         try {
-            return userApiClient.getUserShort(userId);
+            return fetchUserShort(userId);
         } catch (RuntimeException e) {
             if (isNotFoundCode(e)) throw new NotFoundException("Not found User " + userId);
 
@@ -34,7 +58,7 @@ public abstract class UserClientAbstractHelper {
 
     public UserShortDto retrieveUserShortDtoByUserId(Long userId) {
         try {
-            return userApiClient.getUserShort(userId);
+            return fetchUserShort(userId);
         } catch (RuntimeException e) {
             if (isNotFoundCode(e)) throw new NotFoundException("Not found User " + userId);
 
@@ -45,12 +69,20 @@ public abstract class UserClientAbstractHelper {
 
     public Map<Long, UserShortDto> retrieveUserShortDtoMapByUserIdList(Collection<Long> userIdList) {
         try {
+            if (userNearCache != null) {
+                return userNearCache.getAllShort(userIdList, userApiClient::getUserShortDtoListByIds);
+            }
             return userApiClient.getUserShortDtoListByIds(userIdList).stream()
                     .collect(Collectors.toMap(UserShortDto::getId, u -> u));
         } catch (RuntimeException e) {
             log.warn("Service Interaction Error: caught " + e.getClass().getSimpleName() + " - " + e.getMessage());
-            return userIdList.stream()
-                    .collect(Collectors.toMap(id -> id, UserShortDto::makeDummy));
+            // то, что есть в кэше, отдаем настоящим, заглушки - только для остальных
+            Map<Long, UserShortDto> result = userIdList.stream()
+                    .collect(Collectors.toMap(id -> id, UserShortDto::makeDummy, (a, b) -> a));
+            if (userNearCache != null) {
+                result.putAll(userNearCache.getAllShortPresent(userIdList));
+            }
+            return result;
         }
     }
 
@@ -58,7 +90,7 @@ public abstract class UserClientAbstractHelper {
 
     public UserDto retrieveUserDtoByUserIdOrFall(Long userId) {
         try {
-            return userApiClient.getUser(userId);
+            return fetchUser(userId);
         } catch (RuntimeException e) {
             if (isNotFoundCode(e)) throw new NotFoundException("Not found User " + userId);
 
@@ -69,7 +101,7 @@ public abstract class UserClientAbstractHelper {
 
     public UserDto retrieveUserDtoByUserId(Long userId) {
         try {
-            return userApiClient.getUser(userId);
+            return fetchUser(userId);
         } catch (RuntimeException e) {
             if (isNotFoundCode(e)) throw new NotFoundException("Not found User " + userId);
 
@@ -80,18 +112,51 @@ public abstract class UserClientAbstractHelper {
 
     public Map<Long, UserDto> retrieveUserDtoMapByUserIdList(Collection<Long> userIdList) {
         try {
+            if (userNearCache != null) {
+                return userNearCache.getAllFull(userIdList, userApiClient::getUserDtoListByIds);
+            }
             return userApiClient.getUserDtoListByIds(userIdList).stream()
                     .collect(Collectors.toMap(UserDto::getId, u -> u));
         } catch (RuntimeException e) {
             log.warn("Service Interaction Error: caught " + e.getClass().getSimpleName() + " - " + e.getMessage());
-            return userIdList.stream()
-                    .collect(Collectors.toMap(id -> id, UserDto::makeDummy));
+            Map<Long, UserDto> result = userIdList.stream()
+                    .collect(Collectors.toMap(id -> id, UserDto::makeDummy, (a, b) -> a));
+            if (userNearCache != null) {
+                result.putAll(userNearCache.getAllFullPresent(userIdList));
+            }
+            return result;
         }
     }
 
     // PRIVATE METHODS
 
+    private UserShortDto fetchUserShort(Long userId) {
+        return userNearCache != null
+                ? userNearCache.getShort(userId, this::loadUserShort)
+                : loadUserShort(userId);
+    }
+
+    private UserDto fetchUser(Long userId) {
+        return userNearCache != null
+                ? userNearCache.getFull(userId, this::loadUser)
+                : loadUser(userId);
+    }
+
+    // списочный вызов молча пропускает отсутствующих, поэтому not found определяем сами
+    private UserShortDto loadUserShort(Long userId) {
+        UserShortDto user = userShortLoader.get(userId);
+        if (user == null) throw new NotFoundException("Not found User " + userId);
+        return user;
+    }
+
+    private UserDto loadUser(Long userId) {
+        UserDto user = userLoader.get(userId);
+        if (user == null) throw new NotFoundException("Not found User " + userId);
+        return user;
+    }
+
     private boolean isNotFoundCode(RuntimeException e) {
+        if (e instanceof NotFoundException) return true;
         if (e instanceof FeignException.NotFound) return true;
         if (e.getCause() != null && e.getCause() instanceof FeignException.NotFound) return true;
         return false;
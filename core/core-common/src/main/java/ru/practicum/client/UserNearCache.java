@@ -0,0 +1,110 @@
+package ru.practicum.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.dto.user.UserDto;
+import ru.practicum.dto.user.UserShortDto;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static ru.practicum.constants.Constants.USER_CHANGED_CHANNEL;
+
+/**
+ * Локальный кэш пользователей перед user-service для хелперов клиента.
+ * <ul>
+ *     <li>размер ограничен max-size, запись живет не дольше ttl-ms;</li>
+ *     <li>при запросе списка из user-service запрашиваются только отсутствующие в кэше id;</li>
+ *     <li>удаление пользователя приходит от user-service через NOTIFY в общей БД и сразу вычищает его из кэша.</li>
+ * </ul>
+ * Метрики попаданий и вытеснений - стандартные cache.* с тегами cache=users.short и cache=users.full.
+ */
+@Component
+@ConditionalOnProperty(name = "explore-with-me.user-cache.enabled", havingValue = "true")
+public class UserNearCache {
+
+    private final Cache<Long, UserShortDto> shortUsers;
+    private final Cache<Long, UserDto> fullUsers;
+    private final PgChannelListener listener;
+
+    public UserNearCache(@Value("${explore-with-me.user-cache.max-size:10000}") long maxSize,
+                         @Value("${explore-with-me.user-cache.ttl-ms:300000}") long ttlMs,
+                         MeterRegistry meterRegistry,
+                         ObjectProvider<DataSource> dataSource) {
+        this.shortUsers = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+        this.fullUsers = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, shortUsers, "users.short");
+        CaffeineCacheMetrics.monitor(meterRegistry, fullUsers, "users.full");
+
+        // без БД удаления не доходят, запись устаревает только по ttl
+        DataSource db = dataSource.getIfAvailable();
+        this.listener = db == null ? null : new PgChannelListener(db, USER_CHANGED_CHANNEL,
+                this::invalidateAll, userId -> invalidate(Long.valueOf(userId)));
+    }
+
+    public UserShortDto getShort(Long userId, Function<Long, UserShortDto> loader) {
+        return shortUsers.get(userId, loader);
+    }
+
+    public Map<Long, UserShortDto> getAllShort(Collection<Long> userIds,
+                                               Function<Collection<Long>, Collection<UserShortDto>> loader) {
+        return shortUsers.getAll(userIds, missing -> loader.apply(List.copyOf(missing)).stream()
+                .collect(Collectors.toMap(UserShortDto::getId, u -> u)));
+    }
+
+    public Map<Long, UserShortDto> getAllShortPresent(Collection<Long> userIds) {
+        return shortUsers.getAllPresent(userIds);
+    }
+
+    public UserDto getFull(Long userId, Function<Long, UserDto> loader) {
+        return fullUsers.get(userId, loader);
+    }
+
+    public Map<Long, UserDto> getAllFull(Collection<Long> userIds,
+                                         Function<Collection<Long>, Collection<UserDto>> loader) {
+        return fullUsers.getAll(userIds, missing -> loader.apply(List.copyOf(missing)).stream()
+                .collect(Collectors.toMap(UserDto::getId, u -> u)));
+    }
+
+    public Map<Long, UserDto> getAllFullPresent(Collection<Long> userIds) {
+        return fullUsers.getAllPresent(userIds);
+    }
+
+    public void invalidate(Long userId) {
+        shortUsers.invalidate(userId);
+        fullUsers.invalidate(userId);
+    }
+
+    public void invalidateAll() {
+        shortUsers.invalidateAll();
+        fullUsers.invalidateAll();
+    }
+
+    @PreDestroy
+    public void close() {
+        if (listener != null) {
+            listener.close();
+        }
+    }
+
+}
@@ -3,4 +3,8 @@ package ru.practicum.constants;
 public class Constants {
     public static final String DATE_TIME_FORMAT = "yyyy-MM-dd HH:mm:ss";
     public static final String X_EWM_USER_ID = "X-EWM-USER-ID";
+    // канал NOTIFY в общей БД: user-service сообщает id удаленного пользователя
+    public static final String USER_CHANGED_CHANNEL = "ewm_user_changed";
+    // канал NOTIFY в общей БД: event-service сообщает id измененного события
+    public static final String EVENT_CHANGED_CHANNEL = "ewm_event_changed";
 }
@@ -28,4 +28,7 @@ public class EventAdminParams {
 
     private Integer size;
 
+    // курсор из заголовка X-Next-Cursor: если задан, from не используется
+    private String after;
+
 }
\ No newline at end of file
@@ -32,4 +32,7 @@ public class EventParams {
 
     private Integer size;
 
+    // курсор из заголовка X-Next-Cursor: если задан, from не используется
+    private String after;
+
 }
\ No newline at end of file
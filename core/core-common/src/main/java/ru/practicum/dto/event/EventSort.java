@@ -1,5 +1,5 @@
 package ru.practicum.dto.event;
 
 public enum EventSort {
-    EVENT_DATE, VIEWS, RATING
+    EVENT_DATE, VIEWS, RATING, RELEVANCE
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+package ru.practicum.pagination;
+
+import ru.practicum.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Позиция в выдаче, упорядоченной по (key, id): следующая страница начинается строго после нее.
+ * Клиенту отдается непрозрачной строкой в заголовке {@link #NEXT_CURSOR_HEADER} и возвращается в параметре after.
+ */
+public record KeysetCursor(String key, long id) {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    public String encode() {
+        String raw = id + "|" + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new KeysetCursor(raw.substring(separator + 1), Long.parseLong(raw.substring(0, separator)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new BadRequestException("Malformed cursor " + cursor);
+        }
+    }
+
+    // rows выбраны с запасом в одну строку: если запас пришел, следующая страница есть и начинается после rows[size - 1]
+    public static <T> KeysetCursor next(List<T> rows, int size, Function<T, KeysetCursor> cursorOf) {
+        return rows.size() > size ? cursorOf.apply(rows.get(size - 1)) : null;
+    }
+
+}
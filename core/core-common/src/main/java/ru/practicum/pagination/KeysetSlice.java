@@ -0,0 +1,46 @@
+package ru.practicum.pagination;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Страница выдачи без подсчета общего числа строк и с курсором на следующую страницу.
+ */
+public class KeysetSlice<T> extends SliceImpl<T> {
+
+    private final KeysetCursor nextCursor;
+
+    public KeysetSlice(List<T> content, int size, KeysetCursor nextCursor) {
+        super(content, PageRequest.ofSize(size), nextCursor != null);
+        this.nextCursor = nextCursor;
+    }
+
+    // строки выбраны по курсору с запасом в одну строку, см. KeysetCursor.next
+    public static <T> KeysetSlice<T> ofRows(List<T> rows, int size, Function<T, KeysetCursor> cursorOf) {
+        return new KeysetSlice<>(rows.subList(0, Math.min(rows.size(), size)), size, KeysetCursor.next(rows, size, cursorOf));
+    }
+
+    // страница по from/size: курсор позволяет продолжить с нее без OFFSET
+    public static <T> KeysetSlice<T> ofPage(Page<T> page, Function<T, KeysetCursor> cursorOf) {
+        KeysetCursor next = page.hasNext() && page.hasContent() ? cursorOf.apply(page.getContent().getLast()) : null;
+        return new KeysetSlice<>(page.getContent(), page.getSize(), next);
+    }
+
+    public KeysetCursor getNextCursor() {
+        return nextCursor;
+    }
+
+    // для контроллеров: курсор уходит в заголовок переданного ответа, тело остается прежним списком
+    public List<T> writeNextCursor(HttpServletResponse response) {
+        if (nextCursor != null) {
+            response.setHeader(KeysetCursor.NEXT_CURSOR_HEADER, nextCursor.encode());
+        }
+        return getContent();
+    }
+
+}
@@ -0,0 +1,193 @@
+package ru.practicum.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchLoaderTest {
+
+    private static final Duration LONG_WINDOW = Duration.ofSeconds(10);
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    // пакеты, с которыми вызывался batchCall
+    private final List<List<Long>> calls = new CopyOnWriteArrayList<>();
+
+    @Test
+    void load_ShouldSendKeysOfOneWindowInOneCallAndShareDuplicates() {
+        // Given
+        BatchLoader<Long, String> loader = loader(this::names, Duration.ofMillis(20), 100);
+
+        // When
+        CompletableFuture<String> first = loader.load(1L);
+        CompletableFuture<String> duplicate = loader.load(1L);
+        CompletableFuture<String> second = loader.load(2L);
+
+        // Then
+        assertSame(first, duplicate);
+        assertEquals("name 1", first.join());
+        assertEquals("name 2", second.join());
+        assertEquals(1, calls.size());
+        assertEquals(List.of(1L, 2L), calls.getFirst().stream().sorted().toList());
+    }
+
+    @Test
+    void load_ShouldDispatchWithoutWaitingForWindowWhenBatchIsFull() {
+        // Given: окно длиннее срока ожидания, пакет уходит только по размеру
+        BatchLoader<Long, String> loader = loader(this::names, LONG_WINDOW, 2);
+
+        // When
+        CompletableFuture<String> first = loader.load(1L);
+        CompletableFuture<String> second = loader.load(2L);
+        CompletableFuture<String> third = loader.load(3L);
+
+        // Then
+        assertEquals("name 1", first.orTimeout(1, TimeUnit.SECONDS).join());
+        assertEquals("name 2", second.orTimeout(1, TimeUnit.SECONDS).join());
+        assertFalse(third.isDone());
+        assertEquals(1, calls.size());
+    }
+
+    @Test
+    void load_ShouldJoinKeyAlreadyRequestedAndWaitingForResponse() throws Exception {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BatchLoader<Long, String> loader = loader(keys -> {
+            started.countDown();
+            await(release);
+            return names(keys);
+        }, Duration.ZERO, 100);
+        CompletableFuture<String> first = loader.load(1L);
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+
+        // When
+        CompletableFuture<String> second = loader.load(1L);
+        release.countDown();
+
+        // Then
+        assertSame(first, second);
+        assertEquals("name 1", second.join());
+        assertEquals(1, calls.size());
+    }
+
+    @Test
+    void load_ShouldRequestKeyAgainAfterPreviousCallFinished() {
+        // Given
+        BatchLoader<Long, String> loader = loader(this::names, Duration.ZERO, 100);
+        loader.load(1L).join();
+
+        // When
+        String name = loader.get(1L);
+
+        // Then: завершенный вызов не кэширует результат
+        assertEquals("name 1", name);
+        assertEquals(2, calls.size());
+    }
+
+    @Test
+    void getFresh_ShouldNotJoinCallSentBeforeIt() throws Exception {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger version = new AtomicInteger();
+        BatchLoader<Long, String> loader = loader(keys -> {
+            String value = "version " + version.incrementAndGet();
+            started.countDown();
+            if (value.equals("version 1")) {
+                await(release);
+            }
+            return keys.stream().collect(Collectors.toMap(key -> key, key -> value));
+        }, Duration.ZERO, 100);
+        CompletableFuture<String> sentBefore = loader.load(1L);
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+
+        // When
+        String fresh = loader.getFresh(1L);
+        release.countDown();
+
+        // Then
+        assertEquals("version 2", fresh);
+        assertEquals("version 1", sentBefore.join());
+        assertEquals(2, calls.size());
+    }
+
+    @Test
+    void get_ShouldReturnNullForKeyMissingFromResponse() {
+        // Given
+        BatchLoader<Long, String> loader = loader(keys -> Map.of(), Duration.ZERO, 100);
+
+        // When / Then
+        assertNull(loader.get(1L));
+    }
+
+    @Test
+    void get_ShouldThrowCallErrorToEveryKeyOfBatchAndForgetFailedKeys() {
+        // Given
+        IllegalStateException error = new IllegalStateException("user-service is unavailable");
+        BatchLoader<Long, String> loader = loader(keys -> {
+            throw error;
+        }, Duration.ofMillis(20), 100);
+        CompletableFuture<String> first = loader.load(1L);
+        CompletableFuture<String> second = loader.load(2L);
+
+        // When / Then: ошибка пробрасывается как есть, без обертки CompletionException
+        assertSame(error, assertThrows(IllegalStateException.class, () -> loader.get(1L)));
+        assertSame(error, assertThrows(CompletionException.class, second::join).getCause());
+        assertTrue(first.isCompletedExceptionally());
+
+        // Then: после ошибки ключ запрашивается заново
+        assertThrows(IllegalStateException.class, () -> loader.get(1L));
+        assertEquals(2, calls.size());
+    }
+
+    @Test
+    void get_ShouldStopWaitingAfterTimeoutWithoutFailingSharedResult() {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        BatchLoader<Long, String> loader = new BatchLoader<>(keys -> {
+            calls.add(List.copyOf(keys));
+            await(release);
+            return names(keys);
+        }, Duration.ZERO, 100, Duration.ofMillis(50));
+
+        // When
+        CompletionException timeout = assertThrows(CompletionException.class, () -> loader.get(1L));
+        CompletableFuture<String> shared = loader.load(1L);
+        release.countDown();
+
+        // Then
+        assertInstanceOf(TimeoutException.class, timeout.getCause());
+        assertEquals("name 1", shared.join());
+        assertEquals(1, calls.size());
+    }
+
+    private BatchLoader<Long, String> loader(Function<Collection<Long>, Map<Long, String>> batchCall,
+                                             Duration window, int maxBatchSize) {
+        return new BatchLoader<>(keys -> {
+            calls.add(List.copyOf(keys));
+            return batchCall.apply(keys);
+        }, window, maxBatchSize, TIMEOUT);
+    }
+
+    private Map<Long, String> names(Collection<Long> keys) {
+        return keys.stream().collect(Collectors.toMap(key -> key, key -> "name " + key));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,134 @@
+package ru.practicum.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import ru.practicum.dto.event.EventInteractionDto;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.practicum.constants.Constants.EVENT_CHANGED_CHANNEL;
+
+class EventNearCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private EventNearCache cache = cache(10, Map.of());
+
+    @AfterEach
+    void tearDown() {
+        cache.close();
+    }
+
+    @Test
+    void getInteraction_ShouldLoadOnceAndServeFromCache() {
+        // When
+        EventInteractionDto first = cache.getInteraction(1L, counting(EventInteractionDto::makeDummy));
+        EventInteractionDto second = cache.getInteraction(1L, counting(EventInteractionDto::makeDummy));
+
+        // Then
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void getInteraction_ShouldNotCacheValueLoadedWhileEntryWasInvalidated() {
+        // Given: уведомление об изменении пришло, пока шла загрузка - ответ мог быть прочитан до изменения
+        Function<Long, EventInteractionDto> racingLoader = counting(id -> {
+            cache.invalidate(id);
+            return EventInteractionDto.makeDummy(id);
+        });
+
+        // When
+        EventInteractionDto stale = cache.getInteraction(1L, racingLoader);
+        EventInteractionDto fresh = cache.getInteraction(1L, counting(EventInteractionDto::makeDummy));
+
+        // Then: вызывающий получает ответ, но следующее обращение загружает запись заново
+        assertEquals(1L, stale.getId());
+        assertNotSame(stale, fresh);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void getInteraction_ShouldNotCacheValueLoadedWhileCacheWasCleared() {
+        // When
+        cache.getInteraction(1L, counting(id -> {
+            cache.invalidateAll();
+            return EventInteractionDto.makeDummy(id);
+        }));
+        cache.getInteraction(1L, counting(EventInteractionDto::makeDummy));
+
+        // Then
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void getInteraction_ShouldCacheValueWhenOtherEntryWasInvalidatedDuringLoad() {
+        // When
+        EventInteractionDto loaded = cache.getInteraction(1L, counting(id -> {
+            cache.invalidate(2L);
+            return EventInteractionDto.makeDummy(id);
+        }));
+
+        // Then
+        assertSame(loaded, cache.getInteraction(1L, counting(EventInteractionDto::makeDummy)));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void invalidate_ShouldClearCacheWhenGenerationsExceedMaxSize() {
+        // Given
+        cache.close();
+        cache = cache(2, Map.of());
+        cache.getInteraction(1L, counting(EventInteractionDto::makeDummy));
+
+        // When
+        cache.invalidate(10L);
+        cache.invalidate(11L);
+        cache.invalidate(12L);
+        cache.getInteraction(1L, counting(EventInteractionDto::makeDummy));
+
+        // Then
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void getInteraction_ShouldReloadEntryAfterNotifyFromEventService() throws Exception {
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start()) {
+            // Given
+            cache.close();
+            cache = cache(10, Map.of("dataSource", postgres.getPostgresDatabase()));
+            cache.getInteraction(1L, counting(EventInteractionDto::makeDummy));
+
+            // When: подписка устанавливается в своем потоке, уведомление повторяется, пока запись не вычищена
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (loads.get() < 2 && System.nanoTime() < deadline) {
+                PgChannelListenerTest.execute(postgres, "NOTIFY " + EVENT_CHANGED_CHANNEL + ", '1'");
+                Thread.sleep(50);
+                cache.getInteraction(1L, counting(EventInteractionDto::makeDummy));
+            }
+
+            // Then
+            assertEquals(2, loads.get());
+        }
+    }
+
+    private Function<Long, EventInteractionDto> counting(Function<Long, EventInteractionDto> loader) {
+        return id -> {
+            loads.incrementAndGet();
+            return loader.apply(id);
+        };
+    }
+
+    private static EventNearCache cache(long maxSize, Map<String, DataSource> dataSource) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(Map.copyOf(dataSource));
+        return new EventNearCache(maxSize, 600_000, new SimpleMeterRegistry(), beanFactory.getBeanProvider(DataSource.class));
+    }
+
+}
@@ -0,0 +1,133 @@
+package ru.practicum.client;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// подписка на встроенном PostgreSQL: уведомления, потеря соединения и остановка
+class PgChannelListenerTest {
+
+    private static final String CHANNEL = "test_channel";
+
+    private static EmbeddedPostgres postgres;
+
+    private final Semaphore subscribed = new Semaphore(0);
+    private final BlockingQueue<String> notifications = new LinkedBlockingQueue<>();
+    private PgChannelListener listener;
+
+    @BeforeAll
+    static void startDatabase() throws IOException {
+        postgres = EmbeddedPostgres.builder().start();
+    }
+
+    @AfterAll
+    static void stopDatabase() throws IOException {
+        postgres.close();
+    }
+
+    // соединение закрывается в потоке подписки: следующий тест начинается без чужих LISTEN
+    @AfterEach
+    void tearDown() throws Exception {
+        if (listener != null) {
+            listener.close();
+        }
+        awaitNoListeners();
+    }
+
+    @Test
+    void listen_ShouldPassPayloadsOfChannelAfterSubscribe() throws Exception {
+        // Given
+        listener = new PgChannelListener(postgres.getPostgresDatabase(), CHANNEL, subscribed::release, notifications::add);
+        assertTrue(subscribed.tryAcquire(5, TimeUnit.SECONDS));
+
+        // When
+        execute("NOTIFY other_channel, '1'");
+        execute("NOTIFY " + CHANNEL + ", '42'");
+
+        // Then
+        assertEquals("42", notifications.poll(5, TimeUnit.SECONDS));
+        assertNull(notifications.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void listen_ShouldSubscribeAgainAfterConnectionLoss() throws Exception {
+        // Given
+        listener = new PgChannelListener(postgres.getPostgresDatabase(), CHANNEL, subscribed::release, notifications::add);
+        assertTrue(subscribed.tryAcquire(5, TimeUnit.SECONDS));
+
+        // When: соединение подписки обрывается на стороне сервера
+        assertEquals(1, terminateListeners());
+
+        // Then: после паузы подписка восстановлена, onSubscribe вызван снова, уведомления доходят
+        assertTrue(subscribed.tryAcquire(15, TimeUnit.SECONDS));
+        execute("NOTIFY " + CHANNEL + ", '7'");
+        assertEquals("7", notifications.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void close_ShouldReleaseConnection() throws Exception {
+        // Given
+        listener = new PgChannelListener(postgres.getPostgresDatabase(), CHANNEL, subscribed::release, notifications::add);
+        assertTrue(subscribed.tryAcquire(5, TimeUnit.SECONDS));
+
+        // When
+        listener.close();
+
+        // Then
+        awaitNoListeners();
+        assertEquals(0, listeners());
+    }
+
+    private static void awaitNoListeners() throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (listeners() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+    }
+
+    private static int listeners() throws SQLException {
+        return countListeners("SELECT count(*) FROM pg_stat_activity WHERE query = ?");
+    }
+
+    private static int terminateListeners() throws SQLException {
+        return countListeners("SELECT count(*) FROM (SELECT pg_terminate_backend(pid) FROM pg_stat_activity WHERE query = ?) t");
+    }
+
+    private static int countListeners(String sql) throws SQLException {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, "LISTEN " + CHANNEL);
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    static void execute(EmbeddedPostgres postgres, String sql) throws SQLException {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static void execute(String sql) throws SQLException {
+        execute(postgres, sql);
+    }
+
+}
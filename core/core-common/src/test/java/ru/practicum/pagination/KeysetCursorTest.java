@@ -0,0 +1,55 @@
+package ru.practicum.pagination;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+    @Test
+    void decode_ShouldRestoreEncodedCursor() {
+        // Given: ключ может содержать разделитель и символы не из ASCII
+        KeysetCursor cursor = new KeysetCursor("2030-01-01T12:00|концерт", 42L);
+
+        // When
+        String encoded = cursor.encode();
+
+        // Then
+        assertEquals(cursor, KeysetCursor.decode(encoded));
+        assertTrue(encoded.matches("[A-Za-z0-9_-]+"), encoded);
+    }
+
+    @Test
+    void decode_ShouldReturnNullForMissingCursor() {
+        assertNull(KeysetCursor.decode(null));
+        assertNull(KeysetCursor.decode(" "));
+    }
+
+    @Test
+    void decode_ShouldRejectMalformedCursor() {
+        assertThrows(BadRequestException.class, () -> KeysetCursor.decode("not base64!"));
+        assertThrows(BadRequestException.class, () -> KeysetCursor.decode(encode("no separator")));
+        assertThrows(BadRequestException.class, () -> KeysetCursor.decode(encode("id|key")));
+    }
+
+    @Test
+    void next_ShouldPointAtLastRowOfPageOnlyWhenExtraRowArrived() {
+        // Given
+        List<Long> full = List.of(1L, 2L, 3L);
+        List<Long> last = List.of(1L, 2L);
+
+        // When / Then
+        assertEquals(new KeysetCursor("", 2L), KeysetCursor.next(full, 2, id -> new KeysetCursor("", id)));
+        assertNull(KeysetCursor.next(last, 2, id -> new KeysetCursor("", id)));
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,67 @@
+package ru.practicum.pagination;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetSliceTest {
+
+    @Test
+    void ofRows_ShouldDropExtraRowAndPointCursorAtLastReturnedRow() {
+        // When
+        KeysetSlice<Long> slice = KeysetSlice.ofRows(List.of(1L, 2L, 3L), 2, KeysetSliceTest::cursorOf);
+
+        // Then
+        assertEquals(List.of(1L, 2L), slice.getContent());
+        assertTrue(slice.hasNext());
+        assertEquals(cursorOf(2L), slice.getNextCursor());
+    }
+
+    @Test
+    void ofRows_ShouldHaveNoCursorOnLastPage() {
+        // When
+        KeysetSlice<Long> slice = KeysetSlice.ofRows(List.of(1L, 2L), 2, KeysetSliceTest::cursorOf);
+
+        // Then
+        assertEquals(List.of(1L, 2L), slice.getContent());
+        assertFalse(slice.hasNext());
+        assertNull(slice.getNextCursor());
+    }
+
+    @Test
+    void ofPage_ShouldContinueAfterLastRowOfOffsetPage() {
+        // Given
+        PageImpl<Long> first = new PageImpl<>(List.of(1L, 2L), PageRequest.of(0, 2), 3);
+        PageImpl<Long> last = new PageImpl<>(List.of(3L), PageRequest.of(1, 2), 3);
+
+        // When / Then
+        assertEquals(cursorOf(2L), KeysetSlice.ofPage(first, KeysetSliceTest::cursorOf).getNextCursor());
+        assertNull(KeysetSlice.ofPage(last, KeysetSliceTest::cursorOf).getNextCursor());
+    }
+
+    @Test
+    void writeNextCursor_ShouldSetHeaderOnlyWhenNextPageExists() {
+        // Given
+        MockHttpServletResponse withNext = new MockHttpServletResponse();
+        MockHttpServletResponse withoutNext = new MockHttpServletResponse();
+
+        // When
+        List<Long> content = new KeysetSlice<>(List.of(1L), 1, cursorOf(1L)).writeNextCursor(withNext);
+        new KeysetSlice<>(List.of(1L), 1, null).writeNextCursor(withoutNext);
+
+        // Then
+        assertEquals(List.of(1L), content);
+        assertEquals(cursorOf(1L).encode(), withNext.getHeader(KeysetCursor.NEXT_CURSOR_HEADER));
+        assertFalse(withoutNext.containsHeader(KeysetCursor.NEXT_CURSOR_HEADER));
+    }
+
+    private static KeysetCursor cursorOf(Long id) {
+        return new KeysetCursor("key " + id, id);
+    }
+
+}
@@ -1,5 +1,6 @@
 package ru.practicum.event.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.RestController;
@@ -20,11 +21,14 @@ import java.util.List;
 public class EventAdminController implements EventAdminApi {
 
     private final EventAdminService eventAdminService;
+    // ответ текущего запроса: методы API общие с Feign-клиентами, поэтому ответ не передается параметром
+    private final HttpServletResponse response;
 
     // Поиск событий
     @Override
     public Collection<EventFullDto> getAllEventsByParams(List<Long> users, List<State> states, List<Long> categories,
-                                                         LocalDateTime rangeStart, LocalDateTime rangeEnd, Integer from, Integer size) {
+                                                         LocalDateTime rangeStart, LocalDateTime rangeEnd, Integer from, Integer size,
+                                                         String after) {
         EventAdminParams params = EventAdminParams.builder()
                 .users(users)
                 .states(states)
@@ -33,8 +37,9 @@ public class EventAdminController implements EventAdminApi {
                 .rangeEnd(rangeEnd)
                 .from(from)
                 .size(size)
+                .after(after)
                 .build();
-        return eventAdminService.getAllEventsByParams(params);
+        return eventAdminService.getAllEventsByParams(params).writeNextCursor(response);
     }
 
     // Редактирование данных события и его статуса (отклонение/публикация).
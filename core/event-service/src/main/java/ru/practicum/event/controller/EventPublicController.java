@@ -1,6 +1,7 @@
 package ru.practicum.event.controller;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.RestController;
@@ -18,6 +19,8 @@ import java.util.List;
 public class EventPublicController implements EventPublicApi {
 
     private final EventPublicService eventPublicService;
+    // ответ текущего запроса: методы API общие с Feign-клиентами, поэтому ответ не передается параметром
+    private final HttpServletResponse response;
 
     // Получение событий с возможностью фильтрации
     @Override
@@ -31,6 +34,7 @@ public class EventPublicController implements EventPublicApi {
             EventSort eventSort,
             Integer from,
             Integer size,
+            String after,
             HttpServletRequest request
     ) {
         EventParams params = EventParams.builder()
@@ -43,8 +47,9 @@ public class EventPublicController implements EventPublicApi {
                 .eventSort(eventSort)
                 .from(from)
                 .size(size)
+                .after(after)
                 .build();
-        return eventPublicService.getAllEventsByParams(params, request);
+        return eventPublicService.getAllEventsByParams(params, request).writeNextCursor(response);
     }
 
     // Получение подробной информации об опубликованном событии по его идентификатору
@@ -68,6 +73,11 @@ public class EventPublicController implements EventPublicApi {
         return eventPublicService.getEventInteractionDto(eventId);
     }
 
+    @Override
+    public Collection<EventInteractionDto> getEventInteractionDtoList(Collection<Long> eventIds) {
+        return eventPublicService.getEventInteractionDtoList(eventIds);
+    }
+
     @Override
     public Collection<EventShortDto> getRecommendations(Long userId, Integer size) {
         return eventPublicService.getRecommendations(userId, size);
@@ -19,7 +19,8 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Table(name = "events", indexes = {
         @Index(name = "idx_events_initiator_id", columnList = "initiator_id"),
-        @Index(name = "idx_events_categories_id", columnList = "categories_id")
+        @Index(name = "idx_events_categories_id", columnList = "categories_id"),
+        @Index(name = "idx_events_event_date", columnList = "event_date DESC, id")
 })
 public class Event {
 
@@ -71,4 +72,11 @@ public class Event {
     @Column(name = "created_on", nullable = false)
     private LocalDateTime createdOn;
 
+    // только для сортировки по рейтингу в запросах: строка event_rating может появиться позже события
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "id", referencedColumnName = "event_id", insertable = false, updatable = false,
+            foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    @ToString.Exclude
+    private EventRating rating;
+
 }
\ No newline at end of file
@@ -0,0 +1,31 @@
+package ru.practicum.event.dal;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Локальная копия рейтинга события из анализатора: сумма весов взаимодействий пользователей с событием.
+ * Строка заводится при публикации события и обновляется {@link ru.practicum.event.service.EventRatingRefresher}.
+ */
+@Getter
+@Setter
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@ToString
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "event_rating", indexes = {
+        @Index(name = "idx_event_rating_rating", columnList = "rating DESC, event_id")
+})
+public class EventRating {
+
+    @Id
+    @EqualsAndHashCode.Include
+    @Column(name = "event_id")
+    private Long eventId;
+
+    @Column(name = "rating", nullable = false)
+    private Double rating;
+
+}
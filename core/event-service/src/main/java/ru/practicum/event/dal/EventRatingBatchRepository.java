@@ -0,0 +1,10 @@
+package ru.practicum.event.dal;
+
+import java.util.Map;
+
+public interface EventRatingBatchRepository {
+
+    // вставка или замена рейтингов событий, строки с тем же значением не трогаются
+    void upsertAll(Map<Long, Double> ratings);
+
+}
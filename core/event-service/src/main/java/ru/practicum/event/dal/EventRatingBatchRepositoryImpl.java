@@ -0,0 +1,41 @@
+package ru.practicum.event.dal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class EventRatingBatchRepositoryImpl implements EventRatingBatchRepository {
+
+    private static final int BATCH_ROWS = 500;
+    private static final String INSERT = "INSERT INTO event_rating (event_id, rating) VALUES ";
+    private static final String ON_CONFLICT = """
+             ON CONFLICT (event_id) DO UPDATE
+            SET rating = EXCLUDED.rating
+            WHERE event_rating.rating IS DISTINCT FROM EXCLUDED.rating
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void upsertAll(Map<Long, Double> ratings) {
+        // строки блокируются в порядке event_id, чтобы обновление не взаимоблокировалось с публикацией событий
+        List<Map.Entry<Long, Double>> rows = new ArrayList<>(ratings.entrySet());
+        rows.sort(Map.Entry.comparingByKey());
+        for (int from = 0; from < rows.size(); from += BATCH_ROWS) {
+            List<Map.Entry<Long, Double>> chunk = rows.subList(from, Math.min(from + BATCH_ROWS, rows.size()));
+            Object[] params = new Object[chunk.size() * 2];
+            int i = 0;
+            for (Map.Entry<Long, Double> row : chunk) {
+                params[i++] = row.getKey();
+                params[i++] = row.getValue();
+            }
+            jdbcTemplate.update(INSERT + String.join(", ", Collections.nCopies(chunk.size(), "(?, ?)")) + ON_CONFLICT, params);
+        }
+    }
+
+}
@@ -0,0 +1,7 @@
+package ru.practicum.event.dal;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface EventRatingRepository extends JpaRepository<EventRating, Long>, EventRatingBatchRepository {
+
+}
@@ -3,6 +3,8 @@ package ru.practicum.event.dal;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.practicum.dto.event.State;
 
 import java.util.List;
@@ -16,4 +18,16 @@ public interface EventRepository extends JpaRepository<Event, Long>, JpaSpecific
 
     boolean existsByCategoryId(Long catId);
 
+    @Query("""
+            SELECT e.id
+            FROM Event e
+            WHERE e.state = :state AND e.id > :afterId
+            ORDER BY e.id
+            """)
+    List<Long> findIdsByStateAfter(
+            @Param("state") State state,
+            @Param("afterId") Long afterId,
+            Pageable pageable
+    );
+
 }
\ No newline at end of file
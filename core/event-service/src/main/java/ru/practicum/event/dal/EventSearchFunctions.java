@@ -0,0 +1,62 @@
+package ru.practicum.event.dal;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.BasicType;
+import org.hibernate.type.StandardBasicTypes;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Функции полнотекстового поиска по событиям для Criteria API.
+ * Выражение документа совпадает с выражением индекса idx_events_search из import.sql - иначе индекс не используется.
+ * Аргументы: title, annotation, description, префиксный запрос {@link #prefixQuery}
+ * и для {@link #MATCH} - образец {@link #likePattern}.
+ * <p>
+ * Совпадение - слова запроса как префиксы слов документа или подстрока annotation или description без учета регистра,
+ * как у прежнего фильтра; подстроку ищут триграммные индексы idx_events_annotation_trgm и idx_events_description_trgm.
+ */
+public class EventSearchFunctions implements FunctionContributor {
+
+    public static final String MATCH = "event_text_match";
+    public static final String RANK = "event_text_rank";
+
+    private static final String DOCUMENT = "(setweight(to_tsvector('simple', ?1), 'A')"
+            + " || setweight(to_tsvector('simple', ?2), 'B')"
+            + " || setweight(to_tsvector('simple', ?3), 'C'))";
+    private static final String QUERY = "to_tsquery('simple', ?4)";
+    private static final String SUBSTRING = "lower(?2) LIKE ?5 ESCAPE '\\' OR lower(?3) LIKE ?5 ESCAPE '\\'";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        BasicType<Boolean> booleanType = functionContributions.getTypeConfiguration()
+                .getBasicTypeRegistry().resolve(StandardBasicTypes.BOOLEAN);
+        BasicType<Double> doubleType = functionContributions.getTypeConfiguration()
+                .getBasicTypeRegistry().resolve(StandardBasicTypes.DOUBLE);
+
+        functionContributions.getFunctionRegistry()
+                .registerPattern(MATCH, "(" + DOCUMENT + " @@ " + QUERY + " OR " + SUBSTRING + ")", booleanType);
+        functionContributions.getFunctionRegistry()
+                .registerPattern(RANK, "ts_rank(" + DOCUMENT + ", " + QUERY + ")", doubleType);
+    }
+
+    // "rock conc" -> "rock:* & conc:*"; знаки препинания и операторы tsquery отбрасываются
+    public static String prefixQuery(String text) {
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .map(word -> word + ":*")
+                .collect(Collectors.joining(" & "));
+    }
+
+    // подстрока для LIKE без учета регистра, % и _ из текста ищутся как обычные символы
+    public static String likePattern(String text) {
+        String escaped = text.toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+
+}
@@ -1,19 +1,32 @@
 package ru.practicum.event.dal;
 
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
 import jakarta.persistence.criteria.Predicate;
 import org.springframework.data.jpa.domain.Specification;
 import ru.practicum.dto.event.EventAdminParams;
 import ru.practicum.dto.event.EventParams;
+import ru.practicum.dto.event.EventSort;
+import ru.practicum.dto.event.State;
+import ru.practicum.exception.BadRequestException;
+import ru.practicum.pagination.KeysetCursor;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
 public class JpaSpecifications {
 
-    public static Specification<Event> adminFilters(EventAdminParams params) {
+    public static Specification<Event> adminFilters(EventAdminParams params, KeysetCursor after) {
         return (root, query, cb) -> {
             List<Predicate> predicates = new ArrayList<>();
 
+            if (after != null)
+                predicates.add(cb.greaterThan(root.get("id"), after.id()));
+
             if (params.getUsers() != null && !params.getUsers().isEmpty())
                 predicates.add(root.get("initiatorId").in(params.getUsers()));
 
@@ -29,19 +42,33 @@ public class JpaSpecifications {
             if (params.getRangeEnd() != null)
                 predicates.add(cb.lessThanOrEqualTo(root.get("eventDate"), params.getRangeEnd()));
 
+            query.orderBy(cb.asc(root.get("id")));
+
             return cb.and(predicates.toArray(new Predicate[0]));
         };
     }
 
-    public static Specification<Event> publicFilters(EventParams params) {
+    public static KeysetCursor adminCursor(Event event) {
+        return new KeysetCursor("", event.getId());
+    }
+
+    // after - позиция в порядке сортировки params.getEventSort(), выдача продолжается строго после нее
+    public static Specification<Event> publicFilters(EventParams params, KeysetCursor after) {
+        if (after != null && !isDateSort(params) && !isRatingSort(params)) {
+            throw new BadRequestException("Cursor pagination is not supported for sort " + params.getEventSort());
+        }
+        // значение ключа разбирается здесь, а не в запросе: испорченный курсор - ошибка клиента
+        LocalDateTime afterDate = after != null && isDateSort(params) ? parseKey(after, LocalDateTime::parse) : null;
+        Double afterRating = after != null && isRatingSort(params) ? parseKey(after, Double::valueOf) : null;
         return (root, query, cb) -> {
             List<Predicate> predicates = new ArrayList<>();
 
-            if (params.getText() != null && !params.getText().isEmpty()) {
-                String searchPattern = "%" + params.getText().toLowerCase() + "%";
-                Predicate annotationPredicate = cb.like(cb.lower(root.get("annotation")), searchPattern);
-                Predicate descriptionPredicate = cb.like(cb.lower(root.get("description")), searchPattern);
-                predicates.add(cb.or(annotationPredicate, descriptionPredicate));
+            if (hasText(params)) {
+                // префиксы слов по GIN-индексу idx_events_search и подстрока по триграммным индексам вместо последовательного LIKE
+                predicates.add(cb.isTrue(cb.function(EventSearchFunctions.MATCH, Boolean.class,
+                        root.get("title"), root.get("annotation"), root.get("description"),
+                        cb.literal(EventSearchFunctions.prefixQuery(params.getText())),
+                        cb.literal(EventSearchFunctions.likePattern(params.getText())))));
             }
 
             if (params.getCategories() != null && !params.getCategories().isEmpty())
@@ -55,9 +82,86 @@ public class JpaSpecifications {
             if (params.getRangeEnd() != null)
                 predicates.add(cb.lessThanOrEqualTo(root.get("eventDate"), params.getRangeEnd()));
 
+            // страница выбирается уже в нужном порядке; id - для устойчивого порядка между страницами
+            if (isRelevanceSort(params)) {
+                query.orderBy(
+                        cb.desc(cb.function(EventSearchFunctions.RANK, Double.class,
+                                root.get("title"), root.get("annotation"), root.get("description"),
+                                cb.literal(EventSearchFunctions.prefixQuery(params.getText())))),
+                        cb.asc(root.get("id"))
+                );
+            } else if (isRatingSort(params)) {
+                // выдача по рейтингу - только опубликованные события; событие без строки event_rating
+                // (опубликовано до ее появления или до прохода EventRatingRefresher) идет с нулевым рейтингом
+                predicates.add(cb.equal(root.get("state"), State.PUBLISHED));
+                Join<Event, EventRating> rating = root.join("rating", JoinType.LEFT);
+                Expression<Double> score = cb.coalesce(rating.<Double>get("rating"), 0.0);
+                query.orderBy(cb.desc(score), cb.asc(root.get("id")));
+                if (afterRating != null) {
+                    predicates.add(seekDescending(cb, score, afterRating, root.<Long>get("id"), after.id()));
+                }
+            } else {
+                query.orderBy(cb.desc(root.get("eventDate")), cb.asc(root.get("id")));
+                if (afterDate != null) {
+                    predicates.add(seekDescending(cb, root.<LocalDateTime>get("eventDate"), afterDate, root.<Long>get("id"), after.id()));
+                }
+            }
+
             return cb.and(predicates.toArray(new Predicate[0]));
         };
     }
 
+    /**
+     * Курсор строится по тому же ключу, по которому упорядочена выдача; по релевантности курсора нет.
+     * <p>
+     * Ограничение курсора по рейтингу: рейтинги меняются при каждом проходе {@link ru.practicum.event.service.EventRatingRefresher},
+     * а курсор хранит рейтинг последней строки на момент выдачи. Страницы, полученные между проходами, согласованы;
+     * после прохода продолжение идет от старого значения рейтинга, и события, чей рейтинг за это время пересек его,
+     * могут повториться или пропасть. Стабильный обход всей выдачи дает только сортировка по дате.
+     */
+    public static Function<Event, KeysetCursor> publicCursor(EventParams params) {
+        if (isRatingSort(params)) {
+            return event -> new KeysetCursor(String.valueOf(event.getRating() == null ? 0.0 : event.getRating().getRating()),
+                    event.getId());
+        }
+        if (isDateSort(params)) {
+            return event -> new KeysetCursor(event.getEventDate().toString(), event.getId());
+        }
+        return event -> null;
+    }
+
+    private static boolean isRatingSort(EventParams params) {
+        return params.getEventSort() == EventSort.VIEWS || params.getEventSort() == EventSort.RATING;
+    }
+
+    // RELEVANCE без текста упорядочивается по дате
+    private static boolean isRelevanceSort(EventParams params) {
+        return params.getEventSort() == EventSort.RELEVANCE && hasText(params);
+    }
+
+    private static boolean isDateSort(EventParams params) {
+        return !isRatingSort(params) && !isRelevanceSort(params);
+    }
+
+    private static boolean hasText(EventParams params) {
+        return params.getText() != null && !params.getText().isBlank();
+    }
+
+    // (key DESC, id ASC): строки с меньшим ключом или с тем же ключом и большим id
+    private static <K extends Comparable<? super K>> Predicate seekDescending(CriteriaBuilder cb, Expression<K> key, K afterKey,
+                                                                           Expression<Long> id, long afterId) {
+        return cb.or(
+                cb.lessThan(key, afterKey),
+                cb.and(cb.equal(key, afterKey), cb.greaterThan(id, afterId))
+        );
+    }
+
+    private static <K> K parseKey(KeysetCursor cursor, Function<String, K> parser) {
+        try {
+            return parser.apply(cursor.key());
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Malformed cursor key " + cursor.key());
+        }
+    }
 
 }
\ No newline at end of file
@@ -3,11 +3,10 @@ package ru.practicum.event.service;
 import ru.practicum.dto.event.EventAdminParams;
 import ru.practicum.dto.event.EventFullDto;
 import ru.practicum.dto.event.UpdateEventDto;
-
-import java.util.List;
+import ru.practicum.pagination.KeysetSlice;
 
 public interface EventAdminService {
-    List<EventFullDto> getAllEventsByParams(EventAdminParams eventAdminParams);
+    KeysetSlice<EventFullDto> getAllEventsByParams(EventAdminParams eventAdminParams);
 
     EventFullDto updateEventByAdmin(Long eventId, UpdateEventDto updateEventDto);
 }
\ No newline at end of file
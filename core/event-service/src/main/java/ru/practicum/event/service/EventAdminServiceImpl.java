@@ -1,27 +1,26 @@
 package ru.practicum.event.service;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.category.dal.Category;
 import ru.practicum.category.dal.CategoryRepository;
-import ru.practicum.client.RequestClientHelper;
-import ru.practicum.client.UserClientHelper;
 import ru.practicum.dto.event.*;
-import ru.practicum.dto.user.UserShortDto;
 import ru.practicum.event.dal.Event;
+import ru.practicum.event.dal.EventRating;
+import ru.practicum.event.dal.EventRatingRepository;
 import ru.practicum.event.dal.EventRepository;
 import ru.practicum.event.dal.JpaSpecifications;
-import ru.practicum.ewm.client.StatClient;
 import ru.practicum.exception.ConflictException;
 import ru.practicum.exception.NotFoundException;
+import ru.practicum.pagination.KeysetCursor;
+import ru.practicum.pagination.KeysetSlice;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -33,36 +32,41 @@ public class EventAdminServiceImpl implements EventAdminService {
     private final TransactionTemplate transactionTemplate;
     private final EventRepository eventRepository;
     private final CategoryRepository categoryRepository;
+    private final EventRatingRepository eventRatingRepository;
 
-    private final RequestClientHelper requestClientHelper;
-    private final UserClientHelper userClientHelper;
-
-    private final StatClient statClient;
+    private final EventLookups eventLookups;
+    private final EventChangeNotifier eventChangeNotifier;
 
     // Поиск событий
     @Override
-    public List<EventFullDto> getAllEventsByParams(EventAdminParams params) {
-        Page<Event> events = transactionTemplate.execute(status -> {
+    public KeysetSlice<EventFullDto> getAllEventsByParams(EventAdminParams params) {
+        // с курсором страница выбирается по id без OFFSET и без подсчета строк
+        KeysetCursor after = KeysetCursor.decode(params.getAfter());
+        Specification<Event> spec = JpaSpecifications.adminFilters(params, after);
+        KeysetSlice<Event> eventSlice = transactionTemplate.execute(status -> {
+            if (after != null) {
+                List<Event> rows = eventRepository.findBy(spec, query -> query.limit(params.getSize() + 1).all());
+                return KeysetSlice.ofRows(rows, params.getSize(), JpaSpecifications::adminCursor);
+            }
             Pageable pageable = PageRequest.of(params.getFrom() / params.getSize(), params.getSize());
-            return eventRepository.findAll(JpaSpecifications.adminFilters(params), pageable);
+            return KeysetSlice.ofPage(eventRepository.findAll(spec, pageable), JpaSpecifications::adminCursor);
         });
-        if (events == null) return List.of();
+        List<Event> events = eventSlice.getContent();
 
         Set<Long> userIds = events.stream().map(Event::getInitiatorId).collect(Collectors.toSet());
         List<Long> eventIds = events.stream().map(Event::getId).toList();
 
-        Map<Long, UserShortDto> userMap = userClientHelper.retrieveUserShortDtoMapByUserIdList(userIds);
-        Map<Long, Long> confirmedRequestsMap = requestClientHelper.retrieveConfirmedRequestsMapByEventIdList(eventIds);
-        Map<Long, Double> ratingMap = statClient.getRatingsByEventIdList(eventIds);
+        EventLookups.Details details = eventLookups.forEvents(userIds, eventIds);
 
-        return events.stream()
+        List<EventFullDto> result = events.stream()
                 .map(e -> EventMapper.toEventFullDto(
                         e,
-                        userMap.get(e.getInitiatorId()),
-                        confirmedRequestsMap.get(e.getId()),
-                        ratingMap.get(e.getId())
+                        details.user(e.getInitiatorId()),
+                        details.confirmedRequests(e.getId()),
+                        details.rating(e.getId())
                 ))
                 .toList();
+        return new KeysetSlice<>(result, params.getSize(), eventSlice.getNextCursor());
     }
 
     // Редактирование данных события и его статуса (отклонение/публикация).
@@ -74,9 +78,7 @@ public class EventAdminServiceImpl implements EventAdminService {
                     .getInitiatorId();
         });
 
-        UserShortDto userShortDto = userClientHelper.retrieveUserShortDtoByUserId(initiatorId);
-        Map<Long, Long> confirmedRequestsMap = requestClientHelper.retrieveConfirmedRequestsMapByEventIdList(List.of(eventId));
-        Map<Long, Double> ratingMap = statClient.getRatingsByEventIdList(List.of(eventId));
+        EventLookups.Details details = eventLookups.forEvent(initiatorId, eventId);
 
         return transactionTemplate.execute(status -> {
             Event event = eventRepository.findById(eventId)
@@ -130,11 +132,16 @@ public class EventAdminServiceImpl implements EventAdminService {
                 }
                 event.setState(State.PUBLISHED);
                 event.setPublishedOn(LocalDateTime.now());
+                // опубликованное событие сразу участвует в сортировке по рейтингу, не дожидаясь обновления из анализатора
+                if (!eventRatingRepository.existsById(eventId)) {
+                    eventRatingRepository.save(new EventRating(eventId, 0.0));
+                }
             }
 
             eventRepository.save(event);
+            eventChangeNotifier.eventChanged(eventId);
 
-            return EventMapper.toEventFullDto(event, userShortDto, confirmedRequestsMap.get(eventId), ratingMap.get(eventId));
+            return EventMapper.toEventFullDto(event, details.user(initiatorId), details.confirmedRequests(eventId), details.rating(eventId));
         });
     }
 
@@ -0,0 +1,24 @@
+package ru.practicum.event.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import static ru.practicum.constants.Constants.EVENT_CHANGED_CHANNEL;
+
+/**
+ * Сообщение другим сервисам об изменении события через NOTIFY в общей БД.
+ * Вызывается внутри транзакции изменения: уведомление доставляется только при ее коммите,
+ * так что слушатели не увидят изменения, которое потом откатилось.
+ */
+@Component
+@RequiredArgsConstructor
+public class EventChangeNotifier {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void eventChanged(Long eventId) {
+        jdbcTemplate.execute("NOTIFY " + EVENT_CHANGED_CHANNEL + ", '" + eventId + "'");
+    }
+
+}
@@ -0,0 +1,164 @@
+package ru.practicum.event.service;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.client.RequestClientHelper;
+import ru.practicum.client.UserClientHelper;
+import ru.practicum.dto.user.UserShortDto;
+import ru.practicum.ewm.client.StatClient;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Параллельные обращения к user-service, request-service и сервису статистики при сборке ответов по событиям.
+ * <ul>
+ *     <li>обращения одного вызова выполняются одновременно на виртуальных потоках, с MDC и текущим
+ *     наблюдением (трассой) вызывающего потока;</li>
+ *     <li>у всех обращений общий срок timeout-ms от начала вызова;</li>
+ *     <li>не успевшее к сроку обращение отменяется и заменяется тем же запасным значением,
+ *     что хелперы отдают при ошибке сервиса.</li>
+ * </ul>
+ * Время ответа - самое долгое из обращений, а не их сумма.
+ */
+@Slf4j
+@Component
+public class EventLookups {
+
+    private final UserClientHelper userClientHelper;
+    private final RequestClientHelper requestClientHelper;
+    private final StatClient statClient;
+    private final ObservationRegistry observationRegistry;
+    private final long timeoutNanos;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public EventLookups(UserClientHelper userClientHelper,
+                        RequestClientHelper requestClientHelper,
+                        StatClient statClient,
+                        ObjectProvider<ObservationRegistry> observationRegistry,
+                        @Value("${explore-with-me.lookups.timeout-ms:3000}") long timeoutMs) {
+        this.userClientHelper = userClientHelper;
+        this.requestClientHelper = requestClientHelper;
+        this.statClient = statClient;
+        this.observationRegistry = observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP);
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    }
+
+    /**
+     * Инициатор, подтвержденные заявки и рейтинг одного события.
+     * Отсутствующий инициатор - NotFoundException, как при отдельном запросе пользователя.
+     */
+    public Details forEvent(Long initiatorId, Long eventId) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        Future<UserShortDto> user = submit(() -> userClientHelper.retrieveUserShortDtoByUserId(initiatorId));
+        Future<Map<Long, Long>> confirmedRequests = submit(() -> confirmedRequests(List.of(eventId)));
+        Future<Map<Long, Double>> ratings = submit(() -> statClient.getRatingsByEventIdList(List.of(eventId)));
+        return new Details(
+                Collections.singletonMap(initiatorId,
+                        join("user " + initiatorId, user, deadline, () -> UserShortDto.makeDummy(initiatorId))),
+                join("confirmed requests", confirmedRequests, deadline, () -> unknownConfirmedRequests(List.of(eventId))),
+                join("ratings", ratings, deadline, Map::of));
+    }
+
+    // инициаторы, подтвержденные заявки и рейтинги списка событий
+    public Details forEvents(Collection<Long> initiatorIds, List<Long> eventIds) {
+        return forEvents(initiatorIds, eventIds, null);
+    }
+
+    // то же с уже известными рейтингами: сервис статистики не запрашивается
+    public Details forEvents(Collection<Long> initiatorIds, List<Long> eventIds, Map<Long, Double> knownRatings) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        Future<Map<Long, UserShortDto>> users = submit(() -> userClientHelper.retrieveUserShortDtoMapByUserIdList(initiatorIds));
+        Future<Map<Long, Long>> confirmedRequests = submit(() -> confirmedRequests(eventIds));
+        Future<Map<Long, Double>> ratings = knownRatings == null
+                ? submit(() -> statClient.getRatingsByEventIdList(eventIds))
+                : CompletableFuture.completedFuture(knownRatings);
+        return new Details(
+                join("users", users, deadline, () -> initiatorIds.stream()
+                        .collect(Collectors.toMap(id -> id, UserShortDto::makeDummy, (a, b) -> a))),
+                join("confirmed requests", confirmedRequests, deadline, () -> unknownConfirmedRequests(eventIds)),
+                join("ratings", ratings, deadline, Map::of));
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private Map<Long, Long> confirmedRequests(Collection<Long> eventIds) {
+        return requestClientHelper.retrieveConfirmedRequestsMapByEventIdList(eventIds);
+    }
+
+    private static Map<Long, Long> unknownConfirmedRequests(Collection<Long> eventIds) {
+        return eventIds.stream().collect(Collectors.toMap(id -> id, id -> -1L, (a, b) -> a));
+    }
+
+    // MDC и наблюдение вызывающего потока переносятся в поток обращения и снимаются после него
+    private <T> Future<T> submit(Callable<T> call) {
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        Observation observation = observationRegistry.getCurrentObservation();
+        return executor.submit(() -> {
+            if (mdc != null) {
+                MDC.setContextMap(mdc);
+            }
+            try (Observation.Scope ignored = observation == null ? null : observation.openScope()) {
+                return call.call();
+            } finally {
+                MDC.clear();
+            }
+        });
+    }
+
+    // ошибки вроде NotFoundException доходят до вызывающего как есть, запасное значение - только по сроку
+    private static <T> T join(String name, Future<T> future, long deadline, Supplier<T> fallback) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("Lookup of {} did not finish in time, using fallback", name);
+            return fallback.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return fallback.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Данные для ответов по событиям: инициатор по id пользователя, подтвержденные заявки и рейтинг по id события.
+     */
+    public record Details(Map<Long, UserShortDto> users, Map<Long, Long> confirmedRequests, Map<Long, Double> ratings) {
+
+        public UserShortDto user(Long userId) {
+            return users.get(userId);
+        }
+
+        public Long confirmedRequests(Long eventId) {
+            return confirmedRequests.get(eventId);
+        }
+
+        public Double rating(Long eventId) {
+            return ratings.get(eventId);
+        }
+    }
+
+}
@@ -8,19 +8,16 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.category.dal.Category;
 import ru.practicum.category.dal.CategoryRepository;
-import ru.practicum.client.RequestClientHelper;
 import ru.practicum.client.UserClientHelper;
 import ru.practicum.dto.event.*;
 import ru.practicum.dto.user.UserShortDto;
 import ru.practicum.event.dal.Event;
 import ru.practicum.event.dal.EventRepository;
-import ru.practicum.ewm.client.StatClient;
 import ru.practicum.exception.ConflictException;
 import ru.practicum.exception.NotFoundException;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 
 @Service
@@ -32,9 +29,8 @@ public class EventPrivateServiceImpl implements EventPrivateService {
     private final EventRepository eventRepository;
 
     private final UserClientHelper userClientHelper;
-    private final RequestClientHelper requestClientHelper;
-
-    private final StatClient statClient;
+    private final EventLookups eventLookups;
+    private final EventChangeNotifier eventChangeNotifier;
 
     // Добавление нового события
     @Override
@@ -62,34 +58,33 @@ public class EventPrivateServiceImpl implements EventPrivateService {
         if (!Objects.equals(userId, event.getInitiatorId()))
             throw new ConflictException("User " + userId + " is not an initiator of event " + eventId, "Forbidden action");
 
-        UserShortDto userShortDto = userClientHelper.retrieveUserShortDtoByUserId(userId);
-        Map<Long, Long> confirmedRequestsMap = requestClientHelper.retrieveConfirmedRequestsMapByEventIdList(List.of(eventId));
-        Map<Long, Double> ratingMap = statClient.getRatingsByEventIdList(List.of(eventId));
+        EventLookups.Details details = eventLookups.forEvent(userId, eventId);
 
-        return EventMapper.toEventFullDto(event, userShortDto, confirmedRequestsMap.get(eventId), ratingMap.get(eventId));
+        return EventMapper.toEventFullDto(event, details.user(userId), details.confirmedRequests(eventId), details.rating(eventId));
     }
 
     // Получение событий, добавленных текущим пользователем
     @Override
     public List<EventShortDto> getEventsByUserId(Long userId, Integer from, Integer size) {
-        UserShortDto userShortDto = userClientHelper.retrieveUserShortDtoByUserId(userId);
-
         List<Event> events = transactionTemplate.execute(status -> {
             Pageable pageable = PageRequest.of(from / size, size, Sort.by("eventDate").descending());
             return eventRepository.findByInitiatorId(userId, pageable);
         });
-        if (events == null || events.isEmpty()) return List.of();
+        if (events == null || events.isEmpty()) {
+            // без событий пользователь все равно проверяется: для несуществующего - 404
+            userClientHelper.retrieveUserShortDtoByUserId(userId);
+            return List.of();
+        }
 
         List<Long> eventIds = events.stream().map(Event::getId).toList();
-        Map<Long, Long> confirmedRequestsMap = requestClientHelper.retrieveConfirmedRequestsMapByEventIdList(eventIds);
-        Map<Long, Double> ratingMap = statClient.getRatingsByEventIdList(eventIds);
+        EventLookups.Details details = eventLookups.forEvents(List.of(userId), eventIds);
 
         return events.stream()
                 .map(e -> EventMapper.toEventShortDto(
                         e,
-                        userShortDto,
-                        confirmedRequestsMap.get(e.getId()),
-                        ratingMap.get(e.getId())
+                        details.user(userId),
+                        details.confirmedRequests(e.getId()),
+                        details.rating(e.getId())
                 ))
                 .toList();
     }
@@ -97,9 +92,7 @@ public class EventPrivateServiceImpl implements EventPrivateService {
     // Изменение события добавленного текущим пользователем
     @Override
     public EventFullDto updateEventByUserIdAndEventId(Long userId, Long eventId, UpdateEventDto updateEventDto) {
-        UserShortDto userShortDto = userClientHelper.retrieveUserShortDtoByUserId(userId);
-        Map<Long, Long> confirmedRequestsMap = requestClientHelper.retrieveConfirmedRequestsMapByEventIdList(List.of(eventId));
-        Map<Long, Double> ratingMap = statClient.getRatingsByEventIdList(List.of(eventId));
+        EventLookups.Details details = eventLookups.forEvent(userId, eventId);
 
         return transactionTemplate.execute(status -> {
             Event event = eventRepository.findById(eventId)
@@ -156,8 +149,9 @@ public class EventPrivateServiceImpl implements EventPrivateService {
             }
 
             eventRepository.save(event);
+            eventChangeNotifier.eventChanged(eventId);
 
-            return EventMapper.toEventFullDto(event, userShortDto, confirmedRequestsMap.get(eventId), ratingMap.get(eventId));
+            return EventMapper.toEventFullDto(event, details.user(userId), details.confirmedRequests(eventId), details.rating(eventId));
         });
     }
 
@@ -2,13 +2,14 @@ package ru.practicum.event.service;
 
 import jakarta.servlet.http.HttpServletRequest;
 import ru.practicum.dto.event.*;
+import ru.practicum.pagination.KeysetSlice;
 
 import java.util.Collection;
 import java.util.List;
 
 public interface EventPublicService {
 
-    List<EventShortDto> getAllEventsByParams(EventParams eventParams, HttpServletRequest request);
+    KeysetSlice<EventShortDto> getAllEventsByParams(EventParams eventParams, HttpServletRequest request);
 
     EventFullDto getEventById(Long userId, Long eventId, HttpServletRequest request);
 
@@ -18,6 +19,8 @@ public interface EventPublicService {
 
     EventInteractionDto getEventInteractionDto(Long id);
 
+    Collection<EventInteractionDto> getEventInteractionDtoList(Collection<Long> ids);
+
     Collection<EventShortDto> getRecommendations(Long userId, Integer size);
 
     String sendLike(Long userId, Long eventId);
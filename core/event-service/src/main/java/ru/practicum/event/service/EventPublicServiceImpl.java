@@ -3,22 +3,24 @@ package ru.practicum.event.service;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.client.RequestClientHelper;
-import ru.practicum.client.UserClientHelper;
 import ru.practicum.dto.event.*;
-import ru.practicum.dto.user.UserShortDto;
 import ru.practicum.event.dal.Event;
 import ru.practicum.event.dal.EventRepository;
 import ru.practicum.event.dal.JpaSpecifications;
 import ru.practicum.ewm.client.StatClient;
 import ru.practicum.exception.BadRequestException;
 import ru.practicum.exception.NotFoundException;
+import ru.practicum.pagination.KeysetCursor;
+import ru.practicum.pagination.KeysetSlice;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,14 +30,14 @@ public class EventPublicServiceImpl implements EventPublicService {
     private final TransactionTemplate transactionTemplate;
     private final EventRepository eventRepository;
 
-    private final UserClientHelper userClientHelper;
     private final RequestClientHelper requestClientHelper;
+    private final EventLookups eventLookups;
 
     private final StatClient statClient;
 
     // Получение событий с возможностью фильтрации
     @Override
-    public List<EventShortDto> getAllEventsByParams(EventParams params, HttpServletRequest request) {
+    public KeysetSlice<EventShortDto> getAllEventsByParams(EventParams params, HttpServletRequest request) {
         if (params.getRangeStart() != null && params.getRangeEnd() != null && params.getRangeEnd().isBefore(params.getRangeStart())) {
             throw new BadRequestException("rangeStart should be before rangeEnd");
         }
@@ -46,47 +48,47 @@ public class EventPublicServiceImpl implements EventPublicService {
             params.setRangeEnd(null);
         }
 
-        List<Event> events = transactionTemplate.execute(status -> {
+        // с курсором страница выбирается по (ключ сортировки, id) без OFFSET и без подсчета строк
+        KeysetCursor after = KeysetCursor.decode(params.getAfter());
+        Specification<Event> spec = JpaSpecifications.publicFilters(params, after);
+        Function<Event, KeysetCursor> cursorOf = JpaSpecifications.publicCursor(params);
+        KeysetSlice<Event> eventSlice = transactionTemplate.execute(status -> {
+            if (after != null) {
+                List<Event> rows = eventRepository.findBy(spec, query -> query.limit(params.getSize() + 1).all());
+                return KeysetSlice.ofRows(rows, params.getSize(), cursorOf);
+            }
             PageRequest pageRequest = PageRequest.of(params.getFrom() / params.getSize(), params.getSize());
-            return eventRepository.findAll(JpaSpecifications.publicFilters(params), pageRequest).getContent();
+            return KeysetSlice.ofPage(eventRepository.findAll(spec, pageRequest), cursorOf);
         });
-        if (events == null) return List.of();
+        List<Event> events = eventSlice.getContent();
 
         Set<Long> userIds = events.stream().map(Event::getInitiatorId).collect(Collectors.toSet());
-        Map<Long, UserShortDto> userMap = userClientHelper.retrieveUserShortDtoMapByUserIdList(userIds);
-
         // информация о каждом событии должна включать в себя количество просмотров и количество уже одобренных заявок на участие
         List<Long> eventIds = events.stream().map(Event::getId).toList();
-        Map<Long, Long> confirmedRequestsMap = requestClientHelper.retrieveConfirmedRequestsMapByEventIdList(eventIds);
-        Map<Long, Double> ratingMap = statClient.getRatingsByEventIdList(eventIds);
 
-        if (params.getOnlyAvailable() == true && !confirmedRequestsMap.isEmpty()) {
+        EventLookups.Details details = eventLookups.forEvents(userIds, eventIds);
+
+        if (params.getOnlyAvailable() == true && !details.confirmedRequests().isEmpty()) {
             events = events.stream()
                     .filter(e -> {
                         if (Objects.equals(e.getParticipantLimit(), 0L)) return true;
-                        Long confirmedRequests = confirmedRequestsMap.get(e.getId());
+                        Long confirmedRequests = details.confirmedRequests(e.getId());
                         if (confirmedRequests == null) return true;
                         return confirmedRequests < e.getParticipantLimit();
                     }).toList();
         }
 
-        List<EventShortDto> unsortedResult = events.stream()
+        // порядок задан запросом к БД: по дате события или по локальной копии рейтинга
+        List<EventShortDto> result = events.stream()
                 .map(e -> EventMapper.toEventShortDto(
                         e,
-                        userMap.get(e.getInitiatorId()),
-                        confirmedRequestsMap.get(e.getId()),
-                        ratingMap.get(e.getId())
+                        details.user(e.getInitiatorId()),
+                        details.confirmedRequests(e.getId()),
+                        details.rating(e.getId())
                 ))
                 .toList();
-
-        Comparator<EventShortDto> resultComparator = switch (params.getEventSort()) {
-            case VIEWS, RATING -> Comparator.comparing(EventShortDto::getRating).reversed();
-            default -> Comparator.comparing(EventShortDto::getEventDate).reversed();
-        };
-
-        return unsortedResult.stream()
-                .sorted(resultComparator)
-                .toList();
+        // курсор указывает на последнюю выбранную строку, даже если она отброшена фильтром onlyAvailable
+        return new KeysetSlice<>(result, params.getSize(), eventSlice.getNextCursor());
     }
 
     // Получение подробной информации об опубликованном событии по его идентификатору
@@ -98,15 +100,14 @@ public class EventPublicServiceImpl implements EventPublicService {
                     .orElseThrow(() -> new NotFoundException("Event not found" + eventId));
         });
 
-        UserShortDto userShortDto = userClientHelper.retrieveUserShortDtoByUserId(event.getInitiatorId());
         // информация о событии должна включать в себя количество просмотров и количество подтвержденных запросов
-        Map<Long, Long> confirmedRequestsMap = requestClientHelper.retrieveConfirmedRequestsMapByEventIdList(List.of(eventId));
-        Map<Long, Double> ratingMap = statClient.getRatingsByEventIdList(List.of(eventId));
+        EventLookups.Details details = eventLookups.forEvent(event.getInitiatorId(), eventId);
 
         // информацию о том, что по этому эндпоинту был осуществлен и обработан запрос, нужно сохранить в сервисе статистики
         statClient.sendView(userId, eventId);
 
-        return EventMapper.toEventFullDto(event, userShortDto, confirmedRequestsMap.get(eventId), ratingMap.get(eventId));
+        return EventMapper.toEventFullDto(event, details.user(event.getInitiatorId()),
+                details.confirmedRequests(eventId), details.rating(eventId));
     }
 
     @Override
@@ -135,6 +136,16 @@ public class EventPublicServiceImpl implements EventPublicService {
         return EventMapper.toInteractionDto(event);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Collection<EventInteractionDto> getEventInteractionDtoList(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) return List.of();
+        List<Event> events = eventRepository.findAllById(ids);
+        return events.stream()
+                .map(EventMapper::toInteractionDto)
+                .toList();
+    }
+
     @Override
     public Collection<EventShortDto> getRecommendations(Long userId, Integer size) {
         Map<Long, Double> recommendationMap = statClient.getUserRecommendations(userId, size);
@@ -150,17 +161,16 @@ public class EventPublicServiceImpl implements EventPublicService {
         }
 
         Set<Long> userIds = events.stream().map(Event::getInitiatorId).collect(Collectors.toSet());
-        Map<Long, UserShortDto> userMap = userClientHelper.retrieveUserShortDtoMapByUserIdList(userIds);
-
         List<Long> eventIds = events.stream().map(Event::getId).toList();
-        Map<Long, Long> confirmedRequestsMap = requestClientHelper.retrieveConfirmedRequestsMapByEventIdList(eventIds);
+
+        EventLookups.Details details = eventLookups.forEvents(userIds, eventIds, recommendationMap);
 
         return events.stream()
                 .map(e -> EventMapper.toEventShortDto(
                         e,
-                        userMap.get(e.getInitiatorId()),
-                        confirmedRequestsMap.get(e.getId()),
-                        recommendationMap.get(e.getId())
+                        details.user(e.getInitiatorId()),
+                        details.confirmedRequests(e.getId()),
+                        details.rating(e.getId())
                 ))
                 .sorted(Comparator.comparing(EventShortDto::getRating).reversed())
                 .toList();
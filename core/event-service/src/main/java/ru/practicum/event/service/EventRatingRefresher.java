@@ -0,0 +1,88 @@
+package ru.practicum.event.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.dto.event.State;
+import ru.practicum.event.dal.EventRatingRepository;
+import ru.practicum.event.dal.EventRepository;
+import ru.practicum.ewm.client.StatClient;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Переносит рейтинги опубликованных событий из анализатора в таблицу event_rating.
+ * Суммы весов в анализаторе только растут, поэтому строки, по которым анализатор не ответил,
+ * просто остаются со старым значением до следующего прохода.
+ * <p>
+ * Проход выполняет один экземпляр сервиса: на время прохода берется сессионная advisory-блокировка,
+ * экземпляры, которым она не досталась, пропускают свой проход.
+ */
+@Slf4j
+@Component
+public class EventRatingRefresher {
+
+    // ключ advisory-блокировки прохода, общий для всех экземпляров
+    static final long LOCK_KEY = 0x6576_656e_7452L;
+
+    private final EventRepository eventRepository;
+    private final EventRatingRepository eventRatingRepository;
+    private final StatClient statClient;
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public EventRatingRefresher(EventRepository eventRepository,
+                                EventRatingRepository eventRatingRepository,
+                                StatClient statClient,
+                                JdbcTemplate jdbcTemplate,
+                                @Value("${explore-with-me.event-rating.batch-size:500}") int batchSize) {
+        this.eventRepository = eventRepository;
+        this.eventRatingRepository = eventRatingRepository;
+        this.statClient = statClient;
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${explore-with-me.event-rating.refresh-interval-ms:60000}")
+    public void refresh() {
+        // блокировка сессионная, поэтому берется и снимается на одном соединении, которое держится весь проход
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            JdbcTemplate lockTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            if (!Boolean.TRUE.equals(lockTemplate.queryForObject("SELECT pg_try_advisory_lock(?)", Boolean.class, LOCK_KEY))) {
+                log.debug("Ratings are being refreshed by another instance, skipping");
+                return null;
+            }
+            try {
+                refreshAll();
+            } finally {
+                lockTemplate.queryForObject("SELECT pg_advisory_unlock(?)", Boolean.class, LOCK_KEY);
+            }
+            return null;
+        });
+    }
+
+    private void refreshAll() {
+        long afterId = 0;
+        int updated = 0;
+        List<Long> eventIds;
+        do {
+            eventIds = eventRepository.findIdsByStateAfter(State.PUBLISHED, afterId, PageRequest.of(0, batchSize));
+            if (eventIds.isEmpty()) {
+                break;
+            }
+            afterId = eventIds.getLast();
+
+            Map<Long, Double> ratings = statClient.getRatingsByEventIdList(eventIds);
+            eventRatingRepository.upsertAll(ratings);
+            updated += ratings.size();
+        } while (eventIds.size() == batchSize);
+        log.debug("Refreshed ratings of {} events", updated);
+    }
+
+}
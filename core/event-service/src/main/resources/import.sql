@@ -0,0 +1,5 @@
+CREATE INDEX IF NOT EXISTS idx_events_search ON events USING GIN ((setweight(to_tsvector('simple', title), 'A') || setweight(to_tsvector('simple', annotation), 'B') || setweight(to_tsvector('simple', description), 'C')));
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_events_annotation_trgm ON events USING GIN (lower(annotation) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_events_description_trgm ON events USING GIN (lower(description) gin_trgm_ops);
+INSERT INTO event_rating (event_id, rating) SELECT id, 0 FROM events WHERE state = 'PUBLISHED' ON CONFLICT DO NOTHING;
@@ -0,0 +1,67 @@
+package ru.practicum.event.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.dto.event.EventFullDto;
+import ru.practicum.event.service.EventAdminService;
+import ru.practicum.pagination.KeysetCursor;
+import ru.practicum.pagination.KeysetSlice;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// курсор следующей страницы пишет в заголовок сам контроллер, через ответ текущего запроса
+@WebMvcTest
+class EventAdminControllerTest {
+
+    @Configuration
+    @Import(EventAdminController.class)
+    static class Config {
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private EventAdminService eventAdminService;
+
+    @Test
+    void getAllEventsByParams_ShouldReturnNextCursorInHeader() throws Exception {
+        // Given
+        KeysetCursor next = new KeysetCursor("", 7L);
+        when(eventAdminService.getAllEventsByParams(any())).thenReturn(new KeysetSlice<>(List.of(event(7L)), 1, next));
+
+        // When / Then
+        mockMvc.perform(get("/admin/events").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(KeysetCursor.NEXT_CURSOR_HEADER, next.encode()))
+                .andExpect(jsonPath("$[0].id").value(7));
+    }
+
+    @Test
+    void getAllEventsByParams_ShouldOmitHeaderOnLastPage() throws Exception {
+        // Given
+        when(eventAdminService.getAllEventsByParams(any())).thenReturn(new KeysetSlice<>(List.of(event(7L)), 1, null));
+
+        // When / Then
+        mockMvc.perform(get("/admin/events").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(KeysetCursor.NEXT_CURSOR_HEADER));
+    }
+
+    private static EventFullDto event(Long id) {
+        EventFullDto dto = new EventFullDto();
+        dto.setId(id);
+        return dto;
+    }
+
+}
@@ -0,0 +1,289 @@
+package ru.practicum.event.dal;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import ru.practicum.category.dal.Category;
+import ru.practicum.category.dal.CategoryRepository;
+import ru.practicum.dto.event.EventParams;
+import ru.practicum.dto.event.EventSort;
+import ru.practicum.dto.event.State;
+import ru.practicum.exception.BadRequestException;
+import ru.practicum.pagination.KeysetCursor;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// запросы публичного поиска на встроенном PostgreSQL: сортировка и курсоры выполняются в SQL
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class JpaSpecificationsTest {
+
+    private static final LocalDateTime DATE = LocalDateTime.of(2030, 1, 1, 12, 0);
+
+    @Configuration
+    @EntityScan(basePackageClasses = {Event.class, Category.class})
+    @EnableJpaRepositories(basePackageClasses = {Event.class, Category.class})
+    static class Config {
+
+        @Bean(destroyMethod = "close")
+        EmbeddedPostgres embeddedPostgres() throws IOException {
+            return EmbeddedPostgres.builder().start();
+        }
+
+        @Bean
+        DataSource dataSource(EmbeddedPostgres embeddedPostgres) {
+            return embeddedPostgres.getPostgresDatabase();
+        }
+    }
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private EventRatingRepository eventRatingRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Category category;
+
+    @BeforeEach
+    void setUp() {
+        category = categoryRepository.save(Category.builder().name("concerts").build());
+    }
+
+    @Test
+    void publicFilters_RatingSort_ShouldOrderByRatingDescendingThenId() {
+        // Given
+        Event low = rated(event("low"), 1.0);
+        Event highFirst = rated(event("high first"), 5.0);
+        Event highSecond = rated(event("high second"), 5.0);
+        Event middle = rated(event("middle"), 3.0);
+
+        // When
+        List<Event> events = search(params(EventSort.RATING), null);
+
+        // Then
+        assertEquals(ids(highFirst, highSecond, middle, low), ids(events));
+    }
+
+    @Test
+    void publicFilters_RatingSort_ShouldSkipUnpublishedEvents() {
+        // Given
+        Event published = rated(event("published"), 0.0);
+        event("pending");
+
+        // When
+        List<Event> events = search(params(EventSort.VIEWS), null);
+
+        // Then
+        assertEquals(ids(published), ids(events));
+    }
+
+    @Test
+    void publicFilters_RatingSort_ShouldTreatPublishedEventWithoutRatingRowAsZero() {
+        // Given: событие опубликовано, но строки event_rating у него еще нет
+        Event rated = rated(event("rated"), 2.0);
+        Event unrated = event("unrated");
+        unrated.setState(State.PUBLISHED);
+        eventRepository.save(unrated);
+        Event negative = rated(event("negative"), -1.0);
+        EventParams params = params(EventSort.RATING);
+
+        // When
+        List<Event> events = search(params, null);
+        KeysetCursor cursor = JpaSpecifications.publicCursor(params).apply(events.get(1));
+
+        // Then
+        assertEquals(ids(rated, unrated, negative), ids(events));
+        assertEquals(new KeysetCursor("0.0", unrated.getId()), cursor);
+        assertEquals(ids(negative), ids(search(params, cursor)));
+    }
+
+    @Test
+    void publicFilters_RatingSort_ShouldContinueStrictlyAfterCursor() {
+        // Given
+        rated(event("first"), 5.0);
+        Event second = rated(event("second"), 3.0);
+        Event third = rated(event("third"), 3.0);
+        Event fourth = rated(event("fourth"), 1.0);
+        EventParams params = params(EventSort.RATING);
+
+        // When: курсор - второе событие, третье имеет тот же рейтинг
+        KeysetCursor cursor = JpaSpecifications.publicCursor(params).apply(second);
+        List<Event> events = search(params, cursor);
+
+        // Then
+        assertEquals(new KeysetCursor("3.0", second.getId()), cursor);
+        assertEquals(ids(third, fourth), ids(events));
+    }
+
+    @Test
+    void publicFilters_RatingSort_ShouldRejectMalformedCursorKey() {
+        // Given
+        EventParams params = params(EventSort.RATING);
+
+        // When / Then
+        assertThrows(BadRequestException.class,
+                () -> JpaSpecifications.publicFilters(params, new KeysetCursor("2030-01-01T12:00", 1L)));
+    }
+
+    @Test
+    void publicFilters_Text_ShouldMatchWordPrefixesAndSubstringsIgnoringCase() {
+        // Given
+        Event prefix = event("Jazz night", "Big Concert in the park", "Bring friends");
+        Event substring = event("Lecture", "Talk", "Unconcerned audience welcome");
+        event("Concert", "Open air", "Music");
+        event("Exhibition", "Paintings", "Sculptures");
+
+        // When
+        List<Event> events = search(text("CONC", EventSort.EVENT_DATE), null);
+
+        // Then: как прежний фильтр, подстрока ищется в annotation и description; title - по префиксу слова
+        assertEquals(3, events.size());
+        assertTrue(ids(events).containsAll(ids(prefix, substring)));
+    }
+
+    @Test
+    void publicFilters_Text_ShouldTreatLikeWildcardsAsPlainCharacters() {
+        // Given
+        Event discount = event("Sale", "Promo code 50_off", "Shop");
+        event("Sale", "Promo code 50xoff", "Shop");
+
+        // When
+        List<Event> events = search(text("50_off", EventSort.EVENT_DATE), null);
+
+        // Then
+        assertEquals(ids(discount), ids(events));
+    }
+
+    @Test
+    void publicFilters_RelevanceSort_ShouldOrderByRankThenId() {
+        // Given: вес title выше annotation, annotation выше description, подстрока без совпадения слова - в конце
+        Event inDescription = event("Evening", "Music", "Jazz band");
+        Event substringOnly = event("Evening", "Music", "Acidjazz band");
+        Event inTitle = event("Jazz evening", "Music", "Band");
+        Event inAnnotation = event("Evening", "Jazz music", "Band");
+        Event inAnnotationToo = event("Evening", "Jazz music", "Band");
+
+        // When
+        List<Event> events = search(text("jazz", EventSort.RELEVANCE), null);
+
+        // Then
+        assertEquals(ids(inTitle, inAnnotation, inAnnotationToo, inDescription, substringOnly), ids(events));
+    }
+
+    @Test
+    void publicFilters_RelevanceSort_ShouldFallBackToDateOrderWithoutText() {
+        // Given
+        Event later = event("Later", "Later", "Later");
+        later.setEventDate(DATE.plusDays(1));
+        Event earlier = event("Earlier", "Earlier", "Earlier");
+
+        // When
+        List<Event> events = search(text(" ", EventSort.RELEVANCE), null);
+
+        // Then
+        assertEquals(ids(later, earlier), ids(events));
+    }
+
+    @Test
+    void importSql_ShouldCreateTextSearchIndexes() {
+        // When
+        List<String> indexes = jdbcTemplate.queryForList(
+                "SELECT indexname FROM pg_indexes WHERE tablename = 'events' AND indexname LIKE 'idx_events_%' ORDER BY 1",
+                String.class);
+
+        // Then
+        assertTrue(indexes.containsAll(List.of(
+                "idx_events_annotation_trgm", "idx_events_description_trgm", "idx_events_search")), indexes.toString());
+    }
+
+    @Test
+    void importSql_ShouldBackfillRatingRowsForPublishedEvents() {
+        // Given
+        Event rated = rated(event("rated"), 4.0);
+        Event unrated = event("unrated");
+        unrated.setState(State.PUBLISHED);
+        eventRepository.save(unrated);
+        event("pending");
+        eventRepository.flush();
+
+        // When: скрипт идемпотентен и выполняется повторно поверх данных, в транзакции теста
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("import.sql"));
+            return null;
+        });
+
+        // Then
+        assertEquals(List.of(rated.getId() + "=4", unrated.getId() + "=0"), jdbcTemplate.queryForList(
+                "SELECT event_id || '=' || rating FROM event_rating ORDER BY event_id", String.class));
+    }
+
+    private List<Event> search(EventParams params, KeysetCursor after) {
+        return eventRepository.findAll(JpaSpecifications.publicFilters(params, after));
+    }
+
+    private static EventParams params(EventSort sort) {
+        return EventParams.builder().eventSort(sort).build();
+    }
+
+    private static EventParams text(String text, EventSort sort) {
+        return EventParams.builder().text(text).eventSort(sort).build();
+    }
+
+    private Event event(String title) {
+        return event(title, title, title);
+    }
+
+    private Event event(String title, String annotation, String description) {
+        return eventRepository.save(Event.builder()
+                .initiatorId(1L)
+                .category(category)
+                .title(title)
+                .annotation(annotation)
+                .description(description)
+                .state(State.PENDING)
+                .location(new Location(55.75f, 37.62f))
+                .participantLimit(0L)
+                .requestModeration(false)
+                .paid(false)
+                .eventDate(DATE)
+                .createdOn(DATE.minusDays(1))
+                .build());
+    }
+
+    private Event rated(Event event, double rating) {
+        event.setState(State.PUBLISHED);
+        event.setRating(eventRatingRepository.save(new EventRating(event.getId(), rating)));
+        return eventRepository.save(event);
+    }
+
+    private static List<Long> ids(Event... events) {
+        return List.of(events).stream().map(Event::getId).toList();
+    }
+
+    private static List<Long> ids(List<Event> events) {
+        return events.stream().map(Event::getId).toList();
+    }
+
+}
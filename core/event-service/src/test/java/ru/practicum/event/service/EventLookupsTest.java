@@ -0,0 +1,142 @@
+package ru.practicum.event.service;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import ru.practicum.client.RequestClientHelper;
+import ru.practicum.client.UserClientHelper;
+import ru.practicum.dto.user.UserShortDto;
+import ru.practicum.ewm.client.StatClient;
+import ru.practicum.exception.NotFoundException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class EventLookupsTest {
+
+    private static final long TIMEOUT_MS = 200;
+
+    private final UserClientHelper userClientHelper = mock(UserClientHelper.class);
+    private final RequestClientHelper requestClientHelper = mock(RequestClientHelper.class);
+    private final StatClient statClient = mock(StatClient.class);
+    private final ObservationRegistry observationRegistry = ObservationRegistry.create();
+    private final EventLookups lookups = lookups(observationRegistry);
+
+    @AfterEach
+    void tearDown() {
+        lookups.close();
+        MDC.clear();
+    }
+
+    @Test
+    void forEvent_ShouldReturnInitiatorConfirmedRequestsAndRating() {
+        // Given
+        UserShortDto user = UserShortDto.makeDummy(1L);
+        when(userClientHelper.retrieveUserShortDtoByUserId(1L)).thenReturn(user);
+        when(requestClientHelper.retrieveConfirmedRequestsMapByEventIdList(List.of(10L))).thenReturn(Map.of(10L, 3L));
+        when(statClient.getRatingsByEventIdList(List.of(10L))).thenReturn(Map.of(10L, 0.5));
+
+        // When
+        EventLookups.Details details = lookups.forEvent(1L, 10L);
+
+        // Then
+        assertSame(user, details.user(1L));
+        assertEquals(3L, details.confirmedRequests(10L));
+        assertEquals(0.5, details.rating(10L));
+    }
+
+    @Test
+    void forEvents_ShouldUseFallbacksForLookupsThatMissTimeout() {
+        // Given: user-service и request-service не отвечают дольше срока
+        CountDownLatch release = new CountDownLatch(1);
+        when(userClientHelper.retrieveUserShortDtoMapByUserIdList(any())).thenAnswer(invocation -> {
+            release.await();
+            return Map.of();
+        });
+        when(requestClientHelper.retrieveConfirmedRequestsMapByEventIdList(any())).thenAnswer(invocation -> {
+            release.await();
+            return Map.of();
+        });
+        when(statClient.getRatingsByEventIdList(List.of(10L, 11L))).thenReturn(Map.of(10L, 0.5));
+
+        // When
+        long started = System.nanoTime();
+        EventLookups.Details details = lookups.forEvents(Set.of(1L, 2L), List.of(10L, 11L));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        release.countDown();
+
+        // Then: общий срок на все обращения, запасные значения как у хелперов при ошибке сервиса
+        assertTrue(elapsedMs < 2 * TIMEOUT_MS, "elapsed " + elapsedMs + " ms");
+        assertEquals(1L, details.user(1L).getId());
+        assertEquals(2L, details.user(2L).getId());
+        assertEquals(Map.of(10L, -1L, 11L, -1L), details.confirmedRequests());
+        assertEquals(0.5, details.rating(10L));
+    }
+
+    @Test
+    void forEvent_ShouldPropagateNotFoundOfInitiator() {
+        // Given
+        when(userClientHelper.retrieveUserShortDtoByUserId(1L)).thenThrow(new NotFoundException("User with id=1 was not found"));
+
+        // When / Then
+        assertThrows(NotFoundException.class, () -> lookups.forEvent(1L, 10L));
+    }
+
+    @Test
+    void forEvents_ShouldNotQueryStatsWhenRatingsAreKnown() {
+        // Given
+        when(userClientHelper.retrieveUserShortDtoMapByUserIdList(any())).thenReturn(Map.of());
+        when(requestClientHelper.retrieveConfirmedRequestsMapByEventIdList(any())).thenReturn(Map.of());
+
+        // When
+        EventLookups.Details details = lookups.forEvents(List.of(1L), List.of(10L), Map.of(10L, 0.9));
+
+        // Then
+        assertEquals(0.9, details.rating(10L));
+        verifyNoInteractions(statClient);
+    }
+
+    @Test
+    void forEvent_ShouldPassMdcAndCurrentObservationToLookupThreads() {
+        // Given
+        observationRegistry.observationConfig().observationHandler(context -> true);
+        AtomicReference<String> requestId = new AtomicReference<>();
+        AtomicReference<Observation> observation = new AtomicReference<>();
+        when(userClientHelper.retrieveUserShortDtoByUserId(1L)).thenAnswer(invocation -> {
+            requestId.set(MDC.get("requestId"));
+            observation.set(observationRegistry.getCurrentObservation());
+            return UserShortDto.makeDummy(1L);
+        });
+        Observation parent = Observation.start("event.get", observationRegistry);
+        MDC.put("requestId", "42");
+
+        // When
+        try (Observation.Scope ignored = parent.openScope()) {
+            lookups.forEvent(1L, 10L);
+        } finally {
+            parent.stop();
+        }
+
+        // Then
+        assertEquals("42", requestId.get());
+        assertSame(parent, observation.get());
+    }
+
+    private EventLookups lookups(ObservationRegistry registry) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(Map.of("observationRegistry", registry));
+        return new EventLookups(userClientHelper, requestClientHelper, statClient,
+                beanFactory.getBeanProvider(ObservationRegistry.class), TIMEOUT_MS);
+    }
+
+}
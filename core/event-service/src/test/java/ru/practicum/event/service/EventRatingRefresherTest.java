@@ -0,0 +1,106 @@
+package ru.practicum.event.service;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.dto.event.State;
+import ru.practicum.event.dal.EventRatingRepository;
+import ru.practicum.event.dal.EventRepository;
+import ru.practicum.ewm.client.StatClient;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+// advisory-блокировка проверяется на встроенном PostgreSQL, события и анализатор - заглушки
+class EventRatingRefresherTest {
+
+    private static EmbeddedPostgres postgres;
+
+    private final EventRepository eventRepository = mock(EventRepository.class);
+    private final EventRatingRepository eventRatingRepository = mock(EventRatingRepository.class);
+    private final StatClient statClient = mock(StatClient.class);
+    private final EventRatingRefresher refresher = new EventRatingRefresher(eventRepository, eventRatingRepository,
+            statClient, new JdbcTemplate(postgres.getPostgresDatabase()), 2);
+
+    @BeforeAll
+    static void startDatabase() throws IOException {
+        postgres = EmbeddedPostgres.builder().start();
+    }
+
+    @AfterAll
+    static void stopDatabase() throws IOException {
+        postgres.close();
+    }
+
+    @Test
+    void refresh_ShouldUpsertRatingsOfPublishedEventsChunkByChunk() {
+        // Given
+        when(eventRepository.findIdsByStateAfter(eq(State.PUBLISHED), eq(0L), any(Pageable.class))).thenReturn(List.of(1L, 2L));
+        when(eventRepository.findIdsByStateAfter(eq(State.PUBLISHED), eq(2L), any(Pageable.class))).thenReturn(List.of(3L));
+        when(statClient.getRatingsByEventIdList(List.of(1L, 2L))).thenReturn(Map.of(1L, 0.5, 2L, 1.5));
+        when(statClient.getRatingsByEventIdList(List.of(3L))).thenReturn(Map.of());
+
+        // When
+        refresher.refresh();
+
+        // Then: чанк, по которому анализатор не ответил, ничего не перезаписывает
+        verify(eventRatingRepository).upsertAll(Map.of(1L, 0.5, 2L, 1.5));
+        verify(eventRatingRepository).upsertAll(Map.of());
+        verify(eventRepository, never()).findIdsByStateAfter(any(), eq(3L), any());
+    }
+
+    @Test
+    void refresh_ShouldSkipPassWhileAnotherInstanceHoldsLock() throws SQLException {
+        try (Connection otherInstance = postgres.getPostgresDatabase().getConnection()) {
+            // Given
+            assertTrue(advisory(otherInstance, "pg_try_advisory_lock"));
+
+            // When
+            refresher.refresh();
+
+            // Then
+            verifyNoInteractions(eventRepository, statClient, eventRatingRepository);
+            assertTrue(advisory(otherInstance, "pg_advisory_unlock"));
+        }
+    }
+
+    @Test
+    void refresh_ShouldReleaseLockWhenPassFails() throws SQLException {
+        // Given
+        when(eventRepository.findIdsByStateAfter(any(), anyLong(), any())).thenThrow(new IllegalStateException("boom"));
+
+        // When
+        assertThrows(IllegalStateException.class, refresher::refresh);
+
+        // Then: следующий проход, в том числе другого экземпляра, может взять блокировку
+        try (Connection otherInstance = postgres.getPostgresDatabase().getConnection()) {
+            assertTrue(advisory(otherInstance, "pg_try_advisory_lock"));
+            assertTrue(advisory(otherInstance, "pg_advisory_unlock"));
+        }
+    }
+
+    private static boolean advisory(Connection connection, String function) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT " + function + "(?)")) {
+            statement.setLong(1, EventRatingRefresher.LOCK_KEY);
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                return rs.getBoolean(1);
+            }
+        }
+    }
+
+}
@@ -1,13 +1,14 @@
 package ru.practicum.client;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Component;
 import ru.practicum.api.event.EventAllApi;
 
 @Component
 public class EventClientHelper extends EventClientAbstractHelper {
 
-    public EventClientHelper(EventAllApi eventApiClient) {
-        super(eventApiClient);
+    public EventClientHelper(EventAllApi eventApiClient, ObjectProvider<EventNearCache> eventNearCache) {
+        super(eventApiClient, eventNearCache.getIfAvailable());
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package ru.practicum.request.dal;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// счетчик подтвержденных заявок события: по нему, а не по count(*), проверяется лимит участников
+@Getter
+@Setter
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@ToString
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "event_seats")
+public class EventSeats {
+
+    @Id
+    @EqualsAndHashCode.Include
+    @Column(name = "event_id")
+    private Long eventId;
+
+    @Column(name = "confirmed", nullable = false)
+    private Long confirmed;
+
+}
@@ -0,0 +1,69 @@
+package ru.practicum.request.dal;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface EventSeatsRepository extends JpaRepository<EventSeats, Long> {
+
+    // 1 - место занято, 0 - мест нет или счетчика еще нет; participantLimit = 0 - без ограничения
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            UPDATE event_seats
+            SET confirmed = confirmed + 1
+            WHERE event_id = :eventId
+            AND (:participantLimit = 0 OR confirmed < :participantLimit)
+            """)
+    int takeSeat(
+            @Param("eventId") Long eventId,
+            @Param("participantLimit") Long participantLimit
+    );
+
+    @Modifying(clearAutomatically = true)
+    @Query(nativeQuery = true, value = """
+            UPDATE event_seats
+            SET confirmed = confirmed + :seats
+            WHERE event_id = :eventId
+            """)
+    int addSeats(
+            @Param("eventId") Long eventId,
+            @Param("seats") Long seats
+    );
+
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            UPDATE event_seats
+            SET confirmed = confirmed - 1
+            WHERE event_id = :eventId
+            AND confirmed > 0
+            """)
+    int releaseSeat(
+            @Param("eventId") Long eventId
+    );
+
+    // счетчик заводится один раз на событие по уже подтвержденным заявкам
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO event_seats (event_id, confirmed)
+            SELECT CAST(:eventId AS BIGINT), count(*)
+            FROM requests
+            WHERE event_id = :eventId
+            AND status = 'CONFIRMED'
+            ON CONFLICT DO NOTHING
+            """)
+    void createIfAbsent(
+            @Param("eventId") Long eventId
+    );
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM EventSeats s WHERE s.eventId = :eventId")
+    Optional<EventSeats> findByIdForUpdate(
+            @Param("eventId") Long eventId
+    );
+
+}
@@ -1,13 +1,15 @@
 package ru.practicum.request.dal;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import ru.practicum.dto.request.ParticipationRequestStatus;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface RequestRepository extends JpaRepository<Request, Long> {
 
@@ -15,28 +17,61 @@ public interface RequestRepository extends JpaRepository<Request, Long> {
 
     boolean existsByRequesterIdAndEventIdAndStatus(Long userId, Long eventId, ParticipationRequestStatus status);
 
-    long countByEventIdAndStatus(Long eventId, ParticipationRequestStatus status);
+    Optional<Request> findFirstByIdInAndStatusNot(Collection<Long> ids, ParticipationRequestStatus status);
 
     List<Request> findByRequesterId(Long userId);
 
     List<Request> findByEventId(Long eventId);
 
-    @Modifying(clearAutomatically = true)
-    @Query("UPDATE Request r SET r.status = :status WHERE r.id IN :ids")
-    void updateStatusByIds(
-            @Param("ids") List<Long> ids,
-            @Param("status") ParticipationRequestStatus status
+    // заявка блокируется до конца транзакции: одновременные отмена и модерация видят статус друг друга
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Request r WHERE r.id = :id")
+    Optional<Request> findByIdForUpdate(
+            @Param("id") Long id
     );
 
-    @Modifying(clearAutomatically = true)
-    @Query("""
-            UPDATE Request r
-            SET r.status = 'REJECTED'
-            WHERE r.eventId = :eventId
-            AND r.status = 'PENDING'
+    // подтверждает не больше seats ожидающих заявок события из ids в порядке ids и возвращает их в том же порядке
+    @Query(nativeQuery = true, value = """
+            WITH confirmed AS (
+                UPDATE requests
+                SET status = 'CONFIRMED'
+                WHERE status = 'PENDING'
+                AND id IN (
+                    SELECT id
+                    FROM requests
+                    WHERE id = ANY(CAST(:ids AS bigint[]))
+                    AND event_id = :eventId
+                    AND status = 'PENDING'
+                    ORDER BY array_position(CAST(:ids AS bigint[]), id)
+                    LIMIT :seats
+                )
+                RETURNING *
+            )
+            SELECT * FROM confirmed ORDER BY array_position(CAST(:ids AS bigint[]), id)
+            """)
+    List<Request> confirmPending(
+            @Param("eventId") Long eventId,
+            @Param("ids") Long[] ids,
+            @Param("seats") Long seats
+    );
+
+    // отклоняет ожидающие заявки события из ids, а при allPending - все ожидающие заявки события;
+    // возвращает только отклоненные из ids в порядке ids
+    @Query(nativeQuery = true, value = """
+            WITH rejected AS (
+                UPDATE requests
+                SET status = 'REJECTED'
+                WHERE event_id = :eventId
+                AND status = 'PENDING'
+                AND (:allPending OR id = ANY(CAST(:ids AS bigint[])))
+                RETURNING *
+            )
+            SELECT * FROM rejected WHERE id = ANY(CAST(:ids AS bigint[])) ORDER BY array_position(CAST(:ids AS bigint[]), id)
             """)
-    void setStatusToRejectForAllPending(
-            @Param("eventId") Long eventId
+    List<Request> rejectPending(
+            @Param("eventId") Long eventId,
+            @Param("ids") Long[] ids,
+            @Param("allPending") boolean allPending
     );
 
     @Query("""
@@ -28,6 +28,7 @@ public class RequestService {
 
     private final TransactionTemplate transactionTemplate;
     private final RequestRepository requestRepository;
+    private final SeatCounter seatCounter;
 
     private final UserClientHelper userClientHelper;
     private final EventClientAbstractHelper eventClientHelper;
@@ -57,11 +58,6 @@ public class RequestService {
             if (eventDto.getState() != State.PUBLISHED) {
                 throw new ConflictException("User tries to request for non-published event", "Forbidden action");
             }
-            // если у события достигнут лимит запросов на участие - необходимо вернуть ошибку (Ожидается код ошибки 409)
-            long confirmedRequestCount = requestRepository.countByEventIdAndStatus(eventId, ParticipationRequestStatus.CONFIRMED);
-            if (eventDto.getParticipantLimit() > 0 && confirmedRequestCount >= eventDto.getParticipantLimit()) {
-                throw new ConflictException("Participants limit is already reached", "Forbidden action");
-            }
             // если для события отключена пре-модерация запросов на участие, то запрос должен автоматически перейти в состояние подтвержденного
             ParticipationRequestStatus newRequestStatus = ParticipationRequestStatus.PENDING;
             if (!eventDto.getRequestModeration()) {
@@ -70,6 +66,14 @@ public class RequestService {
             if (Objects.equals(eventDto.getParticipantLimit(), 0L)) {
                 newRequestStatus = ParticipationRequestStatus.CONFIRMED;
             }
+            // если у события достигнут лимит запросов на участие - необходимо вернуть ошибку (Ожидается код ошибки 409)
+            // подтверждаемая сразу заявка атомарно занимает место в счетчике, параллельные регистрации лимит не превысят
+            boolean limitReached = newRequestStatus == ParticipationRequestStatus.CONFIRMED
+                    ? !seatCounter.take(eventId, eventDto.getParticipantLimit())
+                    : seatCounter.isFull(eventId, eventDto.getParticipantLimit());
+            if (limitReached) {
+                throw new ConflictException("Participants limit is already reached", "Forbidden action");
+            }
 
             Request newRequest = Request.builder()
                     .requesterId(userId)
@@ -89,12 +93,17 @@ public class RequestService {
     // Отмена своего запроса на участие в событии
     @Transactional
     public ParticipationRequestDto cancelRequest(Long userId, Long requestId) {
-        Request request = requestRepository.findById(requestId)
+        // статус читается под блокировкой строки: из двух одновременных отмен место освобождает только первая
+        Request request = requestRepository.findByIdForUpdate(requestId)
                 .orElseThrow(() -> new NotFoundException("Not found Request " + requestId));
 
         if (!Objects.equals(request.getRequesterId(), userId))
             throw new ConflictException("User can cancel only his own event", "Forbidden action");
 
+        // отмененная подтвержденная заявка освобождает место
+        if (request.getStatus() == ParticipationRequestStatus.CONFIRMED) {
+            seatCounter.release(request.getEventId());
+        }
         request.setStatus(ParticipationRequestStatus.CANCELED);
         requestRepository.save(request);
         return RequestMapper.toDto(request);
@@ -139,57 +148,50 @@ public class RequestService {
         if (eventDto.getParticipantLimit() < 1 || !eventDto.getRequestModeration()) {
             return new EventRequestStatusUpdateResultDto();
         }
+        List<Long> requestIds = updateRequestDto.getRequestIds();
+        if (requestIds == null || requestIds.isEmpty()) {
+            return new EventRequestStatusUpdateResultDto();
+        }
         return transactionTemplate.execute(status -> {
             // статус можно изменить только у заявок, находящихся в состоянии ожидания (Ожидается код ошибки 409)
-            List<Request> requests = requestRepository.findAllById(updateRequestDto.getRequestIds());
-            for (Request request : requests) {
-                if (!Objects.equals(request.getStatus(), ParticipationRequestStatus.PENDING)) {
-                    throw new ConflictException("Request " + request.getId() + " must have status PENDING", "Incorrectly made request");
-                }
-            }
+            requestRepository.findFirstByIdInAndStatusNot(requestIds, ParticipationRequestStatus.PENDING)
+                    .ifPresent(request -> {
+                        throw new ConflictException("Request " + request.getId() + " must have status PENDING", "Incorrectly made request");
+                    });
 
-            List<Long> requestsToConfirm = new ArrayList<>();
-            List<Long> requestsToReject = new ArrayList<>();
+            List<Request> confirmedRequests = List.of();
+            List<Request> rejectedRequests;
+            // массивом: запросы модерации упорядочивают заявки по позиции id в нем
+            Long[] ids = requestIds.toArray(Long[]::new);
 
             if (Objects.equals(updateRequestDto.getStatus(), ParticipationRequestStatus.CONFIRMED)) {
-
-                long confirmedRequestCount = requestRepository.countByEventIdAndStatus(eventId, ParticipationRequestStatus.CONFIRMED);
-
-                if (confirmedRequestCount >= eventDto.getParticipantLimit()) {
+                // строка счетчика мест заблокирована до конца транзакции: параллельная модерация события ждет здесь
+                long freeSeats = seatCounter.lockFree(eventId, eventDto.getParticipantLimit());
+                if (freeSeats == 0) {
                     // нельзя подтвердить заявку, если уже достигнут лимит по заявкам на данное событие (Ожидается код ошибки 409)
                     throw new ConflictException("The participant limit has been reached for event " + eventId, "Forbidden action");
-                } else if (updateRequestDto.getRequestIds().size() < eventDto.getParticipantLimit() - confirmedRequestCount) {
-                    requestsToConfirm = updateRequestDto.getRequestIds();
-                    requestRepository.updateStatusByIds(requestsToConfirm, ParticipationRequestStatus.CONFIRMED);
-                } else {
-                    long freeSeats = eventDto.getParticipantLimit() - confirmedRequestCount;
-                    requestsToConfirm = updateRequestDto.getRequestIds().stream()
-                            .limit(freeSeats)
-                            .toList();
-                    requestsToReject = updateRequestDto.getRequestIds().stream()
-                            .skip(freeSeats)
-                            .toList();
-                    requestRepository.updateStatusByIds(requestsToConfirm, ParticipationRequestStatus.CONFIRMED);
-                    // если при подтверждении данной заявки, лимит заявок для события исчерпан, то все неподтверждённые заявки необходимо отклонить
-                    requestRepository.setStatusToRejectForAllPending(eventId);
                 }
-
+                // подтверждаются не больше свободных мест, в порядке заявок в запросе
+                confirmedRequests = requestRepository.confirmPending(eventId, ids, freeSeats);
+                seatCounter.add(eventId, confirmedRequests.size());
+                // если при подтверждении данной заявки, лимит заявок для события исчерпан, то все неподтверждённые заявки необходимо отклонить
+                rejectedRequests = confirmedRequests.size() == freeSeats
+                        ? requestRepository.rejectPending(eventId, ids, true)
+                        : List.of();
             } else if (updateRequestDto.getStatus() == ParticipationRequestStatus.REJECTED) {
-                requestsToReject = updateRequestDto.getRequestIds();
-                requestRepository.updateStatusByIds(requestsToReject, ParticipationRequestStatus.REJECTED);
+                rejectedRequests = requestRepository.rejectPending(eventId, ids, false);
             } else {
                 throw new ConflictException("Only CONFIRMED and REJECTED statuses are allowed", "Forbidden action");
             }
 
+            // ответ собирается из строк, которые вернули сами UPDATE, без повторного чтения заявок
             EventRequestStatusUpdateResultDto resultDto = new EventRequestStatusUpdateResultDto();
-            List<ParticipationRequestDto> confirmedRequests = requestRepository.findAllById(requestsToConfirm).stream()
+            resultDto.setConfirmedRequests(confirmedRequests.stream()
                     .map(RequestMapper::toDto)
-                    .toList();
-            resultDto.setConfirmedRequests(confirmedRequests);
-            List<ParticipationRequestDto> rejectedRequests = requestRepository.findAllById(requestsToReject).stream()
+                    .toList());
+            resultDto.setRejectedRequests(rejectedRequests.stream()
                     .map(RequestMapper::toDto)
-                    .toList();
-            resultDto.setRejectedRequests(rejectedRequests);
+                    .toList());
             return resultDto;
         });
     }
@@ -0,0 +1,71 @@
+package ru.practicum.request.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.request.dal.EventSeats;
+import ru.practicum.request.dal.EventSeatsRepository;
+
+/**
+ * Места на событие по счетчику в event_seats.
+ * <ul>
+ *     <li>одно место берется одним условным UPDATE, без count(*) по заявкам;</li>
+ *     <li>строка счетчика заблокирована до конца транзакции заявки, поэтому лимит не превышается
+ *     при любом числе одновременных регистраций, а при откате заявки место возвращается само;</li>
+ *     <li>все методы вызываются внутри транзакции, в которой меняется статус заявки.</li>
+ * </ul>
+ */
+@Component
+@RequiredArgsConstructor
+@Transactional(propagation = Propagation.MANDATORY)
+public class SeatCounter {
+
+    private final EventSeatsRepository eventSeatsRepository;
+
+    // false - лимит участников достигнут
+    public boolean take(Long eventId, Long participantLimit) {
+        if (eventSeatsRepository.takeSeat(eventId, participantLimit) == 1) {
+            return true;
+        }
+        if (eventSeatsRepository.existsById(eventId)) {
+            return false;
+        }
+        eventSeatsRepository.createIfAbsent(eventId);
+        return eventSeatsRepository.takeSeat(eventId, participantLimit) == 1;
+    }
+
+    // блокирует счетчик до конца транзакции и возвращает число свободных мест; занятые места добавляются через add
+    public long lockFree(Long eventId, Long participantLimit) {
+        EventSeats eventSeats = eventSeatsRepository.findByIdForUpdate(eventId)
+                .orElseGet(() -> {
+                    eventSeatsRepository.createIfAbsent(eventId);
+                    return eventSeatsRepository.findByIdForUpdate(eventId).orElseThrow();
+                });
+        return Math.max(0, participantLimit - eventSeats.getConfirmed());
+    }
+
+    public void add(Long eventId, long seats) {
+        if (seats > 0) {
+            eventSeatsRepository.addSeats(eventId, seats);
+        }
+    }
+
+    // заявка без подтверждения места не занимает, но при достигнутом лимите не принимается
+    public boolean isFull(Long eventId, Long participantLimit) {
+        if (participantLimit == 0) {
+            return false;
+        }
+        EventSeats eventSeats = eventSeatsRepository.findById(eventId)
+                .orElseGet(() -> {
+                    eventSeatsRepository.createIfAbsent(eventId);
+                    return eventSeatsRepository.findById(eventId).orElseThrow();
+                });
+        return eventSeats.getConfirmed() >= participantLimit;
+    }
+
+    public void release(Long eventId) {
+        eventSeatsRepository.releaseSeat(eventId);
+    }
+
+}
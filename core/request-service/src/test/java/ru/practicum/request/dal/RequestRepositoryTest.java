@@ -0,0 +1,149 @@
+package ru.practicum.request.dal;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import ru.practicum.dto.request.ParticipationRequestStatus;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// модерация заявок на встроенном PostgreSQL: UPDATE ... RETURNING и порядок ids не поддерживаются H2
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class RequestRepositoryTest {
+
+    private static final long EVENT_ID = 1L;
+    private static final LocalDateTime CREATED = LocalDateTime.of(2030, 1, 1, 12, 0);
+
+    @Configuration
+    @EntityScan(basePackageClasses = Request.class)
+    @EnableJpaRepositories(basePackageClasses = Request.class)
+    static class Config {
+
+        @Bean(destroyMethod = "close")
+        EmbeddedPostgres embeddedPostgres() throws IOException {
+            return EmbeddedPostgres.builder().start();
+        }
+
+        @Bean
+        DataSource dataSource(EmbeddedPostgres embeddedPostgres) {
+            return embeddedPostgres.getPostgresDatabase();
+        }
+    }
+
+    @Autowired
+    private RequestRepository requestRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void confirmPending_ShouldConfirmUpToSeatsInOrderOfIds() {
+        // Given: заявки поданы по порядку, а в запросе перечислены в обратном
+        Request first = pending(100L, 0);
+        Request second = pending(101L, 1);
+        Request third = pending(102L, 2);
+
+        // When
+        List<Request> confirmed = requestRepository.confirmPending(EVENT_ID,
+                ids(third, second, first), 2L);
+
+        // Then: места достаются первым заявкам из запроса, первая поданная остается ожидающей
+        assertEquals(List.of(third.getId(), second.getId()), ids(confirmed));
+        assertTrue(confirmed.stream().allMatch(r -> r.getStatus() == ParticipationRequestStatus.CONFIRMED));
+        assertEquals(ParticipationRequestStatus.PENDING, status(first));
+    }
+
+    @Test
+    void confirmPending_ShouldSkipRequestsOfOtherEventsAndNotPending() {
+        // Given
+        Request pending = pending(100L, 0);
+        Request otherEvent = save(101L, 2L, ParticipationRequestStatus.PENDING, 1);
+        Request canceled = save(102L, EVENT_ID, ParticipationRequestStatus.CANCELED, 2);
+
+        // When
+        List<Request> confirmed = requestRepository.confirmPending(EVENT_ID,
+                ids(canceled, otherEvent, pending), 3L);
+
+        // Then
+        assertEquals(List.of(pending.getId()), ids(confirmed));
+        assertEquals(ParticipationRequestStatus.PENDING, status(otherEvent));
+        assertEquals(ParticipationRequestStatus.CANCELED, status(canceled));
+    }
+
+    @Test
+    void rejectPending_ShouldRejectRequestedInOrderOfIds() {
+        // Given
+        Request first = pending(100L, 0);
+        Request second = pending(101L, 1);
+        Request untouched = pending(102L, 2);
+
+        // When
+        List<Request> rejected = requestRepository.rejectPending(EVENT_ID, ids(second, first), false);
+
+        // Then
+        assertEquals(List.of(second.getId(), first.getId()), ids(rejected));
+        assertTrue(rejected.stream().allMatch(r -> r.getStatus() == ParticipationRequestStatus.REJECTED));
+        assertEquals(ParticipationRequestStatus.PENDING, status(untouched));
+    }
+
+    @Test
+    void rejectPending_AllPending_ShouldRejectWholeEventButReturnOnlyRequested() {
+        // Given
+        Request requested = pending(100L, 0);
+        Request other = pending(101L, 1);
+        Request otherEvent = save(102L, 2L, ParticipationRequestStatus.PENDING, 2);
+
+        // When
+        List<Request> rejected = requestRepository.rejectPending(EVENT_ID, ids(requested), true);
+
+        // Then: отклонены все ожидающие заявки события, в ответе - только из запроса
+        assertEquals(List.of(requested.getId()), ids(rejected));
+        assertEquals(ParticipationRequestStatus.REJECTED, status(other));
+        assertEquals(ParticipationRequestStatus.PENDING, status(otherEvent));
+    }
+
+    private Request pending(long requesterId, int minutes) {
+        return save(requesterId, EVENT_ID, ParticipationRequestStatus.PENDING, minutes);
+    }
+
+    // заявка отсоединяется: иначе строки RETURNING подменились бы закэшированными сущностями со старым статусом
+    private Request save(long requesterId, long eventId, ParticipationRequestStatus status, int minutes) {
+        Request request = requestRepository.saveAndFlush(Request.builder()
+                .requesterId(requesterId)
+                .eventId(eventId)
+                .status(status)
+                .created(CREATED.plusMinutes(minutes))
+                .build());
+        entityManager.detach(request);
+        return request;
+    }
+
+    // статус читается из базы: нативный UPDATE обходит контекст персистентности
+    private ParticipationRequestStatus status(Request request) {
+        entityManager.clear();
+        return requestRepository.findById(request.getId()).orElseThrow().getStatus();
+    }
+
+    private static Long[] ids(Request... requests) {
+        return Arrays.stream(requests).map(Request::getId).toArray(Long[]::new);
+    }
+
+    private static List<Long> ids(List<Request> requests) {
+        return requests.stream().map(Request::getId).toList();
+    }
+
+}
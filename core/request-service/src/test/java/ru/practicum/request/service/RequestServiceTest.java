@@ -0,0 +1,123 @@
+package ru.practicum.request.service;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.client.EventClientAbstractHelper;
+import ru.practicum.client.UserClientHelper;
+import ru.practicum.dto.request.ParticipationRequestStatus;
+import ru.practicum.ewm.client.StatClient;
+import ru.practicum.request.dal.EventSeatsRepository;
+import ru.practicum.request.dal.Request;
+import ru.practicum.request.dal.RequestRepository;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// отмена заявок на встроенном PostgreSQL: блокировка строки заявки ведет себя как в рабочей базе
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({RequestService.class, SeatCounter.class})
+class RequestServiceTest {
+
+    private static final int THREADS = 20;
+
+    @Configuration
+    @EntityScan(basePackageClasses = Request.class)
+    @EnableJpaRepositories(basePackageClasses = Request.class)
+    static class Config {
+
+        @Bean(destroyMethod = "close")
+        EmbeddedPostgres embeddedPostgres() throws IOException {
+            return EmbeddedPostgres.builder().start();
+        }
+
+        @Bean
+        DataSource dataSource(EmbeddedPostgres embeddedPostgres) {
+            return embeddedPostgres.getPostgresDatabase();
+        }
+    }
+
+    @MockitoBean
+    private UserClientHelper userClientHelper;
+
+    @MockitoBean
+    private EventClientAbstractHelper eventClientHelper;
+
+    @MockitoBean
+    private StatClient statClient;
+
+    @Autowired
+    private RequestService requestService;
+
+    @Autowired
+    private SeatCounter seatCounter;
+
+    @Autowired
+    private RequestRepository requestRepository;
+
+    @Autowired
+    private EventSeatsRepository eventSeatsRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void cancelRequest_ShouldReleaseSeatOnceUnderConcurrentCancels() throws Exception {
+        // Given: на событии два подтвержденных участника
+        long eventId = 1L;
+        Request request = saveConfirmed(eventId, 100L);
+        saveConfirmed(eventId, 101L);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.execute(status -> seatCounter.lockFree(eventId, 10L));
+
+        // When: пользователь отменяет заявку одновременно из нескольких запросов
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return requestService.cancelRequest(100L, request.getId());
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        }
+
+        // Then: место второго участника осталось занятым
+        assertEquals(1L, eventSeatsRepository.findById(eventId).orElseThrow().getConfirmed());
+        assertEquals(ParticipationRequestStatus.CANCELED, requestRepository.findById(request.getId()).orElseThrow().getStatus());
+    }
+
+    private Request saveConfirmed(long eventId, long requesterId) {
+        return requestRepository.save(Request.builder()
+                .eventId(eventId)
+                .requesterId(requesterId)
+                .status(ParticipationRequestStatus.CONFIRMED)
+                .created(LocalDateTime.now())
+                .build());
+    }
+
+}
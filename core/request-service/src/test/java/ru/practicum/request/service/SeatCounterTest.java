@@ -0,0 +1,202 @@
+package ru.practicum.request.service;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.dto.request.ParticipationRequestStatus;
+import ru.practicum.request.dal.EventSeatsRepository;
+import ru.practicum.request.dal.Request;
+import ru.practicum.request.dal.RequestRepository;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// счетчик мест на встроенном PostgreSQL: блокировки строк, повторная проверка условия UPDATE после ожидания
+// и ON CONFLICT DO NOTHING ведут себя как в рабочей базе
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(SeatCounter.class)
+class SeatCounterTest {
+
+    private static final int THREADS = 300;
+
+    @Configuration
+    @EntityScan(basePackageClasses = Request.class)
+    @EnableJpaRepositories(basePackageClasses = Request.class)
+    static class Config {
+
+        @Bean(destroyMethod = "close")
+        EmbeddedPostgres embeddedPostgres() throws IOException {
+            return EmbeddedPostgres.builder().start();
+        }
+
+        @Bean
+        DataSource dataSource(EmbeddedPostgres embeddedPostgres) {
+            return embeddedPostgres.getPostgresDatabase();
+        }
+    }
+
+    @Autowired
+    private SeatCounter seatCounter;
+
+    @Autowired
+    private EventSeatsRepository eventSeatsRepository;
+
+    @Autowired
+    private RequestRepository requestRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void take_ShouldAdmitExactlyLimitUnderConcurrentRegistrations() throws Exception {
+        // Given
+        long eventId = 1L;
+        long participantLimit = 50L;
+
+        // When
+        int admitted = hammer(eventId, participantLimit);
+
+        // Then
+        assertEquals(participantLimit, admitted);
+        assertEquals(participantLimit, eventSeatsRepository.findById(eventId).orElseThrow().getConfirmed());
+    }
+
+    @Test
+    void take_ShouldAdmitEveryoneWhenLimitIsZero() throws Exception {
+        // Given
+        long eventId = 2L;
+
+        // When
+        int admitted = hammer(eventId, 0L);
+
+        // Then
+        assertEquals(THREADS, admitted);
+        assertEquals(THREADS, eventSeatsRepository.findById(eventId).orElseThrow().getConfirmed());
+    }
+
+    @Test
+    void take_ShouldStartFromAlreadyConfirmedRequests() {
+        // Given
+        long eventId = 3L;
+        saveRequest(eventId, 100L, ParticipationRequestStatus.CONFIRMED);
+        saveRequest(eventId, 101L, ParticipationRequestStatus.CONFIRMED);
+        saveRequest(eventId, 102L, ParticipationRequestStatus.PENDING);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        // When
+        Boolean first = tx.execute(status -> seatCounter.take(eventId, 3L));
+        Boolean second = tx.execute(status -> seatCounter.take(eventId, 3L));
+
+        // Then
+        assertTrue(first);
+        assertFalse(second);
+    }
+
+    @Test
+    void lockFree_ShouldReturnFreeSeatsAndAddShouldTakeThem() {
+        // Given
+        long eventId = 4L;
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.execute(status -> seatCounter.take(eventId, 5L));
+
+        // When
+        Long free = tx.execute(status -> {
+            long seats = seatCounter.lockFree(eventId, 5L);
+            seatCounter.add(eventId, seats);
+            return seats;
+        });
+        Long freeAfter = tx.execute(status -> seatCounter.lockFree(eventId, 5L));
+
+        // Then
+        assertEquals(4L, free);
+        assertEquals(0L, freeAfter);
+        assertEquals(5L, eventSeatsRepository.findById(eventId).orElseThrow().getConfirmed());
+    }
+
+    @Test
+    void release_ShouldReturnSeatAfterRollbackAndCancel() {
+        // Given
+        long eventId = 5L;
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.execute(status -> seatCounter.take(eventId, 1L));
+        tx.execute(status -> {
+            seatCounter.release(eventId);
+            return null;
+        });
+
+        // When
+        tx.execute(status -> {
+            seatCounter.take(eventId, 1L);
+            status.setRollbackOnly();
+            return null;
+        });
+        Boolean taken = tx.execute(status -> seatCounter.take(eventId, 1L));
+
+        // Then
+        assertTrue(taken);
+        assertEquals(1L, eventSeatsRepository.findById(eventId).orElseThrow().getConfirmed());
+    }
+
+    @Test
+    void take_ShouldFailOutsideTransaction() {
+        assertThrows(RuntimeException.class, () -> seatCounter.take(6L, 1L));
+    }
+
+    // все потоки стартуют одновременно, каждый в своей транзакции; счетчик заведен заранее, как у горячего события
+    private int hammer(long eventId, long participantLimit) throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.execute(status -> {
+            eventSeatsRepository.createIfAbsent(eventId);
+            return null;
+        });
+        AtomicInteger admitted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    if (Boolean.TRUE.equals(tx.execute(status -> seatCounter.take(eventId, participantLimit)))) {
+                        admitted.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        }
+        return admitted.get();
+    }
+
+    private void saveRequest(long eventId, long requesterId, ParticipationRequestStatus status) {
+        requestRepository.save(Request.builder()
+                .eventId(eventId)
+                .requesterId(requesterId)
+                .status(status)
+                .created(LocalDateTime.now())
+                .build());
+    }
+
+}
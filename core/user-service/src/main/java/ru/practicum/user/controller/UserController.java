@@ -1,5 +1,6 @@
 package ru.practicum.user.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.RestController;
@@ -18,6 +19,8 @@ import java.util.List;
 public class UserController implements UserApi {
 
     private final UserService userService;
+    // ответ текущего запроса: методы API общие с Feign-клиентами, поэтому ответ не передается параметром
+    private final HttpServletResponse response;
 
     // MODIFY OPS
 
@@ -46,8 +49,8 @@ public class UserController implements UserApi {
     // GET COLLECTION
 
     @Override
-    public Collection<UserDto> getUsers(List<Long> ids, Integer from, Integer size) {
-        return userService.findByIdListWithOffsetAndLimit(ids, from, size);
+    public Collection<UserDto> getUsers(List<Long> ids, Integer from, Integer size, String after) {
+        return userService.findByIdListWithOffsetAndLimit(ids, from, size, after).writeNextCursor(response);
     }
 
     @Override
@@ -1,9 +1,14 @@
 package ru.practicum.user.dal;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
+
 public interface UserRepository extends JpaRepository<User, Long> {
 
     boolean existsByEmail(String email);
 
+    List<User> findAllByIdGreaterThan(Long id, Pageable pageable);
+
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package ru.practicum.user.service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.dto.user.NewUserRequestDto;
@@ -10,18 +11,23 @@ import ru.practicum.dto.user.UserDto;
 import ru.practicum.dto.user.UserShortDto;
 import ru.practicum.exception.ConflictException;
 import ru.practicum.exception.NotFoundException;
+import ru.practicum.pagination.KeysetCursor;
+import ru.practicum.pagination.KeysetSlice;
 import ru.practicum.user.dal.User;
 import ru.practicum.user.dal.UserRepository;
 
 import java.util.Collection;
 import java.util.List;
 
+import static ru.practicum.constants.Constants.USER_CHANGED_CHANNEL;
+
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
 public class UserService {
 
     private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
 
     // MODIFY OPS
 
@@ -41,6 +47,8 @@ public class UserService {
         User userToDelete = userRepository.findById(userId)
                 .orElseThrow(() -> new NotFoundException("User with id=" + userId + " was not found"));
         userRepository.delete(userToDelete);
+        // NOTIFY доставляется при коммите: кэши пользователей в других сервисах вычищают запись сразу после удаления
+        jdbcTemplate.execute("NOTIFY " + USER_CHANGED_CHANNEL + ", '" + userId + "'");
     }
 
     // GET + HEAD
@@ -59,18 +67,25 @@ public class UserService {
 
     // GET COLLECTION
 
-    public List<UserDto> findByIdListWithOffsetAndLimit(List<Long> idList, Integer from, Integer size) {
+    // с курсором after страница выбирается по id без OFFSET и без подсчета строк
+    public KeysetSlice<UserDto> findByIdListWithOffsetAndLimit(List<Long> idList, Integer from, Integer size, String after) {
         if (idList == null || idList.isEmpty()) {
             Sort sort = Sort.by(Sort.Direction.ASC, "id");
-            return userRepository.findAll(PageRequest.of(from / size, size, sort))
-                    .stream()
+            KeysetCursor cursor = KeysetCursor.decode(after);
+            KeysetSlice<User> users = cursor != null
+                    ? KeysetSlice.ofRows(userRepository.findAllByIdGreaterThan(cursor.id(), PageRequest.of(0, size + 1, sort)),
+                    size, UserService::cursorOf)
+                    : KeysetSlice.ofPage(userRepository.findAll(PageRequest.of(from / size, size, sort)), UserService::cursorOf);
+            List<UserDto> result = users.getContent().stream()
                     .map(UserMapper::toDto)
                     .toList();
+            return new KeysetSlice<>(result, size, users.getNextCursor());
         } else {
-            return userRepository.findAllById(idList)
+            List<UserDto> result = userRepository.findAllById(idList)
                     .stream()
                     .map(UserMapper::toDto)
                     .toList();
+            return new KeysetSlice<>(result, size, null);
         }
     }
 
@@ -88,4 +103,10 @@ public class UserService {
                 .toList();
     }
 
+    // PRIVATE METHODS
+
+    private static KeysetCursor cursorOf(User user) {
+        return new KeysetCursor("", user.getId());
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,249 @@
+package ru.practicum.emitter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
+import ru.practicum.properties.CustomProperties;
+import ru.practicum.storage.LongLongHashMap;
+import ru.practicum.storage.LongObjectHashMap;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Отправка подобий в топик events-similarity с объединением обновлений.
+ * <ul>
+ *     <li>повторные обновления одной пары до отправки сливаются - уходит только последнее;</li>
+ *     <li>обновление, отличающееся от последнего отправленного меньше чем на epsilon, не отправляется;</li>
+ *     <li>накопленные обновления уходят пачкой по достижении batchSize, раз в flushInterval
+ *     и по {@link #flush()} перед фиксацией смещений;</li>
+ *     <li>значение считается отправленным только после подтверждения брокера; пара, которую брокер не принял,
+ *     возвращается в ожидающие, а ближайший {@link #flush()} завершается ошибкой, и смещения не фиксируются;</li>
+ *     <li>последние отправленные значения хранятся двумя поколениями не больше lastEmittedLimit пар:
+ *     при переполнении старое поколение отбрасывается, и его пары при следующем обновлении отправляются заново.</li>
+ * </ul>
+ * Пары разложены по независимым полосам со своей блокировкой, чтобы потоки шардов событий
+ * в параллельном режиме не мешали друг другу. Отправка идет вне блокировки полосы,
+ * под отдельной блокировкой отправки, чтобы пачки одной полосы не обгоняли друг друга.
+ */
+@Slf4j
+@Component
+public class CoalescingSimilarityEmitter implements SimilaritySink {
+
+    private final KafkaTemplate<Void, SpecificRecordBase> kafkaTemplate;
+    private final String topic;
+    private final double epsilon;
+    private final int batchSize;
+    // лимит пар одного поколения последних отправленных значений в полосе
+    private final int generationLimit;
+    private final Stripe[] stripes;
+    private final ScheduledExecutorService flusher;
+    // первая ошибка отправки после прошлого flush(), в том числе пачек, отправленных по таймеру
+    private final AtomicReference<Throwable> sendFailure = new AtomicReference<>();
+
+    private final Counter offered;
+    private final Counter emitted;
+
+    public CoalescingSimilarityEmitter(KafkaTemplate<Void, SpecificRecordBase> kafkaTemplate,
+                                       CustomProperties customProperties,
+                                       MeterRegistry meterRegistry) {
+        CustomProperties.Emission emission = customProperties.getAggregator().getEmission();
+        this.kafkaTemplate = kafkaTemplate;
+        this.topic = customProperties.getKafka().getEventsSimilarityTopic();
+        this.epsilon = emission.getEpsilon();
+        this.batchSize = emission.getBatchSize();
+        this.generationLimit = Math.max(emission.getLastEmittedLimit() / 2 / emission.getStripes(), 1);
+        this.stripes = new Stripe[emission.getStripes()];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.offered = meterRegistry.counter("aggregator.similarity.offered");
+        this.emitted = meterRegistry.counter("aggregator.similarity.emitted");
+
+        long interval = emission.getFlushInterval().toMillis();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "similarity-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushAll, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void accept(long eventA, long eventB, double score) {
+        long first = Math.min(eventA, eventB);
+        long second = Math.max(eventA, eventB);
+        offered.increment();
+        Stripe stripe = stripes[Math.floorMod(31 * Long.hashCode(first) + Long.hashCode(second), stripes.length)];
+        synchronized (stripe) {
+            if (stripe.isPending(first, second)) {
+                // пара уже ждет отправки: заменяем значение, порог проверим при отправке
+                stripe.pending(first).put(second, Double.doubleToRawLongBits(score));
+                return;
+            }
+            if (!changedEnough(stripe, first, second, score)) {
+                return;
+            }
+            stripe.pending(first).put(second, Double.doubleToRawLongBits(score));
+            if (++stripe.pendingCount < batchSize) {
+                return;
+            }
+        }
+        flush(stripe);
+    }
+
+    // отправка всех накопленных подобий с ожиданием подтверждения брокера
+    @Override
+    public void flush() {
+        flushAll();
+        // возвращается после завершения всех отправок, включая их обработчики
+        kafkaTemplate.flush();
+        Throwable failure = sendFailure.getAndSet(null);
+        if (failure != null) {
+            throw new KafkaException("Similarity updates were not delivered and will be resent", failure);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flusher.shutdown();
+        try {
+            flush();
+        } catch (KafkaException e) {
+            log.warn("Similarity updates were lost on shutdown: {}", e.getCause().toString());
+        }
+    }
+
+    private void flushAll() {
+        for (Stripe stripe : stripes) {
+            flush(stripe);
+        }
+    }
+
+    private void flush(Stripe stripe) {
+        synchronized (stripe.sendLock) {
+            List<EventSimilarityAvro> batch;
+            synchronized (stripe) {
+                batch = drain(stripe);
+            }
+            batch.forEach(similarity -> send(stripe, similarity));
+            log.debug("FLUSH: отправлено {} подобий", batch.size());
+        }
+    }
+
+    // вызывается под блокировкой полосы
+    private List<EventSimilarityAvro> drain(Stripe stripe) {
+        if (stripe.pendingCount == 0) {
+            return List.of();
+        }
+        LongObjectHashMap<LongLongHashMap> pending = stripe.pending;
+        stripe.pending = new LongObjectHashMap<>();
+        stripe.pendingCount = 0;
+        Instant timestamp = Instant.now();
+        List<EventSimilarityAvro> batch = new ArrayList<>();
+        pending.forEach((first, seconds) -> seconds.forEach((second, bits) -> {
+            double score = Double.longBitsToDouble(bits);
+            if (changedEnough(stripe, first, second, score)) {
+                batch.add(EventSimilarityAvro.newBuilder()
+                        .setEventA(first)
+                        .setEventB(second)
+                        .setScore(score)
+                        .setTimestamp(timestamp)
+                        .build());
+            }
+        }));
+        return batch;
+    }
+
+    private void send(Stripe stripe, EventSimilarityAvro similarity) {
+        CompletableFuture<?> send;
+        try {
+            send = kafkaTemplate.send(topic, similarity);
+        } catch (RuntimeException e) {
+            send = CompletableFuture.failedFuture(e);
+        }
+        send.whenComplete((result, e) -> {
+            long bits = Double.doubleToRawLongBits(similarity.getScore());
+            synchronized (stripe) {
+                if (e == null) {
+                    remember(stripe, similarity.getEventA(), similarity.getEventB(), bits);
+                } else if (!stripe.isPending(similarity.getEventA(), similarity.getEventB())) {
+                    // более новое значение пары уже ждет отправки - оно и уйдет
+                    stripe.pending(similarity.getEventA()).put(similarity.getEventB(), bits);
+                    stripe.pendingCount++;
+                }
+            }
+            if (e == null) {
+                emitted.increment();
+            } else {
+                sendFailure.compareAndSet(null, e);
+                log.warn("Similarity of events {} and {} was not sent, will retry: {}",
+                        similarity.getEventA(), similarity.getEventB(), e.toString());
+            }
+        });
+    }
+
+    private boolean changedEnough(Stripe stripe, long first, long second, double score) {
+        long lastBits;
+        if (contains(stripe.lastEmitted, first, second)) {
+            lastBits = stripe.lastEmitted.get(first).get(second, 0);
+        } else if (contains(stripe.previousEmitted, first, second)) {
+            lastBits = stripe.previousEmitted.get(first).get(second, 0);
+        } else {
+            return true;
+        }
+        double last = Double.longBitsToDouble(lastBits);
+        return score != last && Math.abs(score - last) >= epsilon;
+    }
+
+    // вызывается под блокировкой полосы
+    private void remember(Stripe stripe, long first, long second, long bits) {
+        LongLongHashMap seconds = stripe.lastEmitted.computeIfAbsent(first, id -> new LongLongHashMap());
+        if (!seconds.containsKey(second) && ++stripe.lastEmittedCount > generationLimit) {
+            stripe.previousEmitted = stripe.lastEmitted;
+            stripe.lastEmitted = new LongObjectHashMap<>();
+            stripe.lastEmittedCount = 1;
+            seconds = stripe.lastEmitted.computeIfAbsent(first, id -> new LongLongHashMap());
+        }
+        seconds.put(second, bits);
+    }
+
+    private static boolean contains(LongObjectHashMap<LongLongHashMap> table, long first, long second) {
+        LongLongHashMap seconds = table.get(first);
+        return seconds != null && seconds.containsKey(second);
+    }
+
+    private static final class Stripe {
+
+        private final Object sendLock = new Object();
+        // first -> (second -> последний отправленный score в битах double), текущее и прошлое поколения
+        private LongObjectHashMap<LongLongHashMap> lastEmitted = new LongObjectHashMap<>();
+        private LongObjectHashMap<LongLongHashMap> previousEmitted = new LongObjectHashMap<>();
+        private int lastEmittedCount;
+        // first -> (second -> ожидающий отправки score в битах double)
+        private LongObjectHashMap<LongLongHashMap> pending = new LongObjectHashMap<>();
+        private int pendingCount;
+
+        private LongLongHashMap pending(long first) {
+            return pending.computeIfAbsent(first, id -> new LongLongHashMap());
+        }
+
+        private boolean isPending(long first, long second) {
+            LongLongHashMap seconds = pending.get(first);
+            return seconds != null && seconds.containsKey(second);
+        }
+    }
+
+}
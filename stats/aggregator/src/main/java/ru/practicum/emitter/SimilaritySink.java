@@ -0,0 +1,11 @@
+package ru.practicum.emitter;
+
+// получатель рассчитанных коэффициентов подобия; в параллельном режиме вызывается из потоков шардов событий
+@FunctionalInterface
+public interface SimilaritySink {
+    void accept(long eventA, long eventB, double score);
+
+    // отправка накопленного; вызывается перед фиксацией смещений, уже учтенных в переданных значениях
+    default void flush() {
+    }
+}
@@ -2,35 +2,76 @@ package ru.practicum.kafka;
 
 import lombok.RequiredArgsConstructor;
 import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.AbstractConsumerSeekAware;
 import org.springframework.stereotype.Service;
+import ru.practicum.emitter.SimilaritySink;
 import ru.practicum.ewm.stats.avro.UserActionAvro;
 import ru.practicum.properties.CustomProperties;
+import ru.practicum.service.ShardedUserActionService;
 import ru.practicum.service.UserActionService;
+import ru.practicum.snapshot.SnapshotService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
-public class KafkaController {
+public class KafkaController extends AbstractConsumerSeekAware {
 
     private final KafkaTemplate<Void, SpecificRecordBase> kafkaTemplate;
     private final KafkaListenerEndpointRegistry kafkaRegistry;
 
     private final CustomProperties customProperties;
+    private final SimilaritySink similaritySink;
     private final UserActionService userActionService;
+    private final Optional<ShardedUserActionService> shardedUserActionService;
+    private final SnapshotService snapshotService;
 
     @EventListener(ApplicationReadyEvent.class)
     public void initKafkaProducer() {
         kafkaTemplate.flush();
+        snapshotService.restore();
         kafkaRegistry.start();
     }
 
-    @KafkaListener(topics = "#{customProperties.kafka.userActionTopic}")
-    public void listen(UserActionAvro userActionAvro) {
-        userActionService.handleUserAction(userActionAvro);
+    // после восстановления из снимка читаем топик с того места, на котором снимок был сделан
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        super.onPartitionsAssigned(assignments, callback);
+        assignments.keySet().forEach(partition -> snapshotService.takeRestoredOffset(partition.partition())
+                .ifPresent(offset -> callback.seek(partition.topic(), partition.partition(), offset)));
+    }
+
+    // смещения пачки фиксируются после возврата (ack-mode BATCH), поэтому к этому моменту
+    // все подобия, посчитанные по ее записям, должны быть отправлены
+    @KafkaListener(topics = "#{customProperties.kafka.userActionTopic}", batch = "true")
+    public void listen(List<ConsumerRecord<Long, UserActionAvro>> records) {
+        snapshotService.runBatch(() -> {
+            if (shardedUserActionService.isPresent()) {
+                ShardedUserActionService sharded = shardedUserActionService.get();
+                records.forEach(record -> {
+                    sharded.handleUserAction(record.partition(), record.value());
+                    snapshotService.onRecordProcessed(record.partition(), record.offset());
+                });
+                // ждем только свои разделы: пачки других потоков слушателя применяются независимо
+                records.stream().mapToInt(ConsumerRecord::partition).distinct().forEach(sharded::awaitExchange);
+            } else {
+                records.forEach(record -> {
+                    userActionService.handleUserAction(record.value());
+                    snapshotService.onRecordProcessed(record.partition(), record.offset());
+                });
+            }
+            similaritySink.flush();
+        });
+        snapshotService.snapshotIfDue();
     }
 
-}
\ No newline at end of file
+}
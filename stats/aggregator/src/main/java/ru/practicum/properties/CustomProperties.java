@@ -7,6 +7,7 @@ import org.springframework.stereotype.Component;
 import ru.practicum.ewm.stats.avro.UserActionAvro;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 
 @Getter
 @Setter
@@ -29,6 +30,41 @@ public class CustomProperties {
     public static class Aggregator {
         private final Weights weights = new Weights();
         private String minimumSumAlgorithm = "optimized";
+        private final Snapshot snapshot = new Snapshot();
+        private final Sharding sharding = new Sharding();
+        private final Emission emission = new Emission();
+    }
+
+    @Getter
+    @Setter
+    public static class Snapshot {
+        private boolean enabled = false;
+        private String directory = "snapshots";
+        private Duration interval = Duration.ofSeconds(30);
+        // каждый fullEvery-й снимок полный, остальные инкрементальные
+        private int fullEvery = 10;
+    }
+
+    @Getter
+    @Setter
+    public static class Sharding {
+        private boolean enabled = false;
+        // число потоков-владельцев сумм минимумов; потоки слушателя задает spring.kafka.listener.concurrency
+        private int eventShards = Runtime.getRuntime().availableProcessors();
+        // емкость очереди пачек изменений каждого шарда событий
+        private int queueCapacity = 1024;
+    }
+
+    @Getter
+    @Setter
+    public static class Emission {
+        // подобие, изменившееся меньше чем на epsilon с последней отправки, не отправляется
+        private double epsilon = 0.001;
+        private int batchSize = 500;
+        private Duration flushInterval = Duration.ofSeconds(1);
+        private int stripes = 16;
+        // сколько пар с последним отправленным значением помнить для отсева по epsilon
+        private int lastEmittedLimit = 2_000_000;
     }
 
     @Getter
@@ -0,0 +1,91 @@
+package ru.practicum.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import ru.practicum.emitter.SimilaritySink;
+import ru.practicum.ewm.stats.avro.UserActionAvro;
+import ru.practicum.properties.CustomProperties;
+import ru.practicum.sharding.ShardedAggregator;
+import ru.practicum.storage.SnapshotState;
+
+// режим параллельного расчета: включается my-area-guide.aggregator.sharding.enabled=true.
+// Состояние этого режима хранит ShardedAggregator, поэтому снимки берут его, а не SimilarityStore
+@Slf4j
+@Service
+@Primary
+@ConditionalOnProperty(prefix = "my-area-guide.aggregator.sharding", name = "enabled", havingValue = "true")
+public class ShardedUserActionService implements SnapshotState {
+
+    private final CustomProperties customProperties;
+    private final ShardedAggregator shardedAggregator;
+
+    public ShardedUserActionService(SimilaritySink similaritySink, CustomProperties customProperties) {
+        this.customProperties = customProperties;
+        CustomProperties.Sharding sharding = customProperties.getAggregator().getSharding();
+        this.shardedAggregator = new ShardedAggregator(
+                sharding.getEventShards(),
+                sharding.getQueueCapacity(),
+                similaritySink
+        );
+        log.info("SHARD: параллельный режим, шардов событий: {}", sharding.getEventShards());
+    }
+
+    public void handleUserAction(int partition, UserActionAvro userActionAvro) {
+        double weight = customProperties.getAggregator().getWeights().ofUserAction(userActionAvro).doubleValue();
+        try {
+            shardedAggregator.handle(partition, userActionAvro.getUserId(), userActionAvro.getEventId(), weight);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while handing over user action " + userActionAvro, e);
+        }
+    }
+
+    // ожидание, пока шарды событий применят и отправят в sink изменения, переданные из раздела partition
+    public void awaitExchange(int partition) {
+        try {
+            shardedAggregator.awaitExchange(partition);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for event shards", e);
+        }
+    }
+
+    @Override
+    public void forEachEntry(EntryConsumer consumer) {
+        shardedAggregator.forEachEntry(consumer);
+    }
+
+    @Override
+    public void setChangeTracking(boolean enabled) {
+        shardedAggregator.setChangeTracking(enabled);
+    }
+
+    @Override
+    public void forEachChange(EntryConsumer consumer) {
+        shardedAggregator.forEachChange(consumer);
+    }
+
+    @Override
+    public void clearChanges() {
+        shardedAggregator.clearChanges();
+    }
+
+    @Override
+    public void restoreEntry(Table table, long keyA, long keyB, double value) {
+        shardedAggregator.restoreEntry(table, keyA, keyB, value);
+    }
+
+    @Override
+    public void clear() {
+        shardedAggregator.clear();
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        shardedAggregator.close();
+    }
+
+}
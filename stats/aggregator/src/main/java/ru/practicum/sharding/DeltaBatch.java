@@ -0,0 +1,50 @@
+package ru.practicum.sharding;
+
+import java.util.Arrays;
+
+// пачка изменений сумм минимумов (first, second, delta), переданная от шарда пользователей шарду событий
+final class DeltaBatch {
+
+    // счетчик шарда пользователей, который ждет применения пачки; null у служебной пачки остановки
+    private final PendingBatches owner;
+    private long[] data = new long[3 * 16];
+    private int size;
+
+    DeltaBatch(PendingBatches owner) {
+        this.owner = owner;
+    }
+
+    PendingBatches owner() {
+        return owner;
+    }
+
+    void add(long first, long second, long delta) {
+        if (size + 3 > data.length) {
+            data = Arrays.copyOf(data, data.length << 1);
+        }
+        data[size++] = first;
+        data[size++] = second;
+        data[size++] = delta;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int count() {
+        return size / 3;
+    }
+
+    long first(int i) {
+        return data[3 * i];
+    }
+
+    long second(int i) {
+        return data[3 * i + 1];
+    }
+
+    long delta(int i) {
+        return data[3 * i + 2];
+    }
+
+}
@@ -0,0 +1,114 @@
+package ru.practicum.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.emitter.SimilaritySink;
+import ru.practicum.storage.LongLongHashMap;
+import ru.practicum.storage.LongObjectHashMap;
+import ru.practicum.storage.SnapshotState.EntryConsumer;
+import ru.practicum.storage.SnapshotState.Table;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import static ru.practicum.storage.FixedPoint.fromUnits;
+
+/**
+ * Владелец сумм минимумов для пар событий, у которых min(eventA, eventB) попадает в этот шард.
+ * Принимает пачки изменений от шардов пользователей через ограниченную очередь (шаг обмена),
+ * применяет их в своем потоке и рассчитывает подобие измененных пар.
+ * Методы снимка вызываются из потока слушателя, когда шард простаивает: все переданные пачки применены,
+ * а новые не поступают. Видимость таблиц между потоками обеспечивают очередь и {@link PendingBatches}.
+ */
+@Slf4j
+final class EventShard implements Runnable {
+
+    private static final DeltaBatch STOP = new DeltaBatch(null);
+
+    private final BlockingQueue<DeltaBatch> inbox;
+    private final EventSums eventSums;
+    private final SimilaritySink sink;
+
+    // min(eventA, eventB) -> (max(eventA, eventB) -> sum)
+    private final LongObjectHashMap<LongLongHashMap> minWeightSums = new LongObjectHashMap<>();
+    // журнал изменений для инкрементальных снимков: ключи сумм, измененных после clearChanges()
+    private volatile boolean changeTracking;
+    private LongObjectHashMap<LongLongHashMap> changedMinWeightSums = new LongObjectHashMap<>();
+
+    EventShard(int queueCapacity, EventSums eventSums, SimilaritySink sink) {
+        this.inbox = new ArrayBlockingQueue<>(queueCapacity);
+        this.eventSums = eventSums;
+        this.sink = sink;
+    }
+
+    // блокируется, если шард не успевает: так перегрузка доходит до потребителей Kafka
+    void submit(DeltaBatch batch) throws InterruptedException {
+        inbox.put(batch);
+    }
+
+    void stop() throws InterruptedException {
+        inbox.put(STOP);
+    }
+
+    @Override
+    public void run() {
+        try {
+            DeltaBatch batch;
+            while ((batch = inbox.take()) != STOP) {
+                apply(batch);
+                batch.owner().complete();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void apply(DeltaBatch batch) {
+        for (int i = 0; i < batch.count(); i++) {
+            long first = batch.first(i);
+            long second = batch.second(i);
+            try {
+                long sum = minWeightSums.computeIfAbsent(first, id -> new LongLongHashMap())
+                        .addTo(second, batch.delta(i));
+                if (changeTracking) {
+                    changedMinWeightSums.computeIfAbsent(first, id -> new LongLongHashMap()).put(second, 0);
+                }
+                double denominator = Math.sqrt(fromUnits(eventSums.get(first))) * Math.sqrt(fromUnits(eventSums.get(second)));
+                sink.accept(first, second, fromUnits(sum) / denominator);
+            } catch (RuntimeException e) {
+                log.error("SHARD: ошибка обработки пары {} и {}", first, second, e);
+            }
+        }
+    }
+
+    void forEachEntry(EntryConsumer consumer) {
+        minWeightSums.forEach((first, sums) -> sums.forEach((second, units) ->
+                consumer.accept(Table.MIN_WEIGHT_SUM, first, second, fromUnits(units))));
+    }
+
+    void setChangeTracking(boolean enabled) {
+        changeTracking = enabled;
+        clearChanges();
+    }
+
+    void forEachChange(EntryConsumer consumer) {
+        changedMinWeightSums.forEach((first, seconds) -> {
+            LongLongHashMap sums = minWeightSums.get(first);
+            seconds.forEach((second, ignored) ->
+                    consumer.accept(Table.MIN_WEIGHT_SUM, first, second, fromUnits(sums.get(second, 0))));
+        });
+    }
+
+    void clearChanges() {
+        changedMinWeightSums = new LongObjectHashMap<>();
+    }
+
+    void restore(long first, long second, long units) {
+        minWeightSums.computeIfAbsent(first, id -> new LongLongHashMap()).put(second, units);
+    }
+
+    void clear() {
+        minWeightSums.clear();
+        clearChanges();
+    }
+
+}
@@ -0,0 +1,34 @@
+package ru.practicum.sharding;
+
+import ru.practicum.storage.LongLongHashMap;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// суммы весов событий, общие для всех шардов; событий на порядки меньше, чем пар, поэтому упаковка здесь допустима
+final class EventSums {
+
+    private final ConcurrentHashMap<Long, AtomicLong> sums = new ConcurrentHashMap<>();
+
+    void add(long eventId, long delta) {
+        sums.computeIfAbsent(eventId, id -> new AtomicLong()).addAndGet(delta);
+    }
+
+    long get(long eventId) {
+        AtomicLong sum = sums.get(eventId);
+        return sum == null ? 0 : sum.get();
+    }
+
+    void set(long eventId, long sum) {
+        sums.computeIfAbsent(eventId, id -> new AtomicLong()).set(sum);
+    }
+
+    void forEach(LongLongHashMap.LongLongConsumer consumer) {
+        sums.forEach((eventId, sum) -> consumer.accept(eventId, sum.get()));
+    }
+
+    void clear() {
+        sums.clear();
+    }
+
+}
@@ -0,0 +1,25 @@
+package ru.practicum.sharding;
+
+// пачки одного шарда пользователей, переданные шардам событий и еще не примененные ими
+final class PendingBatches {
+
+    private int count;
+
+    synchronized void add() {
+        count++;
+    }
+
+    // вызывается шардом событий после применения пачки
+    synchronized void complete() {
+        if (--count == 0) {
+            notifyAll();
+        }
+    }
+
+    synchronized void await() throws InterruptedException {
+        while (count > 0) {
+            wait();
+        }
+    }
+
+}
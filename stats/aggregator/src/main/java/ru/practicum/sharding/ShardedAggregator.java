@@ -0,0 +1,260 @@
+package ru.practicum.sharding;
+
+import ru.practicum.emitter.SimilaritySink;
+import ru.practicum.storage.LongLongHashMap;
+import ru.practicum.storage.LongObjectHashMap;
+import ru.practicum.storage.SnapshotState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+
+import static ru.practicum.storage.FixedPoint.fromUnits;
+import static ru.practicum.storage.FixedPoint.toUnits;
+
+/**
+ * Параллельный расчет подобия мероприятий.
+ * <p>
+ * Состояние разделено на две независимые части:
+ * <ul>
+ *     <li>веса пользователей - по разделам топика (шарды пользователей), их обрабатывают потоки слушателя;</li>
+ *     <li>суммы минимумов - по первому событию пары (шарды событий), у каждого свой поток.</li>
+ * </ul>
+ * Поток слушателя по весам своего пользователя считает изменения сумм минимумов всех затронутых пар
+ * и раскладывает их по шардам событий-владельцев. Сами суммы меняет только владелец, поэтому
+ * изменения от разных пользователей одной пары складываются без блокировок и в любом порядке.
+ * Суммы весов событий общие: одно атомарное сложение на действие.
+ * <p>
+ * Методы {@link SnapshotState} вызываются только между пачками всех потоков слушателя, когда шарды событий
+ * применили все переданные изменения (см. {@link ru.practicum.snapshot.SnapshotService#runBatch}).
+ * Раздел пользователя при восстановлении неизвестен, поэтому веса из снимка ждут в общей таблице
+ * и переезжают в шард раздела при первом действии пользователя.
+ */
+public class ShardedAggregator implements SnapshotState, AutoCloseable {
+
+    private final Map<Integer, UserShard> userShards = new ConcurrentHashMap<>();
+    // веса пользователей из снимка, которые еще не переехали в шард своего раздела
+    private final Map<Long, LongLongHashMap> restoredWeights = new ConcurrentHashMap<>();
+    private final LongFunction<LongLongHashMap> userWeightsFactory = this::takeRestoredWeights;
+    private final EventSums eventSums = new EventSums();
+    private final EventShard[] eventShards;
+    private final List<Future<?>> shardTasks = new ArrayList<>();
+    private volatile boolean changeTracking;
+    // null, если потоки шардов предоставлены снаружи и закрываются их владельцем
+    private final ExecutorService ownExecutor;
+
+    public ShardedAggregator(int eventShardCount, int queueCapacity, SimilaritySink sink) {
+        this(eventShardCount, queueCapacity, sink, newShardExecutor(eventShardCount), true);
+    }
+
+    // шарды событий работают в потоках executor, в нем должно быть не меньше eventShardCount свободных потоков
+    public ShardedAggregator(int eventShardCount, int queueCapacity, SimilaritySink sink, ExecutorService executor) {
+        this(eventShardCount, queueCapacity, sink, executor, false);
+    }
+
+    private ShardedAggregator(int eventShardCount, int queueCapacity, SimilaritySink sink,
+                              ExecutorService executor, boolean ownsExecutor) {
+        eventShards = new EventShard[eventShardCount];
+        for (int i = 0; i < eventShardCount; i++) {
+            eventShards[i] = new EventShard(queueCapacity, eventSums, sink);
+            shardTasks.add(executor.submit(eventShards[i]));
+        }
+        ownExecutor = ownsExecutor ? executor : null;
+    }
+
+    // обработка действия пользователя потоком, которому назначен раздел partition
+    public void handle(int partition, long userId, long eventId, double weight) throws InterruptedException {
+        UserShard shard = userShards.computeIfAbsent(partition, p -> new UserShard(eventShards.length));
+        // блокировка не конкурентная: раздел читает один поток, она нужна лишь для видимости
+        // состояния шарда потоку, которому раздел достанется после ребалансировки
+        synchronized (shard) {
+            handle(shard, userId, eventId, toUnits(weight));
+        }
+    }
+
+    // ожидание, пока шарды событий применят изменения, переданные из раздела partition
+    public void awaitExchange(int partition) throws InterruptedException {
+        UserShard shard = userShards.get(partition);
+        if (shard != null) {
+            shard.pending.await();
+        }
+    }
+
+    // ожидание, пока шарды событий применят все переданные им изменения
+    public void awaitExchange() throws InterruptedException {
+        for (UserShard shard : userShards.values()) {
+            shard.pending.await();
+        }
+    }
+
+    @Override
+    public void forEachEntry(EntryConsumer consumer) {
+        for (UserShard shard : userShards.values()) {
+            synchronized (shard) {
+                shard.weightsByUser.forEach((userId, weights) -> forEachWeight(userId, weights, consumer));
+            }
+        }
+        restoredWeights.forEach((userId, weights) -> forEachWeight(userId, weights, consumer));
+        eventSums.forEach((eventId, units) -> consumer.accept(Table.EVENT_SUM, eventId, 0, fromUnits(units)));
+        for (EventShard eventShard : eventShards) {
+            eventShard.forEachEntry(consumer);
+        }
+    }
+
+    @Override
+    public void setChangeTracking(boolean enabled) {
+        changeTracking = enabled;
+        for (EventShard eventShard : eventShards) {
+            eventShard.setChangeTracking(enabled);
+        }
+        clearChanges();
+    }
+
+    @Override
+    public void forEachChange(EntryConsumer consumer) {
+        // сумму события могли изменить потоки разных разделов: в снимок она попадает один раз
+        LongLongHashMap changedEventSums = new LongLongHashMap();
+        for (UserShard shard : userShards.values()) {
+            synchronized (shard) {
+                shard.changedWeights.forEach((userId, events) -> {
+                    LongLongHashMap weights = shard.weightsByUser.get(userId);
+                    events.forEach((eventId, ignored) ->
+                            consumer.accept(Table.WEIGHT, userId, eventId, fromUnits(weights.get(eventId, 0))));
+                });
+                shard.changedEventSums.forEach((eventId, ignored) -> changedEventSums.put(eventId, 0));
+            }
+        }
+        changedEventSums.forEach((eventId, ignored) ->
+                consumer.accept(Table.EVENT_SUM, eventId, 0, fromUnits(eventSums.get(eventId))));
+        for (EventShard eventShard : eventShards) {
+            eventShard.forEachChange(consumer);
+        }
+    }
+
+    @Override
+    public void clearChanges() {
+        for (UserShard shard : userShards.values()) {
+            synchronized (shard) {
+                shard.changedWeights = new LongObjectHashMap<>();
+                shard.changedEventSums = new LongLongHashMap();
+            }
+        }
+        for (EventShard eventShard : eventShards) {
+            eventShard.clearChanges();
+        }
+    }
+
+    // вызывается до старта слушателей
+    @Override
+    public void restoreEntry(Table table, long keyA, long keyB, double value) {
+        long units = toUnits(value);
+        switch (table) {
+            case WEIGHT -> restoredWeights.computeIfAbsent(keyA, id -> new LongLongHashMap()).put(keyB, units);
+            case EVENT_SUM -> eventSums.set(keyA, units);
+            case MIN_WEIGHT_SUM -> eventShards[ownerOf(keyA)].restore(keyA, keyB, units);
+        }
+    }
+
+    // вызывается до старта слушателей
+    @Override
+    public void clear() {
+        userShards.clear();
+        restoredWeights.clear();
+        eventSums.clear();
+        for (EventShard eventShard : eventShards) {
+            eventShard.clear();
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        for (EventShard eventShard : eventShards) {
+            eventShard.stop();
+        }
+        for (Future<?> task : shardTasks) {
+            try {
+                task.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Event shard failed", e.getCause());
+            }
+        }
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+        }
+    }
+
+    private static ExecutorService newShardExecutor(int eventShardCount) {
+        AtomicInteger index = new AtomicInteger();
+        return Executors.newFixedThreadPool(eventShardCount, runnable -> {
+            Thread thread = new Thread(runnable, "event-shard-" + index.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private void handle(UserShard shard, long userId, long eventId, long newWeight) throws InterruptedException {
+        LongLongHashMap userWeights = shard.weightsByUser.computeIfAbsent(userId, userWeightsFactory);
+        long oldWeight = userWeights.get(eventId, 0);
+        if (newWeight <= oldWeight) {
+            return;
+        }
+        userWeights.put(eventId, newWeight);
+        // сумма события меняется до отправки пар: владелец пары должен увидеть уже новую сумму
+        eventSums.add(eventId, newWeight - oldWeight);
+        if (changeTracking) {
+            shard.changedWeights.computeIfAbsent(userId, id -> new LongLongHashMap()).put(eventId, 0);
+            shard.changedEventSums.put(eventId, 0);
+        }
+
+        userWeights.forEach((anotherEventId, anotherWeight) -> {
+            if (anotherEventId != eventId) {
+                long first = Math.min(eventId, anotherEventId);
+                long second = Math.max(eventId, anotherEventId);
+                long delta = Math.min(newWeight, anotherWeight) - Math.min(oldWeight, anotherWeight);
+                // нулевые изменения тоже передаются: сумма события изменилась, подобие пары нужно пересчитать
+                shard.outbox[ownerOf(first)].add(first, second, delta);
+            }
+        });
+        exchange(shard);
+    }
+
+    // шаг обмена: каждая непустая пачка уходит своему шарду событий целиком
+    private void exchange(UserShard shard) throws InterruptedException {
+        for (int i = 0; i < eventShards.length; i++) {
+            DeltaBatch batch = shard.outbox[i];
+            if (!batch.isEmpty()) {
+                shard.pending.add();
+                try {
+                    eventShards[i].submit(batch);
+                } catch (InterruptedException e) {
+                    // пачка не передана, ждать ее применения некому
+                    shard.pending.complete();
+                    throw e;
+                }
+                shard.outbox[i] = new DeltaBatch(shard.pending);
+            }
+        }
+    }
+
+    // веса пользователя из снимка или пустая таблица для нового пользователя
+    private LongLongHashMap takeRestoredWeights(long userId) {
+        LongLongHashMap weights = restoredWeights.isEmpty() ? null : restoredWeights.remove(userId);
+        return weights != null ? weights : new LongLongHashMap();
+    }
+
+    private static void forEachWeight(long userId, LongLongHashMap weights, EntryConsumer consumer) {
+        weights.forEach((eventId, units) -> consumer.accept(Table.WEIGHT, userId, eventId, fromUnits(units)));
+    }
+
+    private int ownerOf(long eventId) {
+        return (int) Math.floorMod(eventId * 0x9E3779B97F4A7C15L >>> 32, (long) eventShards.length);
+    }
+
+}
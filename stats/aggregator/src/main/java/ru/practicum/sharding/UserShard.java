@@ -0,0 +1,31 @@
+package ru.practicum.sharding;
+
+import ru.practicum.storage.LongLongHashMap;
+import ru.practicum.storage.LongObjectHashMap;
+
+/**
+ * Веса пользователей одного раздела топика user-actions.
+ * Сообщения одного пользователя всегда попадают в один раздел (ключ - userId),
+ * поэтому шард меняет только поток, которому назначен его раздел.
+ */
+final class UserShard {
+
+    // userId -> (eventId -> weight)
+    final LongObjectHashMap<LongLongHashMap> weightsByUser = new LongObjectHashMap<>();
+    // исходящие изменения сумм минимумов, по одной пачке на каждый шард событий
+    final DeltaBatch[] outbox;
+    // пачки раздела, которые шарды событий еще не применили
+    final PendingBatches pending = new PendingBatches();
+
+    // журнал изменений для инкрементальных снимков: userId -> eventId измененных весов и eventId измененных сумм
+    LongObjectHashMap<LongLongHashMap> changedWeights = new LongObjectHashMap<>();
+    LongLongHashMap changedEventSums = new LongLongHashMap();
+
+    UserShard(int eventShardCount) {
+        outbox = new DeltaBatch[eventShardCount];
+        for (int i = 0; i < eventShardCount; i++) {
+            outbox[i] = new DeltaBatch(pending);
+        }
+    }
+
+}
@@ -0,0 +1,11 @@
+package ru.practicum.snapshot;
+
+import java.io.IOException;
+
+public class SnapshotException extends RuntimeException {
+
+    public SnapshotException(IOException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+}
@@ -0,0 +1,208 @@
+package ru.practicum.snapshot;
+
+import ru.practicum.storage.SnapshotState;
+import ru.practicum.storage.SnapshotState.Table;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Формат файла снимка состояния агрегатора.
+ * <pre>
+ * magic:int version:int type:byte sequence:long
+ * topicLength:int topic:bytes offsetCount:int (partition:int offset:long)*
+ * entryCount:long (table:byte keyA:long keyB:long value:double)*
+ * </pre>
+ * Файл пишется и читается через {@link MappedByteBuffer} окнами по {@link #REGION_SIZE},
+ * поэтому снимки больше 2 Гб не упираются в ограничение размера одного буфера.
+ * Запись идет во временный файл, который после {@code force()} атомарно переименовывается:
+ * недописанный снимок никогда не попадет под видом целого.
+ * Значения пишутся прямо в отображение файла, без промежуточной копии состояния в куче:
+ * копирование ограничено страничным кешем ОС, а сброс на диск выполняет {@link Writer#commit()}.
+ */
+final class SnapshotFile {
+
+    static final String FULL = "full";
+    static final String DELTA = "delta";
+
+    private static final int MAGIC = 0x45574D53; // "EWMS"
+    private static final int VERSION = 1;
+    private static final int ENTRY_SIZE = Byte.BYTES + 2 * Long.BYTES + Double.BYTES;
+    private static final long REGION_SIZE = 64L << 20;
+
+    private SnapshotFile() {
+    }
+
+    static String fileName(long sequence, String type) {
+        return String.format("snapshot-%019d.%s", sequence, type);
+    }
+
+    // открывает временный файл снимка и пишет заголовок; значения передаются в Writer.accept
+    static Writer create(Path file, String type, long sequence, String topic, Map<Integer, Long> offsets)
+            throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new Writer(file, tmp, channel, type, sequence, topic, offsets);
+        } catch (RuntimeException e) {
+            channel.close();
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+    }
+
+    // загружает записи снимка в хранилище и возвращает смещения, которые он покрывает
+    static Map<Integer, Long> read(Path file, String topic, SnapshotState store) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Region region = new Region(channel, FileChannel.MapMode.READ_ONLY, channel.size());
+            MappedByteBuffer header = region.ensure(2 * Integer.BYTES + Byte.BYTES + Long.BYTES + Integer.BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Unsupported snapshot format: " + file);
+            }
+            header.get();
+            header.getLong();
+            byte[] topicBytes = new byte[header.getInt()];
+            region.ensure(topicBytes.length + Integer.BYTES).get(topicBytes);
+            if (!topic.equals(new String(topicBytes, StandardCharsets.UTF_8))) {
+                throw new IOException("Snapshot " + file + " belongs to another topic");
+            }
+            int offsetCount = region.buffer.getInt();
+            Map<Integer, Long> offsets = new HashMap<>();
+            for (int i = 0; i < offsetCount; i++) {
+                MappedByteBuffer buffer = region.ensure(Integer.BYTES + Long.BYTES);
+                offsets.put(buffer.getInt(), buffer.getLong());
+            }
+            long entryCount = region.ensure(Long.BYTES).getLong();
+            Table[] tables = Table.values();
+            for (long i = 0; i < entryCount; i++) {
+                MappedByteBuffer buffer = region.ensure(ENTRY_SIZE);
+                store.restoreEntry(tables[buffer.get()], buffer.getLong(), buffer.getLong(), buffer.getDouble());
+            }
+            return offsets;
+        }
+    }
+
+    /**
+     * Запись снимка. Значения копируются в отображение файла потоком, который владеет состоянием;
+     * {@link #commit()} дописывает число значений, сбрасывает файл на диск и переименовывает его
+     * и может выполняться в другом потоке. Окно записи растет вместе с файлом, поэтому число значений
+     * заранее не нужно и состояние обходится один раз.
+     */
+    static final class Writer implements SnapshotState.EntryConsumer {
+
+        private final Path file;
+        private final Path tmp;
+        private final FileChannel channel;
+        private final Region region;
+        // первое окно: в нем заголовок и место под число значений
+        private final MappedByteBuffer header;
+        private final int countPosition;
+        private long count;
+
+        private Writer(Path file, Path tmp, FileChannel channel, String type, long sequence, String topic,
+                       Map<Integer, Long> offsets) {
+            this.file = file;
+            this.tmp = tmp;
+            this.channel = channel;
+            this.region = new Region(channel, FileChannel.MapMode.READ_WRITE, Long.MAX_VALUE);
+            byte[] topicBytes = topic.getBytes(StandardCharsets.UTF_8);
+            long headerSize = 2 * Integer.BYTES + Byte.BYTES + Long.BYTES
+                    + Integer.BYTES + topicBytes.length
+                    + Integer.BYTES + (long) offsets.size() * (Integer.BYTES + Long.BYTES)
+                    + Long.BYTES;
+            header = region.ensure(headerSize);
+            header.putInt(MAGIC).putInt(VERSION).put(type.equals(FULL) ? (byte) 0 : (byte) 1)
+                    .putLong(sequence).putInt(topicBytes.length).put(topicBytes).putInt(offsets.size());
+            offsets.forEach((partition, offset) -> header.putInt(partition).putLong(offset));
+            countPosition = header.position();
+            header.putLong(0);
+        }
+
+        @Override
+        public void accept(Table table, long keyA, long keyB, double value) {
+            region.ensure(ENTRY_SIZE).put((byte) table.ordinal()).putLong(keyA).putLong(keyB).putDouble(value);
+            count++;
+        }
+
+        long count() {
+            return count;
+        }
+
+        void commit() throws IOException {
+            try (channel) {
+                header.putLong(countPosition, count);
+                region.force();
+                channel.truncate(region.position());
+                channel.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        void abort() throws IOException {
+            try (channel) {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    // скользящее окно отображения файла в память
+    private static final class Region {
+
+        private final FileChannel channel;
+        private final FileChannel.MapMode mode;
+        // при записи - Long.MAX_VALUE: отображение за концом файла увеличивает файл
+        private final long fileSize;
+        // окна записи, которые сбрасываются на диск в force()
+        private final List<MappedByteBuffer> written = new ArrayList<>();
+        private long start;
+        private MappedByteBuffer buffer;
+
+        private Region(FileChannel channel, FileChannel.MapMode mode, long fileSize) {
+            this.channel = channel;
+            this.mode = mode;
+            this.fileSize = fileSize;
+        }
+
+        // гарантирует, что в текущем окне доступно bytes байт, при необходимости сдвигая окно
+        private MappedByteBuffer ensure(long bytes) {
+            if (buffer == null || buffer.remaining() < bytes) {
+                try {
+                    if (buffer != null) {
+                        start += buffer.position();
+                    }
+                    long size = Math.min(Math.max(REGION_SIZE, bytes), fileSize - start);
+                    if (size < bytes) {
+                        throw new IOException("Snapshot file is truncated");
+                    }
+                    buffer = channel.map(mode, start, size);
+                    if (mode == FileChannel.MapMode.READ_WRITE) {
+                        written.add(buffer);
+                    }
+                } catch (IOException e) {
+                    throw new SnapshotException(e);
+                }
+            }
+            return buffer;
+        }
+
+        private long position() {
+            return start + buffer.position();
+        }
+
+        private void force() {
+            written.forEach(MappedByteBuffer::force);
+        }
+    }
+
+}
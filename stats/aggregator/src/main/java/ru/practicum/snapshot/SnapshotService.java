@@ -0,0 +1,271 @@
+package ru.practicum.snapshot;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.practicum.properties.CustomProperties;
+import ru.practicum.storage.SnapshotState;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Периодические снимки таблиц агрегатора в локальные файлы и восстановление из них при старте.
+ * Полный снимок пишется раз в {@code fullEvery} снимков, между ними - инкрементальные,
+ * в которые попадают только значения, измененные с предыдущего снимка.
+ * Каждый снимок хранит смещения топика user-actions, которые в нем уже учтены:
+ * после восстановления потребитель перематывается на них, а не читает топик с начала.
+ * Поток слушателя только копирует значения в отображение файла снимка (страничный кеш ОС), без копии
+ * в куче; сброс на диск и переименование идут в фоне. Пока предыдущий снимок пишется, новый не снимается.
+ * Снимок снимается только между пачками, после отправки подобий: иначе смещения в нем покрыли бы подобия,
+ * которые еще не ушли в топик.
+ * <p>
+ * В параллельном режиме пачки обрабатывают несколько потоков слушателя, и каждый выполняет свою
+ * в {@link #runBatch}. Снимок ждет, пока все они закончат текущие пачки, и на время копирования
+ * не дает начать новые: так смещения всех разделов и таблицы в снимке соответствуют друг другу.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SnapshotService {
+
+    private final SnapshotState snapshotState;
+    private final CustomProperties customProperties;
+
+    // Map<partition, offset> - следующие к чтению смещения, изменения до которых уже лежат в таблицах
+    private final Map<Integer, Long> processedOffsets = new ConcurrentHashMap<>();
+    // пачки слушателей держат чтение, снимок - запись
+    private final ReadWriteLock batchLock = new ReentrantReadWriteLock();
+    // Map<partition, offset> - смещения восстановленного снимка, еще не примененные к потребителю
+    private final Map<Integer, Long> restoredOffsets = new ConcurrentHashMap<>();
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Future<?> pendingWrite = CompletableFuture.completedFuture(null);
+    // неудачная запись разрывает цепочку инкрементальных снимков: следующий снимок будет полным
+    private volatile boolean writeFailed;
+
+    private long sequence;
+    private int deltasSinceFull;
+    private volatile long lastSnapshotMillis;
+
+    // загрузка последнего полного снимка и всех инкрементальных после него; вызывается до старта слушателей
+    public void restore() {
+        CustomProperties.Snapshot properties = customProperties.getAggregator().getSnapshot();
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Path directory = Path.of(properties.getDirectory());
+        String topic = customProperties.getKafka().getUserActionTopic();
+        try {
+            Files.createDirectories(directory);
+            List<Path> chain = findRestoreChain(directory);
+            for (Path file : chain) {
+                long start = System.currentTimeMillis();
+                processedOffsets.putAll(SnapshotFile.read(file, topic, snapshotState));
+                sequence = sequenceOf(file);
+                log.info("SNAPSHOT: загружен {} за {} мс", file.getFileName(), System.currentTimeMillis() - start);
+            }
+            deltasSinceFull = Math.max(chain.size() - 1, 0);
+        } catch (IOException | SnapshotException e) {
+            // неполное состояние хуже пустого: сбрасываем все и начинаем как без снимков
+            log.error("SNAPSHOT: ошибка восстановления, начинаем с пустого состояния", e);
+            snapshotState.clear();
+            processedOffsets.clear();
+            sequence = 0;
+            deltasSinceFull = 0;
+        }
+        restoredOffsets.putAll(processedOffsets);
+        snapshotState.setChangeTracking(true);
+        lastSnapshotMillis = System.currentTimeMillis();
+        log.info("SNAPSHOT: восстановлены смещения {}", restoredOffsets);
+    }
+
+    // смещение из снимка для раздела, на которое нужно перемотать потребителя; выдается один раз
+    public Optional<Long> takeRestoredOffset(int partition) {
+        return Optional.ofNullable(restoredOffsets.remove(partition));
+    }
+
+    // обработка пачки слушателя: пока она идет, снимок не снимается
+    public void runBatch(Runnable batch) {
+        Lock lock = batchLock.readLock();
+        lock.lock();
+        try {
+            batch.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // фиксирует обработку записи; вызывается из потока слушателя
+    public void onRecordProcessed(int partition, long offset) {
+        if (customProperties.getAggregator().getSnapshot().isEnabled()) {
+            processedOffsets.put(partition, offset + 1);
+        }
+    }
+
+    // снимает снимок, если подошел срок; вызывается из потока слушателя после runBatch
+    public void snapshotIfDue() {
+        CustomProperties.Snapshot properties = customProperties.getAggregator().getSnapshot();
+        if (!properties.isEnabled() || !isDue(properties)) {
+            return;
+        }
+        Lock lock = batchLock.writeLock();
+        lock.lock();
+        try {
+            // пока поток ждал, снимок мог снять другой поток слушателя
+            if (isDue(properties)) {
+                snapshot(properties);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ожидание записи последнего снятого снимка
+    public void awaitPendingWrite() {
+        try {
+            pendingWrite.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error("SNAPSHOT: ошибка фоновой записи", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        awaitPendingWrite();
+        writer.shutdown();
+    }
+
+    private boolean isDue(CustomProperties.Snapshot properties) {
+        return System.currentTimeMillis() - lastSnapshotMillis >= properties.getInterval().toMillis()
+                && pendingWrite.isDone();
+    }
+
+    private void snapshot(CustomProperties.Snapshot properties) {
+        Path directory = Path.of(properties.getDirectory());
+        String topic = customProperties.getKafka().getUserActionTopic();
+        boolean full = sequence == 0 || writeFailed || deltasSinceFull + 1 >= properties.getFullEvery();
+        String type = full ? SnapshotFile.FULL : SnapshotFile.DELTA;
+        long nextSequence = sequence + 1;
+        Path file = directory.resolve(SnapshotFile.fileName(nextSequence, type));
+
+        long start = System.currentTimeMillis();
+        lastSnapshotMillis = start;
+        SnapshotFile.Writer output = null;
+        try {
+            output = SnapshotFile.create(file, type, nextSequence, topic, Map.copyOf(processedOffsets));
+            if (full) {
+                snapshotState.forEachEntry(output);
+            } else {
+                snapshotState.forEachChange(output);
+            }
+        } catch (IOException | SnapshotException e) {
+            // журнал изменений не очищен: следующий снимок повторит эти значения
+            log.error("SNAPSHOT: ошибка записи {}", file.getFileName(), e);
+            abort(output);
+            return;
+        }
+        snapshotState.clearChanges();
+        log.debug("SNAPSHOT: скопировано {} значений за {} мс", output.count(), System.currentTimeMillis() - start);
+
+        writeFailed = false;
+        sequence = nextSequence;
+        deltasSinceFull = full ? 0 : deltasSinceFull + 1;
+        SnapshotFile.Writer copied = output;
+        pendingWrite = writer.submit(() -> commit(directory, file, type, nextSequence, copied));
+    }
+
+    private void commit(Path directory, Path file, String type, long sequence, SnapshotFile.Writer output) {
+        long start = System.currentTimeMillis();
+        try {
+            output.commit();
+            log.info("SNAPSHOT: записан {} ({} значений) за {} мс",
+                    file.getFileName(), output.count(), System.currentTimeMillis() - start);
+        } catch (IOException | SnapshotException e) {
+            // журнал изменений уже очищен, поэтому потерянные значения вернет только полный снимок
+            writeFailed = true;
+            log.error("SNAPSHOT: ошибка записи {}, следующий снимок будет полным", file.getFileName(), e);
+            return;
+        }
+        if (SnapshotFile.FULL.equals(type)) {
+            try {
+                deleteOlderThan(directory, sequence);
+            } catch (IOException e) {
+                log.warn("SNAPSHOT: не удалось удалить снимки старше {}: {}", file.getFileName(), e.getMessage());
+            }
+        }
+    }
+
+    private void abort(SnapshotFile.Writer output) {
+        if (output == null) {
+            return;
+        }
+        try {
+            output.abort();
+        } catch (IOException e) {
+            log.warn("SNAPSHOT: не удалось удалить недописанный снимок: {}", e.getMessage());
+        }
+    }
+
+    // последний полный снимок и непрерывная цепочка инкрементальных после него
+    private List<Path> findRestoreChain(Path directory) throws IOException {
+        List<Path> files = listSnapshots(directory);
+        int fullIndex = -1;
+        for (int i = files.size() - 1; i >= 0 && fullIndex < 0; i--) {
+            if (files.get(i).getFileName().toString().endsWith(SnapshotFile.FULL)) {
+                fullIndex = i;
+            }
+        }
+        if (fullIndex < 0) {
+            return List.of();
+        }
+        List<Path> chain = new ArrayList<>(List.of(files.get(fullIndex)));
+        for (int i = fullIndex + 1; i < files.size(); i++) {
+            Path file = files.get(i);
+            if (!file.getFileName().toString().endsWith(SnapshotFile.DELTA)
+                    || sequenceOf(file) != sequenceOf(chain.getLast()) + 1) {
+                log.warn("SNAPSHOT: цепочка прервана на {}, более поздние снимки пропущены", file.getFileName());
+                break;
+            }
+            chain.add(file);
+        }
+        return chain;
+    }
+
+    private void deleteOlderThan(Path directory, long sequence) throws IOException {
+        for (Path file : listSnapshots(directory)) {
+            if (sequenceOf(file) < sequence) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private List<Path> listSnapshots(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> file.getFileName().toString().matches("snapshot-\\d{19}\\.(full|delta)"))
+                    .sorted(Comparator.comparingLong(SnapshotService::sequenceOf))
+                    .toList();
+        }
+    }
+
+    private static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring("snapshot-".length(), name.indexOf('.')));
+    }
+
+}
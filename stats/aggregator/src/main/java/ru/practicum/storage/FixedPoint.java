@@ -0,0 +1,19 @@
+package ru.practicum.storage;
+
+// веса и суммы хранятся в миллионных долях в long: сложение точное, упаковки нет
+public final class FixedPoint {
+
+    public static final long SCALE = 1_000_000L;
+
+    private FixedPoint() {
+    }
+
+    public static long toUnits(double value) {
+        return Math.round(value * SCALE);
+    }
+
+    public static double fromUnits(long units) {
+        return (double) units / SCALE;
+    }
+
+}
@@ -0,0 +1,29 @@
+package ru.practicum.storage;
+
+final class HashUtils {
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private HashUtils() {
+    }
+
+    // перемешивание битов ключа (Fibonacci hashing): последовательные id не должны попадать в соседние ячейки
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // минимальная степень двойки, вмещающая expectedSize элементов без перестроения
+    static int capacityFor(int expectedSize, int minCapacity, float loadFactor) {
+        long required = (long) Math.ceil(expectedSize / (double) loadFactor) + 1;
+        if (required > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Too many elements for a hash table: " + expectedSize);
+        }
+        int capacity = minCapacity;
+        while (capacity < required) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+}
@@ -0,0 +1,124 @@
+package ru.practicum.storage;
+
+import java.util.Arrays;
+import java.util.function.LongFunction;
+
+/**
+ * Хеш-таблица long -> V с открытой адресацией и линейным пробированием.
+ * Используется как внешний уровень вложенных таблиц агрегатора, чтобы ключ верхнего уровня
+ * (userId или eventId) не упаковывался в {@link Long}. Ключ 0 хранится отдельно.
+ * Удаление не поддерживается. Не потокобезопасна.
+ */
+public class LongObjectHashMap<V> {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+    private int resizeThreshold;
+
+    private V zeroValue;
+
+    public LongObjectHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongObjectHashMap(int expectedSize) {
+        allocate(HashUtils.capacityFor(expectedSize, MIN_CAPACITY, LOAD_FACTOR));
+    }
+
+    public int size() {
+        return zeroValue != null ? size + 1 : size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0) {
+            return zeroValue;
+        }
+        int index = indexOf(key);
+        return keys[index] == key ? (V) values[index] : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(long key, LongFunction<V> factory) {
+        if (key == 0) {
+            if (zeroValue == null) {
+                zeroValue = factory.apply(key);
+            }
+            return zeroValue;
+        }
+        int index = indexOf(key);
+        if (keys[index] == key) {
+            return (V) values[index];
+        }
+        V value = factory.apply(key);
+        keys[index] = key;
+        values[index] = value;
+        if (++size >= resizeThreshold) {
+            rehash(keys.length << 1);
+        }
+        return value;
+    }
+
+    // вставка во время обхода не ломает его: каждый прежний ключ обходится ровно один раз,
+    // добавленные во время обхода - может быть, тоже
+    @SuppressWarnings("unchecked")
+    public void forEach(LongObjectConsumer<V> consumer) {
+        if (zeroValue != null) {
+            consumer.accept(0, zeroValue);
+        }
+        long[] keys = this.keys;
+        Object[] values = this.values;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                consumer.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        size = 0;
+        zeroValue = null;
+    }
+
+    private int indexOf(long key) {
+        int index = HashUtils.mix(key) & mask;
+        while (keys[index] != 0 && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int index = indexOf(key);
+                keys[index] = key;
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface LongObjectConsumer<V> {
+        void accept(long key, V value);
+    }
+
+}
@@ -0,0 +1,168 @@
+package ru.practicum.storage;
+
+import org.springframework.stereotype.Component;
+
+import static ru.practicum.storage.FixedPoint.fromUnits;
+import static ru.practicum.storage.FixedPoint.toUnits;
+
+/**
+ * Реализация {@link SimilarityStore} на хеш-таблицах примитивов.
+ * Веса и суммы хранятся в фиксированной точке ({@link FixedPoint}):
+ * это исключает упаковку в {@link Long}/{@link java.math.BigDecimal} и при этом
+ * сохраняет точность сложения, которую раньше давал BigDecimal.
+ * Не потокобезопасна - вызывается из одного потока слушателя Kafka.
+ */
+@Component
+public class PrimitiveSimilarityStore implements SimilarityStore {
+
+    // userId -> (eventId -> weight)
+    private final LongObjectHashMap<LongLongHashMap> weightsByUser = new LongObjectHashMap<>();
+    // eventId -> (userId -> weight)
+    private final LongObjectHashMap<LongLongHashMap> weightsByEvent = new LongObjectHashMap<>();
+    // eventId -> sum
+    private final LongLongHashMap eventSums = new LongLongHashMap();
+    // min(eventA, eventB) -> (max(eventA, eventB) -> sum)
+    private final LongObjectHashMap<LongLongHashMap> minWeightSums = new LongObjectHashMap<>();
+
+    // журнал изменений для инкрементальных снимков: ключи значений, измененных после clearChanges()
+    private boolean changeTracking;
+    private LongObjectHashMap<LongLongHashMap> changedWeights = new LongObjectHashMap<>();
+    private LongLongHashMap changedEventSums = new LongLongHashMap();
+    private LongObjectHashMap<LongLongHashMap> changedMinWeightSums = new LongObjectHashMap<>();
+
+    @Override
+    public double getWeight(long userId, long eventId) {
+        LongLongHashMap userWeights = weightsByUser.get(userId);
+        return userWeights == null ? 0.0 : fromUnits(userWeights.get(eventId, 0));
+    }
+
+    @Override
+    public boolean containsWeight(long userId, long eventId) {
+        LongLongHashMap userWeights = weightsByUser.get(userId);
+        return userWeights != null && userWeights.containsKey(eventId);
+    }
+
+    @Override
+    public void putWeight(long userId, long eventId, double weight) {
+        long units = toUnits(weight);
+        weightsByUser.computeIfAbsent(userId, id -> new LongLongHashMap()).put(eventId, units);
+        weightsByEvent.computeIfAbsent(eventId, id -> new LongLongHashMap()).put(userId, units);
+        if (changeTracking) {
+            markChanged(changedWeights, userId, eventId);
+        }
+    }
+
+    @Override
+    public void forEachEventOfUser(long userId, WeightConsumer consumer) {
+        forEach(weightsByUser.get(userId), consumer);
+    }
+
+    @Override
+    public void forEachUserOfEvent(long eventId, WeightConsumer consumer) {
+        forEach(weightsByEvent.get(eventId), consumer);
+    }
+
+    @Override
+    public double getEventSum(long eventId) {
+        return fromUnits(eventSums.get(eventId, 0));
+    }
+
+    @Override
+    public double addEventSum(long eventId, double delta) {
+        if (changeTracking) {
+            changedEventSums.put(eventId, 0);
+        }
+        return fromUnits(eventSums.addTo(eventId, toUnits(delta)));
+    }
+
+    @Override
+    public double getMinWeightSum(long eventA, long eventB) {
+        LongLongHashMap sums = minWeightSums.get(Math.min(eventA, eventB));
+        return sums == null ? 0.0 : fromUnits(sums.get(Math.max(eventA, eventB), 0));
+    }
+
+    @Override
+    public void putMinWeightSum(long eventA, long eventB, double sum) {
+        if (changeTracking) {
+            markChanged(changedMinWeightSums, Math.min(eventA, eventB), Math.max(eventA, eventB));
+        }
+        minWeightSums.computeIfAbsent(Math.min(eventA, eventB), id -> new LongLongHashMap())
+                .put(Math.max(eventA, eventB), toUnits(sum));
+    }
+
+    @Override
+    public double addMinWeightSum(long eventA, long eventB, double delta) {
+        if (changeTracking) {
+            markChanged(changedMinWeightSums, Math.min(eventA, eventB), Math.max(eventA, eventB));
+        }
+        return fromUnits(minWeightSums.computeIfAbsent(Math.min(eventA, eventB), id -> new LongLongHashMap())
+                .addTo(Math.max(eventA, eventB), toUnits(delta)));
+    }
+
+    @Override
+    public void forEachEntry(EntryConsumer consumer) {
+        weightsByUser.forEach((userId, weights) -> weights.forEach((eventId, units) ->
+                consumer.accept(Table.WEIGHT, userId, eventId, fromUnits(units))));
+        eventSums.forEach((eventId, units) ->
+                consumer.accept(Table.EVENT_SUM, eventId, 0, fromUnits(units)));
+        minWeightSums.forEach((first, sums) -> sums.forEach((second, units) ->
+                consumer.accept(Table.MIN_WEIGHT_SUM, first, second, fromUnits(units))));
+    }
+
+    @Override
+    public void setChangeTracking(boolean enabled) {
+        changeTracking = enabled;
+        clearChanges();
+    }
+
+    @Override
+    public void forEachChange(EntryConsumer consumer) {
+        changedWeights.forEach((userId, events) -> events.forEach((eventId, ignored) ->
+                consumer.accept(Table.WEIGHT, userId, eventId, getWeight(userId, eventId))));
+        changedEventSums.forEach((eventId, ignored) ->
+                consumer.accept(Table.EVENT_SUM, eventId, 0, getEventSum(eventId)));
+        changedMinWeightSums.forEach((first, seconds) -> seconds.forEach((second, ignored) ->
+                consumer.accept(Table.MIN_WEIGHT_SUM, first, second, getMinWeightSum(first, second))));
+    }
+
+    @Override
+    public void clearChanges() {
+        // новые экземпляры вместо clear(), чтобы не держать массивы, разросшиеся после пикового интервала
+        changedWeights = new LongObjectHashMap<>();
+        changedEventSums = new LongLongHashMap();
+        changedMinWeightSums = new LongObjectHashMap<>();
+    }
+
+    @Override
+    public void restoreEntry(Table table, long keyA, long keyB, double value) {
+        long units = toUnits(value);
+        switch (table) {
+            case WEIGHT -> {
+                weightsByUser.computeIfAbsent(keyA, id -> new LongLongHashMap()).put(keyB, units);
+                weightsByEvent.computeIfAbsent(keyB, id -> new LongLongHashMap()).put(keyA, units);
+            }
+            case EVENT_SUM -> eventSums.put(keyA, units);
+            case MIN_WEIGHT_SUM -> minWeightSums.computeIfAbsent(keyA, id -> new LongLongHashMap()).put(keyB, units);
+        }
+    }
+
+    @Override
+    public void clear() {
+        weightsByUser.clear();
+        weightsByEvent.clear();
+        eventSums.clear();
+        minWeightSums.clear();
+        clearChanges();
+    }
+
+    private static void markChanged(LongObjectHashMap<LongLongHashMap> changes, long keyA, long keyB) {
+        changes.computeIfAbsent(keyA, id -> new LongLongHashMap()).put(keyB, 0);
+    }
+
+    private static void forEach(LongLongHashMap table, WeightConsumer consumer) {
+        if (table != null) {
+            table.forEach((id, units) -> consumer.accept(id, fromUnits(units)));
+        }
+    }
+
+}
@@ -0,0 +1,41 @@
+package ru.practicum.storage;
+
+/**
+ * Состояние агрегатора, необходимое для расчета подобия мероприятий:
+ * веса взаимодействий пользователей с мероприятиями, суммы весов по мероприятию
+ * и суммы минимальных весов для каждой пары мероприятий.
+ * Пара мероприятий неупорядочена: (a, b) и (b, a) адресуют одну и ту же сумму минимумов.
+ */
+public interface SimilarityStore extends SnapshotState {
+
+    // вес взаимодействия пользователя с событием или 0, если взаимодействия не было
+    double getWeight(long userId, long eventId);
+
+    boolean containsWeight(long userId, long eventId);
+
+    void putWeight(long userId, long eventId, double weight);
+
+    // обход всех событий пользователя с их весами
+    void forEachEventOfUser(long userId, WeightConsumer consumer);
+
+    // обход всех пользователей события с их весами
+    void forEachUserOfEvent(long eventId, WeightConsumer consumer);
+
+    double getEventSum(long eventId);
+
+    // прибавляет delta к сумме весов события и возвращает новую сумму
+    double addEventSum(long eventId, double delta);
+
+    double getMinWeightSum(long eventA, long eventB);
+
+    void putMinWeightSum(long eventA, long eventB, double sum);
+
+    // прибавляет delta к сумме минимумов пары событий и возвращает новую сумму
+    double addMinWeightSum(long eventA, long eventB, double delta);
+
+    @FunctionalInterface
+    interface WeightConsumer {
+        void accept(long id, double weight);
+    }
+
+}
@@ -0,0 +1,38 @@
+package ru.practicum.storage;
+
+/**
+ * Состояние агрегатора в том виде, в каком оно попадает в снимок: значения таблиц {@link Table}
+ * и журнал изменений для инкрементальных снимков.
+ * Реализуют его хранилище обычного режима и параллельный агрегатор.
+ */
+public interface SnapshotState {
+
+    // обход всех значений таблиц - для полного снимка состояния
+    void forEachEntry(EntryConsumer consumer);
+
+    // включает журнал изменений, необходимый для инкрементальных снимков
+    void setChangeTracking(boolean enabled);
+
+    // обход значений, измененных с момента последнего вызова clearChanges()
+    void forEachChange(EntryConsumer consumer);
+
+    void clearChanges();
+
+    // восстановление значения из снимка, в журнал изменений не попадает
+    void restoreEntry(Table table, long keyA, long keyB, double value);
+
+    void clear();
+
+    // для EVENT_SUM ключ keyB не используется и равен 0
+    enum Table {
+        WEIGHT,
+        EVENT_SUM,
+        MIN_WEIGHT_SUM
+    }
+
+    @FunctionalInterface
+    interface EntryConsumer {
+        void accept(Table table, long keyA, long keyB, double value);
+    }
+
+}
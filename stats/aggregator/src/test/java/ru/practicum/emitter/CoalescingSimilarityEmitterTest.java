@@ -0,0 +1,186 @@
+package ru.practicum.emitter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaTemplate;
+import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
+import ru.practicum.properties.CustomProperties;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CoalescingSimilarityEmitterTest {
+
+    private static final String TOPIC = "events-similarity";
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<Void, SpecificRecordBase> kafkaTemplate = mock(KafkaTemplate.class);
+
+    private CustomProperties properties;
+    private CoalescingSimilarityEmitter emitter;
+
+    @BeforeEach
+    void setUp() {
+        properties = new CustomProperties();
+        CustomProperties.Emission emission = properties.getAggregator().getEmission();
+        emission.setStripes(1);
+        emission.setBatchSize(100);
+        emission.setEpsilon(0.01);
+        // отправку по таймеру в тестах не ждем
+        emission.setFlushInterval(Duration.ofHours(1));
+        when(kafkaTemplate.send(eq(TOPIC), any(SpecificRecordBase.class))).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (emitter != null) {
+            emitter.close();
+        }
+    }
+
+    @Test
+    void flush_ShouldSendOnlyLastScoreOfPairAndWaitForBroker() {
+        // Given
+        emitter = start();
+        emitter.accept(2, 1, 0.1);
+        emitter.accept(1, 2, 0.5);
+
+        // When
+        emitter.flush();
+
+        // Then
+        List<EventSimilarityAvro> sent = sent();
+        assertEquals(1, sent.size());
+        assertEquals(1, sent.getFirst().getEventA());
+        assertEquals(2, sent.getFirst().getEventB());
+        assertEquals(0.5, sent.getFirst().getScore());
+        verify(kafkaTemplate).flush();
+    }
+
+    @Test
+    void accept_ShouldSkipScoreChangedLessThanEpsilon() {
+        // Given
+        emitter = start();
+        emitter.accept(1, 2, 0.5);
+        emitter.flush();
+
+        // When
+        emitter.accept(1, 2, 0.505);
+        emitter.accept(1, 3, 0.7);
+        emitter.flush();
+
+        // Then
+        List<EventSimilarityAvro> sent = sent();
+        assertEquals(2, sent.size());
+        assertEquals(3, sent.getLast().getEventB());
+    }
+
+    @Test
+    void accept_ShouldForgetOldestLastEmittedScoresWhenLimitExceeded() {
+        // Given: поколение - 2 пары, помним не больше 4
+        properties.getAggregator().getEmission().setLastEmittedLimit(4);
+        emitter = start();
+        for (long second = 2; second <= 6; second++) {
+            emitter.accept(1, second, 0.5);
+            emitter.flush();
+        }
+        clearInvocations(kafkaTemplate);
+
+        // When
+        emitter.accept(1, 2, 0.5);
+        emitter.accept(1, 6, 0.5);
+        emitter.flush();
+
+        // Then: пара (1,2) вытеснена и ушла заново, (1,6) еще помнится и отсеяна
+        List<EventSimilarityAvro> sent = sent();
+        assertEquals(1, sent.size());
+        assertEquals(2, sent.getFirst().getEventB());
+    }
+
+    @Test
+    void accept_ShouldNotBlockOnStripeWhileBatchIsBeingSent() throws Exception {
+        // Given: отправка пачки зависает, пока другой поток не добавит пару в ту же полосу
+        properties.getAggregator().getEmission().setBatchSize(2);
+        emitter = start();
+        emitter.accept(1, 2, 0.5);
+        CompletableFuture<Void> otherAccept = new CompletableFuture<>();
+        when(kafkaTemplate.send(eq(TOPIC), any(SpecificRecordBase.class))).thenAnswer(invocation -> {
+            if (!otherAccept.isDone()) {
+                Thread other = new Thread(() -> {
+                    emitter.accept(3, 4, 0.9);
+                    otherAccept.complete(null);
+                });
+                other.start();
+                otherAccept.get(5, TimeUnit.SECONDS);
+            }
+            return CompletableFuture.completedFuture(null);
+        });
+
+        // When: вторая пара заполняет пачку и запускает отправку
+        emitter.accept(1, 3, 0.5);
+
+        // Then
+        assertTrue(otherAccept.isDone());
+    }
+
+    @Test
+    void flush_ShouldFailAndResendPairRejectedByBroker() {
+        // Given: брокер не принимает первую отправку
+        emitter = start();
+        when(kafkaTemplate.send(eq(TOPIC), any(SpecificRecordBase.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker unavailable")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        emitter.accept(1, 2, 0.5);
+
+        // When / Then: смещения не фиксируются, пара остается к отправке
+        assertThrows(KafkaException.class, () -> emitter.flush());
+        emitter.flush();
+
+        assertEquals(List.of("1-2:0.5", "1-2:0.5"), sent().stream()
+                .map(s -> s.getEventA() + "-" + s.getEventB() + ":" + s.getScore())
+                .toList());
+    }
+
+    @Test
+    void accept_ShouldCompareWithLastDeliveredScoreOnly() {
+        // Given: 0.5 доставлено, 0.8 брокер не принял
+        emitter = start();
+        emitter.accept(1, 2, 0.5);
+        emitter.flush();
+        when(kafkaTemplate.send(eq(TOPIC), any(SpecificRecordBase.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker unavailable")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        emitter.accept(1, 2, 0.8);
+        assertThrows(KafkaException.class, () -> emitter.flush());
+
+        // When: новое значение близко к неотправленному, но не к доставленному
+        emitter.accept(1, 2, 0.805);
+        emitter.flush();
+
+        // Then
+        assertEquals(List.of(0.5, 0.8, 0.805), sent().stream().map(EventSimilarityAvro::getScore).toList());
+    }
+
+    private CoalescingSimilarityEmitter start() {
+        return new CoalescingSimilarityEmitter(kafkaTemplate, properties, new SimpleMeterRegistry());
+    }
+
+    private List<EventSimilarityAvro> sent() {
+        ArgumentCaptor<SpecificRecordBase> captor = ArgumentCaptor.forClass(SpecificRecordBase.class);
+        verify(kafkaTemplate, atLeast(0)).send(eq(TOPIC), captor.capture());
+        return captor.getAllValues().stream().map(EventSimilarityAvro.class::cast).toList();
+    }
+
+}
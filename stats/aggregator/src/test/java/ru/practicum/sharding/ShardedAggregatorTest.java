@@ -0,0 +1,209 @@
+package ru.practicum.sharding;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.emitter.SimilaritySink;
+import ru.practicum.properties.CustomProperties;
+import ru.practicum.snapshot.SnapshotService;
+import ru.practicum.storage.SnapshotState;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedAggregatorTest {
+
+    @TempDir
+    private Path directory;
+
+    private final List<ShardedAggregator> started = new ArrayList<>();
+    private final Map<String, Double> scores = new ConcurrentHashMap<>();
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        for (ShardedAggregator aggregator : started) {
+            aggregator.close();
+        }
+    }
+
+    @Test
+    void awaitExchange_ShouldNotWaitForBatchesOfAnotherPartition() throws Exception {
+        // Given: шард событий один, пачка раздела 1 застревает в sink после пачки раздела 0
+        CountDownLatch release = new CountDownLatch(1);
+        ShardedAggregator aggregator = start(1, (eventA, eventB, score) -> {
+            if (eventA == 20) {
+                awaitQuietly(release);
+            }
+        });
+        aggregator.handle(0, 1, 10, 0.5);
+        aggregator.handle(0, 1, 11, 0.5);
+        aggregator.handle(1, 2, 20, 0.5);
+        aggregator.handle(1, 2, 21, 0.5);
+
+        // When
+        CompletableFuture<Void> ownBatch = CompletableFuture.runAsync(() -> awaitExchange(aggregator, 0));
+        CompletableFuture<Void> stuckBatch = CompletableFuture.runAsync(() -> awaitExchange(aggregator, 1));
+
+        // Then
+        ownBatch.get(5, TimeUnit.SECONDS);
+        assertThrows(TimeoutException.class, () -> stuckBatch.get(100, TimeUnit.MILLISECONDS));
+        release.countDown();
+        stuckBatch.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void restoreEntry_ShouldContinueFromSnapshotLikeUninterruptedAggregator() throws InterruptedException {
+        // Given
+        ShardedAggregator original = start(4, this::record);
+        handleHistory(original);
+        Map<String, Double> snapshot = entries(original::forEachEntry);
+        ShardedAggregator restored = start(4, this::record);
+        snapshot.forEach((key, value) -> restoreEntry(restored, key, value));
+
+        // When: после перезапуска раздел пользователя 1 может оказаться другим
+        scores.clear();
+        original.handle(0, 1, 12, 0.9);
+        original.awaitExchange();
+        Map<String, Double> originalScores = new TreeMap<>(scores);
+        scores.clear();
+        restored.handle(3, 1, 12, 0.9);
+        restored.awaitExchange();
+
+        // Then
+        assertEquals(entries(original::forEachEntry), entries(restored::forEachEntry));
+        assertEquals(originalScores, new TreeMap<>(scores));
+        assertFalse(scores.isEmpty());
+    }
+
+    @Test
+    void forEachChange_ShouldReturnOnlyValuesChangedSinceClearChanges() throws InterruptedException {
+        // Given
+        ShardedAggregator aggregator = start(2, this::record);
+        aggregator.setChangeTracking(true);
+        handleHistory(aggregator);
+        aggregator.clearChanges();
+
+        // When: вес 3 -> 11 не растет и ничего не меняет
+        aggregator.handle(0, 1, 10, 0.7);
+        aggregator.handle(1, 2, 10, 0.9);
+        aggregator.handle(1, 3, 11, 0.3);
+        aggregator.awaitExchange();
+        Map<String, Double> changes = entries(aggregator::forEachChange);
+        aggregator.clearChanges();
+
+        // Then: сумму события 10 изменили оба раздела, в снимок она попадает один раз
+        assertEquals(Map.of(
+                "WEIGHT:1:10", 0.7,
+                "WEIGHT:2:10", 0.9,
+                "EVENT_SUM:10:0", 1.6,
+                "MIN_WEIGHT_SUM:10:11", 1.0
+        ), changes);
+        assertEquals(Map.of(), entries(aggregator::forEachChange));
+    }
+
+    @Test
+    void snapshotService_ShouldRestoreShardedStateFromFullAndDeltaSnapshots() throws InterruptedException {
+        // Given
+        CustomProperties properties = new CustomProperties();
+        properties.getAggregator().getSnapshot().setEnabled(true);
+        properties.getAggregator().getSnapshot().setDirectory(directory.toString());
+        properties.getAggregator().getSnapshot().setInterval(Duration.ZERO);
+        ShardedAggregator original = start(2, this::record);
+        SnapshotService service = new SnapshotService(original, properties);
+        service.restore();
+
+        // When: полный снимок, затем инкрементальный
+        service.runBatch(() -> handleHistory(original));
+        service.onRecordProcessed(0, 3);
+        service.snapshotIfDue();
+        service.awaitPendingWrite();
+        service.runBatch(() -> {
+            handle(original, 1, 2, 12, 0.9);
+            awaitExchange(original, 1);
+        });
+        service.onRecordProcessed(1, 8);
+        service.snapshotIfDue();
+        service.close();
+        ShardedAggregator restored = start(2, this::record);
+        SnapshotService restoredService = new SnapshotService(restored, properties);
+        restoredService.restore();
+
+        // Then
+        assertEquals(entries(original::forEachEntry), entries(restored::forEachEntry));
+        assertEquals(4L, restoredService.takeRestoredOffset(0).orElseThrow());
+        assertEquals(9L, restoredService.takeRestoredOffset(1).orElseThrow());
+    }
+
+    private ShardedAggregator start(int eventShards, SimilaritySink sink) {
+        ShardedAggregator aggregator = new ShardedAggregator(eventShards, 16, sink);
+        started.add(aggregator);
+        return aggregator;
+    }
+
+    // пользователь 1 - в разделе 0, пользователи 2 и 3 - в разделе 1
+    private static void handleHistory(ShardedAggregator aggregator) {
+        handle(aggregator, 0, 1, 10, 0.3);
+        handle(aggregator, 0, 1, 11, 0.9);
+        handle(aggregator, 1, 2, 10, 0.7);
+        handle(aggregator, 1, 2, 11, 0.3);
+        handle(aggregator, 1, 3, 11, 0.3);
+        handle(aggregator, 1, 3, 12, 0.9);
+        awaitExchange(aggregator, 0);
+        awaitExchange(aggregator, 1);
+    }
+
+    private static void handle(ShardedAggregator aggregator, int partition, long userId, long eventId, double weight) {
+        try {
+            aggregator.handle(partition, userId, eventId, weight);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitExchange(ShardedAggregator aggregator, int partition) {
+        try {
+            aggregator.awaitExchange(partition);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void record(long eventA, long eventB, double score) {
+        scores.put(eventA + "-" + eventB, score);
+    }
+
+    private static Map<String, Double> entries(Consumer<SnapshotState.EntryConsumer> source) {
+        Map<String, Double> entries = new TreeMap<>();
+        source.accept((table, keyA, keyB, value) -> {
+            assertNull(entries.put(table + ":" + keyA + ":" + keyB, value), "duplicate entry");
+        });
+        return entries;
+    }
+
+    private static void restoreEntry(ShardedAggregator aggregator, String key, double value) {
+        String[] parts = key.split(":");
+        aggregator.restoreEntry(SnapshotState.Table.valueOf(parts[0]),
+                Long.parseLong(parts[1]), Long.parseLong(parts[2]), value);
+    }
+
+}
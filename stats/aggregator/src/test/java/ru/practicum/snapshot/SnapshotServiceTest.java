@@ -0,0 +1,231 @@
+package ru.practicum.snapshot;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.properties.CustomProperties;
+import ru.practicum.storage.PrimitiveSimilarityStore;
+import ru.practicum.storage.SimilarityStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotServiceTest {
+
+    @TempDir
+    private Path directory;
+
+    private CustomProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new CustomProperties();
+        properties.getAggregator().getSnapshot().setEnabled(true);
+        properties.getAggregator().getSnapshot().setDirectory(directory.toString());
+        properties.getAggregator().getSnapshot().setInterval(Duration.ZERO);
+        properties.getAggregator().getSnapshot().setFullEvery(3);
+    }
+
+    @Test
+    void restore_ShouldLoadStateAndOffsetsOfFullSnapshot() {
+        // Given
+        PrimitiveSimilarityStore store = new PrimitiveSimilarityStore();
+        SnapshotService service = start(store);
+        store.putWeight(1, 10, 0.7);
+        store.addEventSum(10, 0.7);
+        store.putMinWeightSum(10, 20, 0.3);
+
+        // When
+        service.onRecordProcessed(0, 41);
+        service.snapshotIfDue();
+        service.close();
+        PrimitiveSimilarityStore restored = new PrimitiveSimilarityStore();
+        SnapshotService restoredService = start(restored);
+
+        // Then
+        assertEquals(0.7, restored.getWeight(1, 10));
+        assertEquals(0.7, restored.getEventSum(10));
+        assertEquals(0.3, restored.getMinWeightSum(20, 10));
+        assertEquals(Optional.of(42L), restoredService.takeRestoredOffset(0));
+        assertEquals(Optional.empty(), restoredService.takeRestoredOffset(0));
+    }
+
+    @Test
+    void restore_ShouldApplyDeltasAfterFullSnapshot() throws IOException {
+        // Given
+        PrimitiveSimilarityStore store = new PrimitiveSimilarityStore();
+        SnapshotService service = start(store);
+        store.putWeight(1, 10, 0.3);
+        service.onRecordProcessed(0, 1);
+        service.snapshotIfDue();
+        service.awaitPendingWrite();
+
+        // When
+        store.putWeight(1, 10, 0.9);
+        store.putWeight(2, 10, 0.7);
+        service.onRecordProcessed(0, 2);
+        service.snapshotIfDue();
+        service.awaitPendingWrite();
+        store.putMinWeightSum(10, 20, 0.5);
+        service.onRecordProcessed(1, 7);
+        service.snapshotIfDue();
+        service.close();
+        PrimitiveSimilarityStore restored = new PrimitiveSimilarityStore();
+        SnapshotService restoredService = start(restored);
+
+        // Then
+        assertEquals(List.of("snapshot-0000000000000000001.full", "snapshot-0000000000000000002.delta",
+                "snapshot-0000000000000000003.delta"), snapshotFiles());
+        assertEquals(0.9, restored.getWeight(1, 10));
+        assertEquals(0.7, restored.getWeight(2, 10));
+        assertEquals(0.5, restored.getMinWeightSum(10, 20));
+        assertEquals(Optional.of(3L), restoredService.takeRestoredOffset(0));
+        assertEquals(Optional.of(8L), restoredService.takeRestoredOffset(1));
+    }
+
+    @Test
+    void snapshot_ShouldCopyStateSoLaterChangesDoNotLeakIntoIt() {
+        // Given
+        PrimitiveSimilarityStore store = new PrimitiveSimilarityStore();
+        SnapshotService service = start(store);
+        store.putWeight(1, 10, 0.3);
+
+        // When
+        service.onRecordProcessed(0, 1);
+        service.snapshotIfDue();
+        store.putWeight(1, 10, 0.9);
+        service.close();
+        PrimitiveSimilarityStore restored = new PrimitiveSimilarityStore();
+        start(restored);
+
+        // Then
+        assertEquals(0.3, restored.getWeight(1, 10));
+    }
+
+    @Test
+    void snapshot_ShouldTrimFileToWrittenEntries() throws IOException {
+        // Given: окно записи отображается с запасом, после записи файл обрезается по последнему значению
+        PrimitiveSimilarityStore store = new PrimitiveSimilarityStore();
+        SnapshotService service = start(store);
+        for (int i = 0; i < 1000; i++) {
+            store.putWeight(i, 10, 0.3);
+        }
+
+        // When
+        service.onRecordProcessed(0, 1);
+        service.snapshotIfDue();
+        service.close();
+        PrimitiveSimilarityStore restored = new PrimitiveSimilarityStore();
+        start(restored);
+
+        // Then: заголовок с топиком user-actions и одним смещением - 57 байт, значение - 25 байт
+        assertEquals(57 + 1000 * 25, Files.size(directory.resolve("snapshot-0000000000000000001.full")));
+        assertEquals(0.3, restored.getWeight(999, 10));
+    }
+
+    @Test
+    void snapshotIfDue_ShouldWaitForBatchInProgressOnAnotherThread() throws Exception {
+        // Given: другой поток слушателя обрабатывает пачку
+        PrimitiveSimilarityStore store = new PrimitiveSimilarityStore();
+        SnapshotService service = start(store);
+        CountDownLatch inBatch = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> batch = CompletableFuture.runAsync(() -> service.runBatch(() -> {
+            store.putWeight(1, 10, 0.3);
+            service.onRecordProcessed(0, 1);
+            inBatch.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            store.putWeight(1, 10, 0.9);
+        }));
+        assertTrue(inBatch.await(5, TimeUnit.SECONDS));
+
+        // When
+        CompletableFuture<Void> snapshot = CompletableFuture.runAsync(service::snapshotIfDue);
+
+        // Then: снимок снимается только после пачки и видит ее целиком
+        assertThrows(TimeoutException.class, () -> snapshot.get(100, TimeUnit.MILLISECONDS));
+        release.countDown();
+        batch.get(5, TimeUnit.SECONDS);
+        snapshot.get(5, TimeUnit.SECONDS);
+        service.close();
+        PrimitiveSimilarityStore restored = new PrimitiveSimilarityStore();
+        start(restored);
+        assertEquals(0.9, restored.getWeight(1, 10));
+    }
+
+    @Test
+    void restore_ShouldStartEmptyWhenSnapshotIsCorrupted() throws IOException {
+        // Given
+        PrimitiveSimilarityStore store = new PrimitiveSimilarityStore();
+        SnapshotService service = start(store);
+        store.putWeight(1, 10, 0.3);
+        service.onRecordProcessed(0, 1);
+        service.snapshotIfDue();
+        service.close();
+        Path file = directory.resolve("snapshot-0000000000000000001.full");
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, java.util.Arrays.copyOf(bytes, bytes.length - 5));
+
+        // When
+        PrimitiveSimilarityStore restored = new PrimitiveSimilarityStore();
+        SnapshotService restoredService = start(restored);
+
+        // Then
+        long[] entries = {0};
+        restored.forEachEntry((table, keyA, keyB, value) -> entries[0]++);
+        assertEquals(0, entries[0]);
+        assertEquals(Optional.empty(), restoredService.takeRestoredOffset(0));
+    }
+
+    @Test
+    void snapshot_ShouldBeFullAgainAfterFullEverySnapshots() throws IOException {
+        // Given
+        PrimitiveSimilarityStore store = new PrimitiveSimilarityStore();
+        SnapshotService service = start(store);
+
+        // When
+        for (int i = 0; i < 4; i++) {
+            store.putWeight(i, 10, 0.3);
+            service.onRecordProcessed(0, i);
+            service.snapshotIfDue();
+            service.awaitPendingWrite();
+        }
+        service.close();
+
+        // Then: полный снимок 4 заменил цепочку 1-3
+        assertEquals(List.of("snapshot-0000000000000000004.full"), snapshotFiles());
+        PrimitiveSimilarityStore restored = new PrimitiveSimilarityStore();
+        start(restored);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(0.3, restored.getWeight(i, 10));
+        }
+    }
+
+    private SnapshotService start(SimilarityStore store) {
+        SnapshotService service = new SnapshotService(store, properties);
+        service.restore();
+        return service;
+    }
+
+    private List<String> snapshotFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().toList();
+        }
+    }
+
+}
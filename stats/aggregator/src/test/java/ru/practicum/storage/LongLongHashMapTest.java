@@ -0,0 +1,149 @@
+package ru.practicum.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongLongHashMapTest {
+
+    @Test
+    void put_ShouldKeepCollidingKeysOnOneProbeChain() {
+        // Given: 256 ячеек, пять ключей с одной начальной ячейкой
+        LongLongHashMap map = new LongLongHashMap(150);
+        List<Long> colliding = collidingKeys(256, 6);
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            map.put(colliding.get(i), i);
+        }
+        map.put(colliding.get(2), 20);
+
+        // Then: обновление находит ключ в середине цепочки, отсутствующий ключ - пустую ячейку за ней
+        assertEquals(5, map.size());
+        assertEquals(List.of(0L, 1L, 20L, 3L, 4L), colliding.subList(0, 5).stream().map(key -> map.get(key, -1)).toList());
+        assertFalse(map.containsKey(colliding.get(5)));
+        assertEquals(-1, map.get(colliding.get(5), -1));
+    }
+
+    @Test
+    void put_ShouldKeepAllEntriesAcrossResizes() {
+        // Given
+        LongLongHashMap map = new LongLongHashMap();
+
+        // When
+        for (long key = 1; key <= 10_000; key++) {
+            map.put(key, key * 10);
+        }
+
+        // Then
+        assertEquals(10_000, map.size());
+        for (long key = 1; key <= 10_000; key++) {
+            assertEquals(key * 10, map.get(key, -1));
+        }
+        assertFalse(map.containsKey(10_001));
+    }
+
+    @Test
+    void put_ShouldStoreZeroAndNegativeKeys() {
+        // Given
+        LongLongHashMap map = new LongLongHashMap();
+
+        // When
+        map.put(0, 7);
+        map.put(-1, 8);
+        map.put(Long.MIN_VALUE, 9);
+        map.addTo(0, 3);
+        map.addTo(-2, -5);
+
+        // Then: ключ 0 - маркер пустой ячейки, но хранится и обходится как обычный
+        assertEquals(4, map.size());
+        assertEquals(10, map.get(0, -1));
+        assertEquals(8, map.get(-1, -1));
+        assertEquals(9, map.get(Long.MIN_VALUE, -1));
+        assertEquals(-5, map.get(-2, -1));
+        assertEquals(Map.of(0L, 10L, -1L, 8L, Long.MIN_VALUE, 9L, -2L, -5L), toMap(map));
+    }
+
+    @Test
+    void addTo_ShouldStartMissingValueFromZero() {
+        // Given
+        LongLongHashMap map = new LongLongHashMap();
+
+        // When
+        long first = map.addTo(5, 3);
+        long second = map.addTo(5, 4);
+
+        // Then
+        assertEquals(3, first);
+        assertEquals(7, second);
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void clear_ShouldRemoveAllEntriesIncludingZeroKey() {
+        // Given: поштучного удаления нет, таблицы только растут или очищаются целиком
+        LongLongHashMap map = new LongLongHashMap();
+        for (long key = -100; key <= 100; key++) {
+            map.put(key, key);
+        }
+
+        // When
+        map.clear();
+
+        // Then
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(0));
+        assertFalse(map.containsKey(42));
+        assertEquals(Map.of(), toMap(map));
+        map.put(42, 1);
+        assertEquals(Map.of(42L, 1L), toMap(map));
+    }
+
+    @Test
+    void forEach_ShouldVisitEntriesPresentBeforeGrowthOnce() {
+        // Given
+        LongLongHashMap map = new LongLongHashMap();
+        for (long key = 0; key < 3; key++) {
+            map.put(key, key);
+        }
+        List<Long> visited = new ArrayList<>();
+
+        // When: обработчик добавляет столько ключей, что таблица перестраивается несколько раз
+        map.forEach((key, value) -> {
+            visited.add(key);
+            for (long added = 1000 * (key + 1); added < 1000 * (key + 1) + 300; added++) {
+                map.put(added, added);
+            }
+        });
+
+        // Then: прежние ключи обойдены, ни один ключ не обойден дважды
+        assertTrue(visited.containsAll(List.of(0L, 1L, 2L)));
+        assertEquals(visited.size(), visited.stream().distinct().count());
+        assertEquals(3 + 300L * visited.size(), map.size());
+        assertEquals(2299, map.get(2299, -1));
+    }
+
+    // ключи, попадающие в одну начальную ячейку таблицы из capacity ячеек
+    static List<Long> collidingKeys(int capacity, int count) {
+        List<Long> keys = new ArrayList<>();
+        int slot = HashUtils.mix(1) & (capacity - 1);
+        for (long key = 1; keys.size() < count; key++) {
+            if ((HashUtils.mix(key) & (capacity - 1)) == slot) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    private static Map<Long, Long> toMap(LongLongHashMap map) {
+        Map<Long, Long> entries = new HashMap<>();
+        map.forEach((key, value) -> assertNull(entries.put(key, value)));
+        return entries;
+    }
+
+}
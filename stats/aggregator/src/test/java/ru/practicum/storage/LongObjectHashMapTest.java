@@ -0,0 +1,117 @@
+package ru.practicum.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongObjectHashMapTest {
+
+    @Test
+    void computeIfAbsent_ShouldCreateValueOnceAndFindCollidingKeys() {
+        // Given: 256 ячеек, пять ключей с одной начальной ячейкой
+        LongObjectHashMap<String> map = new LongObjectHashMap<>(150);
+        List<Long> colliding = LongLongHashMapTest.collidingKeys(256, 6);
+        AtomicInteger created = new AtomicInteger();
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            map.computeIfAbsent(colliding.get(i), key -> "v" + key + "#" + created.incrementAndGet());
+        }
+        String again = map.computeIfAbsent(colliding.get(2), key -> "other");
+
+        // Then
+        assertEquals(5, created.get());
+        assertEquals(5, map.size());
+        assertEquals("v" + colliding.get(2) + "#3", again);
+        assertNull(map.get(colliding.get(5)));
+    }
+
+    @Test
+    void computeIfAbsent_ShouldKeepAllEntriesAcrossResizes() {
+        // Given
+        LongObjectHashMap<Long> map = new LongObjectHashMap<>();
+
+        // When
+        for (long key = 1; key <= 10_000; key++) {
+            map.computeIfAbsent(key, Long::valueOf);
+        }
+
+        // Then
+        assertEquals(10_000, map.size());
+        for (long key = 1; key <= 10_000; key++) {
+            assertEquals(key, map.get(key));
+        }
+        assertNull(map.get(10_001));
+    }
+
+    @Test
+    void computeIfAbsent_ShouldStoreZeroAndNegativeKeys() {
+        // Given
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+
+        // When
+        map.computeIfAbsent(0, key -> "zero");
+        map.computeIfAbsent(0, key -> "again");
+        map.computeIfAbsent(-1, key -> "minus one");
+        map.computeIfAbsent(Long.MIN_VALUE, key -> "min");
+
+        // Then
+        assertEquals(3, map.size());
+        assertEquals(Map.of(0L, "zero", -1L, "minus one", Long.MIN_VALUE, "min"), toMap(map));
+    }
+
+    @Test
+    void clear_ShouldRemoveAllEntriesIncludingZeroKey() {
+        // Given
+        LongObjectHashMap<Long> map = new LongObjectHashMap<>();
+        for (long key = -100; key <= 100; key++) {
+            map.computeIfAbsent(key, Long::valueOf);
+        }
+
+        // When
+        map.clear();
+
+        // Then
+        assertEquals(0, map.size());
+        assertNull(map.get(0));
+        assertNull(map.get(42));
+        assertEquals(Map.of(), toMap(map));
+    }
+
+    @Test
+    void forEach_ShouldVisitEntriesPresentBeforeGrowthOnce() {
+        // Given
+        LongObjectHashMap<Long> map = new LongObjectHashMap<>();
+        for (long key = 0; key < 3; key++) {
+            map.computeIfAbsent(key, Long::valueOf);
+        }
+        List<Long> visited = new ArrayList<>();
+
+        // When: обработчик добавляет столько ключей, что таблица перестраивается несколько раз
+        map.forEach((key, value) -> {
+            visited.add(value);
+            for (long added = 1000 * (key + 1); added < 1000 * (key + 1) + 300; added++) {
+                map.computeIfAbsent(added, Long::valueOf);
+            }
+        });
+
+        // Then: прежние ключи обойдены, ни один ключ не обойден дважды
+        assertTrue(visited.containsAll(List.of(0L, 1L, 2L)));
+        assertEquals(visited.size(), visited.stream().distinct().count());
+        assertEquals(3 + 300L * visited.size(), map.size());
+        assertEquals(2299L, map.get(2299));
+    }
+
+    private static <V> Map<Long, V> toMap(LongObjectHashMap<V> map) {
+        Map<Long, V> entries = new HashMap<>();
+        map.forEach((key, value) -> assertNull(entries.put(key, value)));
+        return entries;
+    }
+
+}
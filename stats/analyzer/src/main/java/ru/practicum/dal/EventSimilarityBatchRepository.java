@@ -0,0 +1,20 @@
+package ru.practicum.dal;
+
+import java.time.Instant;
+import java.util.Collection;
+
+public interface EventSimilarityBatchRepository {
+
+    // вставка или обновление пачки подобий одним запросом на каждые BATCH_ROWS строк;
+    // пары в пачке должны быть уникальны и упорядочены (eventA < eventB)
+    void upsertAll(Collection<EventSimilarity> similarities);
+
+    // потоковое чтение всей таблицы курсором, без загрузки в память; вызывать внутри транзакции
+    void scanAll(SimilarityRowHandler handler);
+
+    @FunctionalInterface
+    interface SimilarityRowHandler {
+        void accept(long eventA, long eventB, double score, Instant timestamp);
+    }
+
+}
@@ -0,0 +1,72 @@
+package ru.practicum.dal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class EventSimilarityBatchRepositoryImpl implements EventSimilarityBatchRepository {
+
+    // 4 параметра на строку: держимся далеко от предела PostgreSQL в 65535 параметров на запрос
+    static final int BATCH_ROWS = 1000;
+
+    private static final String INSERT = "INSERT INTO similarities (event_a, event_b, score, timestamp) VALUES ";
+    private static final String ON_CONFLICT = """
+             ON CONFLICT (event_a, event_b) DO UPDATE
+            SET score = EXCLUDED.score, timestamp = EXCLUDED.timestamp
+            WHERE similarities.timestamp <= EXCLUDED.timestamp
+            """;
+
+    private static final String SCAN = "SELECT event_a, event_b, score, timestamp FROM similarities";
+    private static final int SCAN_FETCH_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void upsertAll(Collection<EventSimilarity> similarities) {
+        List<EventSimilarity> rows = new ArrayList<>(similarities);
+        for (int from = 0; from < rows.size(); from += BATCH_ROWS) {
+            List<EventSimilarity> chunk = rows.subList(from, Math.min(from + BATCH_ROWS, rows.size()));
+            Object[] params = new Object[chunk.size() * 4];
+            int i = 0;
+            for (EventSimilarity similarity : chunk) {
+                params[i++] = similarity.getEventA();
+                params[i++] = similarity.getEventB();
+                params[i++] = similarity.getScore();
+                params[i++] = Timestamp.from(similarity.getTimestamp());
+            }
+            jdbcTemplate.update(INSERT + valuesPlaceholders(chunk.size(), 4) + ON_CONFLICT, params);
+        }
+    }
+
+    @Override
+    public void scanAll(SimilarityRowHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SCAN, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(SCAN_FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) rs ->
+                handler.accept(rs.getLong(1), rs.getLong(2), rs.getDouble(3), rs.getTimestamp(4).toInstant()));
+    }
+
+    // "(?,?,?,?),(?,?,?,?),..." для rows строк по columns столбцов
+    static String valuesPlaceholders(int rows, int columns) {
+        String row = "(" + "?,".repeat(columns - 1) + "?)";
+        StringBuilder sql = new StringBuilder(rows * (row.length() + 1));
+        for (int r = 0; r < rows; r++) {
+            if (r > 0) {
+                sql.append(',');
+            }
+            sql.append(row);
+        }
+        return sql.toString();
+    }
+
+}
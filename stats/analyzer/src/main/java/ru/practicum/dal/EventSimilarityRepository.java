@@ -6,7 +6,7 @@ import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
-public interface EventSimilarityRepository extends JpaRepository<EventSimilarity, Long> {
+public interface EventSimilarityRepository extends JpaRepository<EventSimilarity, Long>, EventSimilarityBatchRepository {
 
     EventSimilarity findByEventAAndEventB(Long eventA, Long eventB);
 
@@ -15,14 +15,14 @@ public interface EventSimilarityRepository extends JpaRepository<EventSimilarity
               SELECT s.event_b event_id, s.score score
               FROM similarities s
               WHERE s.event_a IN :eventList
-              AND NOT EXISTS (SELECT 1 FROM actions a WHERE a.event_id = s.event_b AND a.user_id = :userId)
+              AND NOT EXISTS (SELECT 1 FROM user_event_interaction a WHERE a.event_id = s.event_b AND a.user_id = :userId)
             )
             UNION ALL
             (
               SELECT s.event_a event_id, s.score score
               FROM similarities s
               WHERE s.event_b IN :eventList
-              AND NOT EXISTS (SELECT 1 FROM actions a WHERE a.event_id = s.event_a AND a.user_id = :userId)
+              AND NOT EXISTS (SELECT 1 FROM user_event_interaction a WHERE a.event_id = s.event_a AND a.user_id = :userId)
             )
             ORDER BY score DESC
             LIMIT :limit;
@@ -36,16 +36,16 @@ public interface EventSimilarityRepository extends JpaRepository<EventSimilarity
     @Query(nativeQuery = true, value = """
             WITH simwt AS (
             (
-              SELECT s.event_a src_event, s.event_b event_id, s.score score, a.weight weight
+              SELECT s.event_a src_event, s.event_b event_id, s.score score, a.max_weight weight
               FROM similarities s
-              JOIN actions a ON a.event_id = s.event_b AND a.user_id = :userId
+              JOIN user_event_interaction a ON a.event_id = s.event_b AND a.user_id = :userId
               WHERE s.event_a IN :eventList
             )
             UNION ALL
             (
-              SELECT s.event_b src_event, s.event_a event_id, s.score score, a.weight weight
+              SELECT s.event_b src_event, s.event_a event_id, s.score score, a.max_weight weight
               FROM similarities s
-              JOIN actions a ON a.event_id = s.event_a AND a.user_id = :userId
+              JOIN user_event_interaction a ON a.event_id = s.event_a AND a.user_id = :userId
               WHERE s.event_b IN :eventList
             ))
             SELECT src_event, SUM(score*weight)/SUM(score) result_score
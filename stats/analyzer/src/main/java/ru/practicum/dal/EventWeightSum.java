@@ -0,0 +1,28 @@
+package ru.practicum.dal;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@ToString
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "event_weight_sums")
+public class EventWeightSum {
+
+    @Id
+    @EqualsAndHashCode.Include
+    @Column(name = "event_id")
+    private Long eventId;
+
+    // сумма max_weight всех пользователей по событию
+    @Column(name = "weight_sum", nullable = false)
+    private BigDecimal weightSum;
+
+}
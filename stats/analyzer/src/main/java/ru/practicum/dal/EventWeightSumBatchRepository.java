@@ -0,0 +1,11 @@
+package ru.practicum.dal;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+public interface EventWeightSumBatchRepository {
+
+    // атомарное прибавление приростов к суммам весов событий
+    void addAll(Map<Long, BigDecimal> increases);
+
+}
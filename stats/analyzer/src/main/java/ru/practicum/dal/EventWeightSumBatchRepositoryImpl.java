@@ -0,0 +1,43 @@
+package ru.practicum.dal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static ru.practicum.dal.EventSimilarityBatchRepositoryImpl.BATCH_ROWS;
+import static ru.practicum.dal.EventSimilarityBatchRepositoryImpl.valuesPlaceholders;
+
+@RequiredArgsConstructor
+public class EventWeightSumBatchRepositoryImpl implements EventWeightSumBatchRepository {
+
+    private static final String INSERT = "INSERT INTO event_weight_sums (event_id, weight_sum) VALUES ";
+    private static final String ON_CONFLICT = """
+             ON CONFLICT (event_id) DO UPDATE
+            SET weight_sum = event_weight_sums.weight_sum + EXCLUDED.weight_sum
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void addAll(Map<Long, BigDecimal> increases) {
+        // строки сумм общие для всех потоков слушателя: блокируем их всегда в порядке event_id,
+        // чтобы параллельные транзакции не взаимоблокировались
+        List<Map.Entry<Long, BigDecimal>> rows = new ArrayList<>(increases.entrySet());
+        rows.sort(Map.Entry.comparingByKey());
+        for (int from = 0; from < rows.size(); from += BATCH_ROWS) {
+            List<Map.Entry<Long, BigDecimal>> chunk = rows.subList(from, Math.min(from + BATCH_ROWS, rows.size()));
+            Object[] params = new Object[chunk.size() * 2];
+            int i = 0;
+            for (Map.Entry<Long, BigDecimal> row : chunk) {
+                params[i++] = row.getKey();
+                params[i++] = row.getValue();
+            }
+            jdbcTemplate.update(INSERT + valuesPlaceholders(chunk.size(), 2) + ON_CONFLICT, params);
+        }
+    }
+
+}
@@ -0,0 +1,7 @@
+package ru.practicum.dal;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface EventWeightSumRepository extends JpaRepository<EventWeightSum, Long>, EventWeightSumBatchRepository {
+
+}
@@ -1,41 +0,0 @@
-package ru.practicum.dal;
-
-import jakarta.persistence.*;
-import lombok.*;
-
-import java.math.BigDecimal;
-import java.time.Instant;
-
-@Getter
-@Setter
-@EqualsAndHashCode(onlyExplicitlyIncluded = true)
-@ToString
-@Entity
-@Builder
-@NoArgsConstructor
-@AllArgsConstructor
-@Table(
-        name = "actions",
-        indexes = {@Index(name = "idx_actions_user_id_event_id", columnList = "user_id, event_id")}
-)
-public class UserAction {
-
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    @EqualsAndHashCode.Include
-    @Column(name = "id")
-    private Long id;
-
-    @Column(name = "user_id", nullable = false)
-    private Long userId;
-
-    @Column(name = "event_id", nullable = false)
-    private Long eventId;
-
-    @Column(name = "weight", nullable = false)
-    private BigDecimal weight;
-
-    @Column(name = "timestamp", nullable = false)
-    private Instant timestamp;
-
-}
\ No newline at end of file
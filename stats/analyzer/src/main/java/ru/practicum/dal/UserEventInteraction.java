@@ -0,0 +1,40 @@
+package ru.practicum.dal;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Getter
+@Setter
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@ToString
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(UserEventInteractionId.class)
+@Table(
+        name = "user_event_interaction",
+        indexes = {@Index(name = "idx_user_event_interaction_user_id_last_ts", columnList = "user_id, last_ts")}
+)
+public class UserEventInteraction {
+
+    @Id
+    @EqualsAndHashCode.Include
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @EqualsAndHashCode.Include
+    @Column(name = "event_id")
+    private Long eventId;
+
+    @Column(name = "max_weight", nullable = false)
+    private BigDecimal maxWeight;
+
+    @Column(name = "last_ts", nullable = false)
+    private Instant lastTs;
+
+}
@@ -0,0 +1,13 @@
+package ru.practicum.dal;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Map;
+
+public interface UserEventInteractionBatchRepository {
+
+    // слияние пачки взаимодействий: строка меняется, только если вес растет, время при этом только вперед.
+    // Возвращает прирост max_weight по событиям
+    Map<Long, BigDecimal> mergeAll(Collection<UserEventInteraction> interactions);
+
+}
@@ -0,0 +1,79 @@
+package ru.practicum.dal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static ru.practicum.dal.EventSimilarityBatchRepositoryImpl.BATCH_ROWS;
+import static ru.practicum.dal.EventSimilarityBatchRepositoryImpl.valuesPlaceholders;
+
+@RequiredArgsConstructor
+public class UserEventInteractionBatchRepositoryImpl implements UserEventInteractionBatchRepository {
+
+    // новые пары: прирост - весь вес. Пара, вставленная параллельно, ждет ее коммита и пропускается
+    private static final String INSERT_HEAD = """
+            INSERT INTO user_event_interaction (user_id, event_id, max_weight, last_ts)
+            VALUES """;
+    private static final String INSERT_TAIL = """
+             ON CONFLICT (user_id, event_id) DO NOTHING
+            RETURNING event_id, max_weight
+            """;
+    // существующие пары: old блокирует строки и отдает их последнюю зафиксированную версию,
+    // поэтому прирост считается от значения, которое заменяется, даже при параллельной записи.
+    // Строки с весом не больше сохраненного не трогаются; блокировки берутся в порядке ключа.
+    // Тип параметра-времени в VALUES не выводится из колонки, поэтому CAST
+    private static final String UPDATE_HEAD = "WITH input (user_id, event_id, max_weight, last_ts) AS (VALUES ";
+    private static final String UPDATE_TAIL = """
+            )
+            UPDATE user_event_interaction t
+            SET max_weight = i.max_weight,
+                last_ts = GREATEST(t.last_ts, CAST(i.last_ts AS TIMESTAMPTZ))
+            FROM input i,
+                 (SELECT u.user_id, u.event_id, u.max_weight
+                  FROM user_event_interaction u
+                  JOIN input n ON u.user_id = n.user_id AND u.event_id = n.event_id
+                  ORDER BY u.user_id, u.event_id
+                  FOR UPDATE OF u) old
+            WHERE t.user_id = old.user_id AND t.event_id = old.event_id
+              AND i.user_id = old.user_id AND i.event_id = old.event_id
+              AND i.max_weight > old.max_weight
+            RETURNING t.event_id, i.max_weight - old.max_weight
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Map<Long, BigDecimal> mergeAll(Collection<UserEventInteraction> interactions) {
+        Map<Long, BigDecimal> increases = new HashMap<>();
+        List<UserEventInteraction> rows = new ArrayList<>(interactions);
+        // один порядок вставок и блокировок во всех транзакциях - без взаимных блокировок
+        rows.sort(Comparator.comparing(UserEventInteraction::getUserId).thenComparing(UserEventInteraction::getEventId));
+        RowCallbackHandler collectIncrease = rs -> increases.merge(rs.getLong(1), rs.getBigDecimal(2), BigDecimal::add);
+        for (int from = 0; from < rows.size(); from += BATCH_ROWS) {
+            List<UserEventInteraction> chunk = rows.subList(from, Math.min(from + BATCH_ROWS, rows.size()));
+            Object[] params = new Object[chunk.size() * 4];
+            int i = 0;
+            for (UserEventInteraction interaction : chunk) {
+                params[i++] = interaction.getUserId();
+                params[i++] = interaction.getEventId();
+                params[i++] = interaction.getMaxWeight();
+                params[i++] = Timestamp.from(interaction.getLastTs());
+            }
+            String values = valuesPlaceholders(chunk.size(), 4);
+            jdbcTemplate.query(INSERT_HEAD + values + INSERT_TAIL, collectIncrease, params);
+            // отдельный оператор - новый снимок: видны и только что вставленные, и параллельно вставленные пары
+            jdbcTemplate.query(UPDATE_HEAD + values + UPDATE_TAIL, collectIncrease, params);
+        }
+        return increases;
+    }
+
+}
@@ -0,0 +1,20 @@
+package ru.practicum.dal;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Getter
+@EqualsAndHashCode
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserEventInteractionId implements Serializable {
+
+    private Long userId;
+
+    private Long eventId;
+
+}
@@ -0,0 +1,35 @@
+package ru.practicum.dal;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface UserEventInteractionRepository extends JpaRepository<UserEventInteraction, UserEventInteractionId>,
+        UserEventInteractionBatchRepository {
+
+    @Query(nativeQuery = true, value = """
+            SELECT i.event_id
+            FROM user_event_interaction i
+            WHERE i.user_id = :userId
+            ORDER BY i.last_ts DESC
+            LIMIT :limit
+            """)
+    List<Long> findRecentEventIdListByUserId(
+            @Param("userId") Long userId,
+            @Param("limit") Integer limit
+    );
+
+    @Query(nativeQuery = true, value = """
+            SELECT i.event_id
+            FROM user_event_interaction i
+            WHERE i.user_id = :userId
+            AND i.event_id IN :eventList
+            """)
+    List<Long> findSeenEventIdList(
+            @Param("userId") Long userId,
+            @Param("eventList") List<Long> eventList
+    );
+
+}
@@ -0,0 +1,93 @@
+package ru.practicum.index;
+
+import java.util.Arrays;
+
+/**
+ * Неизменяемый список соседей события, упорядоченный по убыванию подобия и ограниченный K элементами.
+ * Каждое обновление создает новый экземпляр, поэтому читатели работают без блокировок.
+ */
+public final class Neighbours {
+
+    private final long[] eventIds;
+    private final double[] scores;
+    private final long[] timestamps;
+
+    private Neighbours(long[] eventIds, double[] scores, long[] timestamps) {
+        this.eventIds = eventIds;
+        this.scores = scores;
+        this.timestamps = timestamps;
+    }
+
+    public int size() {
+        return eventIds.length;
+    }
+
+    public long eventId(int i) {
+        return eventIds[i];
+    }
+
+    public double score(int i) {
+        return scores[i];
+    }
+
+    // список с учетом нового подобия соседа; current может быть null
+    static Neighbours with(Neighbours current, long eventId, double score, long timestamp, int topK) {
+        if (current == null) {
+            return new Neighbours(new long[]{eventId}, new double[]{score}, new long[]{timestamp});
+        }
+        int existing = current.indexOf(eventId);
+        if (existing >= 0 && timestamp < current.timestamps[existing]) {
+            // запоздавшее обновление из другого раздела
+            return current;
+        }
+        int size = current.size() - (existing >= 0 ? 1 : 0);
+        if (existing < 0 && size >= topK && score <= current.scores[size - 1]) {
+            return current;
+        }
+
+        int newSize = Math.min(size + 1, topK);
+        long[] ids = new long[newSize];
+        double[] newScores = new double[newSize];
+        long[] newTimestamps = new long[newSize];
+        int target = 0;
+        boolean inserted = false;
+        for (int i = 0; i < current.size() && target < newSize; i++) {
+            if (i == existing) {
+                continue;
+            }
+            if (!inserted && score > current.scores[i]) {
+                ids[target] = eventId;
+                newScores[target] = score;
+                newTimestamps[target++] = timestamp;
+                inserted = true;
+                if (target == newSize) {
+                    break;
+                }
+            }
+            ids[target] = current.eventIds[i];
+            newScores[target] = current.scores[i];
+            newTimestamps[target++] = current.timestamps[i];
+        }
+        if (!inserted && target < newSize) {
+            ids[target] = eventId;
+            newScores[target] = score;
+            newTimestamps[target] = timestamp;
+        }
+        return new Neighbours(ids, newScores, newTimestamps);
+    }
+
+    private int indexOf(long eventId) {
+        for (int i = 0; i < eventIds.length; i++) {
+            if (eventIds[i] == eventId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return "Neighbours" + Arrays.toString(eventIds);
+    }
+
+}
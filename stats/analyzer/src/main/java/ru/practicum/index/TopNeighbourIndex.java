@@ -0,0 +1,69 @@
+package ru.practicum.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.dal.EventSimilarityRepository;
+import ru.practicum.properties.CustomProperties;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Индекс K самых похожих событий для каждого события.
+ * Прогревается из таблицы similarities при старте и дальше обновляется из потребителя events-similarity.
+ * Индекс приближенный: если подобие соседа из списка упало, событие за пределами K на его место
+ * не поднимется, пока не придет его собственное обновление. Поэтому K берется с запасом
+ * относительно типичного maxResults запросов.
+ */
+@Slf4j
+@Component
+public class TopNeighbourIndex {
+
+    private final EventSimilarityRepository eventSimilarityRepository;
+    private final boolean enabled;
+    private final int topK;
+
+    private final ConcurrentHashMap<Long, Neighbours> neighboursByEvent = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    public TopNeighbourIndex(EventSimilarityRepository eventSimilarityRepository, CustomProperties customProperties) {
+        this.eventSimilarityRepository = eventSimilarityRepository;
+        this.enabled = customProperties.getAnalyzer().getNeighbourIndex().isEnabled();
+        this.topK = customProperties.getAnalyzer().getNeighbourIndex().getTopK();
+    }
+
+    // пока индекс не прогрет, запросы обслуживаются из базы
+    public boolean isReady() {
+        return ready;
+    }
+
+    // соседи события по убыванию подобия или null, если их нет
+    public Neighbours get(long eventId) {
+        return neighboursByEvent.get(eventId);
+    }
+
+    public void update(long eventA, long eventB, double score, long timestamp) {
+        if (!enabled) {
+            return;
+        }
+        neighboursByEvent.compute(eventA, (id, current) -> Neighbours.with(current, eventB, score, timestamp, topK));
+        neighboursByEvent.compute(eventB, (id, current) -> Neighbours.with(current, eventA, score, timestamp, topK));
+    }
+
+    @Transactional(readOnly = true)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long[] rows = {0};
+        eventSimilarityRepository.scanAll((eventA, eventB, score, timestamp) -> {
+            update(eventA, eventB, score, timestamp.toEpochMilli());
+            rows[0]++;
+        });
+        ready = true;
+        log.info("Neighbour index warmed up: {} similarities, {} events, {} ms",
+                rows[0], neighboursByEvent.size(), System.currentTimeMillis() - start);
+    }
+
+}
@@ -2,6 +2,7 @@ package ru.practicum.kafka;
 
 import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.LongDeserializer;
 import org.apache.kafka.common.serialization.VoidDeserializer;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
@@ -57,10 +58,12 @@ public class KafkaConsumerConfig {
     }
 
     @Bean
-    public ConsumerFactory<String, UserActionAvro> userActionConsumerFactory() {
+    public ConsumerFactory<Long, UserActionAvro> userActionConsumerFactory() {
         Map<String, Object> props = getCommonConsumerProperties(
                 customProperties.getKafka().getUserActionConsumerGroup()
         );
+        // коллектор отправляет действия с ключом userId
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, LongDeserializer.class);
         props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, UserActionAvroDeserializer.class);
         return new DefaultKafkaConsumerFactory<>(props);
     }
@@ -75,11 +78,12 @@ public class KafkaConsumerConfig {
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, UserActionAvro> userActionListenerContainerFactory() {
-        ConcurrentKafkaListenerContainerFactory<String, UserActionAvro> factory = new ConcurrentKafkaListenerContainerFactory<>();
+    public ConcurrentKafkaListenerContainerFactory<Long, UserActionAvro> userActionListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<Long, UserActionAvro> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(userActionConsumerFactory());
         factory.setAutoStartup(false);
-        factory.setBatchListener(false);
+        // весь poll обрабатывается одной пачкой, смещения подтверждаются после записи пачки
+        factory.setBatchListener(true);
 
         if (customProperties.getKafka().getConcurrency() != null) {
             factory.setConcurrency(customProperties.getKafka().getConcurrency());
@@ -95,7 +99,8 @@ public class KafkaConsumerConfig {
         ConcurrentKafkaListenerContainerFactory<String, EventSimilarityAvro> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(eventsSimilarityConsumerFactory());
         factory.setAutoStartup(false);
-        factory.setBatchListener(false);
+        // весь poll обрабатывается одной пачкой, смещения подтверждаются после записи пачки
+        factory.setBatchListener(true);
 
         if (customProperties.getKafka().getConcurrency() != null) {
             factory.setConcurrency(customProperties.getKafka().getConcurrency());
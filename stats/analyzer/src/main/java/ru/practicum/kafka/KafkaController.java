@@ -5,13 +5,17 @@ import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
 import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
 import ru.practicum.ewm.stats.avro.UserActionAvro;
+import ru.practicum.index.TopNeighbourIndex;
 import ru.practicum.properties.CustomProperties;
 import ru.practicum.service.EventSimilarityService;
 import ru.practicum.service.UserActionService;
 
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
 public class KafkaController {
@@ -20,9 +24,11 @@ public class KafkaController {
     private final CustomProperties customProperties;
     private final UserActionService userActionService;
     private final EventSimilarityService eventSimilarityService;
+    private final TopNeighbourIndex topNeighbourIndex;
 
     @EventListener(ApplicationReadyEvent.class)
     public void initKafkaProducer() {
+        topNeighbourIndex.warmUp();
         kafkaRegistry.start();
     }
 
@@ -30,15 +36,17 @@ public class KafkaController {
             topics = "#{customProperties.kafka.userActionTopic}",
             containerFactory = "userActionListenerContainerFactory"
     )
-    public void listenUserAction(UserActionAvro userActionAvro) {
-        userActionService.handleUserAction(userActionAvro);
+    public void listenUserActions(List<UserActionAvro> userActionAvroList, Acknowledgment acknowledgment) {
+        userActionService.handleUserActions(userActionAvroList);
+        acknowledgment.acknowledge();
     }
 
     @KafkaListener(
             topics = "#{customProperties.kafka.eventsSimilarityTopic}",
             containerFactory = "eventsSimilarityListenerContainerFactory"
     )
-    public void listenEventSimilarity(EventSimilarityAvro eventSimilarityAvro) {
-        eventSimilarityService.handleEventSimilarity(eventSimilarityAvro);
+    public void listenEventSimilarities(List<EventSimilarityAvro> eventSimilarityAvroList, Acknowledgment acknowledgment) {
+        eventSimilarityService.handleEventSimilarities(eventSimilarityAvroList);
+        acknowledgment.acknowledge();
     }
 }
\ No newline at end of file
@@ -44,6 +44,15 @@ public class CustomProperties {
         private final Weights weights = new Weights();
         private Integer similarityThreshold = 80;
         private Integer processingThreads = 4;
+        private final NeighbourIndex neighbourIndex = new NeighbourIndex();
+    }
+
+    @Getter
+    @Setter
+    public static class NeighbourIndex {
+        private boolean enabled = true;
+        // соседей на событие; с запасом относительно maxResults, т.к. часть отсеется как просмотренные
+        private int topK = 100;
     }
 
     @Getter
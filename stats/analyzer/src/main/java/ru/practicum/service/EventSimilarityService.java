@@ -4,39 +4,51 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.practicum.dal.EventSimilarity;
 import ru.practicum.dal.EventSimilarityRepository;
 import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
+import ru.practicum.index.TopNeighbourIndex;
 import ru.practicum.mapper.EventSimilarityMapper;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class EventSimilarityService {
 
     private final EventSimilarityRepository eventSimilarityRepository;
+    private final TopNeighbourIndex topNeighbourIndex;
 
     @Transactional
-    public void handleEventSimilarity(EventSimilarityAvro eventSimilarityAvro) {
-        log.debug("IN: {}", eventSimilarityAvro);
-        String logAction;
-        Long first = Math.min(eventSimilarityAvro.getEventA(), eventSimilarityAvro.getEventB());
-        Long second = Math.max(eventSimilarityAvro.getEventA(), eventSimilarityAvro.getEventB());
-
-        EventSimilarity eventSimilarity = eventSimilarityRepository.findByEventAAndEventB(first, second);
-
-        if (eventSimilarity == null) {
-            eventSimilarity = EventSimilarityMapper.fromAvroToNewEntity(eventSimilarityAvro);
-            logAction = "Created";
-        } else {
-            eventSimilarity.setScore(eventSimilarityAvro.getScore());
-            eventSimilarity.setTimestamp(eventSimilarityAvro.getTimestamp());
-            logAction = "Updated";
+    public void handleEventSimilarities(List<EventSimilarityAvro> eventSimilarityAvroList) {
+        log.debug("IN: {} similarities", eventSimilarityAvroList.size());
+
+        // одна строка на пару: в пачке остается самое свежее подобие
+        Map<PairKey, EventSimilarity> latest = new LinkedHashMap<>();
+        for (EventSimilarityAvro eventSimilarityAvro : eventSimilarityAvroList) {
+            EventSimilarity eventSimilarity = EventSimilarityMapper.fromAvroToNewEntity(eventSimilarityAvro);
+            latest.merge(new PairKey(eventSimilarity.getEventA(), eventSimilarity.getEventB()), eventSimilarity,
+                    (old, current) -> current.getTimestamp().isBefore(old.getTimestamp()) ? old : current);
         }
-        eventSimilarityRepository.save(eventSimilarity);
-        log.debug("{} similarity for {} and {} : Set score to {}",
-                logAction, eventSimilarity.getEventA(), eventSimilarity.getEventB(), eventSimilarity.getScore());
+
+        eventSimilarityRepository.upsertAll(latest.values());
+        // индекс не должен видеть подобия откатившейся транзакции: пачка после отката придет повторно
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                latest.values().forEach(similarity -> topNeighbourIndex.update(similarity.getEventA(),
+                        similarity.getEventB(), similarity.getScore(), similarity.getTimestamp().toEpochMilli()));
+            }
+        });
+        log.debug("Upserted {} similarities from {} records", latest.size(), eventSimilarityAvroList.size());
     }
 
+    private record PairKey(long eventA, long eventB) {
+    }
 
-}
\ No newline at end of file
+}
@@ -4,14 +4,21 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import ru.practicum.dal.EventSimilarityRepository;
-import ru.practicum.dal.UserActionRepository;
+import ru.practicum.dal.EventWeightSum;
+import ru.practicum.dal.EventWeightSumRepository;
+import ru.practicum.dal.UserEventInteractionRepository;
 import ru.practicum.grpc.similarity.reports.InteractionsCountRequestProto;
 import ru.practicum.grpc.similarity.reports.RecommendedEventProto;
 import ru.practicum.grpc.similarity.reports.SimilarEventsRequestProto;
 import ru.practicum.grpc.similarity.reports.UserPredictionsRequestProto;
+import ru.practicum.index.Neighbours;
+import ru.practicum.index.TopNeighbourIndex;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -19,8 +26,10 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class SimilarityReportService {
 
-    private final UserActionRepository userActionRepository;
+    private final UserEventInteractionRepository userEventInteractionRepository;
+    private final EventWeightSumRepository eventWeightSumRepository;
     private final EventSimilarityRepository eventSimilarityRepository;
+    private final TopNeighbourIndex topNeighbourIndex;
 
     // поток рекомендованных мероприятий для указанного пользователя
     public List<RecommendedEventProto> getRecommendationsForUser(UserPredictionsRequestProto request) {
@@ -28,7 +37,11 @@ public class SimilarityReportService {
         int maxResults = request.getMaxResults();
 
         // Выгрузить мероприятия, с которыми пользователь уже взаимодействовал, от новых к старым, первые N
-        List<Long> recentUserEventIds = userActionRepository.findRecentEventIdListByUserId(userId, maxResults);
+        List<Long> recentUserEventIds = userEventInteractionRepository.findRecentEventIdListByUserId(userId, maxResults);
+        // пустой список в IN () - синтаксическая ошибка в PostgreSQL
+        if (recentUserEventIds.isEmpty()) {
+            return List.of();
+        }
 
         // Найти мероприятия, похожие на те, что отобрали, но при этом пользователь с ними не взаимодействовал
         // сортировать по коэффициенту подобия от большего к меньшему. Выбрать первые N
@@ -39,6 +52,9 @@ public class SimilarityReportService {
                 ).stream()
                 .map(o -> ((Number) o[0]).longValue())
                 .toList();
+        if (similarEventIds.isEmpty()) {
+            return List.of();
+        }
 
         // найдем средневзвешенную оценку для каждого полученного ивента
         List<Object[]> averageResult = eventSimilarityRepository.findWeightedAverageListByEventIdList(userId, similarEventIds);
@@ -56,6 +72,10 @@ public class SimilarityReportService {
         long userId = request.getUserId();
         int maxResults = request.getMaxResults();
 
+        if (topNeighbourIndex.isReady()) {
+            return getSimilarEventsFromIndex(eventId, userId, maxResults);
+        }
+        // индекс еще прогревается
         return eventSimilarityRepository.findSimilarByEventIdListNotSeenByUser(
                         userId,
                         List.of(eventId),
@@ -68,14 +88,39 @@ public class SimilarityReportService {
                 .toList();
     }
 
+    // соседи из индекса; из базы только отсев тех, с которыми пользователь уже взаимодействовал
+    private List<RecommendedEventProto> getSimilarEventsFromIndex(long eventId, long userId, int maxResults) {
+        Neighbours neighbours = topNeighbourIndex.get(eventId);
+        if (neighbours == null || maxResults <= 0) {
+            return List.of();
+        }
+        List<Long> neighbourIds = new ArrayList<>(neighbours.size());
+        for (int i = 0; i < neighbours.size(); i++) {
+            neighbourIds.add(neighbours.eventId(i));
+        }
+        Set<Long> seen = new HashSet<>(userEventInteractionRepository.findSeenEventIdList(userId, neighbourIds));
+
+        List<RecommendedEventProto> result = new ArrayList<>(Math.min(maxResults, neighbours.size()));
+        for (int i = 0; i < neighbours.size() && result.size() < maxResults; i++) {
+            if (!seen.contains(neighbours.eventId(i))) {
+                result.add(RecommendedEventProto.newBuilder()
+                        .setEventId(neighbours.eventId(i))
+                        .setScore(neighbours.score(i))
+                        .build());
+            }
+        }
+        return result;
+    }
+
     // поток мероприятий с суммой максимальных весов действий всех пользователей с этими мероприятиями
     public List<RecommendedEventProto> getInteractionsCount(InteractionsCountRequestProto request) {
         List<Long> eventIdList = request.getEventIdList();
-        Map<Long, Double> sumMap = userActionRepository.findWeightSumListByEventIdList(eventIdList)
+        // суммы поддерживаются при записи взаимодействий, здесь только чтение по первичному ключу
+        Map<Long, Double> sumMap = eventWeightSumRepository.findAllById(eventIdList)
                 .stream()
                 .collect(Collectors.toMap(
-                        o -> ((Number) o[0]).longValue(),
-                        o -> ((Number) o[1]).doubleValue()
+                        EventWeightSum::getEventId,
+                        sum -> sum.getWeightSum().doubleValue()
                 ));
 
         return eventIdList.stream()
@@ -4,12 +4,16 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import ru.practicum.dal.UserAction;
-import ru.practicum.dal.UserActionRepository;
+import ru.practicum.dal.EventWeightSumRepository;
+import ru.practicum.dal.UserEventInteraction;
+import ru.practicum.dal.UserEventInteractionRepository;
 import ru.practicum.ewm.stats.avro.UserActionAvro;
 import ru.practicum.properties.CustomProperties;
 
 import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Service
@@ -18,23 +22,37 @@ public class UserActionService {
 
     private final CustomProperties customProperties;
 
-    private final UserActionRepository userActionRepository;
+    private final UserEventInteractionRepository userEventInteractionRepository;
+    private final EventWeightSumRepository eventWeightSumRepository;
 
     @Transactional
-    public void handleUserAction(UserActionAvro userActionAvro) {
-        log.debug("IN: {}", userActionAvro);
-
-        BigDecimal weight = customProperties.getAnalyzer().getWeights().ofUserAction(userActionAvro);
-
-        UserAction userAction = UserAction.builder()
-                .userId(userActionAvro.getUserId())
-                .eventId(userActionAvro.getEventId())
-                .weight(weight)
-                .timestamp(userActionAvro.getTimestamp())
-                .build();
+    public void handleUserActions(List<UserActionAvro> userActionAvroList) {
+        log.debug("IN: {} user actions", userActionAvroList.size());
+
+        // одна строка на пару пользователь-событие: максимальный вес и последнее время в пачке
+        Map<InteractionKey, UserEventInteraction> collapsed = new LinkedHashMap<>();
+        for (UserActionAvro userActionAvro : userActionAvroList) {
+            UserEventInteraction interaction = UserEventInteraction.builder()
+                    .userId(userActionAvro.getUserId())
+                    .eventId(userActionAvro.getEventId())
+                    .maxWeight(customProperties.getAnalyzer().getWeights().ofUserAction(userActionAvro))
+                    .lastTs(userActionAvro.getTimestamp())
+                    .build();
+            collapsed.merge(new InteractionKey(interaction.getUserId(), interaction.getEventId()), interaction, (old, current) -> {
+                old.setMaxWeight(old.getMaxWeight().max(current.getMaxWeight()));
+                old.setLastTs(current.getLastTs().isAfter(old.getLastTs()) ? current.getLastTs() : old.getLastTs());
+                return old;
+            });
+        }
+
+        // прирост весов и суммы по событиям пишутся в одной транзакции
+        Map<Long, BigDecimal> increases = userEventInteractionRepository.mergeAll(collapsed.values());
+        eventWeightSumRepository.addAll(increases);
+        log.debug("Merged {} interactions from {} records, {} event sums increased",
+                collapsed.size(), userActionAvroList.size(), increases.size());
+    }
 
-        userActionRepository.save(userAction);
-        log.debug("Created user action: {}", userAction);
+    private record InteractionKey(long userId, long eventId) {
     }
 
-}
\ No newline at end of file
+}
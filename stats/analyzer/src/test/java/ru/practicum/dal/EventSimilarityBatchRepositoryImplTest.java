@@ -0,0 +1,152 @@
+package ru.practicum.dal;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// пакетная запись подобий на встроенном PostgreSQL: ON CONFLICT не поддерживается H2
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class EventSimilarityBatchRepositoryImplTest {
+
+    private static final Instant TS = Instant.parse("2030-01-01T12:00:00Z");
+
+    @Configuration
+    @EntityScan(basePackageClasses = EventSimilarity.class)
+    @EnableJpaRepositories(basePackageClasses = EventSimilarity.class)
+    static class Config {
+
+        @Bean(destroyMethod = "close")
+        EmbeddedPostgres embeddedPostgres() throws IOException {
+            return EmbeddedPostgres.builder().start();
+        }
+
+        @Bean
+        DataSource dataSource(EmbeddedPostgres embeddedPostgres) {
+            return embeddedPostgres.getPostgresDatabase();
+        }
+    }
+
+    @Autowired
+    private EventSimilarityRepository eventSimilarityRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void upsertAll_ShouldInsertNewPairsAndUpdateStoredOnes() {
+        // Given
+        eventSimilarityRepository.upsertAll(List.of(similarity(1, 2, 0.1, TS)));
+
+        // When
+        eventSimilarityRepository.upsertAll(List.of(
+                similarity(1, 2, 0.5, TS.plusSeconds(1)),
+                similarity(2, 3, 0.7, TS)));
+
+        // Then
+        assertEquals(0.5, score(1, 2));
+        assertEquals(TS.plusSeconds(1), timestamp(1, 2));
+        assertEquals(0.7, score(2, 3));
+        assertEquals(2, count());
+    }
+
+    @Test
+    void upsertAll_ShouldKeepStoredSimilarityWhenBatchIsOlder() {
+        // Given
+        eventSimilarityRepository.upsertAll(List.of(similarity(1, 2, 0.5, TS)));
+
+        // When: запоздавшая пачка из другого раздела
+        eventSimilarityRepository.upsertAll(List.of(similarity(1, 2, 0.1, TS.minusSeconds(1))));
+
+        // Then
+        assertEquals(0.5, score(1, 2));
+        assertEquals(TS, timestamp(1, 2));
+    }
+
+    @Test
+    void upsertAll_ShouldApplySimilarityWithSameTimestamp() {
+        // Given
+        eventSimilarityRepository.upsertAll(List.of(similarity(1, 2, 0.5, TS)));
+
+        // When: повторная доставка той же пачки после отката
+        eventSimilarityRepository.upsertAll(List.of(similarity(1, 2, 0.6, TS)));
+
+        // Then
+        assertEquals(0.6, score(1, 2));
+    }
+
+    @Test
+    void upsertAll_ShouldWriteBatchLargerThanOneStatement() {
+        // Given
+        int rows = EventSimilarityBatchRepositoryImpl.BATCH_ROWS + 1;
+        List<EventSimilarity> similarities = LongStream.rangeClosed(1, rows)
+                .mapToObj(eventA -> similarity(eventA, eventA + 1, 0.3, TS))
+                .toList();
+
+        // When
+        eventSimilarityRepository.upsertAll(similarities);
+
+        // Then
+        assertEquals(rows, count());
+        assertEquals(0.3, score(rows, rows + 1));
+    }
+
+    @Test
+    void scanAll_ShouldPassEveryStoredSimilarityToHandler() {
+        // Given
+        eventSimilarityRepository.upsertAll(List.of(
+                similarity(1, 2, 0.5, TS),
+                similarity(2, 3, 0.7, TS.plusSeconds(1))));
+
+        // When
+        Map<String, String> scanned = new TreeMap<>();
+        eventSimilarityRepository.scanAll((eventA, eventB, score, timestamp) ->
+                scanned.put(eventA + "-" + eventB, score + "@" + timestamp));
+
+        // Then
+        assertEquals(Map.of(
+                "1-2", "0.5@" + TS,
+                "2-3", "0.7@" + TS.plusSeconds(1)), scanned);
+    }
+
+    private static EventSimilarity similarity(long eventA, long eventB, double score, Instant timestamp) {
+        return EventSimilarity.builder()
+                .eventA(eventA)
+                .eventB(eventB)
+                .score(score)
+                .timestamp(timestamp)
+                .build();
+    }
+
+    private double score(long eventA, long eventB) {
+        return jdbcTemplate.queryForObject("SELECT score FROM similarities WHERE event_a = ? AND event_b = ?",
+                Double.class, eventA, eventB);
+    }
+
+    private Instant timestamp(long eventA, long eventB) {
+        return jdbcTemplate.queryForObject("SELECT timestamp FROM similarities WHERE event_a = ? AND event_b = ?",
+                (rs, rowNum) -> rs.getTimestamp(1).toInstant(), eventA, eventB);
+    }
+
+    private int count() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM similarities", Integer.class);
+    }
+
+}
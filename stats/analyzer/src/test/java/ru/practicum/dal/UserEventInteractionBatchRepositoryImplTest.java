@@ -0,0 +1,216 @@
+package ru.practicum.dal;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// слияние весов на встроенном PostgreSQL: каждая пачка фиксируется в своей транзакции, как у слушателя
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserEventInteractionBatchRepositoryImplTest {
+
+    private static final Instant TS = Instant.parse("2030-01-01T12:00:00Z");
+    private static final String[] WEIGHTS = {"0.4", "0.8", "1.0"};
+
+    @Configuration
+    @EntityScan(basePackageClasses = UserEventInteraction.class)
+    @EnableJpaRepositories(basePackageClasses = UserEventInteraction.class)
+    static class Config {
+
+        @Bean(destroyMethod = "close")
+        EmbeddedPostgres embeddedPostgres() throws IOException {
+            return EmbeddedPostgres.builder().start();
+        }
+
+        @Bean
+        DataSource dataSource(EmbeddedPostgres embeddedPostgres) {
+            return embeddedPostgres.getPostgresDatabase();
+        }
+    }
+
+    @Autowired
+    private UserEventInteractionRepository userEventInteractionRepository;
+
+    @Autowired
+    private EventWeightSumRepository eventWeightSumRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("TRUNCATE user_event_interaction, event_weight_sums");
+    }
+
+    @Test
+    void mergeAll_ShouldReturnIncreaseOnlyWhenWeightGrows() {
+        // Given
+        Map<Long, BigDecimal> inserted = merge(interaction(1, 10, "0.4"), interaction(2, 10, "0.8"));
+
+        // When
+        Map<Long, BigDecimal> lower = merge(interaction(1, 10, "0.3"));
+        Map<Long, BigDecimal> higher = merge(interaction(1, 10, "1.0"), interaction(2, 11, "0.4"));
+
+        // Then
+        assertEquals(Map.of(10L, new BigDecimal("1.2")), normalized(inserted));
+        assertEquals(Map.of(), lower);
+        assertEquals(Map.of(10L, new BigDecimal("0.6"), 11L, new BigDecimal("0.4")), normalized(higher));
+        assertEquals(Map.of(10L, new BigDecimal("1.8"), 11L, new BigDecimal("0.4")), maxWeightSums());
+    }
+
+    @Test
+    void mergeAll_ShouldKeepLatestTimestampWhenWeightGrows() {
+        // Given
+        merge(interaction(1, 10, "0.4"));
+        Instant latest = TS.plusSeconds(clock.get());
+
+        // When: пачка с большим весом, но более ранним временем
+        UserEventInteraction late = interaction(1, 10, "0.8");
+        late.setLastTs(TS.minusSeconds(1));
+        merge(late);
+
+        // Then
+        assertEquals(new BigDecimal("0.8"), jdbcTemplate.queryForObject(
+                "SELECT max_weight FROM user_event_interaction WHERE user_id = 1 AND event_id = 10",
+                BigDecimal.class).stripTrailingZeros());
+        assertEquals(latest, jdbcTemplate.queryForObject(
+                "SELECT last_ts FROM user_event_interaction WHERE user_id = 1 AND event_id = 10",
+                (rs, rowNum) -> rs.getTimestamp(1).toInstant()));
+    }
+
+    @Test
+    void mergeAll_ShouldKeepWeightSumsConsistentUnderConcurrentOverlappingBatches() throws Exception {
+        // Given: все потоки пишут в одни и те же пары, суммы событий общие
+        int threads = 8;
+        int batchesPerThread = 25;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        Map<InteractionKey, BigDecimal> expectedMax = new ConcurrentHashMap<>();
+        List<Future<?>> workers = new ArrayList<>();
+
+        // When
+        try {
+            for (int t = 0; t < threads; t++) {
+                Random random = new Random(t);
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    for (int b = 0; b < batchesPerThread; b++) {
+                        Map<InteractionKey, UserEventInteraction> batch = randomBatch(random);
+                        merge(batch.values().toArray(UserEventInteraction[]::new));
+                        batch.forEach((key, interaction) ->
+                                expectedMax.merge(key, interaction.getMaxWeight(), BigDecimal::max));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Then: сумма по событию - ровно сумма итоговых max_weight, без двойного учета приростов
+        Map<Long, BigDecimal> expectedSums = new TreeMap<>();
+        expectedMax.forEach((key, weight) -> expectedSums.merge(key.eventId(), weight, BigDecimal::add));
+        assertEquals(normalized(expectedSums), maxWeightSums());
+        assertEquals(maxWeightSums(), weightSums());
+    }
+
+    // пачка как после свертки в UserActionService: одна строка на пару
+    private Map<InteractionKey, UserEventInteraction> randomBatch(Random random) {
+        Map<InteractionKey, UserEventInteraction> batch = new HashMap<>();
+        for (int i = 0; i < 30; i++) {
+            long userId = 1 + random.nextInt(10);
+            long eventId = 1 + random.nextInt(5);
+            String weight = WEIGHTS[random.nextInt(WEIGHTS.length)];
+            UserEventInteraction interaction = interaction(userId, eventId, weight);
+            batch.merge(new InteractionKey(userId, eventId), interaction, (old, current) ->
+                    old.getMaxWeight().compareTo(current.getMaxWeight()) >= 0 ? old : current);
+        }
+        return batch;
+    }
+
+    // одна пачка слушателя: приросты весов и суммы событий в одной транзакции
+    private Map<Long, BigDecimal> merge(UserEventInteraction... interactions) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Map<Long, BigDecimal> increases = userEventInteractionRepository.mergeAll(List.of(interactions));
+            eventWeightSumRepository.addAll(increases);
+            return increases;
+        });
+    }
+
+    private UserEventInteraction interaction(long userId, long eventId, String weight) {
+        return UserEventInteraction.builder()
+                .userId(userId)
+                .eventId(eventId)
+                .maxWeight(new BigDecimal(weight))
+                .lastTs(TS.plusSeconds(clock.incrementAndGet()))
+                .build();
+    }
+
+    private Map<Long, BigDecimal> maxWeightSums() {
+        return sums("SELECT event_id, SUM(max_weight) FROM user_event_interaction GROUP BY event_id");
+    }
+
+    private Map<Long, BigDecimal> weightSums() {
+        return sums("SELECT event_id, weight_sum FROM event_weight_sums");
+    }
+
+    private Map<Long, BigDecimal> sums(String sql) {
+        Map<Long, BigDecimal> sums = new TreeMap<>();
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> sums.put(rs.getLong(1), rs.getBigDecimal(2)));
+        return normalized(sums);
+    }
+
+    // BigDecimal.equals учитывает масштаб, а numeric хранит его из столбца
+    private static Map<Long, BigDecimal> normalized(Map<Long, BigDecimal> values) {
+        Map<Long, BigDecimal> normalized = new TreeMap<>();
+        values.forEach((key, value) -> normalized.put(key, value.stripTrailingZeros()));
+        return normalized;
+    }
+
+    private record InteractionKey(long userId, long eventId) {
+    }
+
+}
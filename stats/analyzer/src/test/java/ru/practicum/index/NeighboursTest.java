@@ -0,0 +1,96 @@
+package ru.practicum.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NeighboursTest {
+
+    private static final int TOP_K = 3;
+
+    @Test
+    void with_ShouldKeepNeighboursSortedByScoreDescending() {
+        // Given
+        Neighbours neighbours = Neighbours.with(null, 10, 0.2, 1, TOP_K);
+
+        // When
+        neighbours = Neighbours.with(neighbours, 11, 0.8, 1, TOP_K);
+        neighbours = Neighbours.with(neighbours, 12, 0.5, 1, TOP_K);
+
+        // Then
+        assertEquals(List.of(11L, 12L, 10L), eventIds(neighbours));
+        assertEquals(List.of(0.8, 0.5, 0.2), scores(neighbours));
+    }
+
+    @Test
+    void with_ShouldDropLowestNeighbourWhenFull() {
+        // Given
+        Neighbours full = of(10, 0.9, 11, 0.6, 12, 0.3);
+
+        // When
+        Neighbours higher = Neighbours.with(full, 13, 0.7, 1, TOP_K);
+        Neighbours lower = Neighbours.with(full, 14, 0.1, 1, TOP_K);
+
+        // Then
+        assertEquals(List.of(10L, 13L, 11L), eventIds(higher));
+        assertSame(full, lower);
+    }
+
+    @Test
+    void with_ShouldMoveExistingNeighbourToItsNewScore() {
+        // Given
+        Neighbours neighbours = of(10, 0.9, 11, 0.6, 12, 0.3);
+
+        // When
+        Neighbours raised = Neighbours.with(neighbours, 12, 0.95, 2, TOP_K);
+        Neighbours lowered = Neighbours.with(neighbours, 10, 0.1, 2, TOP_K);
+
+        // Then: сосед не дублируется, а переставляется
+        assertEquals(List.of(12L, 10L, 11L), eventIds(raised));
+        assertEquals(List.of(0.95, 0.9, 0.6), scores(raised));
+        assertEquals(List.of(11L, 12L, 10L), eventIds(lowered));
+        assertEquals(List.of(0.6, 0.3, 0.1), scores(lowered));
+    }
+
+    @Test
+    void with_ShouldIgnoreUpdateOlderThanStoredOne() {
+        // Given
+        Neighbours neighbours = Neighbours.with(null, 10, 0.9, 5, TOP_K);
+
+        // When: запоздавшее обновление из другого раздела
+        Neighbours stale = Neighbours.with(neighbours, 10, 0.1, 4, TOP_K);
+
+        // Then
+        assertSame(neighbours, stale);
+        assertEquals(List.of(0.9), scores(stale));
+    }
+
+    // соседи с временем 1, по парам id-подобие
+    private static Neighbours of(double... idsAndScores) {
+        Neighbours neighbours = null;
+        for (int i = 0; i < idsAndScores.length; i += 2) {
+            neighbours = Neighbours.with(neighbours, (long) idsAndScores[i], idsAndScores[i + 1], 1, TOP_K);
+        }
+        return neighbours;
+    }
+
+    private static List<Long> eventIds(Neighbours neighbours) {
+        List<Long> eventIds = new ArrayList<>();
+        for (int i = 0; i < neighbours.size(); i++) {
+            eventIds.add(neighbours.eventId(i));
+        }
+        return eventIds;
+    }
+
+    private static List<Double> scores(Neighbours neighbours) {
+        List<Double> scores = new ArrayList<>();
+        for (int i = 0; i < neighbours.size(); i++) {
+            scores.add(neighbours.score(i));
+        }
+        return scores;
+    }
+
+}
@@ -0,0 +1,73 @@
+package ru.practicum.index;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.dal.EventSimilarityBatchRepository.SimilarityRowHandler;
+import ru.practicum.dal.EventSimilarityRepository;
+import ru.practicum.properties.CustomProperties;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class TopNeighbourIndexTest {
+
+    private final EventSimilarityRepository eventSimilarityRepository = mock(EventSimilarityRepository.class);
+    private final CustomProperties properties = new CustomProperties();
+
+    @Test
+    void update_ShouldAddNeighbourToBothEvents() {
+        // Given
+        TopNeighbourIndex index = new TopNeighbourIndex(eventSimilarityRepository, properties);
+
+        // When
+        index.update(1, 2, 0.5, 1);
+        index.update(1, 3, 0.7, 1);
+
+        // Then
+        assertEquals(2, index.get(1).size());
+        assertEquals(3, index.get(1).eventId(0));
+        assertEquals(1, index.get(2).eventId(0));
+        assertEquals(1, index.get(3).eventId(0));
+        assertNull(index.get(4));
+    }
+
+    @Test
+    void warmUp_ShouldLoadSimilaritiesAndBecomeReady() {
+        // Given
+        doAnswer(invocation -> {
+            SimilarityRowHandler handler = invocation.getArgument(0);
+            handler.accept(1, 2, 0.5, Instant.ofEpochMilli(1));
+            handler.accept(2, 3, 0.8, Instant.ofEpochMilli(1));
+            return null;
+        }).when(eventSimilarityRepository).scanAll(any());
+        TopNeighbourIndex index = new TopNeighbourIndex(eventSimilarityRepository, properties);
+        assertFalse(index.isReady());
+
+        // When
+        index.warmUp();
+
+        // Then
+        assertTrue(index.isReady());
+        assertEquals(3, index.get(2).eventId(0));
+        assertEquals(1, index.get(2).eventId(1));
+    }
+
+    @Test
+    void warmUp_ShouldStayNotReadyWhenDisabled() {
+        // Given
+        properties.getAnalyzer().getNeighbourIndex().setEnabled(false);
+        TopNeighbourIndex index = new TopNeighbourIndex(eventSimilarityRepository, properties);
+
+        // When
+        index.warmUp();
+        index.update(1, 2, 0.5, 1);
+
+        // Then: запросы продолжают обслуживаться из базы
+        assertFalse(index.isReady());
+        assertNull(index.get(1));
+        verifyNoInteractions(eventSimilarityRepository);
+    }
+
+}
@@ -0,0 +1,75 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.dal.EventSimilarityRepository;
+import ru.practicum.dal.EventWeightSumRepository;
+import ru.practicum.dal.UserEventInteractionRepository;
+import ru.practicum.grpc.similarity.reports.RecommendedEventProto;
+import ru.practicum.grpc.similarity.reports.UserPredictionsRequestProto;
+import ru.practicum.index.TopNeighbourIndex;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SimilarityReportServiceTest {
+
+    private final UserEventInteractionRepository userEventInteractionRepository = mock(UserEventInteractionRepository.class);
+    private final EventSimilarityRepository eventSimilarityRepository = mock(EventSimilarityRepository.class);
+    private final SimilarityReportService service = new SimilarityReportService(userEventInteractionRepository,
+            mock(EventWeightSumRepository.class), eventSimilarityRepository, mock(TopNeighbourIndex.class));
+
+    private final UserPredictionsRequestProto request = UserPredictionsRequestProto.newBuilder()
+            .setUserId(1)
+            .setMaxResults(10)
+            .build();
+
+    @Test
+    void getRecommendationsForUser_ShouldNotQuerySimilaritiesForUserWithoutInteractions() {
+        // Given
+        when(userEventInteractionRepository.findRecentEventIdListByUserId(1L, 10)).thenReturn(List.of());
+
+        // When
+        List<RecommendedEventProto> result = service.getRecommendationsForUser(request);
+
+        // Then
+        assertTrue(result.isEmpty());
+        verifyNoInteractions(eventSimilarityRepository);
+    }
+
+    @Test
+    void getRecommendationsForUser_ShouldNotQueryAveragesWhenNoUnseenNeighbours() {
+        // Given
+        when(userEventInteractionRepository.findRecentEventIdListByUserId(1L, 10)).thenReturn(List.of(5L));
+        when(eventSimilarityRepository.findSimilarByEventIdListNotSeenByUser(1L, List.of(5L), 10)).thenReturn(List.of());
+
+        // When
+        List<RecommendedEventProto> result = service.getRecommendationsForUser(request);
+
+        // Then
+        assertTrue(result.isEmpty());
+        verify(eventSimilarityRepository, never()).findWeightedAverageListByEventIdList(anyLong(), anyList());
+    }
+
+    @Test
+    void getRecommendationsForUser_ShouldReturnWeightedAveragesOfUnseenNeighbours() {
+        // Given
+        when(userEventInteractionRepository.findRecentEventIdListByUserId(1L, 10)).thenReturn(List.of(5L));
+        when(eventSimilarityRepository.findSimilarByEventIdListNotSeenByUser(1L, List.of(5L), 10))
+                .thenReturn(List.<Object[]>of(new Object[]{7L, 0.8}));
+        when(eventSimilarityRepository.findWeightedAverageListByEventIdList(1L, List.of(7L)))
+                .thenReturn(List.<Object[]>of(new Object[]{7L, 0.6}));
+
+        // When
+        List<RecommendedEventProto> result = service.getRecommendationsForUser(request);
+
+        // Then
+        assertEquals(1, result.size());
+        assertEquals(7L, result.getFirst().getEventId());
+        assertEquals(0.6, result.getFirst().getScore());
+    }
+
+}
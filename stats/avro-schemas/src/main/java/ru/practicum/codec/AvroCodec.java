@@ -0,0 +1,150 @@
+package ru.practicum.codec;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.SpecificRecordBase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Бинарное кодирование Avro-записей с переиспользованием всего, что не зависит от записи.
+ * <ul>
+ *     <li>writer и reader создаются один раз на схему;</li>
+ *     <li>encoder, decoder и буферы переиспользуются, у каждого потока свои - синхронизации нет;</li>
+ *     <li>при декодировании можно передать запись для повторного заполнения вместо создания новой;</li>
+ *     <li>путь через {@link ByteBuffer}: запись прямо в буфер и чтение из буфера без копии в byte[].</li>
+ * </ul>
+ * Выделения на запись остаются и внутри Avro (логические типы, источники и приемники кодеров),
+ * поэтому reuse экономит только саму запись. Замеры - в stats/benchmarks/README.md.
+ */
+public final class AvroCodec {
+
+    private static final EncoderFactory ENCODER_FACTORY = EncoderFactory.get();
+    private static final DecoderFactory DECODER_FACTORY = DecoderFactory.get();
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    private static final ThreadLocal<Context> CONTEXT = ThreadLocal.withInitial(Context::new);
+
+    private AvroCodec() {
+    }
+
+    public static byte[] encode(SpecificRecordBase record) {
+        Context context = CONTEXT.get();
+        context.out.reset();
+        context.encoder = ENCODER_FACTORY.binaryEncoder(context.out, context.encoder);
+        try {
+            context.writer(record.getSchema()).write(record, context.encoder);
+            context.encoder.flush();
+        } catch (IOException e) {
+            throw new AvroCodecException("Failed to encode " + record.getSchema().getFullName(), e);
+        }
+        return context.out.toByteArray();
+    }
+
+    // пишет запись с текущей позиции target и возвращает число записанных байт;
+    // если места не хватает - BufferOverflowException
+    public static int encode(SpecificRecordBase record, ByteBuffer target) {
+        Context context = CONTEXT.get();
+        int start = target.position();
+        context.bufferOut.target = target;
+        context.directEncoder = ENCODER_FACTORY.directBinaryEncoder(context.bufferOut, context.directEncoder);
+        try {
+            context.writer(record.getSchema()).write(record, context.directEncoder);
+            context.directEncoder.flush();
+        } catch (IOException e) {
+            throw new AvroCodecException("Failed to encode " + record.getSchema().getFullName(), e);
+        } finally {
+            context.bufferOut.target = null;
+        }
+        return target.position() - start;
+    }
+
+    // reuse - запись, которую можно заполнить заново, или null
+    public static <T extends SpecificRecordBase> T decode(Schema schema, byte[] bytes, T reuse) {
+        return decode(schema, bytes, 0, bytes.length, reuse);
+    }
+
+    // читает одну запись из оставшейся части source и сдвигает его позицию до limit
+    public static <T extends SpecificRecordBase> T decode(Schema schema, ByteBuffer source, T reuse) {
+        int length = source.remaining();
+        T record;
+        if (source.hasArray()) {
+            record = decode(schema, source.array(), source.arrayOffset() + source.position(), length, reuse);
+        } else {
+            Context context = CONTEXT.get();
+            byte[] scratch = context.scratch(length);
+            source.get(source.position(), scratch, 0, length);
+            record = decode(schema, scratch, 0, length, reuse);
+        }
+        source.position(source.limit());
+        return record;
+    }
+
+    private static <T extends SpecificRecordBase> T decode(Schema schema, byte[] bytes, int offset, int length, T reuse) {
+        Context context = CONTEXT.get();
+        context.decoder = DECODER_FACTORY.binaryDecoder(bytes, offset, length, context.decoder);
+        try {
+            return context.<T>reader(schema).read(reuse, context.decoder);
+        } catch (IOException e) {
+            throw new AvroCodecException("Failed to decode " + schema.getFullName(), e);
+        }
+    }
+
+    private static final class Context {
+
+        // схемы сгенерированных классов - одиночки, сравнения по ссылке достаточно
+        private final Map<Schema, DatumWriter<SpecificRecordBase>> writers = new IdentityHashMap<>();
+        private final Map<Schema, DatumReader<?>> readers = new IdentityHashMap<>();
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        private final ByteBufferOutput bufferOut = new ByteBufferOutput();
+        private BinaryEncoder encoder;
+        private BinaryEncoder directEncoder;
+        private BinaryDecoder decoder;
+        private byte[] scratch = new byte[INITIAL_BUFFER_SIZE];
+
+        private DatumWriter<SpecificRecordBase> writer(Schema schema) {
+            return writers.computeIfAbsent(schema, SpecificDatumWriter::new);
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> DatumReader<T> reader(Schema schema) {
+            return (DatumReader<T>) readers.computeIfAbsent(schema, SpecificDatumReader::new);
+        }
+
+        private byte[] scratch(int length) {
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            return scratch;
+        }
+    }
+
+    private static final class ByteBufferOutput extends OutputStream {
+
+        private ByteBuffer target;
+
+        @Override
+        public void write(int b) {
+            target.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            target.put(b, off, len);
+        }
+    }
+
+}
@@ -0,0 +1,13 @@
+package ru.practicum.codec;
+
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.io.IOException;
+
+public class AvroCodecException extends SerializationException {
+
+    public AvroCodecException(String message, IOException cause) {
+        super(message, cause);
+    }
+
+}
@@ -1,34 +1,72 @@
 package ru.practicum.deserializer;
 
 import org.apache.avro.Schema;
-import org.apache.avro.io.BinaryDecoder;
-import org.apache.avro.io.DatumReader;
-import org.apache.avro.io.DecoderFactory;
-import org.apache.avro.specific.SpecificDatumReader;
 import org.apache.avro.specific.SpecificRecordBase;
 import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
 import org.apache.kafka.common.serialization.Deserializer;
+import ru.practicum.codec.AvroCodec;
 
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * Десериализатор Avro-записей поверх {@link AvroCodec}: reader и decoder не создаются на каждое сообщение,
+ * а значение читается прямо из буфера выборки Kafka без копии в byte[].
+ * <p>
+ * Настройка {@value #REUSE_RECORD_CONFIG} включает повторное заполнение одной записи в каждом потоке.
+ * Kafka десериализует весь результат poll до передачи слушателю, поэтому с ней все записи одного poll
+ * окажутся одним и тем же объектом - включать только при max.poll.records=1.
+ */
 public abstract class AbstractAvroDeserializer<T extends SpecificRecordBase> implements Deserializer<T> {
 
-    private final DecoderFactory decoderFactory = DecoderFactory.get();
+    public static final String REUSE_RECORD_CONFIG = "ru.practicum.avro.reuse-record";
+
     private final Schema schema;
+    private final ThreadLocal<T> reusable = new ThreadLocal<>();
+    private boolean reuseRecord;
 
     public AbstractAvroDeserializer(Schema schema) {
         this.schema = schema;
     }
 
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        Object reuse = configs.get(REUSE_RECORD_CONFIG);
+        reuseRecord = reuse != null && Boolean.parseBoolean(reuse.toString());
+    }
+
     @Override
     public T deserialize(String topic, byte[] bytes) {
         if (bytes == null) return null;
 
         try {
-            BinaryDecoder decoder = decoderFactory.binaryDecoder(bytes, null);
-            DatumReader<T> reader = new SpecificDatumReader<>(schema);
-            return reader.read(null, decoder);
+            return remember(AvroCodec.decode(schema, bytes, reused()));
+        } catch (Exception e) {
+            throw new SerializationException("Deserialization Error for topic " + topic, e);
+        }
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, ByteBuffer data) {
+        if (data == null) return null;
+
+        try {
+            return remember(AvroCodec.decode(schema, data, reused()));
         } catch (Exception e) {
             throw new SerializationException("Deserialization Error for topic " + topic, e);
         }
     }
 
-}
\ No newline at end of file
+    private T reused() {
+        return reuseRecord ? reusable.get() : null;
+    }
+
+    private T remember(T record) {
+        if (reuseRecord) {
+            reusable.set(record);
+        }
+        return record;
+    }
+
+}
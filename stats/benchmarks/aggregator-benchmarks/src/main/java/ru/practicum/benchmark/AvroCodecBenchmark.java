@@ -0,0 +1,131 @@
+package ru.practicum.benchmark;
+
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.practicum.codec.AvroCodec;
+import ru.practicum.ewm.stats.avro.ActionTypeAvro;
+import ru.practicum.ewm.stats.avro.UserActionAvro;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выделение памяти на сообщение: прежняя схема (новые writer/reader, encoder/decoder и поток на каждую запись)
+ * против {@link AvroCodec}. Смотреть нужно на gc.alloc.rate.norm - байт на операцию;
+ * {@link #main(String[])} запускает бенчмарк сразу с профайлером GC.
+ * <p>
+ * Запуск: {@code java -jar stats/benchmarks/aggregator-benchmarks/target/benchmarks.jar AvroCodecBenchmark -prof gc}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AvroCodecBenchmark {
+
+    private static final int RECORDS = 1024;
+    private static final ActionTypeAvro[] ACTION_TYPES = {ActionTypeAvro.VIEW, ActionTypeAvro.REGISTER, ActionTypeAvro.LIKE};
+
+    private UserActionAvro[] records;
+    private byte[][] encoded;
+    private ByteBuffer[] encodedBuffers;
+    private final ByteBuffer target = ByteBuffer.allocateDirect(1024);
+    private UserActionAvro reuse;
+    private int next;
+
+    @Setup
+    public void prepareRecords() {
+        Workload workload = Workload.generate(RECORDS, 20_000, 2_000, Workload.ZIPF, 42);
+        Instant timestamp = Instant.now();
+        records = new UserActionAvro[RECORDS];
+        encoded = new byte[RECORDS][];
+        encodedBuffers = new ByteBuffer[RECORDS];
+        for (int i = 0; i < RECORDS; i++) {
+            records[i] = UserActionAvro.newBuilder()
+                    .setUserId(workload.userIds[i])
+                    .setEventId(workload.eventIds[i])
+                    .setActionType(ACTION_TYPES[workload.actionTypes[i]])
+                    .setTimestamp(timestamp)
+                    .build();
+            encoded[i] = AvroCodec.encode(records[i]);
+            encodedBuffers[i] = ByteBuffer.wrap(encoded[i]);
+        }
+        reuse = new UserActionAvro();
+    }
+
+    private int next() {
+        next = (next + 1) & (RECORDS - 1);
+        return next;
+    }
+
+    // прежний GeneralAvroSerializer
+    @Benchmark
+    public byte[] encodeLegacy() throws IOException {
+        UserActionAvro record = records[next()];
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            SpecificDatumWriter<UserActionAvro> writer = new SpecificDatumWriter<>(record.getSchema());
+            BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+            writer.write(record, encoder);
+            encoder.flush();
+            return out.toByteArray();
+        }
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return AvroCodec.encode(records[next()]);
+    }
+
+    @Benchmark
+    public int encodeToBuffer() {
+        target.clear();
+        return AvroCodec.encode(records[next()], target);
+    }
+
+    // прежний AbstractAvroDeserializer
+    @Benchmark
+    public UserActionAvro decodeLegacy() throws IOException {
+        BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(encoded[next()], null);
+        SpecificDatumReader<UserActionAvro> reader = new SpecificDatumReader<>(UserActionAvro.getClassSchema());
+        return reader.read(null, decoder);
+    }
+
+    @Benchmark
+    public UserActionAvro decode() {
+        return AvroCodec.decode(UserActionAvro.getClassSchema(), encoded[next()], null);
+    }
+
+    @Benchmark
+    public UserActionAvro decodeReuse() {
+        reuse = AvroCodec.decode(UserActionAvro.getClassSchema(), encoded[next()], reuse);
+        return reuse;
+    }
+
+    @Benchmark
+    public UserActionAvro decodeFromBuffer() {
+        ByteBuffer source = encodedBuffers[next()];
+        source.rewind();
+        return AvroCodec.decode(UserActionAvro.getClassSchema(), source, reuse);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AvroCodecBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+}
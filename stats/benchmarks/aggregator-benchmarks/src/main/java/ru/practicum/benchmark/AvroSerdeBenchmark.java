@@ -0,0 +1,95 @@
+package ru.practicum.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.practicum.deserializer.EventsSimilarityAvroDeserializer;
+import ru.practicum.deserializer.UserActionAvroDeserializer;
+import ru.practicum.ewm.stats.avro.ActionTypeAvro;
+import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
+import ru.practicum.ewm.stats.avro.UserActionAvro;
+import ru.practicum.serializer.GeneralAvroSerializer;
+
+import java.time.Instant;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность сериализатора {@link GeneralAvroSerializer} и десериализаторов
+ * на базе {@code AbstractAvroDeserializer} для обоих топиков. Результат - записей в секунду.
+ * <p>
+ * Запуск: {@code java -jar stats/benchmarks/aggregator-benchmarks/target/benchmarks.jar AvroSerdeBenchmark}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AvroSerdeBenchmark {
+
+    private static final int RECORDS = 1024;
+    private static final String TOPIC = "benchmark";
+    private static final ActionTypeAvro[] ACTION_TYPES = {ActionTypeAvro.VIEW, ActionTypeAvro.REGISTER, ActionTypeAvro.LIKE};
+
+    private final GeneralAvroSerializer serializer = new GeneralAvroSerializer();
+    private final UserActionAvroDeserializer userActionDeserializer = new UserActionAvroDeserializer();
+    private final EventsSimilarityAvroDeserializer similarityDeserializer = new EventsSimilarityAvroDeserializer();
+
+    private UserActionAvro[] userActions;
+    private EventSimilarityAvro[] similarities;
+    private byte[][] userActionBytes;
+    private byte[][] similarityBytes;
+    private int next;
+
+    @Setup
+    public void prepareRecords() {
+        Workload workload = Workload.generate(RECORDS, 20_000, 2_000, Workload.ZIPF, 42);
+        Random random = new Random(42);
+        Instant timestamp = Instant.now();
+        userActions = new UserActionAvro[RECORDS];
+        similarities = new EventSimilarityAvro[RECORDS];
+        userActionBytes = new byte[RECORDS][];
+        similarityBytes = new byte[RECORDS][];
+        for (int i = 0; i < RECORDS; i++) {
+            userActions[i] = UserActionAvro.newBuilder()
+                    .setUserId(workload.userIds[i])
+                    .setEventId(workload.eventIds[i])
+                    .setActionType(ACTION_TYPES[workload.actionTypes[i]])
+                    .setTimestamp(timestamp)
+                    .build();
+            similarities[i] = EventSimilarityAvro.newBuilder()
+                    .setEventA(workload.eventIds[i])
+                    .setEventB(workload.eventIds[i] + 1 + random.nextInt(1000))
+                    .setScore(random.nextDouble())
+                    .setTimestamp(timestamp)
+                    .build();
+            userActionBytes[i] = serializer.serialize(TOPIC, userActions[i]);
+            similarityBytes[i] = serializer.serialize(TOPIC, similarities[i]);
+        }
+    }
+
+    private int next() {
+        next = (next + 1) & (RECORDS - 1);
+        return next;
+    }
+
+    @Benchmark
+    public byte[] serializeUserAction() {
+        return serializer.serialize(TOPIC, userActions[next()]);
+    }
+
+    @Benchmark
+    public UserActionAvro deserializeUserAction() {
+        return userActionDeserializer.deserialize(TOPIC, userActionBytes[next()]);
+    }
+
+    @Benchmark
+    public byte[] serializeSimilarity() {
+        return serializer.serialize(TOPIC, similarities[next()]);
+    }
+
+    @Benchmark
+    public EventSimilarityAvro deserializeSimilarity() {
+        return similarityDeserializer.deserialize(TOPIC, similarityBytes[next()]);
+    }
+
+}
@@ -0,0 +1,122 @@
+package ru.practicum.benchmark;
+
+import ru.practicum.storage.PrimitiveSimilarityStore;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Замер занятой кучи для таблиц состояния агрегатора, по которому составлен stats/aggregator/MEMORY_FOOTPRINT.md.
+ * Куча замеряется после полной сборки мусора до и после заполнения таблиц; каждый замер - отдельный запуск JVM.
+ * <ul>
+ *     <li>weights-old / weights-new - веса и суммы событий: каждый пользователь взаимодействует с 20 случайными
+ *     событиями из pairs / 200, веса 0.4, 0.8 и 1.0;</li>
+ *     <li>min-old / min-new - суммы минимумов по pairs парам событий.</li>
+ * </ul>
+ * Запуск: {@code java -Xmx4g -cp stats/benchmarks/aggregator-benchmarks/target/benchmarks.jar
+ * ru.practicum.benchmark.MemoryFootprint 1000000 weights-new}
+ */
+public class MemoryFootprint {
+
+    private static final int EVENTS_PER_USER = 20;
+    private static final String[] WEIGHTS = {"0.4", "0.8", "1.0"};
+
+    public static void main(String[] args) throws InterruptedException {
+        int pairs = Integer.parseInt(args[0]);
+        String layout = args[1];
+
+        long before = usedHeap();
+        Object tables = switch (layout) {
+            case "weights-old" -> weightsOld(pairs);
+            case "weights-new" -> weightsNew(pairs);
+            case "min-old" -> minOld(pairs);
+            case "min-new" -> minNew(pairs);
+            default -> throw new IllegalArgumentException("Unknown layout " + layout);
+        };
+        long after = usedHeap();
+
+        System.out.printf("%s pairs=%d heap=%.0f MB bytes/pair=%.1f%n",
+                layout, pairs, (after - before) / 1e6, (after - before) / (double) pairs);
+        // таблицы должны дожить до второго замера
+        System.out.println(System.identityHashCode(tables) == 0 ? " " : "");
+    }
+
+    // прежнее устройство UserActionService: вложенные HashMap с BigDecimal, общий для двух таблиц вес
+    private static Object weightsOld(int pairs) {
+        Map<Long, Map<Long, BigDecimal>> weightsByUser = new HashMap<>();
+        Map<Long, Map<Long, BigDecimal>> weightsByEvent = new HashMap<>();
+        Map<Long, BigDecimal> eventSums = new HashMap<>();
+        Random random = new Random(1);
+        int events = events(pairs);
+        for (long userId = 1; userId <= pairs / EVENTS_PER_USER; userId++) {
+            for (int i = 0; i < EVENTS_PER_USER; i++) {
+                long eventId = 1 + random.nextInt(events);
+                BigDecimal weight = new BigDecimal(WEIGHTS[random.nextInt(WEIGHTS.length)]);
+                weightsByUser.computeIfAbsent(userId, id -> new HashMap<>()).put(eventId, weight);
+                weightsByEvent.computeIfAbsent(eventId, id -> new HashMap<>()).put(userId, weight);
+                eventSums.merge(eventId, weight, BigDecimal::add);
+            }
+        }
+        return new Object[]{weightsByUser, weightsByEvent, eventSums};
+    }
+
+    private static Object weightsNew(int pairs) {
+        PrimitiveSimilarityStore store = new PrimitiveSimilarityStore();
+        Random random = new Random(1);
+        int events = events(pairs);
+        for (long userId = 1; userId <= pairs / EVENTS_PER_USER; userId++) {
+            for (int i = 0; i < EVENTS_PER_USER; i++) {
+                long eventId = 1 + random.nextInt(events);
+                double weight = Double.parseDouble(WEIGHTS[random.nextInt(WEIGHTS.length)]);
+                store.putWeight(userId, eventId, weight);
+                store.addEventSum(eventId, weight);
+            }
+        }
+        return store;
+    }
+
+    // пары (first, second) с first < second заполняются строка за строкой, как при плотном пересечении событий
+    private static Object minOld(int pairs) {
+        Map<Long, Map<Long, BigDecimal>> minWeightSums = new HashMap<>();
+        int events = eventsForPairs(pairs);
+        int left = pairs;
+        for (long first = 1; left > 0; first++) {
+            for (long second = first + 1; second <= events && left > 0; second++, left--) {
+                minWeightSums.computeIfAbsent(first, id -> new HashMap<>()).put(second, new BigDecimal("1.2"));
+            }
+        }
+        return minWeightSums;
+    }
+
+    private static Object minNew(int pairs) {
+        PrimitiveSimilarityStore store = new PrimitiveSimilarityStore();
+        int events = eventsForPairs(pairs);
+        int left = pairs;
+        for (long first = 1; left > 0; first++) {
+            for (long second = first + 1; second <= events && left > 0; second++, left--) {
+                store.putMinWeightSum(first, second, 1.2);
+            }
+        }
+        return store;
+    }
+
+    private static int events(int pairs) {
+        return Math.max(1000, pairs / 200);
+    }
+
+    private static int eventsForPairs(int pairs) {
+        return (int) Math.sqrt(pairs * 2.0) + 2;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(200);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
@@ -0,0 +1,76 @@
+package ru.practicum.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.practicum.ewm.stats.avro.ActionTypeAvro;
+import ru.practicum.ewm.stats.avro.UserActionAvro;
+import ru.practicum.properties.CustomProperties;
+import ru.practicum.service.UserActionService;
+import ru.practicum.storage.PrimitiveSimilarityStore;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пересчет сумм минимумов в {@link UserActionService}: наивный алгоритм (полный пересчет строки
+ * события) против оптимизированного (поправка на изменение одного веса).
+ * Каждый вызов проигрывает весь поток действий с пустого состояния. Результат - действий в секунду.
+ * <p>
+ * Запуск: {@code java -jar stats/benchmarks/aggregator-benchmarks/target/benchmarks.jar MinimumSumBenchmark}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MinimumSumBenchmark {
+
+    private static final int ACTIONS = 50_000;
+    private static final int USERS = 5_000;
+    private static final int EVENTS = 1_000;
+    private static final ActionTypeAvro[] ACTION_TYPES = {ActionTypeAvro.VIEW, ActionTypeAvro.REGISTER, ActionTypeAvro.LIKE};
+
+    @Param({"naive", "optimized"})
+    private String algorithm;
+
+    @Param({Workload.UNIFORM, Workload.ZIPF})
+    private String distribution;
+
+    private UserActionAvro[] actions;
+    private CustomProperties customProperties;
+    private UserActionService userActionService;
+    private long emitted;
+
+    @Setup(Level.Trial)
+    public void prepareWorkload() {
+        Workload workload = Workload.generate(ACTIONS, USERS, EVENTS, distribution, 42);
+        Instant timestamp = Instant.now();
+        actions = new UserActionAvro[workload.size()];
+        for (int i = 0; i < actions.length; i++) {
+            actions[i] = UserActionAvro.newBuilder()
+                    .setUserId(workload.userIds[i])
+                    .setEventId(workload.eventIds[i])
+                    .setActionType(ACTION_TYPES[workload.actionTypes[i]])
+                    .setTimestamp(timestamp)
+                    .build();
+        }
+        customProperties = new CustomProperties();
+        customProperties.getAggregator().setMinimumSumAlgorithm(algorithm);
+    }
+
+    @Setup(Level.Invocation)
+    public void createService() {
+        userActionService = new UserActionService((eventA, eventB, score) -> emitted++, customProperties,
+                new PrimitiveSimilarityStore());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACTIONS)
+    public long handleAll() {
+        for (UserActionAvro action : actions) {
+            userActionService.handleUserAction(action);
+        }
+        return emitted;
+    }
+
+}
@@ -0,0 +1,120 @@
+package ru.practicum.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.practicum.sharding.ShardedAggregator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Масштабирование параллельного агрегатора по числу потоков слушателя.
+ * Каждый поток обрабатывает свой раздел (пользователи распределены по разделам как по ключу userId),
+ * шардов событий столько же, сколько разделов. Результат - действий в секунду.
+ * При распределении {@code zipf} популярные события перегружают свои шарды, и видно, насколько
+ * это съедает выигрыш от параллельности.
+ * Потоки слушателей и шардов событий создаются один раз на прогон; на каждый вызов создается
+ * только новое состояние агрегатора, поэтому в замер не попадает запуск потоков.
+ * <p>
+ * Запуск: {@code java -jar stats/benchmarks/aggregator-benchmarks/target/benchmarks.jar ShardedAggregatorBenchmark}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ShardedAggregatorBenchmark {
+
+    private static final int ACTIONS = 200_000;
+    private static final int USERS = 20_000;
+    private static final int EVENTS = 2_000;
+    private static final double[] WEIGHTS = {0.4, 0.8, 1.0};
+
+    @Param({"1", "2", "4", "8"})
+    private int partitions;
+
+    @Param({Workload.UNIFORM, Workload.ZIPF})
+    private String distribution;
+
+    // действия, разложенные по разделам: [partition][i]
+    private long[][] userIds;
+    private long[][] eventIds;
+    private double[][] weights;
+
+    private ExecutorService listeners;
+    private ExecutorService eventShards;
+    private ShardedAggregator aggregator;
+    private final LongAdder emitted = new LongAdder();
+
+    @Setup(Level.Trial)
+    public void prepareWorkload() {
+        Workload workload = Workload.generate(ACTIONS, USERS, EVENTS, distribution, 42);
+        List<List<Integer>> byPartition = new ArrayList<>();
+        for (int i = 0; i < partitions; i++) {
+            byPartition.add(new ArrayList<>());
+        }
+        for (int i = 0; i < workload.size(); i++) {
+            byPartition.get(Math.floorMod(Long.hashCode(workload.userIds[i]), partitions)).add(i);
+        }
+        userIds = new long[partitions][];
+        eventIds = new long[partitions][];
+        weights = new double[partitions][];
+        for (int p = 0; p < partitions; p++) {
+            List<Integer> actions = byPartition.get(p);
+            userIds[p] = new long[actions.size()];
+            eventIds[p] = new long[actions.size()];
+            weights[p] = new double[actions.size()];
+            for (int i = 0; i < actions.size(); i++) {
+                int action = actions.get(i);
+                userIds[p][i] = workload.userIds[action];
+                eventIds[p][i] = workload.eventIds[action];
+                weights[p][i] = WEIGHTS[workload.actionTypes[action]];
+            }
+        }
+        listeners = Executors.newFixedThreadPool(partitions);
+        eventShards = Executors.newFixedThreadPool(partitions);
+    }
+
+    @Setup(Level.Invocation)
+    public void createAggregator() {
+        aggregator = new ShardedAggregator(partitions, 1024, (eventA, eventB, score) -> emitted.increment(), eventShards);
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeAggregator() throws InterruptedException {
+        aggregator.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdown() {
+        listeners.shutdownNow();
+        eventShards.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACTIONS)
+    public long handleAll() throws Exception {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int p = 0; p < partitions; p++) {
+            int partition = p;
+            futures.add(listeners.submit(() -> {
+                for (int i = 0; i < userIds[partition].length; i++) {
+                    aggregator.handle(partition, userIds[partition][i], eventIds[partition][i], weights[partition][i]);
+                }
+                // как слушатель в конце пачки: ждет только свой раздел
+                aggregator.awaitExchange(partition);
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return emitted.sum();
+    }
+
+}
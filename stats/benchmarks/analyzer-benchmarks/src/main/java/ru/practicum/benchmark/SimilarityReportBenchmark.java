@@ -0,0 +1,209 @@
+package ru.practicum.benchmark;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import ru.practicum.ewm.stats.avro.ActionTypeAvro;
+import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
+import ru.practicum.ewm.stats.avro.UserActionAvro;
+import ru.practicum.grpc.similarity.reports.InteractionsCountRequestProto;
+import ru.practicum.grpc.similarity.reports.RecommendedEventProto;
+import ru.practicum.grpc.similarity.reports.SimilarEventsRequestProto;
+import ru.practicum.grpc.similarity.reports.UserPredictionsRequestProto;
+import ru.practicum.index.TopNeighbourIndex;
+import ru.practicum.properties.CustomProperties;
+import ru.practicum.service.EventSimilarityService;
+import ru.practicum.service.SimilarityReportService;
+import ru.practicum.service.UserActionService;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запросы {@link SimilarityReportService} к настоящему PostgreSQL, поднятому встроенным (embedded-postgres).
+ * Данные загружаются через сервисы анализатора, как их пишут слушатели Kafka;
+ * идентификаторы в запросах берутся из того же распределения, что и данные, так что при {@code zipf}
+ * чаще спрашивают про популярные события и активных пользователей.
+ * <ul>
+ *     <li>{@code index} - похожие события из индекса соседей, в базу только отсев просмотренных;</li>
+ *     <li>{@code database} - индекс не прогрет, все запросы идут в базу.</li>
+ * </ul>
+ * Результат - среднее время запроса.
+ * <p>
+ * Запуск: {@code java -jar stats/benchmarks/analyzer-benchmarks/target/benchmarks.jar SimilarityReportBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SimilarityReportBenchmark {
+
+    private static final int ACTIONS = 200_000;
+    private static final int USERS = 20_000;
+    private static final int EVENTS = 2_000;
+    private static final int NEIGHBOURS_PER_EVENT = 30;
+    private static final int LOAD_BATCH = 1_000;
+    private static final int MAX_RESULTS = 10;
+    private static final ActionTypeAvro[] ACTION_TYPES = {ActionTypeAvro.VIEW, ActionTypeAvro.REGISTER, ActionTypeAvro.LIKE};
+
+    @Param({"index", "database"})
+    private String mode;
+
+    @Param({Workload.UNIFORM, Workload.ZIPF})
+    private String distribution;
+
+    private EmbeddedPostgres postgres;
+    private ConfigurableApplicationContext context;
+    private SimilarityReportService similarityReportService;
+
+    private ZipfGenerator userGenerator;
+    private ZipfGenerator eventGenerator;
+
+    @SpringBootConfiguration
+    @ImportAutoConfiguration({
+            DataSourceAutoConfiguration.class,
+            HibernateJpaAutoConfiguration.class,
+            JdbcTemplateAutoConfiguration.class,
+            TransactionAutoConfiguration.class
+    })
+    @EntityScan("ru.practicum.dal")
+    @EnableJpaRepositories("ru.practicum.dal")
+    @EnableConfigurationProperties(CustomProperties.class)
+    @Import({UserActionService.class, EventSimilarityService.class, SimilarityReportService.class, TopNeighbourIndex.class})
+    static class AnalyzerContext {
+    }
+
+    @Setup(Level.Trial)
+    public void startDatabase() throws IOException {
+        postgres = EmbeddedPostgres.builder().start();
+        context = new SpringApplicationBuilder(AnalyzerContext.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        // application.yaml анализатора тянет config-server, его не читаем
+                        "spring.config.name=analyzer-benchmark",
+                        "spring.cloud.config.enabled=false",
+                        "spring.cloud.config.import-check.enabled=false",
+                        "spring.main.banner-mode=off",
+                        "spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "spring.datasource.username=postgres",
+                        "spring.jpa.hibernate.ddl-auto=create",
+                        "logging.level.root=WARN"
+                )
+                .run();
+        load();
+        if ("index".equals(mode)) {
+            context.getBean(TopNeighbourIndex.class).warmUp();
+        }
+        similarityReportService = context.getBean(SimilarityReportService.class);
+
+        Random random = new Random(7);
+        userGenerator = Workload.generator(USERS, distribution, random);
+        eventGenerator = Workload.generator(EVENTS, distribution, random);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopDatabase() throws IOException {
+        context.close();
+        postgres.close();
+    }
+
+    // действия и подобия грузятся пачками через те же сервисы, что вызывают слушатели Kafka
+    private void load() {
+        Workload workload = Workload.generate(ACTIONS, USERS, EVENTS, distribution, 42);
+        Instant timestamp = Instant.now();
+        UserActionService userActionService = context.getBean(UserActionService.class);
+        List<UserActionAvro> actions = new ArrayList<>(LOAD_BATCH);
+        for (int i = 0; i < workload.size(); i++) {
+            actions.add(UserActionAvro.newBuilder()
+                    .setUserId(workload.userIds[i])
+                    .setEventId(workload.eventIds[i])
+                    .setActionType(ACTION_TYPES[workload.actionTypes[i]])
+                    .setTimestamp(timestamp.plusMillis(i))
+                    .build());
+            if (actions.size() == LOAD_BATCH) {
+                userActionService.handleUserActions(actions);
+                actions.clear();
+            }
+        }
+        if (!actions.isEmpty()) {
+            userActionService.handleUserActions(actions);
+        }
+
+        // соседи события выбираются из того же распределения: популярные события похожи на многие
+        EventSimilarityService eventSimilarityService = context.getBean(EventSimilarityService.class);
+        Random random = new Random(42);
+        ZipfGenerator neighbourGenerator = Workload.generator(EVENTS, distribution, random);
+        Set<Long> pairs = new HashSet<>();
+        List<EventSimilarityAvro> similarities = new ArrayList<>(LOAD_BATCH);
+        for (long eventA = 1; eventA <= EVENTS; eventA++) {
+            for (int n = 0; n < NEIGHBOURS_PER_EVENT; n++) {
+                long eventB = neighbourGenerator.next();
+                long first = Math.min(eventA, eventB);
+                long second = Math.max(eventA, eventB);
+                if (first == second || !pairs.add(first * (EVENTS + 1) + second)) {
+                    continue;
+                }
+                similarities.add(EventSimilarityAvro.newBuilder()
+                        .setEventA(first)
+                        .setEventB(second)
+                        .setScore(random.nextDouble())
+                        .setTimestamp(timestamp)
+                        .build());
+                if (similarities.size() == LOAD_BATCH) {
+                    eventSimilarityService.handleEventSimilarities(similarities);
+                    similarities.clear();
+                }
+            }
+        }
+        if (!similarities.isEmpty()) {
+            eventSimilarityService.handleEventSimilarities(similarities);
+        }
+    }
+
+    @Benchmark
+    public List<RecommendedEventProto> getSimilarEvents() {
+        return similarityReportService.getSimilarEvents(SimilarEventsRequestProto.newBuilder()
+                .setEventId(eventGenerator.next())
+                .setUserId(userGenerator.next())
+                .setMaxResults(MAX_RESULTS)
+                .build());
+    }
+
+    @Benchmark
+    public List<RecommendedEventProto> getRecommendationsForUser() {
+        return similarityReportService.getRecommendationsForUser(UserPredictionsRequestProto.newBuilder()
+                .setUserId(userGenerator.next())
+                .setMaxResults(MAX_RESULTS)
+                .build());
+    }
+
+    @Benchmark
+    public List<RecommendedEventProto> getInteractionsCount() {
+        InteractionsCountRequestProto.Builder request = InteractionsCountRequestProto.newBuilder();
+        for (int i = 0; i < MAX_RESULTS; i++) {
+            request.addEventId(eventGenerator.next());
+        }
+        return similarityReportService.getInteractionsCount(request.build());
+    }
+
+}
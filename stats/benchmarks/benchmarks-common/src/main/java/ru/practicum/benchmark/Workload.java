@@ -0,0 +1,62 @@
+package ru.practicum.benchmark;
+
+import java.util.Random;
+
+/**
+ * Синтетический поток действий пользователей для бенчмарков.
+ * <ul>
+ *     <li>{@code uniform} - пользователи и события равновероятны;</li>
+ *     <li>{@code zipf} - и пользователи, и события распределены по Ципфу с показателем 0.99,
+ *     как в YCSB: небольшая доля активных пользователей и популярных событий дает большую часть действий.</li>
+ * </ul>
+ * Типы действий: 70% просмотров, 20% регистраций, 10% лайков.
+ * Поток детерминирован зерном, так что прогоны на одной машине сравнимы между собой.
+ */
+public final class Workload {
+
+    public static final String UNIFORM = "uniform";
+    public static final String ZIPF = "zipf";
+
+    public static final int VIEW = 0;
+    public static final int REGISTER = 1;
+    public static final int LIKE = 2;
+
+    private static final double ZIPF_EXPONENT = 0.99;
+
+    public final long[] userIds;
+    public final long[] eventIds;
+    public final int[] actionTypes;
+
+    private Workload(int actions) {
+        this.userIds = new long[actions];
+        this.eventIds = new long[actions];
+        this.actionTypes = new int[actions];
+    }
+
+    public int size() {
+        return userIds.length;
+    }
+
+    public static Workload generate(int actions, int users, int events, String distribution, long seed) {
+        Random random = new Random(seed);
+        ZipfGenerator userGenerator = generator(users, distribution, random);
+        ZipfGenerator eventGenerator = generator(events, distribution, random);
+        Workload workload = new Workload(actions);
+        for (int i = 0; i < actions; i++) {
+            workload.userIds[i] = userGenerator.next();
+            workload.eventIds[i] = eventGenerator.next();
+            double type = random.nextDouble();
+            workload.actionTypes[i] = type < 0.7 ? VIEW : type < 0.9 ? REGISTER : LIKE;
+        }
+        return workload;
+    }
+
+    public static ZipfGenerator generator(int n, String distribution, Random random) {
+        return switch (distribution) {
+            case UNIFORM -> new ZipfGenerator(n, 0, random);
+            case ZIPF -> new ZipfGenerator(n, ZIPF_EXPONENT, random);
+            default -> throw new IllegalArgumentException("Unknown distribution: " + distribution);
+        };
+    }
+
+}
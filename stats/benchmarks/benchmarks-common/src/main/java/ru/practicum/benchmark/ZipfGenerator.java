@@ -0,0 +1,34 @@
+package ru.practicum.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Генератор идентификаторов 1..n с распределением Ципфа: вероятность ранга k пропорциональна 1/k^s.
+ * При s = 0 распределение равномерное. Функция распределения считается заранее,
+ * выборка - двоичный поиск по ней, поэтому генератор подходит для n до нескольких миллионов.
+ */
+public final class ZipfGenerator {
+
+    private final double[] cdf;
+    private final Random random;
+
+    public ZipfGenerator(int n, double exponent, Random random) {
+        this.cdf = new double[n];
+        this.random = random;
+        double sum = 0;
+        for (int k = 1; k <= n; k++) {
+            sum += 1.0 / Math.pow(k, exponent);
+            cdf[k - 1] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cdf[k] /= sum;
+        }
+    }
+
+    public long next() {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        return (index >= 0 ? index : -index - 1) + 1;
+    }
+
+}
@@ -0,0 +1,58 @@
+package ru.practicum.benchmark;
+
+import com.google.protobuf.Timestamp;
+import org.openjdk.jmh.annotations.*;
+import ru.practicum.ewm.stats.avro.UserActionAvro;
+import ru.practicum.grpc.user.action.ActionTypeProto;
+import ru.practicum.grpc.user.action.UserActionProto;
+import ru.practicum.mapper.UserActionMapper;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Преобразование действия из gRPC в Avro, {@link UserActionMapper#fromProtoToAvro(UserActionProto)},
+ * на пути каждого действия через collector. Результат - действий в секунду.
+ * <p>
+ * Запуск: {@code java -jar stats/benchmarks/collector-benchmarks/target/benchmarks.jar UserActionMapperBenchmark}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class UserActionMapperBenchmark {
+
+    private static final int RECORDS = 1024;
+    private static final ActionTypeProto[] ACTION_TYPES = {
+            ActionTypeProto.ACTION_VIEW, ActionTypeProto.ACTION_REGISTER, ActionTypeProto.ACTION_LIKE
+    };
+
+    private UserActionProto[] protos;
+    private int next;
+
+    @Setup
+    public void prepareRecords() {
+        Workload workload = Workload.generate(RECORDS, 20_000, 2_000, Workload.ZIPF, 42);
+        Instant now = Instant.now();
+        protos = new UserActionProto[RECORDS];
+        for (int i = 0; i < RECORDS; i++) {
+            protos[i] = UserActionProto.newBuilder()
+                    .setUserId(workload.userIds[i])
+                    .setEventId(workload.eventIds[i])
+                    .setActionType(ACTION_TYPES[workload.actionTypes[i]])
+                    .setTimestamp(Timestamp.newBuilder()
+                            .setSeconds(now.getEpochSecond())
+                            .setNanos(now.getNano()))
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public UserActionAvro fromProtoToAvro() {
+        next = (next + 1) & (RECORDS - 1);
+        return UserActionMapper.fromProtoToAvro(protos[next]);
+    }
+
+}
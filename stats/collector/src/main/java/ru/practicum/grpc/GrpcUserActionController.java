@@ -5,16 +5,25 @@ import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
 import io.grpc.stub.StreamObserver;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import net.devh.boot.grpc.server.service.GrpcService;
 import ru.practicum.grpc.collector.UserActionControllerGrpc;
+import ru.practicum.grpc.user.action.UserActionBatchProto;
 import ru.practicum.grpc.user.action.UserActionProto;
+import ru.practicum.properties.CustomProperties;
 import ru.practicum.service.UserActionService;
+import ru.practicum.spool.SpoolFullException;
 
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
 @GrpcService
 @RequiredArgsConstructor
 public class GrpcUserActionController extends UserActionControllerGrpc.UserActionControllerImplBase {
 
     private final UserActionService userActionService;
+    private final CustomProperties customProperties;
 
     @Override
     public void collectUserAction(UserActionProto request, StreamObserver<Empty> responseObserver) {
@@ -23,10 +32,86 @@ public class GrpcUserActionController extends UserActionControllerGrpc.UserActio
             responseObserver.onNext(Empty.getDefaultInstance());
             responseObserver.onCompleted();
         } catch (Exception e) {
-            responseObserver.onError(
-                    new StatusRuntimeException(Status.INTERNAL.withDescription(e.getMessage()).withCause(e))
-            );
+            responseObserver.onError(toStatusException(e));
+        }
+    }
+
+    @Override
+    public void collectUserActionBatch(UserActionBatchProto request, StreamObserver<Empty> responseObserver) {
+        try {
+            userActionService.handleUserActions(request.getActionsList());
+            responseObserver.onNext(Empty.getDefaultInstance());
+            responseObserver.onCompleted();
+        } catch (Exception e) {
+            responseObserver.onError(toStatusException(e));
         }
     }
 
-}
\ No newline at end of file
+    // действия из потока отправляются кусками по streamFlushSize, ответ - после отправки последнего куска
+    @Override
+    public StreamObserver<UserActionProto> collectUserActions(StreamObserver<Empty> responseObserver) {
+        int flushSize = customProperties.getCollector().getStreamFlushSize();
+        return new StreamObserver<>() {
+
+            private final List<UserActionProto> buffer = new ArrayList<>(flushSize);
+            private boolean failed;
+
+            @Override
+            public void onNext(UserActionProto userActionProto) {
+                if (failed) {
+                    return;
+                }
+                buffer.add(userActionProto);
+                if (buffer.size() >= flushSize) {
+                    flush();
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                // клиент оборвал поток: принятое до обрыва все равно отправляем
+                log.warn("User action stream aborted by client: {}", t.getMessage());
+                if (!failed && !buffer.isEmpty()) {
+                    try {
+                        userActionService.handleUserActions(buffer);
+                    } catch (Exception e) {
+                        log.warn("Failed sending {} user actions of aborted stream: {}", buffer.size(), e.getMessage());
+                    }
+                }
+            }
+
+            @Override
+            public void onCompleted() {
+                if (failed) {
+                    return;
+                }
+                flush();
+                if (!failed) {
+                    responseObserver.onNext(Empty.getDefaultInstance());
+                    responseObserver.onCompleted();
+                }
+            }
+
+            private void flush() {
+                if (buffer.isEmpty()) {
+                    return;
+                }
+                try {
+                    userActionService.handleUserActions(buffer);
+                    buffer.clear();
+                } catch (Exception e) {
+                    failed = true;
+                    buffer.clear();
+                    responseObserver.onError(toStatusException(e));
+                }
+            }
+        };
+    }
+
+    // переполненный спул - отказ, который клиент может повторить позже
+    private static StatusRuntimeException toStatusException(Exception e) {
+        Status status = e instanceof SpoolFullException ? Status.RESOURCE_EXHAUSTED : Status.INTERNAL;
+        return new StatusRuntimeException(status.withDescription(e.getMessage()).withCause(e));
+    }
+
+}
@@ -11,7 +11,7 @@ import org.springframework.stereotype.Component;
 @RequiredArgsConstructor
 public class KafkaProducerInitializer {
 
-    private final KafkaTemplate<Void, SpecificRecordBase> kafkaTemplate;
+    private final KafkaTemplate<Long, SpecificRecordBase> kafkaTemplate;
 
     @EventListener(ApplicationReadyEvent.class)
     public void initKafkaProducer() {
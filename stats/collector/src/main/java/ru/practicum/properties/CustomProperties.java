@@ -3,6 +3,9 @@ package ru.practicum.properties;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
 
 @Getter
 @Setter
@@ -10,6 +13,7 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 public class CustomProperties {
 
     private final Kafka kafka = new Kafka();
+    private final Collector collector = new Collector();
 
     @Getter
     @Setter
@@ -18,4 +22,26 @@ public class CustomProperties {
         private String eventsSimilarityTopic = "events-similarity";
     }
 
+    @Getter
+    @Setter
+    public static class Collector {
+        // сколько действий клиентского потока копится перед отправкой в Kafka
+        private Integer streamFlushSize = 500;
+        private final Spool spool = new Spool();
+    }
+
+    @Getter
+    @Setter
+    public static class Spool {
+        private boolean enabled = false;
+        private String directory = "spool";
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+        // предел спула: segmentSize * maxSegments на диске
+        private int maxSegments = 16;
+        private int drainBatchSize = 500;
+        private Duration sendTimeout = Duration.ofSeconds(30);
+        private Duration retryBackoffMax = Duration.ofSeconds(10);
+        private Duration forceInterval = Duration.ofSeconds(1);
+    }
+
 }
\ No newline at end of file
@@ -10,20 +10,62 @@ import ru.practicum.ewm.stats.avro.UserActionAvro;
 import ru.practicum.grpc.user.action.UserActionProto;
 import ru.practicum.mapper.UserActionMapper;
 import ru.practicum.properties.CustomProperties;
+import ru.practicum.spool.UserActionSpool;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class UserActionService {
 
-    private final KafkaTemplate<Void, SpecificRecordBase> kafkaTemplate;
+    private final KafkaTemplate<Long, SpecificRecordBase> kafkaTemplate;
     private final CustomProperties customProperties;
+    // есть, если включен спул: тогда действия пишутся на диск, а в Kafka их отправляет SpoolDrainer
+    private final Optional<UserActionSpool> userActionSpool;
 
     public void handleUserAction(UserActionProto userActionProto) {
         log.debug("Received Proto: {}", TextFormat.printer().emittingSingleLine(true).printToString(userActionProto));
+        if (userActionSpool.isPresent()) {
+            userActionSpool.get().append(List.of(userActionProto));
+            return;
+        }
         UserActionAvro userActionAvro = UserActionMapper.fromProtoToAvro(userActionProto);
-        kafkaTemplate.send(customProperties.getKafka().getUserActionTopic(), userActionAvro);
+        // ключ - userId: все действия пользователя попадают в один раздел и читаются по порядку
+        kafkaTemplate.send(customProperties.getKafka().getUserActionTopic(), userActionAvro.getUserId(), userActionAvro);
         log.debug("Sent Avro: {}", userActionAvro);
     }
 
-}
\ No newline at end of file
+    public void handleUserActions(List<UserActionProto> userActionProtoList) {
+        if (userActionSpool.isPresent()) {
+            userActionSpool.get().append(userActionProtoList);
+            return;
+        }
+        CompletableFuture.allOf(sendAll(userActionProtoList)).join();
+        log.debug("Sent {} Avro user actions", userActionProtoList.size());
+    }
+
+    // публикация пачки с ожиданием подтверждения брокера не дольше timeoutMs
+    public void publish(List<UserActionProto> userActionProtoList, long timeoutMs)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        CompletableFuture.allOf(sendAll(userActionProtoList)).get(timeoutMs, TimeUnit.MILLISECONDS);
+        log.debug("Published {} Avro user actions", userActionProtoList.size());
+    }
+
+    // вся пачка уходит в продюсер сразу, подтверждения брокера ждем один раз на пачку
+    private CompletableFuture<?>[] sendAll(List<UserActionProto> userActionProtoList) {
+        String topic = customProperties.getKafka().getUserActionTopic();
+        CompletableFuture<?>[] sent = new CompletableFuture<?>[userActionProtoList.size()];
+        for (int i = 0; i < userActionProtoList.size(); i++) {
+            UserActionAvro userActionAvro = UserActionMapper.fromProtoToAvro(userActionProtoList.get(i));
+            sent[i] = kafkaTemplate.send(topic, userActionAvro.getUserId(), userActionAvro);
+        }
+        return sent;
+    }
+
+}
@@ -0,0 +1,17 @@
+package ru.practicum.spool;
+
+import ru.practicum.grpc.user.action.UserActionProto;
+
+import java.util.List;
+
+// пачка, прочитанная из спула, но еще не подтвержденная: до commit она остается в спуле.
+// records - все прочитанные записи, включая отправленные в карантин и не попавшие в actions
+record SpoolBatch(SpoolSegment segment, int endPosition, int records, List<UserActionProto> actions) {
+
+    static final SpoolBatch EMPTY = new SpoolBatch(null, 0, 0, List.of());
+
+    boolean isEmpty() {
+        return records == 0;
+    }
+
+}
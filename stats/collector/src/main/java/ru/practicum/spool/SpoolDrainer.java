@@ -0,0 +1,122 @@
+package ru.practicum.spool;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.practicum.properties.CustomProperties;
+import ru.practicum.service.UserActionService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фоновая публикация действий из спула в Kafka.
+ * Следующая пачка читается только после подтверждения предыдущей, так что в полете не больше одной пачки.
+ * Пока Kafka недоступна, та же пачка повторяется с растущей паузой до retryBackoffMax,
+ * а действия копятся в спуле. Записи до подтверждения не удаляются: после сбоя между отправкой
+ * и commit пачка уйдет повторно, потребители действий к повторам устойчивы.
+ * Любая другая ошибка итерации (чтение спула, commit) считается в failures и тоже повторяется с паузой:
+ * поток дренажа не должен умирать молча, пока спул продолжает принимать запись.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "my-area-guide.collector.spool", name = "enabled", havingValue = "true")
+public class SpoolDrainer {
+
+    private static final long IDLE_WAIT_MS = 100;
+    private static final long RETRY_BACKOFF_MIN_MS = 100;
+
+    private final UserActionSpool userActionSpool;
+    private final UserActionService userActionService;
+    private final int batchSize;
+    private final long sendTimeoutMs;
+    private final long retryBackoffMaxMs;
+
+    private final Counter drained;
+    private final Counter failures;
+
+    private volatile boolean running = true;
+    private Thread drainer;
+
+    public SpoolDrainer(UserActionSpool userActionSpool,
+                        UserActionService userActionService,
+                        CustomProperties customProperties,
+                        MeterRegistry meterRegistry) {
+        CustomProperties.Spool spool = customProperties.getCollector().getSpool();
+        this.userActionSpool = userActionSpool;
+        this.userActionService = userActionService;
+        this.batchSize = spool.getDrainBatchSize();
+        this.sendTimeoutMs = spool.getSendTimeout().toMillis();
+        this.retryBackoffMaxMs = spool.getRetryBackoffMax().toMillis();
+        this.drained = meterRegistry.counter("collector.spool.drained");
+        this.failures = meterRegistry.counter("collector.spool.drain.failures");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        drainer = new Thread(this::run, "spool-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (drainer != null) {
+            drainer.join(sendTimeoutMs + IDLE_WAIT_MS);
+        }
+    }
+
+    private void run() {
+        long backoff = RETRY_BACKOFF_MIN_MS;
+        while (running) {
+            try {
+                SpoolBatch batch = userActionSpool.peek(batchSize, IDLE_WAIT_MS);
+                if (batch.isEmpty()) {
+                    continue;
+                }
+                // пачка могла целиком уйти в карантин - тогда отправлять нечего, но подтвердить ее нужно
+                if (!batch.actions().isEmpty()) {
+                    try {
+                        userActionService.publish(batch.actions(), sendTimeoutMs);
+                    } catch (Exception e) {
+                        failures.increment();
+                        log.warn("Failed to drain {} spooled actions, retry in {} ms: {}",
+                                batch.actions().size(), backoff, e.getMessage());
+                        TimeUnit.MILLISECONDS.sleep(backoff);
+                        backoff = Math.min(backoff * 2, retryBackoffMaxMs);
+                        continue;
+                    }
+                }
+                userActionSpool.commit(batch);
+                drained.increment(batch.actions().size());
+                backoff = RETRY_BACKOFF_MIN_MS;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                failures.increment();
+                log.error("Spool drain iteration failed, retry in {} ms", backoff, e);
+                if (!sleep(backoff)) {
+                    return;
+                }
+                backoff = Math.min(backoff * 2, retryBackoffMaxMs);
+            }
+        }
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,15 @@
+package ru.practicum.spool;
+
+import java.io.IOException;
+
+public class SpoolException extends RuntimeException {
+
+    public SpoolException(IOException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    public SpoolException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,9 @@
+package ru.practicum.spool;
+
+public class SpoolFullException extends RuntimeException {
+
+    public SpoolFullException(String message) {
+        super(message);
+    }
+
+}
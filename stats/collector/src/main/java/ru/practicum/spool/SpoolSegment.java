@@ -0,0 +1,172 @@
+package ru.practicum.spool;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Сегмент спула - файл фиксированного размера, отображенный в память целиком.
+ * <pre>
+ * readPosition:int (record)*
+ * record = (length + 1):int payload:bytes
+ * </pre>
+ * Файл создается заполненным нулями, поэтому нулевой заголовок означает конец записей.
+ * В заголовке хранится длина + 1, чтобы пустое тело (сообщение из одних значений по умолчанию)
+ * не совпадало с концом записей.
+ * Длина записывается после тела записи: недописанная запись для читателя не существует.
+ * readPosition - позиция первой неотправленной записи, сдвигается после подтверждения Kafka.
+ */
+final class SpoolSegment {
+
+    static final int HEADER_SIZE = Integer.BYTES;
+
+    private final long sequence;
+    private final Path path;
+    private final MappedByteBuffer buffer;
+
+    private int readPosition;
+    private volatile int writePosition;
+    private long pendingRecords;
+    private boolean sealed;
+
+    private SpoolSegment(long sequence, Path path, MappedByteBuffer buffer) {
+        this.sequence = sequence;
+        this.path = path;
+        this.buffer = buffer;
+    }
+
+    static String fileName(long sequence) {
+        return String.format("spool-%019d.seg", sequence);
+    }
+
+    static long sequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring("spool-".length(), name.length() - ".seg".length()));
+    }
+
+    static SpoolSegment create(Path directory, long sequence, int size) throws IOException {
+        Path path = directory.resolve(fileName(sequence));
+        SpoolSegment segment = new SpoolSegment(sequence, path, map(path, size));
+        segment.buffer.putInt(0, HEADER_SIZE);
+        segment.readPosition = HEADER_SIZE;
+        segment.writePosition = HEADER_SIZE;
+        return segment;
+    }
+
+    // открывает сегмент после перезапуска: позиция записи ищется просмотром записей
+    static SpoolSegment open(Path path) throws IOException {
+        SpoolSegment segment = new SpoolSegment(sequenceOf(path), path, map(path, (int) Files.size(path)));
+        MappedByteBuffer buffer = segment.buffer;
+        segment.readPosition = buffer.getInt(0);
+        int position = HEADER_SIZE;
+        long records = 0;
+        while (position + Integer.BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(position) - 1;
+            if (length < 0 || position + Integer.BYTES + length > buffer.capacity()) {
+                break;
+            }
+            position += Integer.BYTES + length;
+            if (position > segment.readPosition) {
+                records++;
+            }
+        }
+        segment.writePosition = position;
+        segment.pendingRecords = records;
+        return segment;
+    }
+
+    private static MappedByteBuffer map(Path path, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    long sequence() {
+        return sequence;
+    }
+
+    long pendingRecords() {
+        return pendingRecords;
+    }
+
+    boolean isSealed() {
+        return sealed;
+    }
+
+    void seal() {
+        sealed = true;
+    }
+
+    // свободное место под тела записей
+    int remaining() {
+        return Math.max(0, buffer.capacity() - writePosition - Integer.BYTES);
+    }
+
+    boolean append(byte[] payload) {
+        if (sealed || payload.length > remaining()) {
+            return false;
+        }
+        int position = writePosition;
+        buffer.put(position + Integer.BYTES, payload);
+        buffer.putInt(position, payload.length + 1);
+        writePosition = position + Integer.BYTES + payload.length;
+        pendingRecords++;
+        return true;
+    }
+
+    // обнуляет место за последней целой записью: иначе остаток недописанной записи после сбоя
+    // прочитается как продолжение записей, которые лягут поверх ее начала
+    void clearTail() {
+        for (int position = writePosition; position < buffer.capacity(); position++) {
+            if (buffer.get(position) != 0) {
+                buffer.put(position, (byte) 0);
+            }
+        }
+    }
+
+    // копирует до max неотправленных записей и возвращает позицию за последней из них
+    int read(int max, List<byte[]> out) {
+        int position = readPosition;
+        int end = writePosition;
+        for (int i = 0; i < max && position < end; i++) {
+            int length = buffer.getInt(position) - 1;
+            if (length < 0 || position + Integer.BYTES + length > end) {
+                throw new SpoolException("Corrupted record at " + position + " in spool segment " + sequence);
+            }
+            byte[] payload = new byte[length];
+            buffer.get(position + Integer.BYTES, payload);
+            out.add(payload);
+            position += Integer.BYTES + length;
+        }
+        return position;
+    }
+
+    void commit(int position, int records) {
+        readPosition = position;
+        pendingRecords -= records;
+        buffer.putInt(0, position);
+    }
+
+    boolean isDrained() {
+        return sealed && readPosition == writePosition;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    void moveTo(Path target) throws IOException {
+        Files.move(path, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+}
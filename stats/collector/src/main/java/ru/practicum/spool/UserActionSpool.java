@@ -0,0 +1,259 @@
+package ru.practicum.spool;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.grpc.user.action.UserActionProto;
+import ru.practicum.properties.CustomProperties;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Журнал действий пользователей на диске перед отправкой в Kafka.
+ * Ответ на gRPC-вызов отдается после записи в спул, а {@link SpoolDrainer} в фоне публикует записи в Kafka
+ * и только после подтверждения брокера сдвигает позицию чтения. Поэтому задержка ответа не зависит
+ * от состояния Kafka, а при перезапуске неотправленные действия дочитываются с диска.
+ * <p>
+ * Спул ограничен maxSegments сегментами; когда место кончается, запись отклоняется
+ * с {@link SpoolFullException}, и клиент получает отказ сразу, а не ждет брокер.
+ * Данные сбрасываются на диск раз в forceInterval: падение процесса их не теряет,
+ * падение ОС может потерять последний интервал.
+ * <p>
+ * Испорченные данные не блокируют спул: запись, которая не разбирается, и сегмент, который не читается,
+ * переносятся в подкаталог quarantine для разбора вручную и считаются в collector.spool.quarantined.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "my-area-guide.collector.spool", name = "enabled", havingValue = "true")
+public class UserActionSpool {
+
+    private final Path directory;
+    private final Path quarantine;
+    private final int segmentSize;
+    private final int maxSegments;
+
+    private final Deque<SpoolSegment> segments = new ArrayDeque<>();
+    private long pendingRecords;
+    private long nextSequence;
+
+    private final ScheduledExecutorService forcer;
+    private final Counter appended;
+    private final Counter rejected;
+    private final Counter quarantined;
+
+    public UserActionSpool(CustomProperties customProperties, MeterRegistry meterRegistry) {
+        CustomProperties.Spool spool = customProperties.getCollector().getSpool();
+        this.directory = Path.of(spool.getDirectory());
+        this.quarantine = directory.resolve("quarantine");
+        this.segmentSize = (int) spool.getSegmentSize().toBytes();
+        this.maxSegments = spool.getMaxSegments();
+        restore();
+
+        this.appended = meterRegistry.counter("collector.spool.appended");
+        this.rejected = meterRegistry.counter("collector.spool.rejected");
+        this.quarantined = meterRegistry.counter("collector.spool.quarantined");
+        Gauge.builder("collector.spool.depth", this, UserActionSpool::depth).register(meterRegistry);
+        Gauge.builder("collector.spool.segments", this, UserActionSpool::segmentCount).register(meterRegistry);
+
+        long interval = spool.getForceInterval().toMillis();
+        this.forcer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "spool-forcer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        forcer.scheduleWithFixedDelay(this::force, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    // записывает все действия или ни одного
+    public synchronized void append(List<UserActionProto> actions) {
+        List<byte[]> payloads = new ArrayList<>(actions.size());
+        long bytes = 0;
+        for (UserActionProto action : actions) {
+            byte[] payload = action.toByteArray();
+            payloads.add(payload);
+            bytes += Integer.BYTES + payload.length;
+        }
+        if (bytes > freeBytes()) {
+            rejected.increment(actions.size());
+            throw new SpoolFullException("User action spool is full: " + pendingRecords + " actions pending");
+        }
+        for (byte[] payload : payloads) {
+            SpoolSegment active = segments.peekLast();
+            if (active == null || !active.append(payload)) {
+                if (active != null) {
+                    active.seal();
+                }
+                active = newSegment();
+                active.append(payload);
+            }
+        }
+        pendingRecords += payloads.size();
+        appended.increment(payloads.size());
+        notifyAll();
+    }
+
+    // до max самых старых неотправленных действий; ждет появления записей не дольше timeoutMs
+    synchronized SpoolBatch peek(int max, long timeoutMs) throws InterruptedException {
+        if (pendingRecords == 0) {
+            wait(timeoutMs);
+        }
+        SpoolSegment head = segments.peekFirst();
+        while (head != null && head.isDrained()) {
+            segments.pollFirst();
+            deleteSegment(head);
+            head = segments.peekFirst();
+        }
+        if (head == null || head.pendingRecords() == 0) {
+            return SpoolBatch.EMPTY;
+        }
+        List<byte[]> payloads = new ArrayList<>(max);
+        int end;
+        try {
+            end = head.read(max, payloads);
+        } catch (RuntimeException e) {
+            // испорченные длины записей: дальше по сегменту читать нечего
+            quarantineSegment(head, e);
+            return SpoolBatch.EMPTY;
+        }
+        List<UserActionProto> actions = new ArrayList<>(payloads.size());
+        for (byte[] payload : payloads) {
+            try {
+                actions.add(UserActionProto.parseFrom(payload));
+            } catch (IOException e) {
+                quarantineRecord(head, payload, e);
+            }
+        }
+        return new SpoolBatch(head, end, payloads.size(), actions);
+    }
+
+    synchronized void commit(SpoolBatch batch) {
+        batch.segment().commit(batch.endPosition(), batch.records());
+        pendingRecords -= batch.records();
+        // опустевшие сегменты сразу освобождают место, а не при следующем чтении
+        SpoolSegment head = segments.peekFirst();
+        while (head != null && head.isDrained()) {
+            segments.pollFirst();
+            deleteSegment(head);
+            head = segments.peekFirst();
+        }
+    }
+
+    public synchronized long depth() {
+        return pendingRecords;
+    }
+
+    private synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    @PreDestroy
+    public void close() {
+        forcer.shutdown();
+        force();
+    }
+
+    // сброс на диск идет вне монитора: append и commit не ждут fsync
+    private void force() {
+        List<SpoolSegment> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(segments);
+        }
+        snapshot.forEach(SpoolSegment::force);
+    }
+
+    private long freeBytes() {
+        SpoolSegment active = segments.peekLast();
+        long free = active == null || active.isSealed() ? 0 : active.remaining();
+        return free + (long) (maxSegments - segments.size()) * (segmentSize - SpoolSegment.HEADER_SIZE - Integer.BYTES);
+    }
+
+    private SpoolSegment newSegment() {
+        try {
+            SpoolSegment segment = SpoolSegment.create(directory, nextSequence++, segmentSize);
+            segments.addLast(segment);
+            return segment;
+        } catch (IOException e) {
+            throw new SpoolException(e);
+        }
+    }
+
+    private void deleteSegment(SpoolSegment segment) {
+        try {
+            segment.delete();
+        } catch (IOException e) {
+            log.warn("Failed to delete drained spool segment {}: {}", segment.sequence(), e.getMessage());
+        }
+    }
+
+    // запись сохраняется в карантин и подтверждается вместе со своей пачкой
+    private void quarantineRecord(SpoolSegment segment, byte[] payload, IOException cause) {
+        quarantined.increment();
+        Path file = quarantine.resolve(String.format("spool-%019d-%d.bad", segment.sequence(), System.nanoTime()));
+        log.error("Unparseable spooled action in segment {}, moved to {}: {}", segment.sequence(), file, cause.getMessage());
+        try {
+            Files.createDirectories(quarantine);
+            Files.write(file, payload);
+        } catch (IOException e) {
+            log.error("Failed to save unparseable spooled action, it is dropped: {}", e.getMessage());
+        }
+    }
+
+    // сегмент целиком уходит в карантин вместе с неотправленными записями
+    private void quarantineSegment(SpoolSegment segment, RuntimeException cause) {
+        segments.remove(segment);
+        pendingRecords -= segment.pendingRecords();
+        quarantined.increment(segment.pendingRecords());
+        Path file = quarantine.resolve(SpoolSegment.fileName(segment.sequence()));
+        log.error("Unreadable spool segment {} with {} pending actions, moved to {}",
+                segment.sequence(), segment.pendingRecords(), file, cause);
+        try {
+            Files.createDirectories(quarantine);
+            segment.moveTo(file);
+        } catch (IOException e) {
+            log.error("Failed to move unreadable spool segment {}: {}", segment.sequence(), e.getMessage());
+        }
+    }
+
+    private void restore() {
+        try {
+            Files.createDirectories(directory);
+            List<Path> files;
+            try (Stream<Path> list = Files.list(directory)) {
+                files = list.filter(path -> path.getFileName().toString().matches("spool-\\d{19}\\.seg"))
+                        .sorted()
+                        .toList();
+            }
+            for (Path file : files) {
+                SpoolSegment segment = SpoolSegment.open(file);
+                if (!segments.isEmpty()) {
+                    segments.peekLast().seal();
+                }
+                segments.addLast(segment);
+                pendingRecords += segment.pendingRecords();
+                nextSequence = segment.sequence() + 1;
+            }
+            // дописывается только последний сегмент, остальные запечатаны
+            if (!segments.isEmpty()) {
+                segments.peekLast().clearTail();
+            }
+        } catch (IOException e) {
+            throw new SpoolException(e);
+        }
+        log.info("Spool restored from {}: {} segments, {} pending actions", directory, segments.size(), pendingRecords);
+    }
+
+}
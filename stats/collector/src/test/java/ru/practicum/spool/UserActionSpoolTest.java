@@ -0,0 +1,301 @@
+package ru.practicum.spool;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.grpc.user.action.ActionTypeProto;
+import ru.practicum.grpc.user.action.UserActionProto;
+import ru.practicum.properties.CustomProperties;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserActionSpoolTest {
+
+    private static final int SEGMENT_SIZE = 1024;
+
+    @TempDir
+    private Path directory;
+
+    private CustomProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private final List<UserActionSpool> opened = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        properties = new CustomProperties();
+        properties.getCollector().getSpool().setEnabled(true);
+        properties.getCollector().getSpool().setDirectory(directory.toString());
+        properties.getCollector().getSpool().setSegmentSize(DataSize.ofBytes(SEGMENT_SIZE));
+        properties.getCollector().getSpool().setMaxSegments(4);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        opened.forEach(UserActionSpool::close);
+    }
+
+    @Test
+    void peek_ShouldReturnAppendedActionsInOrderUntilCommit() throws InterruptedException {
+        // Given
+        UserActionSpool spool = open();
+        spool.append(actions(1, 2, 3));
+
+        // When
+        SpoolBatch first = spool.peek(2, 1);
+        SpoolBatch again = spool.peek(2, 1);
+        spool.commit(first);
+        SpoolBatch rest = spool.peek(10, 1);
+
+        // Then
+        assertEquals(userIds(1, 2), userIdsOf(first));
+        assertEquals(userIds(1, 2), userIdsOf(again));
+        assertEquals(userIds(3), userIdsOf(rest));
+        assertEquals(1, spool.depth());
+    }
+
+    @Test
+    void append_ShouldRollSegmentsAndRejectWholeBatchWhenFull() throws InterruptedException {
+        // Given
+        UserActionSpool spool = open();
+        spool.append(actions(LongStream.rangeClosed(1, 100).toArray()));
+        long depth = spool.depth();
+
+        // When
+        assertThrows(SpoolFullException.class, () -> spool.append(actions(LongStream.rangeClosed(1, 400).toArray())));
+        List<Long> drained = new ArrayList<>();
+        SpoolBatch batch;
+        while (!(batch = spool.peek(1000, 1)).isEmpty()) {
+            drained.addAll(userIdsOf(batch));
+            spool.commit(batch);
+        }
+
+        // Then
+        assertEquals(100, depth);
+        assertEquals(LongStream.rangeClosed(1, 100).boxed().toList(), drained);
+        assertEquals(0, spool.depth());
+        assertEquals(400, meterRegistry.counter("collector.spool.rejected").count());
+    }
+
+    @Test
+    void open_ShouldResumeFromCommittedReadPosition() throws InterruptedException {
+        // Given
+        UserActionSpool spool = open();
+        spool.append(actions(1, 2, 3, 4));
+        spool.commit(spool.peek(3, 1));
+        spool.close();
+
+        // When
+        UserActionSpool reopened = open();
+        SpoolBatch batch = reopened.peek(10, 1);
+
+        // Then
+        assertEquals(1, reopened.depth());
+        assertEquals(userIds(4), userIdsOf(batch));
+    }
+
+    @Test
+    void open_ShouldKeepAppendingAfterRestoredRecords() throws InterruptedException {
+        // Given
+        UserActionSpool spool = open();
+        spool.append(actions(1, 2));
+        spool.close();
+
+        // When
+        UserActionSpool reopened = open();
+        reopened.append(actions(3));
+        reopened.close();
+        UserActionSpool again = open();
+
+        // Then
+        assertEquals(userIds(1, 2, 3), drainAll(again));
+    }
+
+    @Test
+    void open_ShouldIgnoreHalfWrittenTail() throws IOException, InterruptedException {
+        // Given: при падении ОС страница со следующей записью попала на диск, а заголовок предыдущей - нет
+        UserActionSpool spool = open();
+        spool.append(actions(1, 2));
+        spool.close();
+        Path segment = singleSegment();
+        byte[] torn = action(4).toByteArray();
+        byte[] next = action(5).toByteArray();
+        writeAt(segment, tailPosition(segment) + Integer.BYTES, ByteBuffer.allocate(torn.length + Integer.BYTES + next.length)
+                .put(torn)
+                .putInt(next.length + 1)
+                .put(next)
+                .array());
+
+        // When
+        UserActionSpool reopened = open();
+        reopened.append(actions(3));
+        reopened.close();
+        UserActionSpool again = open();
+
+        // Then
+        assertEquals(userIds(1, 2, 3), drainAll(again));
+    }
+
+    @Test
+    void open_ShouldIgnoreTailRecordLongerThanSegment() throws IOException, InterruptedException {
+        // Given
+        UserActionSpool spool = open();
+        spool.append(actions(1));
+        spool.close();
+        Path segment = singleSegment();
+        writeAt(segment, tailPosition(segment), ByteBuffer.allocate(Integer.BYTES).putInt(SEGMENT_SIZE).array());
+
+        // When
+        UserActionSpool reopened = open();
+
+        // Then
+        assertEquals(1, reopened.depth());
+        assertEquals(userIds(1), drainAll(reopened));
+    }
+
+    @Test
+    void append_ShouldKeepActionWithEmptyPayload() throws InterruptedException {
+        // Given: сообщение из одних значений по умолчанию сериализуется в 0 байт
+        UserActionProto empty = UserActionProto.getDefaultInstance();
+        assertEquals(0, empty.getSerializedSize());
+        UserActionSpool spool = open();
+
+        // When
+        spool.append(List.of(empty, action(2)));
+        spool.close();
+        UserActionSpool reopened = open();
+
+        // Then
+        assertEquals(2, reopened.depth());
+        assertEquals(userIds(0, 2), drainAll(reopened));
+    }
+
+    @Test
+    void peek_ShouldQuarantineUnparseableRecordAndCommitItWithBatch() throws IOException, InterruptedException {
+        // Given
+        SpoolSegment segment = SpoolSegment.create(directory, 0, SEGMENT_SIZE);
+        segment.append(action(1).toByteArray());
+        segment.append(new byte[]{(byte) 0xFF});
+        segment.append(action(3).toByteArray());
+        segment.force();
+        UserActionSpool spool = open();
+
+        // When
+        SpoolBatch batch = spool.peek(10, 1);
+        spool.commit(batch);
+
+        // Then
+        assertEquals(3, batch.records());
+        assertEquals(userIds(1, 3), userIdsOf(batch));
+        assertEquals(0, spool.depth());
+        assertEquals(1, meterRegistry.counter("collector.spool.quarantined").count());
+        assertEquals(1, quarantined().size());
+    }
+
+    @Test
+    void peek_ShouldQuarantineSegmentWithCorruptedReadPosition() throws IOException, InterruptedException {
+        // Given: readPosition указывает внутрь записи
+        UserActionSpool spool = open();
+        spool.append(actions(1, 2));
+        spool.close();
+        Path segment = singleSegment();
+        writeAt(segment, 0, ByteBuffer.allocate(Integer.BYTES).putInt(SpoolSegment.HEADER_SIZE + 1).array());
+        UserActionSpool reopened = open();
+
+        // When
+        SpoolBatch batch = reopened.peek(10, 1);
+        reopened.append(actions(3));
+
+        // Then
+        assertTrue(batch.isEmpty());
+        assertEquals(List.of(SpoolSegment.fileName(0)),
+                quarantined().stream().map(path -> path.getFileName().toString()).toList());
+        assertEquals(userIds(3), drainAll(reopened));
+    }
+
+    private UserActionSpool open() {
+        UserActionSpool spool = new UserActionSpool(properties, meterRegistry);
+        opened.add(spool);
+        return spool;
+    }
+
+    private static List<Long> drainAll(UserActionSpool spool) throws InterruptedException {
+        List<Long> userIds = new ArrayList<>();
+        SpoolBatch batch;
+        while (!(batch = spool.peek(1000, 1)).isEmpty()) {
+            userIds.addAll(userIdsOf(batch));
+            spool.commit(batch);
+        }
+        return userIds;
+    }
+
+    private Path singleSegment() throws IOException {
+        try (Stream<Path> list = Files.list(directory)) {
+            List<Path> segments = list.filter(path -> path.getFileName().toString().endsWith(".seg")).toList();
+            assertEquals(1, segments.size());
+            return segments.getFirst();
+        }
+    }
+
+    private List<Path> quarantined() throws IOException {
+        Path quarantine = directory.resolve("quarantine");
+        if (!Files.exists(quarantine)) {
+            return List.of();
+        }
+        try (Stream<Path> list = Files.list(quarantine)) {
+            return list.toList();
+        }
+    }
+
+    // позиция за последней целой записью: так же ищет ее SpoolSegment.open
+    private static int tailPosition(Path segment) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+        int position = SpoolSegment.HEADER_SIZE;
+        int length;
+        while ((length = buffer.getInt(position)) > 0) {
+            position += Integer.BYTES + length - 1;
+        }
+        return position;
+    }
+
+    private static void writeAt(Path file, int position, byte[] bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes), position);
+        }
+    }
+
+    private static List<UserActionProto> actions(long... userIds) {
+        return LongStream.of(userIds).mapToObj(UserActionSpoolTest::action).toList();
+    }
+
+    private static UserActionProto action(long userId) {
+        return UserActionProto.newBuilder()
+                .setUserId(userId)
+                .setEventId(userId * 10)
+                .setActionType(ActionTypeProto.ACTION_LIKE)
+                .build();
+    }
+
+    private static List<Long> userIds(long... userIds) {
+        return LongStream.of(userIds).boxed().toList();
+    }
+
+    private static List<Long> userIdsOf(SpoolBatch batch) {
+        return batch.actions().stream().map(UserActionProto::getUserId).toList();
+    }
+
+}
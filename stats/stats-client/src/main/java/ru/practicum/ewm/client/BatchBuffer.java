@@ -0,0 +1,90 @@
+package ru.practicum.ewm.client;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Очередь для асинхронной отправки пачками.
+ * Поток запроса только кладет элемент в очередь; фоновый поток собирает пачку до batchSize
+ * или до истечения flushInterval и передает ее отправителю.
+ * При переполнении очереди элемент отбрасывается - статистика не должна тормозить запросы.
+ */
+@Slf4j
+class BatchBuffer<T> {
+
+    private final String name;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final BlockingQueue<T> queue;
+    private final Consumer<List<T>> sender;
+
+    private volatile boolean running = true;
+    private Thread senderThread;
+
+    BatchBuffer(String name, int capacity, int batchSize, long flushIntervalMs, Consumer<List<T>> sender) {
+        this.name = name;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.sender = sender;
+    }
+
+    void start() {
+        senderThread = new Thread(this::run, name);
+        senderThread.setDaemon(true);
+        senderThread.start();
+    }
+
+    void stop() throws InterruptedException {
+        // цикл отправки сам выходит по таймауту опроса и досылает остаток очереди
+        running = false;
+        senderThread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    boolean offer(T item) {
+        return queue.offer(item);
+    }
+
+    private void run() {
+        List<T> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                collectBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                try {
+                    sender.accept(batch);
+                } catch (Exception e) {
+                    log.warn("{}: failed sending batch of {}: {}", name, batch.size(), e.getMessage());
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    // ждем первый элемент, затем добираем пачку до batchSize, но не дольше flushInterval
+    private void collectBatch(List<T> batch) throws InterruptedException {
+        T first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first == null) return;
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) return;
+            T next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) return;
+            batch.add(next);
+        }
+    }
+
+}
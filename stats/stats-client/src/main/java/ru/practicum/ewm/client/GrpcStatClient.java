@@ -29,6 +29,7 @@ public class GrpcStatClient implements StatClient {
 
     private final UserActionControllerGrpc.UserActionControllerBlockingStub userActionStub;
     private final RecommendationsControllerGrpc.RecommendationsControllerBlockingStub recommendationsStub;
+    private final UserActionBuffer userActionBuffer;
 
 
     @Override
@@ -115,6 +116,10 @@ public class GrpcStatClient implements StatClient {
                 .setActionType(action)
                 .setTimestamp(timestamp)
                 .build();
+        if (userActionBuffer.isEnabled()) {
+            // отправка пачкой в фоне, поток запроса не ждет collector
+            return String.valueOf(userActionBuffer.offer(userActionProto));
+        }
         try {
             userActionStub.collectUserAction(userActionProto);
             log.debug("Sent Event View action: {}", userActionProto);
@@ -1,5 +1,7 @@
 package ru.practicum.ewm.client;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
@@ -32,6 +34,8 @@ public class RestStatClient implements StatClient {
     private final Random random = new Random();
     private final DateTimeFormatter formatter;
     private final String name;
+    // при включенной буферизации хиты уходят фоном пачками на /hits
+    private final BatchBuffer<EventHitDto> hitBuffer;
 
     private String statUrl;
     private RestClient restClient;
@@ -41,13 +45,30 @@ public class RestStatClient implements StatClient {
             DiscoveryClient discoveryClient,
             @Value("${explore-with-me.stat-server.discovery.name:}") String name,
             @Value("${explore-with-me.stat-server.url:http://localhost:9090}") String url,
-            @Value("${explore-with-me.stat.datetime.format}") String format
+            @Value("${explore-with-me.stat.datetime.format}") String format,
+            @Value("${explore-with-me.stat-server.buffer.enabled:false}") boolean bufferEnabled,
+            @Value("${explore-with-me.stat-server.buffer.capacity:10000}") int bufferCapacity,
+            @Value("${explore-with-me.stat-server.buffer.batch-size:500}") int bufferBatchSize,
+            @Value("${explore-with-me.stat-server.buffer.flush-interval-ms:200}") long bufferFlushIntervalMs
     ) {
         this.discoveryClient = discoveryClient;
         this.name = name;
         this.formatter = DateTimeFormatter.ofPattern(format);
         this.statUrl = url;
         this.restClient = RestClient.builder().baseUrl(statUrl).build();
+        this.hitBuffer = bufferEnabled
+                ? new BatchBuffer<>("stat-hit-sender", bufferCapacity, bufferBatchSize, bufferFlushIntervalMs, this::sendHits)
+                : null;
+    }
+
+    @PostConstruct
+    public void startBuffer() {
+        if (hitBuffer != null) hitBuffer.start();
+    }
+
+    @PreDestroy
+    public void stopBuffer() throws InterruptedException {
+        if (hitBuffer != null) hitBuffer.stop();
     }
 
     @EventListener(ApplicationReadyEvent.class)
@@ -98,6 +119,12 @@ public class RestStatClient implements StatClient {
 
     @Override
     public void hit(EventHitDto eventHitDto) {
+        if (hitBuffer != null) {
+            if (!hitBuffer.offer(eventHitDto)) {
+                log.warn("Stat hit buffer is full, hit dropped: {}", eventHitDto.getUri());
+            }
+            return;
+        }
         try {
             restClient
                     .post()
@@ -111,6 +138,17 @@ public class RestStatClient implements StatClient {
         }
     }
 
+    private void sendHits(List<EventHitDto> hits) {
+        restClient
+                .post()
+                .uri("/hits")
+                .body(hits)
+                .contentType(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .toBodilessEntity();
+        log.debug("Sent batch of {} hits", hits.size());
+    }
+
     @Override
     public Collection<EventStatsResponseDto> stats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
         try {
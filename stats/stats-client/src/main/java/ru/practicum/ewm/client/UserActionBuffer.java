@@ -0,0 +1,69 @@
+package ru.practicum.ewm.client;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.grpc.collector.UserActionControllerGrpc;
+import ru.practicum.grpc.user.action.UserActionBatchProto;
+import ru.practicum.grpc.user.action.UserActionProto;
+
+import java.util.List;
+
+/**
+ * Буфер действий пользователей для асинхронной отправки в collector пачками:
+ * пачка уходит одним вызовом CollectUserActionBatch.
+ */
+@Slf4j
+@Component
+public class UserActionBuffer {
+
+    private final UserActionControllerGrpc.UserActionControllerBlockingStub userActionStub;
+    private final boolean enabled;
+    private final BatchBuffer<UserActionProto> buffer;
+
+    public UserActionBuffer(
+            UserActionControllerGrpc.UserActionControllerBlockingStub userActionStub,
+            @Value("${explore-with-me.collector.buffer.enabled:false}") boolean enabled,
+            @Value("${explore-with-me.collector.buffer.capacity:10000}") int capacity,
+            @Value("${explore-with-me.collector.buffer.batch-size:200}") int batchSize,
+            @Value("${explore-with-me.collector.buffer.flush-interval-ms:200}") long flushIntervalMs
+    ) {
+        this.userActionStub = userActionStub;
+        this.enabled = enabled;
+        this.buffer = new BatchBuffer<>("user-action-sender", enabled ? capacity : 1, batchSize, flushIntervalMs,
+                this::send);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) return;
+        buffer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!enabled) return;
+        buffer.stop();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean offer(UserActionProto userActionProto) {
+        if (buffer.offer(userActionProto)) {
+            return true;
+        }
+        log.warn("User action buffer is full, action dropped: user {}, event {}",
+                userActionProto.getUserId(), userActionProto.getEventId());
+        return false;
+    }
+
+    private void send(List<UserActionProto> batch) {
+        userActionStub.collectUserActionBatch(UserActionBatchProto.newBuilder().addAllActions(batch).build());
+        log.debug("Sent batch of {} user actions", batch.size());
+    }
+
+}
@@ -2,6 +2,7 @@ package ru.practicum;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -16,12 +17,15 @@ import java.time.LocalDateTime;
 public class EventHitDto {
 
     @NotNull(message = "Field 'app' should not be null")
+    @Size(max = 50, message = "Field 'app' should not be longer than 50 characters")
     private String app;
 
     @NotNull(message = "Field 'uri' should not be null")
+    @Size(max = 50, message = "Field 'uri' should not be longer than 50 characters")
     private String uri;
 
     @NotNull(message = "Field 'ip' should not be null")
+    @Size(max = 45, message = "Field 'ip' should not be longer than 45 characters")
     private String ip;
 
     @NotNull(message = "Field 'timestamp' should not be null")
@@ -1,5 +1,6 @@
 package ru.practicum;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -17,4 +18,12 @@ public class EventStatsResponseDto {
 
     private Long hits;
 
+    // относительная стандартная ошибка hits, только для приближенного подсчета уникальных ip
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double errorBound;
+
+    public EventStatsResponseDto(String app, String uri, Long hits) {
+        this(app, uri, hits, null);
+    }
+
 }
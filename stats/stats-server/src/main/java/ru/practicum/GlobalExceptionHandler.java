@@ -13,6 +13,7 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 import ru.practicum.exception.ErrorResponse;
+import ru.practicum.exception.HitQueueFullException;
 
 import java.time.Instant;
 
@@ -78,6 +79,22 @@ public class GlobalExceptionHandler {
     }
 
 
+    @ExceptionHandler(
+            HitQueueFullException.class                   // hit queue overflow, client should retry
+    )
+    public ResponseEntity<ErrorResponse> handleHitQueueFull(HitQueueFullException e, HttpServletRequest request) {
+        log.debug("SERVICE UNAVAILABLE: {}", e.getMessage());
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .timestamp(Instant.now())
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .error("Service Unavailable")
+                .message(e.getMessage())
+                .path(request.getRequestURI())
+                .build();
+        return new ResponseEntity<>(errorResponse, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+
     @ExceptionHandler(
             RuntimeException.class                        // Internal Server Error
     )
@@ -1,14 +1,27 @@
 package ru.practicum.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.EventHitDto;
 import ru.practicum.EventStatsResponseDto;
+import ru.practicum.model.StatsCursor;
+import ru.practicum.model.UniqueMode;
 import ru.practicum.service.StatsService;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
@@ -20,6 +33,7 @@ import java.util.List;
 public class StatsController {
 
     private final StatsService statsService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/hit")
     @ResponseStatus(code = HttpStatus.CREATED)
@@ -29,14 +43,97 @@ public class StatsController {
         statsService.hit(eventHitDto);
     }
 
+    @PostMapping(value = "/hits", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(code = HttpStatus.ACCEPTED)
+    public void hits(
+            @RequestBody List<EventHitDto> eventHitDtos
+    ) {
+        statsService.hits(eventHitDtos);
+    }
+
+    // NDJSON: по одному хиту в строке, без обрамляющего массива
+    @PostMapping(value = "/hits", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(code = HttpStatus.ACCEPTED)
+    public void hitsNdjson(InputStream body) throws IOException {
+        List<EventHitDto> eventHitDtos;
+        try (MappingIterator<EventHitDto> hits = objectMapper.readerFor(EventHitDto.class).readValues(body)) {
+            eventHitDtos = hits.readAll();
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed NDJSON hit: " + e.getOriginalMessage());
+        }
+        statsService.hits(eventHitDtos);
+    }
+
     @GetMapping("/stats")
     public Collection<EventStatsResponseDto> stats(
             @RequestParam(required = true) LocalDateTime start,
             @RequestParam(required = true) LocalDateTime end,
             @RequestParam(required = false) List<String> uris,
-            @RequestParam(defaultValue = "false") Boolean unique
+            @RequestParam(defaultValue = "false") String unique
+    ) {
+        return switch (UniqueMode.from(unique)) {
+            case FALSE -> statsService.getStats(start, end, uris, false);
+            case TRUE -> statsService.getStats(start, end, uris, true);
+            case APPROX -> statsService.getApproxUniqueStats(start, end, uris);
+        };
+    }
+
+    /**
+     * Потоковая выдача: строки пишутся в ответ по мере чтения из курсора БД, память не зависит от числа строк.
+     * <ul>
+     *     <li>stream=json - JSON-массив, stream=ndjson - по объекту в строке;</li>
+     *     <li>limit - не больше limit строк; cursor - последняя полученная строка в виде "hits,app,uri",
+     *     выдача продолжается после нее.</li>
+     * </ul>
+     */
+    @GetMapping(value = "/stats", params = "stream")
+    public ResponseEntity<StreamingResponseBody> streamStats(
+            @RequestParam(required = true) LocalDateTime start,
+            @RequestParam(required = true) LocalDateTime end,
+            @RequestParam(required = false) List<String> uris,
+            @RequestParam(defaultValue = "false") String unique,
+            @RequestParam(required = false) @Positive Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam String stream
     ) {
-        return statsService.getStats(start, end, uris, unique);
+        UniqueMode uniqueMode = UniqueMode.from(unique);
+        StatsCursor statsCursor = StatsCursor.parse(cursor);
+        boolean ndjson = switch (stream.toLowerCase()) {
+            case "json" -> false;
+            case "ndjson" -> true;
+            default -> throw new IllegalArgumentException("Parameter stream must be json or ndjson, got " + stream);
+        };
+        // ошибки диапазона должны дойти до клиента кодом 400, а не оборванным потоком
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("The start date cannot be later than the end date");
+        }
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                if (ndjson) {
+                    // строки разделяет только перевод строки, без пробела между корневыми значениями
+                    generator.setRootValueSeparator(null);
+                } else {
+                    generator.writeStartArray();
+                }
+                statsService.streamStats(start, end, uris, uniqueMode, limit, statsCursor, stat -> {
+                    try {
+                        generator.writeObject(stat);
+                        if (ndjson) {
+                            generator.writeRaw('\n');
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (!ndjson) {
+                    generator.writeEndArray();
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
     }
 
 }
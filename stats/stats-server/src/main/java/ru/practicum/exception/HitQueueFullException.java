@@ -0,0 +1,10 @@
+package ru.practicum.exception;
+
+// очередь приема хитов не освободилась за отведенное время - клиент может повторить позже
+public class HitQueueFullException extends RuntimeException {
+
+    public HitQueueFullException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,37 @@
+package ru.practicum.model;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.regex.Pattern;
+
+// разбор ip без обращения к DNS; каноническая запись одинакова для всех форм записи одного адреса
+public final class IpAddress {
+
+    private static final Pattern IPV4 = Pattern.compile(
+            "((25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]?\\d)\\.){3}(25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]?\\d)");
+
+    private IpAddress() {
+    }
+
+    public static String normalize(String ip) {
+        // строка с ':' разбирается как литерал IPv6, остальное допускаем только в виде IPv4
+        if (ip == null || ip.indexOf('%') >= 0 || (ip.indexOf(':') < 0 && !IPV4.matcher(ip).matches())) {
+            throw new IllegalArgumentException("Invalid ip address: " + ip);
+        }
+        try {
+            return InetAddress.getByName(ip).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Invalid ip address: " + ip);
+        }
+    }
+
+    // для уже сохраненных значений: неразборчивая запись остается как есть
+    public static String normalizeOrSelf(String ip) {
+        try {
+            return normalize(ip);
+        } catch (IllegalArgumentException e) {
+            return ip;
+        }
+    }
+
+}
@@ -2,27 +2,29 @@ package ru.practicum.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Immutable;
 
 import java.time.LocalDateTime;
 
+// хиты читаются через представление stat_view, запись - пачками через StatBatchRepository
 @Data
 @Builder
 @EqualsAndHashCode
 @Entity
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "stat")
+@Immutable
+@Table(name = "stat_view")
 public class Stat {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id")
     private Long statId;
 
     @Column(name = "app", nullable = false, length = 50)
     private String app;
 
-    @Column(name = "ip", nullable = false, length = 15)
+    @Column(name = "ip", nullable = false, length = 45)
     private String ip;
 
     @Column(name = "time_stamp", nullable = false)
@@ -0,0 +1,38 @@
+package ru.practicum.model;
+
+import ru.practicum.EventStatsResponseDto;
+
+import java.util.Comparator;
+
+/**
+ * Позиция в выдаче /stats, упорядоченной по hits по убыванию, затем по app и uri.
+ * Клиент передает в cursor последнюю полученную строку в виде "hits,app,uri" и получает строки после нее.
+ */
+public record StatsCursor(long hits, String app, String uri) {
+
+    public static final Comparator<EventStatsResponseDto> ORDER =
+            Comparator.comparing(EventStatsResponseDto::getHits, Comparator.reverseOrder())
+                    .thenComparing(EventStatsResponseDto::getApp)
+                    .thenComparing(EventStatsResponseDto::getUri);
+
+    public static StatsCursor parse(String source) {
+        if (source == null) {
+            return null;
+        }
+        // uri последним: запятые в нем сохраняются
+        String[] parts = source.split(",", 3);
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Cursor must look like hits,app,uri: " + source);
+        }
+        try {
+            return new StatsCursor(Long.parseLong(parts[0]), parts[1], parts[2]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor must look like hits,app,uri: " + source);
+        }
+    }
+
+    public boolean isBefore(EventStatsResponseDto stat) {
+        return ORDER.compare(new EventStatsResponseDto(app, uri, hits), stat) < 0;
+    }
+
+}
@@ -0,0 +1,22 @@
+package ru.practicum.model;
+
+// режим подсчета параметра unique запроса /stats
+public enum UniqueMode {
+
+    // все хиты
+    FALSE,
+    // точное число различных ip
+    TRUE,
+    // оценка числа различных ip по скетчам HyperLogLog
+    APPROX;
+
+    public static UniqueMode from(String source) {
+        for (UniqueMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(source)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Failed to convert string " + source + " to unique mode");
+    }
+
+}
@@ -0,0 +1,40 @@
+package ru.practicum.repository;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+// шаг сводной таблицы хитов; coarser - следующий, более крупный шаг
+enum Granularity {
+
+    MINUTE("stat_rollup_minute", ChronoUnit.MINUTES),
+    HOUR("stat_rollup_hour", ChronoUnit.HOURS),
+    DAY("stat_rollup_day", ChronoUnit.DAYS);
+
+    private final String table;
+    private final ChronoUnit unit;
+
+    Granularity(String table, ChronoUnit unit) {
+        this.table = table;
+        this.unit = unit;
+    }
+
+    String table() {
+        return table;
+    }
+
+    Granularity coarser() {
+        return this == DAY ? null : values()[ordinal() + 1];
+    }
+
+    // начало бакета, в который попадает момент
+    LocalDateTime floor(LocalDateTime moment) {
+        return moment.truncatedTo(unit);
+    }
+
+    // начало первого бакета, целиком лежащего не раньше момента
+    LocalDateTime ceil(LocalDateTime moment) {
+        LocalDateTime floor = floor(moment);
+        return floor.equals(moment) ? floor : floor.plus(1, unit);
+    }
+
+}
@@ -0,0 +1,103 @@
+package ru.practicum.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Словари app и uri: имя -> id. Записи только добавляются, поэтому кэшируются без вытеснения.
+ * <ul>
+ *     <li>register вставляет новые имена собственной короткой транзакцией и вызывается до транзакции записи хитов:
+ *     запись не держит второе соединение, а строки словаря не остаются заблокированными на время записи пачки;</li>
+ *     <li>appIds/uriIds берут id из кэша, неизвестные имена вставляют в текущей транзакции;</li>
+ *     <li>в кэш id попадают только после фиксации: кэш не должен видеть id, откаченные вместе с пачкой хитов.</li>
+ * </ul>
+ */
+@Component
+public class HitDictionary {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, Integer> apps = new ConcurrentHashMap<>();
+    private final Map<String, Integer> uris = new ConcurrentHashMap<>();
+
+    public HitDictionary(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void register(Collection<String> appNames, Collection<String> uriNames) {
+        if (isCached(apps, appNames) && isCached(uris, uriNames)) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            appIds(appNames);
+            uriIds(uriNames);
+        });
+    }
+
+    public Map<String, Integer> appIds(Collection<String> names) {
+        return resolve("stat_app", apps, names);
+    }
+
+    public Map<String, Integer> uriIds(Collection<String> names) {
+        return resolve("stat_uri", uris, names);
+    }
+
+    private static boolean isCached(Map<String, Integer> cache, Collection<String> names) {
+        for (String name : names) {
+            if (!cache.containsKey(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Map<String, Integer> resolve(String table, Map<String, Integer> cache, Collection<String> names) {
+        Map<String, Integer> ids = new HashMap<>();
+        // отсортированы, чтобы параллельные вставки одних имен блокировали строки в одном порядке
+        Set<String> missing = new TreeSet<>();
+        for (String name : names) {
+            Integer id = cache.get(name);
+            if (id != null) {
+                ids.put(name, id);
+            } else {
+                missing.add(name);
+            }
+        }
+        if (missing.isEmpty()) {
+            return ids;
+        }
+        String[] array = missing.toArray(String[]::new);
+        Map<String, Integer> found = new HashMap<>();
+        jdbcTemplate.update("INSERT INTO " + table + " (name) SELECT unnest(?::VARCHAR[]) ON CONFLICT (name) DO NOTHING",
+                (Object) array);
+        jdbcTemplate.query("SELECT id, name FROM " + table + " WHERE name = ANY(?::VARCHAR[])",
+                (RowCallbackHandler) rs -> found.put(rs.getString("name"), rs.getInt("id")),
+                (Object) array);
+        ids.putAll(found);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.putAll(found);
+                }
+            });
+        } else {
+            cache.putAll(found);
+        }
+        return ids;
+    }
+
+}
@@ -0,0 +1,90 @@
+package ru.practicum.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Секции таблицы hit по суткам, создаются заранее по расписанию - запись хитов их не создает.
+ * <ul>
+ *     <li>каждый проход создает секции на сегодня и days-ahead суток вперед;</li>
+ *     <li>хиты вне созданных секций попадают в hit_default; для их суток секция создается на следующем проходе,
+ *     и строки переносятся в нее из hit_default;</li>
+ *     <li>секция создается отдельной таблицей и подключается ATTACH PARTITION: в отличие от CREATE TABLE ... PARTITION OF
+ *     он не берет на hit исключительную блокировку, запись и чтение других суток не останавливаются.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class HitPartitions {
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int daysAhead;
+    private final Set<LocalDate> known = ConcurrentHashMap.newKeySet();
+
+    public HitPartitions(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                         @Value("${explore-with-me.stats.partitions.days-ahead:7}") int daysAhead) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.daysAhead = daysAhead;
+    }
+
+    @Scheduled(fixedDelayString = "${explore-with-me.stats.partitions.check-interval-ms:3600000}")
+    public void createAhead() {
+        Set<LocalDate> days = new TreeSet<>();
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i <= daysAhead; i++) {
+            days.add(today.plusDays(i));
+        }
+        days.addAll(jdbcTemplate.queryForList(
+                "SELECT DISTINCT CAST(time_stamp AS DATE) FROM hit_default", LocalDate.class));
+        ensure(days);
+    }
+
+    public void ensure(Collection<LocalDate> days) {
+        for (LocalDate day : new TreeSet<>(days)) {
+            if (known.contains(day)) {
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> create(day));
+                known.add(day);
+            } catch (RuntimeException e) {
+                // секцию одновременно создает другой экземпляр - повторим на следующем проходе
+                log.warn("Failed creating hit partition for {}: {}", day, e.getMessage());
+            }
+        }
+    }
+
+    private void create(LocalDate day) {
+        String table = "hit_" + day.format(SUFFIX);
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, table))) {
+            return;
+        }
+        // блокируется только hit_default: до подключения секции в нее не должны попасть новые строки этих суток
+        jdbcTemplate.execute("LOCK TABLE hit_default IN ACCESS EXCLUSIVE MODE");
+        jdbcTemplate.execute("CREATE TABLE " + table + " (LIKE hit INCLUDING DEFAULTS)");
+        int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM hit_default WHERE time_stamp >= ? AND time_stamp < ?" +
+                        " RETURNING id, app_id, uri_id, ip, time_stamp)" +
+                        " INSERT INTO " + table + " (id, app_id, uri_id, ip, time_stamp) SELECT * FROM moved",
+                day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+        jdbcTemplate.execute("ALTER TABLE hit ATTACH PARTITION " + table +
+                " FOR VALUES FROM ('" + day + "') TO ('" + day.plusDays(1) + "')");
+        log.info("Created hit partition {}, moved {} hits from hit_default", table, moved);
+    }
+
+}
@@ -0,0 +1,19 @@
+package ru.practicum.repository;
+
+import ru.practicum.model.Stat;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+// строка сводной таблицы: бакет и (app, uri); ORDER - общий порядок блокировки строк
+record RollupKey(LocalDateTime bucketStart, String app, String uri) {
+
+    static final Comparator<RollupKey> ORDER = Comparator.comparing(RollupKey::bucketStart)
+            .thenComparing(RollupKey::app)
+            .thenComparing(RollupKey::uri);
+
+    static RollupKey of(Granularity granularity, Stat stat) {
+        return new RollupKey(granularity.floor(stat.getTimestamp()), stat.getApp(), stat.getUri());
+    }
+
+}
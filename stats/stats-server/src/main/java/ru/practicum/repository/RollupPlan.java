@@ -0,0 +1,64 @@
+package ru.practicum.repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Разбиение интервала запроса [start, end] на части:
+ * <ul>
+ *     <li>целые бакеты сводных таблиц - полуинтервалы [from, to), самые крупные из возможных;</li>
+ *     <li>сырой левый край [start, bucketsFrom) и сырой правый край [bucketsTo, end] - их считаем по сырым хитам.</li>
+ * </ul>
+ * Если в интервал не помещается ни одного целого бакета, весь он считается по сырым хитам.
+ */
+record RollupPlan(List<Segment> buckets,
+                  LocalDateTime start,
+                  LocalDateTime bucketsFrom,
+                  LocalDateTime bucketsTo,
+                  LocalDateTime end) {
+
+    record Segment(Granularity granularity, LocalDateTime from, LocalDateTime to) {
+    }
+
+    // finest - самый мелкий шаг, которым можно покрывать интервал
+    static RollupPlan of(LocalDateTime start, LocalDateTime end, Granularity finest) {
+        LocalDateTime from = finest.ceil(start);
+        LocalDateTime to = finest.floor(end);
+        if (!from.isBefore(to)) {
+            return new RollupPlan(List.of(), start, end, end, end);
+        }
+        List<Segment> buckets = new ArrayList<>();
+        split(from, to, finest, buckets);
+        return new RollupPlan(buckets, start, from, to, end);
+    }
+
+    boolean hasHead() {
+        return start.isBefore(bucketsFrom);
+    }
+
+    boolean hasBuckets() {
+        return !buckets.isEmpty();
+    }
+
+    // середину, выровненную по более крупному шагу, отдаем ему, мелким шагом покрываем только края
+    private static void split(LocalDateTime from, LocalDateTime to, Granularity granularity, List<Segment> buckets) {
+        Granularity coarser = granularity.coarser();
+        if (coarser != null) {
+            LocalDateTime coarseFrom = coarser.ceil(from);
+            LocalDateTime coarseTo = coarser.floor(to);
+            if (coarseFrom.isBefore(coarseTo)) {
+                if (from.isBefore(coarseFrom)) {
+                    buckets.add(new Segment(granularity, from, coarseFrom));
+                }
+                split(coarseFrom, coarseTo, coarser, buckets);
+                if (coarseTo.isBefore(to)) {
+                    buckets.add(new Segment(granularity, coarseTo, to));
+                }
+                return;
+            }
+        }
+        buckets.add(new Segment(granularity, from, to));
+    }
+
+}
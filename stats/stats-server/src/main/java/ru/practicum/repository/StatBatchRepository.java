@@ -0,0 +1,26 @@
+package ru.practicum.repository;
+
+import ru.practicum.model.Stat;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface StatBatchRepository {
+
+    // занесение app и uri хитов в словари собственной короткой транзакцией; вызывать до транзакции записи
+    void registerNames(Collection<Stat> stats);
+
+    // вставка хитов многострочными INSERT без выдачи id
+    void insertAll(Collection<Stat> stats);
+
+    // сутки, за которые в старой таблице stat еще есть строки
+    List<LocalDate> findLegacyDays();
+
+    // занесение в словари всех имен из stat; вызывать до переноса строк
+    void addLegacyNames();
+
+    // перенос до limit самых старых строк из stat в hit; возвращает число перенесенных строк
+    int moveLegacyRows(int limit);
+
+}
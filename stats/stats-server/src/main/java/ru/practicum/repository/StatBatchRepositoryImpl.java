@@ -0,0 +1,109 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.model.Stat;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@RequiredArgsConstructor
+public class StatBatchRepositoryImpl implements StatBatchRepository {
+
+    // 4 параметра на строку: 1000 строк укладываются в лимит 65535 параметров PostgreSQL с запасом
+    static final int BATCH_ROWS = 1000;
+
+    private static final String INSERT = "INSERT INTO hit (app_id, uri_id, ip, time_stamp) VALUES ";
+
+    private static final String ADD_LEGACY_NAMES = "INSERT INTO %s (name) SELECT DISTINCT %s FROM stat ON CONFLICT (name) DO NOTHING";
+    // строки удаляются и вставляются одним оператором: каждая строка в любой момент лежит ровно в одной таблице.
+    // в stat ip хранился без проверки: строки с неразборчивым значением не переносятся
+    // и остаются в stat, откуда stat_view читает их как есть
+    private static final String MOVE_LEGACY = """
+            WITH moved AS (
+                DELETE FROM stat
+                WHERE id IN (SELECT id FROM stat
+                             WHERE ip ~ '^((25[0-5]|2[0-4][0-9]|1[0-9][0-9]|[1-9]?[0-9])\\.){3}(25[0-5]|2[0-4][0-9]|1[0-9][0-9]|[1-9]?[0-9])$'
+                             ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED)
+                RETURNING id, app, uri, ip, time_stamp
+            )
+            INSERT INTO hit (id, app_id, uri_id, ip, time_stamp)
+            SELECT m.id, a.id, u.id, CAST(m.ip AS inet), m.time_stamp
+            FROM moved m
+            JOIN stat_app a ON a.name = m.app
+            JOIN stat_uri u ON u.name = m.uri
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final HitDictionary hitDictionary;
+
+    @Override
+    public void registerNames(Collection<Stat> stats) {
+        Set<String> appNames = new HashSet<>();
+        Set<String> uriNames = new HashSet<>();
+        for (Stat stat : stats) {
+            appNames.add(stat.getApp());
+            uriNames.add(stat.getUri());
+        }
+        hitDictionary.register(appNames, uriNames);
+    }
+
+    @Override
+    public void insertAll(Collection<Stat> stats) {
+        if (stats.isEmpty()) {
+            return;
+        }
+        Set<String> appNames = new HashSet<>();
+        Set<String> uriNames = new HashSet<>();
+        for (Stat stat : stats) {
+            appNames.add(stat.getApp());
+            uriNames.add(stat.getUri());
+        }
+        Map<String, Integer> appIds = hitDictionary.appIds(appNames);
+        Map<String, Integer> uriIds = hitDictionary.uriIds(uriNames);
+
+        List<Stat> rows = new ArrayList<>(stats);
+        for (int from = 0; from < rows.size(); from += BATCH_ROWS) {
+            List<Stat> chunk = rows.subList(from, Math.min(from + BATCH_ROWS, rows.size()));
+            Object[] params = new Object[chunk.size() * 4];
+            int i = 0;
+            for (Stat stat : chunk) {
+                params[i++] = appIds.get(stat.getApp());
+                params[i++] = uriIds.get(stat.getUri());
+                params[i++] = stat.getIp();
+                params[i++] = stat.getTimestamp();
+            }
+            jdbcTemplate.update(INSERT + valuesPlaceholders(chunk.size()), params);
+        }
+    }
+
+    @Override
+    public List<LocalDate> findLegacyDays() {
+        return jdbcTemplate.queryForList("SELECT DISTINCT CAST(time_stamp AS DATE) FROM stat ORDER BY 1", LocalDate.class);
+    }
+
+    @Override
+    public void addLegacyNames() {
+        jdbcTemplate.update(ADD_LEGACY_NAMES.formatted("stat_app", "app"));
+        jdbcTemplate.update(ADD_LEGACY_NAMES.formatted("stat_uri", "uri"));
+    }
+
+    @Override
+    public int moveLegacyRows(int limit) {
+        return jdbcTemplate.update(MOVE_LEGACY, limit);
+    }
+
+    private static String valuesPlaceholders(int rows) {
+        StringBuilder sql = new StringBuilder(rows * 30);
+        for (int row = 0; row < rows; row++) {
+            sql.append(row == 0 ? "(?, ?, CAST(? AS inet), ?)" : ", (?, ?, CAST(? AS inet), ?)");
+        }
+        return sql.toString();
+    }
+
+}
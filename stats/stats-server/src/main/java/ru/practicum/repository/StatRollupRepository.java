@@ -0,0 +1,24 @@
+package ru.practicum.repository;
+
+import ru.practicum.EventStatsResponseDto;
+import ru.practicum.model.Stat;
+import ru.practicum.model.StatsCursor;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface StatRollupRepository {
+
+    // учет сохраненных хитов в сводных таблицах; вызывать в той же транзакции, что и сохранение
+    void addToRollups(Collection<Stat> stats);
+
+    // статистика за [start, end]: целые бакеты из сводных таблиц, края - из сырых хитов
+    List<EventStatsResponseDto> findStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique);
+
+    // то же построчно из курсора БД: после cursor, не больше limit строк (null - без ограничений)
+    void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                     Integer limit, StatsCursor cursor, Consumer<EventStatsResponseDto> sink);
+
+}
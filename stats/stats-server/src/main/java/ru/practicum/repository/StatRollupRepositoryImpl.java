@@ -0,0 +1,182 @@
+package ru.practicum.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.practicum.EventStatsResponseDto;
+import ru.practicum.model.Stat;
+import ru.practicum.model.StatsCursor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * Сводные таблицы хитов:
+ * <ul>
+ *     <li>stat_rollup_minute / hour / day - число хитов на (app, uri) за бакет, суммируются точно;</li>
+ *     <li>stat_rollup_day_ip - множество различных ip на (app, uri) за сутки. Множества сливаются объединением,
+ *     поэтому уникальные ip за любой набор суток и сырых краев считаются точно одним count(distinct).</li>
+ * </ul>
+ */
+public class StatRollupRepositoryImpl implements StatRollupRepository {
+
+    // строки пачки пишутся многострочными VALUES: один оператор вместо оператора на строку
+    private static final int BATCH_ROWS = StatBatchRepositoryImpl.BATCH_ROWS;
+
+    private static final String UPSERT_HITS = "INSERT INTO %s (bucket_start, app, uri, hits) VALUES ";
+    private static final String UPSERT_HITS_ROW = "(?, ?, ?, CAST(? AS BIGINT))";
+    private static final String UPSERT_HITS_CONFLICT =
+            " ON CONFLICT (bucket_start, app, uri) DO UPDATE SET hits = %s.hits + EXCLUDED.hits";
+    private static final String INSERT_DAY_IP = "INSERT INTO stat_rollup_day_ip (bucket_start, app, uri, ip) VALUES ";
+    private static final String INSERT_DAY_IP_ROW = "(?, ?, ?, host(CAST(? AS inet)))";
+    private static final String INSERT_DAY_IP_CONFLICT = " ON CONFLICT DO NOTHING";
+
+    private static final Comparator<IpKey> IP_ORDER = Comparator.comparing(IpKey::key, RollupKey.ORDER)
+            .thenComparing(IpKey::ip);
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private static final RowMapper<EventStatsResponseDto> STATS_MAPPER = (rs, rowNum) -> EventStatsResponseDto.builder()
+            .app(rs.getString("app"))
+            .uri(rs.getString("uri"))
+            .hits(rs.getLong("hits"))
+            .build();
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    // отдельный экземпляр с fetchSize: PostgreSQL отдает строки порциями только в транзакции с заданным fetchSize
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+
+    public StatRollupRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getJdbcTemplate().getDataSource());
+        streaming.setFetchSize(STREAM_FETCH_SIZE);
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(streaming);
+    }
+
+    @Override
+    public void addToRollups(Collection<Stat> stats) {
+        if (stats.isEmpty()) {
+            return;
+        }
+        // строки бакетов общие для всех запросов: обновляем их всегда в одном порядке,
+        // чтобы параллельные транзакции не взаимоблокировались
+        for (Granularity granularity : Granularity.values()) {
+            Map<RollupKey, Long> hits = new TreeMap<>(RollupKey.ORDER);
+            for (Stat stat : stats) {
+                hits.merge(RollupKey.of(granularity, stat), 1L, Long::sum);
+            }
+            List<Object[]> rows = new ArrayList<>(hits.size());
+            hits.forEach((key, count) -> rows.add(new Object[]{key.bucketStart(), key.app(), key.uri(), count}));
+            insertRows(UPSERT_HITS.formatted(granularity.table()), UPSERT_HITS_ROW,
+                    UPSERT_HITS_CONFLICT.formatted(granularity.table()), rows);
+        }
+
+        TreeSet<IpKey> ips = new TreeSet<>(IP_ORDER);
+        for (Stat stat : stats) {
+            ips.add(new IpKey(RollupKey.of(Granularity.DAY, stat), stat.getIp()));
+        }
+        List<Object[]> rows = new ArrayList<>(ips.size());
+        for (IpKey ip : ips) {
+            rows.add(new Object[]{ip.key().bucketStart(), ip.key().app(), ip.key().uri(), ip.ip()});
+        }
+        insertRows(INSERT_DAY_IP, INSERT_DAY_IP_ROW, INSERT_DAY_IP_CONFLICT, rows);
+    }
+
+    // строки отсортированы и ключи в них различны: ON CONFLICT DO UPDATE не встречает одну строку дважды
+    private void insertRows(String insert, String row, String conflict, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += BATCH_ROWS) {
+            List<Object[]> chunk = rows.subList(from, Math.min(from + BATCH_ROWS, rows.size()));
+            StringBuilder sql = new StringBuilder(insert.length() + conflict.length() + chunk.size() * (row.length() + 2));
+            sql.append(insert);
+            Object[] params = new Object[chunk.size() * 4];
+            int i = 0;
+            for (Object[] values : chunk) {
+                sql.append(i == 0 ? "" : ", ").append(row);
+                for (Object value : values) {
+                    params[i++] = value;
+                }
+            }
+            sql.append(conflict);
+            jdbcTemplate.getJdbcTemplate().update(sql.toString(), params);
+        }
+    }
+
+    @Override
+    public List<EventStatsResponseDto> findStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        return jdbcTemplate.query(statsQuery(start, end, uris, unique, null, null, params), params, STATS_MAPPER);
+    }
+
+    @Override
+    public void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                            Integer limit, StatsCursor cursor, Consumer<EventStatsResponseDto> sink) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        streamingJdbcTemplate.query(statsQuery(start, end, uris, unique, limit, cursor, params), params,
+                (RowCallbackHandler) rs -> sink.accept(STATS_MAPPER.mapRow(rs, 0)));
+    }
+
+    private static String statsQuery(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                                     Integer limit, StatsCursor cursor, MapSqlParameterSource params) {
+        String uriFilter = "";
+        if (uris != null && !uris.isEmpty()) {
+            params.addValue("uris", uris);
+            uriFilter = " AND uri IN (:uris)";
+        }
+
+        // уникальные ip сводятся только по суткам, хиты - по самым крупным подходящим бакетам
+        RollupPlan plan = RollupPlan.of(start, end, unique ? Granularity.DAY : Granularity.MINUTE);
+        StringJoiner parts = new StringJoiner(" UNION ALL ");
+        int n = 0;
+        for (RollupPlan.Segment segment : plan.buckets()) {
+            params.addValue("from" + n, segment.from());
+            params.addValue("to" + n, segment.to());
+            String table = unique ? "stat_rollup_day_ip" : segment.granularity().table();
+            String column = unique ? "ip" : "hits";
+            parts.add("SELECT app, uri, " + column + " FROM " + table +
+                    " WHERE bucket_start >= :from" + n + " AND bucket_start < :to" + n + uriFilter);
+            n++;
+        }
+        String rawColumns = unique ? "app, uri, ip" : "app, uri, count(*) AS hits";
+        String rawGroup = unique ? "" : " GROUP BY app, uri";
+        params.addValue("start", plan.start());
+        params.addValue("bucketsFrom", plan.bucketsFrom());
+        params.addValue("bucketsTo", plan.bucketsTo());
+        params.addValue("end", plan.end());
+        if (plan.hasHead()) {
+            parts.add("SELECT " + rawColumns + " FROM stat_view" +
+                    " WHERE time_stamp >= :start AND time_stamp < :bucketsFrom" + uriFilter + rawGroup);
+        }
+        parts.add("SELECT " + rawColumns + " FROM stat_view" +
+                " WHERE time_stamp >= :bucketsTo AND time_stamp <= :end" + uriFilter + rawGroup);
+
+        String total = unique ? "count(DISTINCT ip)" : "sum(hits)";
+        StringBuilder sql = new StringBuilder("SELECT app, uri, hits FROM (SELECT app, uri, ")
+                .append(total).append(" AS hits FROM (").append(parts).append(") AS parts GROUP BY app, uri) AS totals");
+        if (cursor != null) {
+            params.addValue("cursorHits", cursor.hits());
+            params.addValue("cursorApp", cursor.app());
+            params.addValue("cursorUri", cursor.uri());
+            sql.append(" WHERE hits < :cursorHits OR (hits = :cursorHits AND (app, uri) > (:cursorApp, :cursorUri))");
+        }
+        sql.append(" ORDER BY hits DESC, app, uri");
+        if (limit != null) {
+            params.addValue("limit", limit);
+            sql.append(" LIMIT :limit");
+        }
+        return sql.toString();
+    }
+
+    private record IpKey(RollupKey key, String ip) {
+    }
+
+}
@@ -0,0 +1,34 @@
+package ru.practicum.repository;
+
+import ru.practicum.EventStatsResponseDto;
+import ru.practicum.model.Stat;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface StatSketchRepository {
+
+    // скетчи ведутся только при explore-with-me.stats.hll.enabled: иначе unique=approx считается точно
+    boolean sketchesEnabled();
+
+    // учет ip сохраненных хитов в часовых и суточных скетчах; вызывать в той же транзакции, что и сохранение
+    void addToSketches(Collection<Stat> stats);
+
+    // оценка числа различных ip за [start, end]: слияние скетчей целых часов и суток, края - из сырых хитов
+    List<EventStatsResponseDto> findApproxUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris);
+
+    // момент, с которого хиты учитываются в скетчах при записи; фиксируется при первом включении,
+    // now - текущее время, если момент еще не зафиксирован
+    LocalDateTime fixSketchCutover(LocalDateTime now);
+
+    // сброс момента включения: после выключения скетчи неполны, при следующем включении их нужно догрузить заново
+    void resetSketchCutover();
+
+    // целые часы со сводками хитов до часа включения скетчей, еще не догруженные - по возрастанию
+    List<LocalDateTime> findHoursToBackfillSketches();
+
+    // построение скетчей часа и слияние в скетчи его суток по сырым хитам; отмечает час догруженным
+    void backfillSketches(LocalDateTime hour);
+
+}
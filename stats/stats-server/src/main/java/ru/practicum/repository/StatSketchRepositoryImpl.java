@@ -0,0 +1,238 @@
+package ru.practicum.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.practicum.EventStatsResponseDto;
+import ru.practicum.model.IpAddress;
+import ru.practicum.model.Stat;
+import ru.practicum.sketch.HyperLogLog;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Скетчи HyperLogLog различных ip на (app, uri) за час (stat_sketch_hour) и за сутки (stat_sketch_day).
+ * <ul>
+ *     <li>скетч хранится целиком в bytea и сливается с новыми ip на стороне сервиса;</li>
+ *     <li>добавление ip идемпотентно, поэтому повторный учет хита (например, при догрузке) не искажает оценку;</li>
+ *     <li>точность задается допустимой относительной ошибкой; скетчи старой точности сворачиваются при слиянии.</li>
+ * </ul>
+ */
+public class StatSketchRepositoryImpl implements StatSketchRepository {
+
+    private static final Granularity[] SKETCHED = {Granularity.HOUR, Granularity.DAY};
+
+    private static final String INSERT = """
+            INSERT INTO %s (bucket_start, app, uri, sketch) VALUES (?, ?, ?, ?)
+            ON CONFLICT DO NOTHING
+            """;
+    private static final String SELECT = "SELECT sketch FROM %s WHERE bucket_start = ? AND app = ? AND uri = ?";
+    private static final String UPDATE = "UPDATE %s SET sketch = ? WHERE bucket_start = ? AND app = ? AND uri = ?";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int precision;
+
+    public StatSketchRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate,
+                                    @Value("${explore-with-me.stats.hll.enabled:false}") boolean enabled,
+                                    @Value("${explore-with-me.stats.hll.relative-error:0.02}") double relativeError) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.precision = HyperLogLog.precisionFor(relativeError);
+    }
+
+    @Override
+    public boolean sketchesEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void addToSketches(Collection<Stat> stats) {
+        for (Granularity granularity : SKETCHED) {
+            Map<RollupKey, HyperLogLog> sketches = new TreeMap<>(RollupKey.ORDER);
+            for (Stat stat : stats) {
+                sketches.computeIfAbsent(RollupKey.of(granularity, stat), key -> new HyperLogLog(precision))
+                        .add(stat.getIp());
+            }
+            mergeAll(granularity, sketches);
+        }
+    }
+
+    @Override
+    public List<EventStatsResponseDto> findApproxUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String uriFilter = "";
+        if (uris != null && !uris.isEmpty()) {
+            params.addValue("uris", uris);
+            uriFilter = " AND uri IN (:uris)";
+        }
+        Map<AppUri, HyperLogLog> merged = new HashMap<>();
+
+        RollupPlan plan = RollupPlan.of(start, end, Granularity.HOUR);
+        for (RollupPlan.Segment segment : plan.buckets()) {
+            params.addValue("from", segment.from());
+            params.addValue("to", segment.to());
+            jdbcTemplate.query("SELECT app, uri, sketch FROM " + sketchTable(segment.granularity()) +
+                            " WHERE bucket_start >= :from AND bucket_start < :to" + uriFilter, params,
+                    (RowCallbackHandler) rs -> mergeInto(merged,
+                            new AppUri(rs.getString("app"), rs.getString("uri")),
+                            HyperLogLog.fromBytes(rs.getBytes("sketch"))));
+        }
+
+        // сырые края добавляем в скетчи напрямую
+        params.addValue("start", plan.start());
+        params.addValue("bucketsFrom", plan.bucketsFrom());
+        params.addValue("bucketsTo", plan.bucketsTo());
+        params.addValue("end", plan.end());
+        RowCallbackHandler addRaw = rs -> merged
+                .computeIfAbsent(new AppUri(rs.getString("app"), rs.getString("uri")), key -> new HyperLogLog(precision))
+                .add(IpAddress.normalizeOrSelf(rs.getString("ip")));
+        if (plan.hasHead()) {
+            jdbcTemplate.query("SELECT DISTINCT app, uri, ip FROM stat_view" +
+                    " WHERE time_stamp >= :start AND time_stamp < :bucketsFrom" + uriFilter, params, addRaw);
+        }
+        jdbcTemplate.query("SELECT DISTINCT app, uri, ip FROM stat_view" +
+                " WHERE time_stamp >= :bucketsTo AND time_stamp <= :end" + uriFilter, params, addRaw);
+
+        List<EventStatsResponseDto> stats = new ArrayList<>(merged.size());
+        merged.forEach((key, sketch) -> stats.add(EventStatsResponseDto.builder()
+                .app(key.app())
+                .uri(key.uri())
+                .hits(sketch.estimate())
+                .errorBound(sketch.relativeError())
+                .build()));
+        stats.sort(Comparator.comparing(EventStatsResponseDto::getHits).reversed());
+        return stats;
+    }
+
+    @Override
+    public LocalDateTime fixSketchCutover(LocalDateTime now) {
+        jdbcTemplate.getJdbcTemplate().update(
+                "INSERT INTO stat_sketch_backfill (id, cutover) VALUES (1, ?) ON CONFLICT DO NOTHING", now);
+        return jdbcTemplate.getJdbcTemplate().queryForObject(
+                "SELECT cutover FROM stat_sketch_backfill WHERE id = 1", LocalDateTime.class);
+    }
+
+    @Override
+    public void resetSketchCutover() {
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM stat_sketch_backfill");
+    }
+
+    // час включения тоже догружается целиком: его хиты до включения есть только в сырых данных,
+    // а повторное добавление уже учтенных ip скетч не меняет
+    @Override
+    public List<LocalDateTime> findHoursToBackfillSketches() {
+        return jdbcTemplate.getJdbcTemplate().queryForList("""
+                SELECT DISTINCT r.bucket_start FROM stat_rollup_hour r
+                JOIN stat_sketch_backfill b ON b.id = 1
+                WHERE r.bucket_start <= date_trunc('hour', b.cutover)
+                  AND (b.done_through IS NULL OR r.bucket_start > b.done_through)
+                ORDER BY r.bucket_start
+                """, LocalDateTime.class);
+    }
+
+    @Override
+    public void backfillSketches(LocalDateTime hour) {
+        Map<RollupKey, HyperLogLog> hourSketches = new TreeMap<>(RollupKey.ORDER);
+        jdbcTemplate.getJdbcTemplate().query(
+                "SELECT DISTINCT app, uri, ip FROM stat_view WHERE time_stamp >= ? AND time_stamp < ?",
+                (RowCallbackHandler) rs -> hourSketches
+                        .computeIfAbsent(new RollupKey(hour, rs.getString("app"), rs.getString("uri")),
+                                key -> new HyperLogLog(precision))
+                        .add(IpAddress.normalizeOrSelf(rs.getString("ip"))),
+                hour, hour.plusHours(1));
+        mergeAll(Granularity.HOUR, hourSketches);
+
+        LocalDateTime day = Granularity.DAY.floor(hour);
+        Map<RollupKey, HyperLogLog> daySketches = new TreeMap<>(RollupKey.ORDER);
+        hourSketches.forEach((key, sketch) -> daySketches.put(new RollupKey(day, key.app(), key.uri()), sketch));
+        mergeAll(Granularity.DAY, daySketches);
+        jdbcTemplate.getJdbcTemplate().update("UPDATE stat_sketch_backfill SET done_through = ? WHERE id = 1", hour);
+    }
+
+    /**
+     * Слияние скетчей в таблицу, строки перебираются в порядке RollupKey.ORDER.
+     * <ul>
+     *     <li>новые строки вставляются сразу;</li>
+     *     <li>существующая строка блокируется и переписывается, только если слияние ее меняет:
+     *     на горячих (app, uri) большинство ip уже учтено, и хит обходится одним чтением.</li>
+     * </ul>
+     */
+    private void mergeAll(Granularity granularity, Map<RollupKey, HyperLogLog> sketches) {
+        if (sketches.isEmpty()) {
+            return;
+        }
+        String table = sketchTable(granularity);
+        List<Map.Entry<RollupKey, HyperLogLog>> rows = new ArrayList<>(sketches.entrySet());
+        List<Object[]> inserts = new ArrayList<>(rows.size());
+        for (Map.Entry<RollupKey, HyperLogLog> row : rows) {
+            RollupKey key = row.getKey();
+            inserts.add(new Object[]{key.bucketStart(), key.app(), key.uri(), row.getValue().toBytes()});
+        }
+        int[] inserted = jdbcTemplate.getJdbcTemplate().batchUpdate(INSERT.formatted(table), inserts);
+
+        for (int i = 0; i < rows.size(); i++) {
+            if (inserted[i] > 0) {
+                continue;
+            }
+            RollupKey key = rows.get(i).getKey();
+            HyperLogLog delta = rows.get(i).getValue();
+            if (merge(load(table, key, false), delta) == null) {
+                continue;
+            }
+            HyperLogLog updated = merge(load(table, key, true), delta);
+            if (updated != null) {
+                jdbcTemplate.getJdbcTemplate().update(UPDATE.formatted(table),
+                        updated.toBytes(), key.bucketStart(), key.app(), key.uri());
+            }
+        }
+    }
+
+    private HyperLogLog load(String table, RollupKey key, boolean forUpdate) {
+        byte[] bytes = jdbcTemplate.getJdbcTemplate().queryForObject(
+                SELECT.formatted(table) + (forUpdate ? " FOR UPDATE" : ""), byte[].class,
+                key.bucketStart(), key.app(), key.uri());
+        return HyperLogLog.fromBytes(bytes);
+    }
+
+    // результат слияния или null, если сохраненный скетч уже содержит delta
+    private HyperLogLog merge(HyperLogLog stored, HyperLogLog delta) {
+        if (stored.precision() > precision) {
+            // точность понижена настройкой: сворачиваем сохраненный скетч и переписываем его
+            HyperLogLog folded = stored.foldTo(precision);
+            folded.merge(delta);
+            return folded;
+        }
+        return stored.merge(delta) ? stored : null;
+    }
+
+    // точность суммы - наименьшая из точностей слагаемых
+    private static void mergeInto(Map<AppUri, HyperLogLog> merged, AppUri key, HyperLogLog sketch) {
+        HyperLogLog current = merged.get(key);
+        if (current == null) {
+            merged.put(key, sketch);
+            return;
+        }
+        if (sketch.precision() < current.precision()) {
+            current = current.foldTo(sketch.precision());
+            merged.put(key, current);
+        }
+        current.merge(sketch);
+    }
+
+    private static String sketchTable(Granularity granularity) {
+        return granularity == Granularity.DAY ? "stat_sketch_day" : "stat_sketch_hour";
+    }
+
+    private record AppUri(String app, String uri) {
+    }
+
+}
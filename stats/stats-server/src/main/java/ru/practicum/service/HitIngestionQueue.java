@@ -0,0 +1,206 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.exception.HitQueueFullException;
+import ru.practicum.model.Stat;
+import ru.practicum.repository.StatServiceRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Очередь приема хитов с записью пачками.
+ * <ul>
+ *     <li>пачка запроса принимается целиком или отклоняется, если место в очереди не освободилось за offerTimeout;</li>
+ *     <li>фоновый поток собирает до batchSize хитов, но ждет не дольше flushInterval, и пишет их одной транзакцией:
+ *     многострочные INSERT в stat и одно обновление сводок и, если они включены, скетчей на (app, uri, бакет);</li>
+ *     <li>при временной ошибке - нет соединения, взаимная блокировка, конфликт сериализации - пачка повторяется
+ *     с растущей паузой, очередь заполняется и новые пачки отклоняются - клиенты получают 503 вместо потери хитов;</li>
+ *     <li>при прочих ошибках пачка делится пополам до отдельных хитов, хиты, которые записать нельзя,
+ *     отбрасываются в лог и метрику stats.hits.dropped;</li>
+ *     <li>принятые, но не записанные хиты пропадут только при аварийном завершении процесса.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class HitIngestionQueue {
+
+    private static final long RETRY_BACKOFF_MIN_MS = 100;
+    private static final long RETRY_BACKOFF_MAX_MS = 5000;
+
+    private final StatServiceRepository statServiceRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+
+    private final LinkedBlockingQueue<Stat> queue = new LinkedBlockingQueue<>();
+    // свободные места очереди: занимаются при приеме, освобождаются после записи
+    private final Semaphore free;
+
+    private final Counter ingested;
+    private final Counter rejected;
+    private final Counter dropped;
+
+    private volatile boolean running = true;
+    private Thread writer;
+
+    public HitIngestionQueue(StatServiceRepository statServiceRepository,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${explore-with-me.stats.ingest.capacity:100000}") int capacity,
+                             @Value("${explore-with-me.stats.ingest.batch-size:5000}") int batchSize,
+                             @Value("${explore-with-me.stats.ingest.flush-interval-ms:200}") long flushIntervalMs,
+                             @Value("${explore-with-me.stats.ingest.offer-timeout-ms:1000}") long offerTimeoutMs) {
+        this.statServiceRepository = statServiceRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.free = new Semaphore(capacity);
+        this.ingested = meterRegistry.counter("stats.hits.ingested");
+        this.rejected = meterRegistry.counter("stats.hits.rejected");
+        this.dropped = meterRegistry.counter("stats.hits.dropped");
+        meterRegistry.gauge("stats.hits.queue.depth", queue, LinkedBlockingQueue::size);
+    }
+
+    @PostConstruct
+    public void start() {
+        writer = new Thread(this::run, "hit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // цикл записи сам выходит по таймауту опроса и дописывает остаток очереди
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    public void offerAll(List<Stat> stats) {
+        if (stats.size() > capacity) {
+            throw new IllegalArgumentException("Batch of " + stats.size() + " hits exceeds queue capacity " + capacity);
+        }
+        boolean acquired;
+        try {
+            acquired = free.tryAcquire(stats.size(), offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.increment(stats.size());
+            throw new HitQueueFullException("Hit queue is full, retry later");
+        }
+        queue.addAll(stats);
+    }
+
+    private void run() {
+        List<Stat> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                collectBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                free.release(batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    // ждем первый хит, затем добираем пачку до batchSize, но не дольше flushInterval
+    private void collectBatch(List<Stat> batch) throws InterruptedException {
+        Stat first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first == null) return;
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) return;
+            Stat next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) return;
+            batch.add(next);
+        }
+    }
+
+    private void write(List<Stat> batch) {
+        long backoff = RETRY_BACKOFF_MIN_MS;
+        while (true) {
+            try {
+                statServiceRepository.registerNames(batch);
+                transactionTemplate.executeWithoutResult(status -> {
+                    statServiceRepository.insertAll(batch);
+                    statServiceRepository.addToRollups(batch);
+                    if (statServiceRepository.sketchesEnabled()) {
+                        statServiceRepository.addToSketches(batch);
+                    }
+                });
+                ingested.increment(batch.size());
+                log.debug("Wrote batch of {} hits", batch.size());
+                return;
+            } catch (RuntimeException e) {
+                if (!isTransient(e)) {
+                    split(batch, e);
+                    return;
+                }
+                if (!running) {
+                    dropped.increment(batch.size());
+                    log.error("Dropped batch of {} hits on shutdown: {}", batch.size(), e.getMessage());
+                    return;
+                }
+                log.warn("Failed writing batch of {} hits, retry in {} ms: {}", batch.size(), backoff, e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    running = false;
+                }
+                backoff = Math.min(backoff * 2, RETRY_BACKOFF_MAX_MS);
+            }
+        }
+    }
+
+    // ошибка данных не зависит от повтора: пишем половины отдельно, пока не останется один хит
+    private void split(List<Stat> batch, RuntimeException e) {
+        if (batch.size() == 1) {
+            dropped.increment();
+            log.error("Dropped hit that cannot be written {}: {}", batch.getFirst(), e.getMessage());
+            return;
+        }
+        log.warn("Failed writing batch of {} hits, splitting: {}", batch.size(), e.getMessage());
+        int middle = batch.size() / 2;
+        write(batch.subList(0, middle));
+        write(batch.subList(middle, batch.size()));
+    }
+
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+}
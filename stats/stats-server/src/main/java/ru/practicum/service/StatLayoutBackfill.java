@@ -0,0 +1,80 @@
+package ru.practicum.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.repository.HitPartitions;
+import ru.practicum.repository.StatServiceRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Фоновый перенос хитов из старой таблицы stat в компактную hit.
+ * Переносит по batchSize самых старых строк за транзакцию, параллельно с приемом хитов;
+ * запросы статистики читают обе таблицы через stat_view и во время переноса видят каждую строку ровно один раз.
+ * Несколько экземпляров сервиса переносят разные строки (SKIP LOCKED), прерванный перенос продолжается при запуске.
+ */
+@Slf4j
+@Component
+public class StatLayoutBackfill {
+
+    private final StatServiceRepository statServiceRepository;
+    private final HitPartitions hitPartitions;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    private volatile boolean running = true;
+
+    public StatLayoutBackfill(StatServiceRepository statServiceRepository,
+                              HitPartitions hitPartitions,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${explore-with-me.stats.backfill.batch-size:5000}") int batchSize) {
+        this.statServiceRepository = statServiceRepository;
+        this.hitPartitions = hitPartitions;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread backfill = new Thread(this::run, "stat-layout-backfill");
+        backfill.setDaemon(true);
+        backfill.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+    }
+
+    private void run() {
+        try {
+            List<LocalDate> days = statServiceRepository.findLegacyDays();
+            if (days.isEmpty()) {
+                return;
+            }
+            log.info("STAT LAYOUT BACKFILL: moving hits of {} days", days.size());
+            // секции и словари готовятся заранее: перенос строк не должен ждать блокировки всей hit
+            hitPartitions.ensure(days);
+            transactionTemplate.executeWithoutResult(status -> statServiceRepository.addLegacyNames());
+            long moved = 0;
+            while (running) {
+                Integer count = transactionTemplate.execute(status -> statServiceRepository.moveLegacyRows(batchSize));
+                if (count == null || count == 0) {
+                    break;
+                }
+                moved += count;
+            }
+            log.info("STAT LAYOUT BACKFILL: {} {} hits", running ? "done," : "stopped after", moved);
+        } catch (Exception e) {
+            log.warn("STAT LAYOUT BACKFILL: stopped, will resume on next start: {}", e.getMessage(), e);
+        }
+    }
+
+}
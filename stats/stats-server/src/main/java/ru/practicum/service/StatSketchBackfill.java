@@ -0,0 +1,74 @@
+package ru.practicum.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.repository.StatServiceRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Фоновое построение скетчей уникальных ip для хитов, сохраненных до их включения.
+ * При первом запуске со скетчами фиксируется момент включения: хиты после него учитываются при записи,
+ * а все целые часы до него, включая час включения, догружаются из сырых хитов.
+ * Работает по часу за транзакцию, параллельно с приемом хитов; прерванная догрузка продолжается
+ * со следующего запуска с часа после последнего догруженного. Запуск без скетчей сбрасывает момент включения.
+ */
+@Slf4j
+@Component
+public class StatSketchBackfill {
+
+    private final StatServiceRepository statServiceRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile boolean running = true;
+
+    public StatSketchBackfill(StatServiceRepository statServiceRepository,
+                              PlatformTransactionManager transactionManager) {
+        this.statServiceRepository = statServiceRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread backfill = new Thread(this::run, "sketch-backfill");
+        backfill.setDaemon(true);
+        backfill.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+    }
+
+    private void run() {
+        try {
+            if (!statServiceRepository.sketchesEnabled()) {
+                transactionTemplate.executeWithoutResult(status -> statServiceRepository.resetSketchCutover());
+                return;
+            }
+            LocalDateTime cutover = transactionTemplate.execute(status ->
+                    statServiceRepository.fixSketchCutover(LocalDateTime.now()));
+            List<LocalDateTime> hours = statServiceRepository.findHoursToBackfillSketches();
+            if (hours.isEmpty()) {
+                return;
+            }
+            log.info("SKETCH BACKFILL: {} hours up to {} to process", hours.size(), cutover);
+            for (LocalDateTime hour : hours) {
+                if (!running) {
+                    return;
+                }
+                transactionTemplate.executeWithoutResult(status -> statServiceRepository.backfillSketches(hour));
+            }
+            log.info("SKETCH BACKFILL: done");
+        } catch (Exception e) {
+            log.warn("SKETCH BACKFILL: stopped, will resume on next start: {}", e.getMessage(), e);
+        }
+    }
+
+}
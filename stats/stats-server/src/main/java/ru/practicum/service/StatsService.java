@@ -2,15 +2,21 @@ package ru.practicum.service;
 
 import ru.practicum.EventHitDto;
 import ru.practicum.EventStatsResponseDto;
+import ru.practicum.model.StatsCursor;
+import ru.practicum.model.UniqueMode;
 
 import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface StatsService {
 
     void hit(EventHitDto eventHitDto);
 
+    // прием пачки хитов в очередь записи, запись - асинхронно
+    void hits(List<EventHitDto> eventHitDtos);
+
     Collection<EventStatsResponseDto> getStats(
             LocalDateTime start,
             LocalDateTime end,
@@ -18,4 +24,22 @@ public interface StatsService {
             boolean isUnique
     );
 
+    // оценка числа уникальных ip с относительной ошибкой в поле errorBound
+    Collection<EventStatsResponseDto> getApproxUniqueStats(
+            LocalDateTime start,
+            LocalDateTime end,
+            List<String> uris
+    );
+
+    // построчная выдача статистики в sink без сборки всего результата в памяти
+    void streamStats(
+            LocalDateTime start,
+            LocalDateTime end,
+            List<String> uris,
+            UniqueMode unique,
+            Integer limit,
+            StatsCursor cursor,
+            Consumer<EventStatsResponseDto> sink
+    );
+
 }
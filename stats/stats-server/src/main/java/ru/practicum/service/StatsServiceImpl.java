@@ -1,18 +1,27 @@
 package ru.practicum.service;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.EventHitDto;
 import ru.practicum.EventStatsResponseDto;
+import ru.practicum.model.IpAddress;
 import ru.practicum.model.Stat;
+import ru.practicum.model.StatsCursor;
+import ru.practicum.model.UniqueMode;
 import ru.practicum.model.mapper.StatMapper;
 import ru.practicum.repository.StatServiceRepository;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
@@ -20,38 +29,92 @@ import java.util.List;
 public class StatsServiceImpl implements StatsService {
 
     private final StatServiceRepository statServiceRepository;
+    private final HitIngestionQueue hitIngestionQueue;
+    private final Validator validator;
 
     @Transactional
     public void hit(EventHitDto eventHitDto) {
-        log.info("Hit - invoked");
-        Stat stat = statServiceRepository.save(StatMapper.INSTANCE.toStat(eventHitDto));
-        log.info("Hit - stat saved successfully - {}", stat);
+        Stat stat = toStat(eventHitDto);
+        statServiceRepository.insertAll(List.of(stat));
+        statServiceRepository.addToRollups(List.of(stat));
+        if (statServiceRepository.sketchesEnabled()) {
+            statServiceRepository.addToSketches(List.of(stat));
+        }
+        log.debug("Hit - stat saved successfully - {}", stat);
+    }
+
+    @Override
+    public void hits(List<EventHitDto> eventHitDtos) {
+        for (EventHitDto eventHitDto : eventHitDtos) {
+            Set<ConstraintViolation<EventHitDto>> violations = validator.validate(eventHitDto);
+            if (!violations.isEmpty()) {
+                throw new ConstraintViolationException(violations);
+            }
+        }
+        if (eventHitDtos.isEmpty()) {
+            return;
+        }
+        List<Stat> stats = new ArrayList<>(eventHitDtos.size());
+        for (EventHitDto eventHitDto : eventHitDtos) {
+            stats.add(toStat(eventHitDto));
+        }
+        hitIngestionQueue.offerAll(stats);
+        log.debug("Hits - {} stats queued", eventHitDtos.size());
     }
 
     @Override
     @Transactional(readOnly = true)
     public Collection<EventStatsResponseDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean isUnique) {
         log.info("getStats - invoked");
+        checkRange(start, end);
+        List<EventStatsResponseDto> stats = statServiceRepository.findStats(start, end, uris, isUnique);
+        log.info("getStats - success - unique = {}, uris = {}, found = {}", isUnique, uris, stats.size());
+        return stats;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Collection<EventStatsResponseDto> getApproxUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        log.info("getApproxUniqueStats - invoked");
+        checkRange(start, end);
+        // без скетчей оценка заменяется точным подсчетом
+        List<EventStatsResponseDto> stats = statServiceRepository.sketchesEnabled()
+                ? statServiceRepository.findApproxUniqueStats(start, end, uris)
+                : statServiceRepository.findStats(start, end, uris, true);
+        log.info("getApproxUniqueStats - success - uris = {}, found = {}", uris, stats.size());
+        return stats;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, UniqueMode unique,
+                            Integer limit, StatsCursor cursor, Consumer<EventStatsResponseDto> sink) {
+        log.info("streamStats - invoked");
+        checkRange(start, end);
+        if (unique != UniqueMode.APPROX || !statServiceRepository.sketchesEnabled()) {
+            statServiceRepository.streamStats(start, end, uris, unique != UniqueMode.FALSE, limit, cursor, sink);
+            return;
+        }
+        // оценки собираются слиянием скетчей в памяти сервиса, курсор и limit применяются к готовому списку
+        List<EventStatsResponseDto> stats = statServiceRepository.findApproxUniqueStats(start, end, uris);
+        stats.sort(StatsCursor.ORDER);
+        stats.stream()
+                .filter(stat -> cursor == null || cursor.isBefore(stat))
+                .limit(limit == null ? Long.MAX_VALUE : limit)
+                .forEach(sink);
+    }
+
+    // ip приводится к канонической записи: так он хранится в inet и так же хешируется в скетчах
+    private static Stat toStat(EventHitDto eventHitDto) {
+        Stat stat = StatMapper.INSTANCE.toStat(eventHitDto);
+        stat.setIp(IpAddress.normalize(stat.getIp()));
+        return stat;
+    }
+
+    private static void checkRange(LocalDateTime start, LocalDateTime end) {
         if (start.isAfter(end)) {
             log.error("Error occurred: The start date cannot be later than the end date");
             throw new IllegalArgumentException("The start date cannot be later than the end date");
         }
-        if (uris == null || uris.isEmpty()) {
-            if (isUnique) {
-                log.info("getStats - success - unique = true, uris empty");
-                return statServiceRepository.findAllByTimestampBetweenStartAndEndWithUniqueIp(start, end);
-            } else {
-                log.info("getStats - success - unique = false, uris empty");
-                return statServiceRepository.findAllByTimestampBetweenStartAndEndWhereIpNotUnique(start, end);
-            }
-        } else {
-            if (isUnique) {
-                log.info("getStats - success - unique = true, uris not empty");
-                return statServiceRepository.findAllByTimestampBetweenStartAndEndWithUrisUniqueIp(start, end, uris);
-            } else {
-                log.info("getStats - success - unique = false, uris not empty");
-                return statServiceRepository.findAllByTimestampBetweenStartAndEndWithUrisIpNotUnique(start, end, uris);
-            }
-        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,177 @@
+package ru.practicum.sketch;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Скетч HyperLogLog для приближенного подсчета различных значений.
+ * <ul>
+ *     <li>2^precision регистров по байту, относительная стандартная ошибка 1.04 / sqrt(2^precision);</li>
+ *     <li>скетчи сливаются поэлементным максимумом, повторное добавление значения ничего не меняет;</li>
+ *     <li>скетчи разной точности сливаются после свертки более точного до меньшей точности.</li>
+ * </ul>
+ * Сериализованный вид: байт точности, затем регистры.
+ */
+public final class HyperLogLog {
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 16;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("HyperLogLog precision must be in [" + MIN_PRECISION + ", "
+                    + MAX_PRECISION + "], got " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    private HyperLogLog(int precision, byte[] registers) {
+        this.precision = precision;
+        this.registers = registers;
+    }
+
+    // наименьшая точность, дающая относительную ошибку не больше заданной
+    public static int precisionFor(double relativeError) {
+        if (relativeError <= 0 || relativeError >= 1) {
+            throw new IllegalArgumentException("Relative error must be in (0, 1), got " + relativeError);
+        }
+        int precision = (int) Math.ceil(Math.log(Math.pow(1.04 / relativeError, 2)) / Math.log(2));
+        return Math.clamp(precision, MIN_PRECISION, MAX_PRECISION);
+    }
+
+    public static double relativeError(int precision) {
+        return 1.04 / Math.sqrt(1 << precision);
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        int precision = bytes[0];
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION || bytes.length != (1 << precision) + 1) {
+            throw new IllegalArgumentException("Malformed HyperLogLog sketch of " + bytes.length + " bytes");
+        }
+        return new HyperLogLog(precision, Arrays.copyOfRange(bytes, 1, bytes.length));
+    }
+
+    public byte[] toBytes() {
+        byte[] bytes = new byte[registers.length + 1];
+        bytes[0] = (byte) precision;
+        System.arraycopy(registers, 0, bytes, 1, registers.length);
+        return bytes;
+    }
+
+    public int precision() {
+        return precision;
+    }
+
+    // true, если скетч изменился
+    public boolean add(String value) {
+        return addHash(hash(value));
+    }
+
+    boolean addHash(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        int rank = Math.min(Long.numberOfLeadingZeros(hash << precision), 64 - precision) + 1;
+        if (registers[index] >= rank) {
+            return false;
+        }
+        registers[index] = (byte) rank;
+        return true;
+    }
+
+    /**
+     * Слияние другого скетча в этот. Точность другого не должна быть меньше точности этого:
+     * скетч с меньшей точностью сначала нужно получить через {@link #foldTo(int)}.
+     *
+     * @return true, если скетч изменился
+     */
+    public boolean merge(HyperLogLog other) {
+        HyperLogLog source = other.precision == precision ? other : other.foldTo(precision);
+        boolean changed = false;
+        for (int i = 0; i < registers.length; i++) {
+            if (source.registers[i] > registers[i]) {
+                registers[i] = source.registers[i];
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Свертка до меньшей точности: младшие биты индекса регистра становятся старшими битами остатка хеша,
+     * результат совпадает со скетчем той же точности, построенным по тем же значениям.
+     */
+    public HyperLogLog foldTo(int target) {
+        if (target == precision) {
+            return this;
+        }
+        if (target > precision || target < MIN_PRECISION) {
+            throw new IllegalArgumentException("Cannot fold HyperLogLog of precision " + precision + " to " + target);
+        }
+        int shift = precision - target;
+        HyperLogLog folded = new HyperLogLog(target);
+        for (int i = 0; i < registers.length; i++) {
+            if (registers[i] == 0) {
+                continue;
+            }
+            int low = i & ((1 << shift) - 1);
+            int rank = low != 0
+                    ? Integer.numberOfLeadingZeros(low) - (32 - shift) + 1
+                    : registers[i] + shift;
+            int index = i >>> shift;
+            if (folded.registers[index] < rank) {
+                folded.registers[index] = (byte) rank;
+            }
+        }
+        return folded;
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += Math.scalb(1.0, -register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // линейный подсчет точнее на малых мощностях
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public double relativeError() {
+        return relativeError(precision);
+    }
+
+    private static double alpha(int m) {
+        return switch (m) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / m);
+        };
+    }
+
+    // FNV-1a с финальным перемешиванием MurmurHash3: короткие строки ip дают равномерные 64 бита
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+}
@@ -5,4 +5,134 @@ CREATE TABLE IF NOT EXISTS stat (
     ip	VARCHAR(15)                             NOT NULL,
     time_stamp TIMESTAMP                        NOT NULL,
     CONSTRAINT pk_stat PRIMARY KEY (id)
-    );
\ No newline at end of file
+    );
+
+-- компактное хранение хитов: словари app и uri, ip как inet, секции по суткам.
+-- stat остается только для строк, еще не перенесенных фоновой догрузкой
+CREATE TABLE IF NOT EXISTS stat_app (
+    id INTEGER GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    name VARCHAR(50)                            NOT NULL,
+    CONSTRAINT pk_stat_app PRIMARY KEY (id),
+    CONSTRAINT uq_stat_app_name UNIQUE (name)
+    );
+
+CREATE TABLE IF NOT EXISTS stat_uri (
+    id INTEGER GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    name VARCHAR(50)                            NOT NULL,
+    CONSTRAINT pk_stat_uri PRIMARY KEY (id),
+    CONSTRAINT uq_stat_uri_name UNIQUE (name)
+    );
+
+-- id продолжают нумерацию stat, чтобы перенесенные строки сохранили свои id
+CREATE SEQUENCE IF NOT EXISTS hit_id_seq;
+
+CREATE TABLE IF NOT EXISTS hit (
+    id BIGINT DEFAULT nextval('hit_id_seq')     NOT NULL,
+    app_id INTEGER                              NOT NULL,
+    uri_id INTEGER                              NOT NULL,
+    ip INET                                     NOT NULL,
+    time_stamp TIMESTAMP                        NOT NULL
+    ) PARTITION BY RANGE (time_stamp);
+
+-- секции суток создаются заранее по расписанию; сюда попадают хиты вне созданных секций до следующего прохода
+CREATE TABLE IF NOT EXISTS hit_default PARTITION OF hit DEFAULT;
+
+CREATE INDEX IF NOT EXISTS ix_hit_time_stamp ON hit USING BRIN (time_stamp);
+
+SELECT setval('hit_id_seq', (SELECT COALESCE(max(id), 0) + 1 FROM stat), false)
+WHERE NOT EXISTS (SELECT 1 FROM hit);
+
+-- хиты в исходном виде из обеих таблиц, пока перенос не завершен
+CREATE OR REPLACE VIEW stat_view AS
+SELECT h.id, a.name AS app, u.name AS uri, host(h.ip)::VARCHAR(45) AS ip, h.time_stamp
+FROM hit h
+JOIN stat_app a ON a.id = h.app_id
+JOIN stat_uri u ON u.id = h.uri_id
+UNION ALL
+SELECT id, app, uri, ip::VARCHAR(45), time_stamp FROM stat;
+
+
+-- сводные таблицы хитов по (app, uri), обновляются вместе с записью хитов
+CREATE TABLE IF NOT EXISTS stat_rollup_minute (
+    bucket_start TIMESTAMP                      NOT NULL,
+    app	VARCHAR(50)                             NOT NULL,
+    uri	VARCHAR(50)                             NOT NULL,
+    hits BIGINT                                 NOT NULL,
+    CONSTRAINT pk_stat_rollup_minute PRIMARY KEY (bucket_start, app, uri)
+    );
+
+CREATE TABLE IF NOT EXISTS stat_rollup_hour (
+    bucket_start TIMESTAMP                      NOT NULL,
+    app	VARCHAR(50)                             NOT NULL,
+    uri	VARCHAR(50)                             NOT NULL,
+    hits BIGINT                                 NOT NULL,
+    CONSTRAINT pk_stat_rollup_hour PRIMARY KEY (bucket_start, app, uri)
+    );
+
+CREATE TABLE IF NOT EXISTS stat_rollup_day (
+    bucket_start TIMESTAMP                      NOT NULL,
+    app	VARCHAR(50)                             NOT NULL,
+    uri	VARCHAR(50)                             NOT NULL,
+    hits BIGINT                                 NOT NULL,
+    CONSTRAINT pk_stat_rollup_day PRIMARY KEY (bucket_start, app, uri)
+    );
+
+-- различные ip за сутки: объединение таких множеств дает точное число уникальных ip.
+-- Сознательная цена точного unique=true: таблица хранит каждую различную четверку (сутки, app, uri, ip)
+-- и растет почти как сами хиты; приближенный подсчет без такого роста - unique=approx по скетчам ниже
+CREATE TABLE IF NOT EXISTS stat_rollup_day_ip (
+    bucket_start TIMESTAMP                      NOT NULL,
+    app	VARCHAR(50)                             NOT NULL,
+    uri	VARCHAR(50)                             NOT NULL,
+    ip	VARCHAR(45)                             NOT NULL,
+    CONSTRAINT pk_stat_rollup_day_ip PRIMARY KEY (bucket_start, app, uri, ip)
+    );
+
+-- однократное заполнение сводных таблиц по уже накопленным хитам
+INSERT INTO stat_rollup_minute (bucket_start, app, uri, hits)
+SELECT date_trunc('minute', time_stamp), app, uri, count(*) FROM stat_view
+WHERE NOT EXISTS (SELECT 1 FROM stat_rollup_minute)
+GROUP BY date_trunc('minute', time_stamp), app, uri
+ON CONFLICT DO NOTHING;
+
+INSERT INTO stat_rollup_hour (bucket_start, app, uri, hits)
+SELECT date_trunc('hour', time_stamp), app, uri, count(*) FROM stat_view
+WHERE NOT EXISTS (SELECT 1 FROM stat_rollup_hour)
+GROUP BY date_trunc('hour', time_stamp), app, uri
+ON CONFLICT DO NOTHING;
+
+INSERT INTO stat_rollup_day (bucket_start, app, uri, hits)
+SELECT date_trunc('day', time_stamp), app, uri, count(*) FROM stat_view
+WHERE NOT EXISTS (SELECT 1 FROM stat_rollup_day)
+GROUP BY date_trunc('day', time_stamp), app, uri
+ON CONFLICT DO NOTHING;
+
+INSERT INTO stat_rollup_day_ip (bucket_start, app, uri, ip)
+SELECT DISTINCT date_trunc('day', time_stamp), app, uri, ip FROM stat_view
+WHERE NOT EXISTS (SELECT 1 FROM stat_rollup_day_ip)
+ON CONFLICT DO NOTHING;
+
+-- скетчи HyperLogLog различных ip по (app, uri) за час и за сутки, для unique=approx
+CREATE TABLE IF NOT EXISTS stat_sketch_hour (
+    bucket_start TIMESTAMP                      NOT NULL,
+    app	VARCHAR(50)                             NOT NULL,
+    uri	VARCHAR(50)                             NOT NULL,
+    sketch BYTEA                                NOT NULL,
+    CONSTRAINT pk_stat_sketch_hour PRIMARY KEY (bucket_start, app, uri)
+    );
+
+CREATE TABLE IF NOT EXISTS stat_sketch_day (
+    bucket_start TIMESTAMP                      NOT NULL,
+    app	VARCHAR(50)                             NOT NULL,
+    uri	VARCHAR(50)                             NOT NULL,
+    sketch BYTEA                                NOT NULL,
+    CONSTRAINT pk_stat_sketch_day PRIMARY KEY (bucket_start, app, uri)
+    );
+
+-- момент включения скетчей и последний догруженный до него час
+CREATE TABLE IF NOT EXISTS stat_sketch_backfill (
+    id INTEGER                                  NOT NULL,
+    cutover TIMESTAMP                           NOT NULL,
+    done_through TIMESTAMP,
+    CONSTRAINT pk_stat_sketch_backfill PRIMARY KEY (id)
+    );
@@ -0,0 +1,140 @@
+package ru.practicum.mockmvc;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.format.support.DefaultFormattingConversionService;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.practicum.EventStatsResponseDto;
+import ru.practicum.GlobalExceptionHandler;
+import ru.practicum.controller.StatsController;
+import ru.practicum.service.StatsService;
+import ru.practicum.validation.StringToLocalDateTimeConverter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// без контекста Spring, в отличие от StatsControllerTest: выполняется без Discovery и Config servers
+class StatsControllerStandaloneTest {
+
+    private static final String START = "2024-01-01 00:00:00";
+    private static final String END = "2024-01-02 00:00:00";
+    private static final String APP = "ewm-main-service";
+
+    private final StatsService statsService = mock(StatsService.class);
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        StringToLocalDateTimeConverter converter = new StringToLocalDateTimeConverter();
+        converter.setFormatter("yyyy-MM-dd HH:mm:ss");
+        DefaultFormattingConversionService conversionService = new DefaultFormattingConversionService();
+        conversionService.addConverter(converter);
+        mockMvc = MockMvcBuilders.standaloneSetup(new StatsController(statsService, Jackson2ObjectMapperBuilder.json().build()))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .setConversionService(conversionService)
+                .build();
+    }
+
+    // ==================== POST /hits Tests ====================
+
+    @Test
+    void hits_JsonArray_ShouldReturnAccepted() throws Exception {
+        // When & Then
+        mockMvc.perform(post("/hits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"app":"ewm-main-service","uri":"/events/1","ip":"192.168.1.1","timestamp":"2024-01-01 00:00:00"},
+                                 {"app":"ewm-main-service","uri":"/events/2","ip":"192.168.1.1","timestamp":"2024-01-01 00:00:01"}]
+                                """))
+                .andExpect(status().isAccepted());
+
+        verify(statsService).hits(argThat(list -> list.size() == 2
+                && "/events/2".equals(list.get(1).getUri())
+                && LocalDateTime.of(2024, 1, 1, 0, 0, 1).equals(list.get(1).getTimestamp())));
+    }
+
+    @Test
+    void hits_Ndjson_ShouldReturnAccepted() throws Exception {
+        // When & Then
+        mockMvc.perform(post("/hits")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("""
+                                {"app":"ewm-main-service","uri":"/events/1","ip":"192.168.1.1","timestamp":"2024-01-01 00:00:00"}
+                                {"app":"ewm-main-service","uri":"/events/2","ip":"192.168.1.1","timestamp":"2024-01-01 00:00:01"}
+                                """))
+                .andExpect(status().isAccepted());
+
+        verify(statsService).hits(argThat(list -> list.size() == 2
+                && "/events/1".equals(list.get(0).getUri())
+                && "/events/2".equals(list.get(1).getUri())));
+    }
+
+    @Test
+    void hits_MalformedNdjson_ShouldReturnBadRequest() throws Exception {
+        // When & Then
+        mockMvc.perform(post("/hits")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"app\": \"ewm-main-service\"\n{broken"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Illegal Argument"));
+
+        verify(statsService, never()).hits(any());
+    }
+
+    // ==================== GET /stats Tests ====================
+
+    @Test
+    void stats_UniqueParameterApprox_ShouldReturnStatsWithErrorBound() throws Exception {
+        // Given
+        when(statsService.getApproxUniqueStats(any(LocalDateTime.class), any(LocalDateTime.class), any()))
+                .thenReturn(List.of(EventStatsResponseDto.builder()
+                        .app(APP)
+                        .uri("/events/1")
+                        .hits(1000L)
+                        .errorBound(0.01625)
+                        .build()));
+
+        // When & Then
+        mockMvc.perform(get("/stats")
+                        .param("start", START)
+                        .param("end", END)
+                        .param("unique", "approx"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].hits").value(1000))
+                .andExpect(jsonPath("$[0].errorBound").value(0.01625));
+
+        verify(statsService).getApproxUniqueStats(eq(LocalDateTime.of(2024, 1, 1, 0, 0)),
+                eq(LocalDateTime.of(2024, 1, 2, 0, 0)), isNull());
+        verify(statsService, never()).getStats(any(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    void stats_UniqueParameterTrue_ShouldOmitErrorBound() throws Exception {
+        // Given
+        when(statsService.getStats(any(LocalDateTime.class), any(LocalDateTime.class), any(), eq(true)))
+                .thenReturn(List.of(new EventStatsResponseDto(APP, "/events/1", 1000L)));
+
+        // When & Then: точный подсчет возвращается без поля погрешности
+        mockMvc.perform(get("/stats")
+                        .param("start", START)
+                        .param("end", END)
+                        .param("unique", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].hits").value(1000))
+                .andExpect(jsonPath("$[0].errorBound").doesNotExist());
+
+        verify(statsService, never()).getApproxUniqueStats(any(), any(), any());
+    }
+
+}
@@ -0,0 +1,146 @@
+package ru.practicum.mockmvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.format.support.DefaultFormattingConversionService;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.practicum.EventStatsResponseDto;
+import ru.practicum.GlobalExceptionHandler;
+import ru.practicum.controller.StatsController;
+import ru.practicum.model.StatsCursor;
+import ru.practicum.model.UniqueMode;
+import ru.practicum.service.StatsService;
+import ru.practicum.validation.StringToLocalDateTimeConverter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// без контекста Spring: потоковая выдача проверяется без Discovery и Config servers
+class StatsControllerStreamTest {
+
+    private static final String START = "2024-01-01 00:00:00";
+    private static final String END = "2024-01-02 00:00:00";
+
+    private final StatsService statsService = mock(StatsService.class);
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        StringToLocalDateTimeConverter converter = new StringToLocalDateTimeConverter();
+        converter.setFormatter("yyyy-MM-dd HH:mm:ss");
+        DefaultFormattingConversionService conversionService = new DefaultFormattingConversionService();
+        conversionService.addConverter(converter);
+        mockMvc = MockMvcBuilders.standaloneSetup(new StatsController(statsService, new ObjectMapper()))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .setConversionService(conversionService)
+                .build();
+    }
+
+    @Test
+    void streamStats_Json_ShouldWriteRowsFromSinkAsArray() throws Exception {
+        // Given
+        emits(new EventStatsResponseDto("ewm-main-service", "/events/1", 5L),
+                new EventStatsResponseDto("ewm-main-service", "/events/2", 3L));
+
+        // When
+        MvcResult result = mockMvc.perform(get("/stats")
+                        .param("start", START)
+                        .param("end", END)
+                        .param("stream", "json"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().json("""
+                        [{"app":"ewm-main-service","uri":"/events/1","hits":5},
+                         {"app":"ewm-main-service","uri":"/events/2","hits":3}]
+                        """, true));
+    }
+
+    @Test
+    void streamStats_Ndjson_ShouldWriteOneRowPerLine() throws Exception {
+        // Given
+        emits(new EventStatsResponseDto("ewm-main-service", "/events/1", 5L),
+                new EventStatsResponseDto("ewm-main-service", "/events/2", 3L));
+
+        // When
+        MvcResult result = mockMvc.perform(get("/stats")
+                        .param("start", START)
+                        .param("end", END)
+                        .param("stream", "ndjson"))
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("""
+                        {"app":"ewm-main-service","uri":"/events/1","hits":5}
+                        {"app":"ewm-main-service","uri":"/events/2","hits":3}
+                        """));
+    }
+
+    @Test
+    void streamStats_ShouldPassLimitAndCursorToService() throws Exception {
+        // Given
+        emits();
+
+        // When
+        MvcResult result = mockMvc.perform(get("/stats")
+                        .param("start", START)
+                        .param("end", END)
+                        .param("uris", "/events/1")
+                        .param("unique", "true")
+                        .param("limit", "2")
+                        .param("cursor", "3,ewm-main-service,/events?ids=1,2")
+                        .param("stream", "json"))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(content().json("[]", true));
+
+        // Then
+        verify(statsService).streamStats(eq(LocalDateTime.of(2024, 1, 1, 0, 0)), eq(LocalDateTime.of(2024, 1, 2, 0, 0)),
+                eq(List.of("/events/1")), eq(UniqueMode.TRUE), eq(2),
+                eq(new StatsCursor(3, "ewm-main-service", "/events?ids=1,2")), any());
+    }
+
+    @Test
+    void streamStats_ShouldReturnBadRequestBeforeStreamingForInvalidParameters() throws Exception {
+        mockMvc.perform(get("/stats").param("start", END).param("end", START).param("stream", "json"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/stats").param("start", START).param("end", END).param("stream", "csv"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/stats").param("start", START).param("end", END).param("stream", "json")
+                        .param("cursor", "many,app,/events"))
+                .andExpect(status().isBadRequest());
+
+        verify(statsService, never()).streamStats(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void emits(EventStatsResponseDto... rows) {
+        doAnswer(invocation -> {
+            Consumer<EventStatsResponseDto> sink = invocation.getArgument(6);
+            for (EventStatsResponseDto row : rows) {
+                sink.accept(row);
+            }
+            return null;
+        }).when(statsService).streamStats(any(), any(), any(), any(), any(), any(), any(Consumer.class));
+    }
+
+}
@@ -0,0 +1,40 @@
+package ru.practicum.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IpAddressTest {
+
+    @Test
+    void normalize_ShouldKeepCanonicalIpv4() {
+        assertEquals("192.168.0.1", IpAddress.normalize("192.168.0.1"));
+    }
+
+    @Test
+    void normalize_ShouldGiveSameValueForAllFormsOfIpv6Address() {
+        // When
+        String compressed = IpAddress.normalize("2001:db8::1");
+        String full = IpAddress.normalize("2001:0DB8:0000:0000:0000:0000:0000:0001");
+
+        // Then
+        assertEquals(compressed, full);
+    }
+
+    @Test
+    void normalize_ShouldRejectHostNamesAndMalformedAddresses() {
+        assertThrows(IllegalArgumentException.class, () -> IpAddress.normalize("localhost"));
+        assertThrows(IllegalArgumentException.class, () -> IpAddress.normalize("192.168.0.256"));
+        assertThrows(IllegalArgumentException.class, () -> IpAddress.normalize("192.168.0"));
+        assertThrows(IllegalArgumentException.class, () -> IpAddress.normalize("fe80::1%eth0"));
+        assertThrows(IllegalArgumentException.class, () -> IpAddress.normalize("2001:db8::g"));
+        assertThrows(IllegalArgumentException.class, () -> IpAddress.normalize(null));
+    }
+
+    @Test
+    void normalizeOrSelf_ShouldKeepMalformedValueAsIs() {
+        assertEquals("unknown", IpAddress.normalizeOrSelf("unknown"));
+        assertEquals("10.0.0.1", IpAddress.normalizeOrSelf("10.0.0.1"));
+    }
+
+}
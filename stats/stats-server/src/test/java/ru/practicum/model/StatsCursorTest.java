@@ -0,0 +1,38 @@
+package ru.practicum.model;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.EventStatsResponseDto;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatsCursorTest {
+
+    @Test
+    void parse_ShouldKeepCommasInUri() {
+        // When
+        StatsCursor cursor = StatsCursor.parse("12,ewm-main-service,/events?ids=1,2");
+
+        // Then
+        assertEquals(new StatsCursor(12, "ewm-main-service", "/events?ids=1,2"), cursor);
+    }
+
+    @Test
+    void parse_ShouldRejectMalformedCursor() {
+        assertThrows(IllegalArgumentException.class, () -> StatsCursor.parse("12,ewm-main-service"));
+        assertThrows(IllegalArgumentException.class, () -> StatsCursor.parse("many,ewm-main-service,/events"));
+    }
+
+    @Test
+    void isBefore_ShouldFollowHitsDescThenAppThenUri() {
+        // Given
+        StatsCursor cursor = new StatsCursor(10, "app", "/events/2");
+
+        // Then
+        assertTrue(cursor.isBefore(new EventStatsResponseDto("app", "/events/1", 9L)));
+        assertTrue(cursor.isBefore(new EventStatsResponseDto("app", "/events/3", 10L)));
+        assertFalse(cursor.isBefore(new EventStatsResponseDto("app", "/events/2", 10L)));
+        assertFalse(cursor.isBefore(new EventStatsResponseDto("app", "/events/1", 10L)));
+        assertFalse(cursor.isBefore(new EventStatsResponseDto("app", "/events/9", 11L)));
+    }
+
+}
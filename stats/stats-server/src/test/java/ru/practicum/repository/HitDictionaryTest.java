@@ -0,0 +1,111 @@
+package ru.practicum.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class HitDictionaryTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final HitDictionary dictionary = new HitDictionary(jdbcTemplate, transactionManager);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // id имени - его длина
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (String name : invocation.<String[]>getArgument(2)) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getString("name")).thenReturn(name);
+                when(rs.getInt("id")).thenReturn(name.length());
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void appIds_ShouldQueryOnlyNamesMissingFromCache() {
+        // Given
+        dictionary.appIds(Set.of("main"));
+
+        // When
+        Map<String, Integer> ids = dictionary.appIds(Set.of("main", "stats"));
+
+        // Then
+        assertEquals(Map.of("main", 4, "stats", 5), ids);
+        verify(jdbcTemplate, times(2)).query(anyString(), any(RowCallbackHandler.class), any());
+        verify(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), eqArray("stats"));
+    }
+
+    @Test
+    void appIds_ShouldCacheIdsOnlyAfterCommit() {
+        // Given: имя вставлено в транзакции, которая еще не зафиксирована
+        TransactionSynchronizationManager.initSynchronization();
+        dictionary.appIds(Set.of("main"));
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        // When
+        dictionary.appIds(Set.of("main"));
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        dictionary.appIds(Set.of("main"));
+
+        // Then: до фиксации имя читается из базы повторно, после - из кэша
+        verify(jdbcTemplate, times(2)).query(anyString(), any(RowCallbackHandler.class), any());
+    }
+
+    @Test
+    void register_ShouldNotOpenTransactionWhenAllNamesAreCached() {
+        // Given
+        dictionary.register(Set.of("main"), Set.of("/events"));
+        clearInvocations(transactionManager, jdbcTemplate);
+
+        // When
+        dictionary.register(Set.of("main"), Set.of("/events"));
+
+        // Then
+        verifyNoInteractions(transactionManager, jdbcTemplate);
+        assertEquals(Map.of("/events", 7), dictionary.uriIds(Set.of("/events")));
+    }
+
+    @Test
+    void register_ShouldInsertNewNamesInOwnTransaction() {
+        // When
+        dictionary.register(Set.of("main"), Set.of("/events"));
+
+        // Then
+        verify(transactionManager).getTransaction(any());
+        verify(transactionManager).commit(any());
+        verify(jdbcTemplate).update(startsWith("INSERT INTO stat_app"), eqArray("main"));
+        verify(jdbcTemplate).update(startsWith("INSERT INTO stat_uri"), eqArray("/events"));
+    }
+
+    private static Object eqArray(String... names) {
+        return argThat((Object value) -> value instanceof String[] array && List.of(array).equals(List.of(names)));
+    }
+
+}
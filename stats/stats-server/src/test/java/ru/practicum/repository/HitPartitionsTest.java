@@ -0,0 +1,90 @@
+package ru.practicum.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class HitPartitionsTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final HitPartitions partitions = new HitPartitions(jdbcTemplate, transactionManager, 1);
+
+    @Test
+    void createAhead_ShouldAttachPartitionsForTodayAndDaysAhead() {
+        // Given
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), any())).thenReturn(false);
+        LocalDate today = LocalDate.now();
+
+        // When
+        partitions.createAhead();
+
+        // Then
+        verify(jdbcTemplate).execute(attach(today));
+        verify(jdbcTemplate).execute(attach(today.plusDays(1)));
+        verify(jdbcTemplate, never()).execute(contains("PARTITION OF"));
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void createAhead_ShouldMoveHitsOfDaysStuckInDefaultPartition() {
+        // Given
+        LocalDate day = LocalDate.of(2024, 1, 1);
+        when(jdbcTemplate.queryForList(contains("hit_default"), eq(LocalDate.class))).thenReturn(List.of(day));
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), any())).thenReturn(false);
+
+        // When
+        partitions.createAhead();
+
+        // Then
+        verify(jdbcTemplate).update(contains("DELETE FROM hit_default"), eq(day.atStartOfDay()), eq(day.plusDays(1).atStartOfDay()));
+        verify(jdbcTemplate).execute(attach(day));
+    }
+
+    @Test
+    void ensure_ShouldSkipExistingAndAlreadyCheckedPartitions() {
+        // Given
+        LocalDate day = LocalDate.of(2024, 1, 1);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), any())).thenReturn(true);
+
+        // When
+        partitions.ensure(List.of(day));
+        partitions.ensure(List.of(day));
+
+        // Then
+        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(Boolean.class), eq("hit_20240101"));
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void ensure_ShouldRetryPartitionAfterFailure() {
+        // Given: первая попытка не удалась, например секцию одновременно создал другой экземпляр
+        LocalDate day = LocalDate.of(2024, 1, 1);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), any())).thenReturn(false);
+        doThrow(new DataIntegrityViolationException("relation \"hit_20240101\" already exists"))
+                .doNothing()
+                .when(jdbcTemplate).execute(startsWith("CREATE TABLE"));
+
+        // When
+        partitions.ensure(List.of(day));
+        partitions.ensure(List.of(day));
+
+        // Then
+        verify(transactionManager).rollback(any());
+        verify(jdbcTemplate).execute(attach(day));
+    }
+
+    private static String attach(LocalDate day) {
+        return eq("ALTER TABLE hit ATTACH PARTITION hit_" + day.toString().replace("-", "") +
+                " FOR VALUES FROM ('" + day + "') TO ('" + day.plusDays(1) + "')");
+    }
+
+}
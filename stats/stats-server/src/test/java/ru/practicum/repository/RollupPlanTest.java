@@ -0,0 +1,69 @@
+package ru.practicum.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RollupPlanTest {
+
+    @Test
+    void of_ShouldCoverMiddleWithCoarsestBucketsAndEdgesWithFinerOnes() {
+        // Given
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 22, 58, 30);
+        LocalDateTime end = LocalDateTime.of(2024, 1, 4, 1, 2, 15);
+
+        // When
+        RollupPlan plan = RollupPlan.of(start, end, Granularity.MINUTE);
+
+        // Then
+        assertEquals(List.of(
+                new RollupPlan.Segment(Granularity.MINUTE, at(1, 22, 59), at(1, 23, 0)),
+                new RollupPlan.Segment(Granularity.HOUR, at(1, 23, 0), at(2, 0, 0)),
+                new RollupPlan.Segment(Granularity.DAY, at(2, 0, 0), at(4, 0, 0)),
+                new RollupPlan.Segment(Granularity.HOUR, at(4, 0, 0), at(4, 1, 0)),
+                new RollupPlan.Segment(Granularity.MINUTE, at(4, 1, 0), at(4, 1, 2))
+        ), plan.buckets());
+        assertTrue(plan.hasHead());
+        assertEquals(at(1, 22, 59), plan.bucketsFrom());
+        assertEquals(at(4, 1, 2), plan.bucketsTo());
+    }
+
+    @Test
+    void of_ShouldLeaveWholeRangeRawWhenNoBucketFits() {
+        // Given
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 0, 10);
+        LocalDateTime end = LocalDateTime.of(2024, 1, 1, 10, 0, 50);
+
+        // When
+        RollupPlan plan = RollupPlan.of(start, end, Granularity.MINUTE);
+
+        // Then
+        assertFalse(plan.hasBuckets());
+        assertEquals(start, plan.start());
+        assertEquals(end, plan.bucketsFrom());
+        assertEquals(end, plan.bucketsTo());
+    }
+
+    @Test
+    void of_ShouldUseOnlyDaysForDayGranularity() {
+        // Given
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2024, 1, 3, 12, 0, 0);
+
+        // When
+        RollupPlan plan = RollupPlan.of(start, end, Granularity.DAY);
+
+        // Then
+        assertEquals(List.of(new RollupPlan.Segment(Granularity.DAY, at(1, 0, 0), at(3, 0, 0))), plan.buckets());
+        assertFalse(plan.hasHead());
+        assertEquals(at(3, 0, 0), plan.bucketsTo());
+    }
+
+    private static LocalDateTime at(int day, int hour, int minute) {
+        return LocalDateTime.of(2024, 1, day, hour, minute);
+    }
+
+}
@@ -0,0 +1,178 @@
+package ru.practicum.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.EventStatsResponseDto;
+import ru.practicum.model.Stat;
+import ru.practicum.model.StatsCursor;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// запросы статистики на встроенном PostgreSQL со схемой сервиса
+class StatRollupRepositoryImplTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2024, 1, 2, 0, 0);
+
+    // размер порции и режим автофиксации каждого выполненного запроса
+    private static final List<String> queries = new CopyOnWriteArrayList<>();
+
+    private static EmbeddedPostgres postgres;
+    private static StatRollupRepositoryImpl repository;
+    private static TransactionTemplate transactionTemplate;
+
+    @BeforeAll
+    static void startDatabase() throws IOException {
+        postgres = EmbeddedPostgres.builder().start();
+        DataSource dataSource = recording(postgres.getPostgresDatabase());
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        StatBatchRepositoryImpl batchRepository =
+                new StatBatchRepositoryImpl(jdbcTemplate, new HitDictionary(jdbcTemplate, transactionManager));
+        repository = new StatRollupRepositoryImpl(new NamedParameterJdbcTemplate(dataSource));
+
+        // /events/1 - 5 хитов, /events/2 и /events/3 - по 3, /events/4 - 1; второй хит каждого uri - с повторным ip
+        List<Stat> hits = new ArrayList<>();
+        int[] counts = {5, 3, 3, 1};
+        for (int uri = 0; uri < counts.length; uri++) {
+            for (int hit = 0; hit < counts[uri]; hit++) {
+                hits.add(Stat.builder()
+                        .app("ewm-main-service")
+                        .uri("/events/" + (uri + 1))
+                        .ip("10.0.0." + (hit == 1 ? 0 : hit))
+                        .timestamp(START.plusHours(10).plusMinutes(hit).plusSeconds(30))
+                        .build());
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            batchRepository.insertAll(hits);
+            repository.addToRollups(hits);
+        });
+    }
+
+    @AfterAll
+    static void stopDatabase() throws IOException {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void clearQueries() {
+        queries.clear();
+    }
+
+    @Test
+    void streamStats_ShouldReturnRowsOrderedByHitsThenAppThenUri() {
+        // When
+        List<EventStatsResponseDto> stats = stream(false, null, null);
+
+        // Then
+        assertEquals(List.of(row("/events/1", 5), row("/events/2", 3), row("/events/3", 3), row("/events/4", 1)), stats);
+        assertEquals(List.of(row("/events/1", 4), row("/events/2", 2), row("/events/3", 2), row("/events/4", 1)),
+                stream(true, null, null));
+    }
+
+    @Test
+    void streamStats_ShouldContinueAfterCursorPageByPage() {
+        // Given
+        List<EventStatsResponseDto> all = stream(false, null, null);
+        List<EventStatsResponseDto> paged = new ArrayList<>();
+        StatsCursor cursor = null;
+
+        // When: страницы по 3 строки, курсор - последняя строка страницы
+        while (true) {
+            List<EventStatsResponseDto> page = stream(false, 3, cursor);
+            paged.addAll(page);
+            if (page.size() < 3) {
+                break;
+            }
+            EventStatsResponseDto last = page.getLast();
+            cursor = new StatsCursor(last.getHits(), last.getApp(), last.getUri());
+        }
+
+        // Then: граница страницы внутри строк с равным hits не теряет и не повторяет строк
+        assertEquals(all, paged);
+        assertEquals(List.of(row("/events/3", 3), row("/events/4", 1)),
+                stream(false, null, new StatsCursor(3, "ewm-main-service", "/events/2")));
+    }
+
+    @Test
+    void streamStats_ShouldReadThroughDatabaseCursorInPortions() {
+        // When
+        stream(false, null, null);
+
+        // Then: PostgreSQL отдает строки порциями только при fetchSize и выключенной автофиксации
+        assertEquals(List.of("fetchSize=1000, autoCommit=false"), queries);
+    }
+
+    private static List<EventStatsResponseDto> stream(boolean unique, Integer limit, StatsCursor cursor) {
+        List<EventStatsResponseDto> stats = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status ->
+                repository.streamStats(START, END, null, unique, limit, cursor, stats::add));
+        return stats;
+    }
+
+    private static EventStatsResponseDto row(String uri, long hits) {
+        return new EventStatsResponseDto("ewm-main-service", uri, hits);
+    }
+
+    private static DataSource recording(DataSource target) {
+        return new DelegatingDataSource(target) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                Connection connection = super.getConnection();
+                return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                        (proxy, method, args) -> {
+                            Object result = invoke(connection, method, args);
+                            if (result instanceof PreparedStatement statement) {
+                                return recording(connection, statement);
+                            }
+                            return result;
+                        });
+            }
+        };
+    }
+
+    private static PreparedStatement recording(Connection connection, PreparedStatement target) {
+        return (PreparedStatement) Proxy.newProxyInstance(StatRollupRepositoryImplTest.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("executeQuery")) {
+                        queries.add("fetchSize=" + target.getFetchSize() + ", autoCommit=" + connection.getAutoCommit());
+                    }
+                    return invoke(target, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+}
@@ -0,0 +1,183 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.exception.HitQueueFullException;
+import ru.practicum.model.Stat;
+import ru.practicum.repository.StatServiceRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class HitIngestionQueueTest {
+
+    private final StatServiceRepository repository = mock(StatServiceRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // записанные пачки копируются при вызове: после записи очередь переиспользует список
+    private final List<List<Stat>> written = new CopyOnWriteArrayList<>();
+
+    private HitIngestionQueue queue;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (queue != null) {
+            queue.stop();
+        }
+    }
+
+    @Test
+    void offerAll_ShouldWriteHitsAsOneBatchAfterFlushInterval() throws Exception {
+        // Given
+        recordWrites();
+        queue = start(100, 100, 50);
+
+        // When
+        queue.offerAll(hits(3));
+
+        // Then
+        verify(repository, timeout(2000)).addToRollups(any());
+        assertEquals(List.of(hits(3)), written);
+        assertEquals(3, meterRegistry.counter("stats.hits.ingested").count());
+    }
+
+    @Test
+    void offerAll_ShouldSplitQueueIntoBatchesOfBatchSize() {
+        // Given
+        recordWrites();
+        queue = start(100, 2, 1000);
+
+        // When
+        queue.offerAll(hits(5));
+
+        // Then: две полные пачки уходят сразу, остаток - по таймауту
+        verify(repository, timeout(3000).times(3)).addToRollups(any());
+        assertEquals(List.of(2, 2, 1), written.stream().map(List::size).toList());
+    }
+
+    @Test
+    void offerAll_ShouldRejectHitsWhileQueueIsFull() throws Exception {
+        // Given: запись первой пачки зависает, места в очереди не освобождаются
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(repository).insertAll(any());
+        queue = start(2, 100, 10);
+        queue.offerAll(hits(2));
+        assertTrue(writing.await(2, TimeUnit.SECONDS));
+
+        // When
+        assertThrows(HitQueueFullException.class, () -> queue.offerAll(hits(1)));
+        release.countDown();
+
+        // Then: после записи места освобождаются
+        assertEquals(1, meterRegistry.counter("stats.hits.rejected").count());
+        assertDoesNotThrow(() -> queue.offerAll(hits(1)));
+    }
+
+    @Test
+    void offerAll_ShouldRejectBatchLargerThanCapacity() {
+        // Given
+        queue = start(2, 100, 10);
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> queue.offerAll(hits(3)));
+    }
+
+    @Test
+    void write_ShouldRetryBatchOnTransientError() {
+        // Given
+        doThrow(new CannotAcquireLockException("deadlock detected"))
+                .doAnswer(invocation -> {
+                    written.add(List.copyOf(invocation.<Collection<Stat>>getArgument(0)));
+                    return null;
+                })
+                .when(repository).insertAll(any());
+        queue = start(100, 100, 10);
+
+        // When
+        queue.offerAll(hits(3));
+
+        // Then
+        verify(repository, timeout(3000).times(2)).insertAll(any());
+        assertEquals(List.of(hits(3)), written);
+        assertEquals(0, meterRegistry.counter("stats.hits.dropped").count());
+    }
+
+    @Test
+    void write_ShouldDropOnlyHitsThatCannotBeWritten() {
+        // Given: второй хит нарушает ограничение таблицы
+        List<Stat> hits = hits(4);
+        Stat poison = hits.get(1);
+        doAnswer(invocation -> {
+            Collection<Stat> batch = invocation.getArgument(0);
+            if (batch.contains(poison)) {
+                throw new DataIntegrityViolationException("value too long for type character varying(50)");
+            }
+            written.add(List.copyOf(batch));
+            return null;
+        }).when(repository).insertAll(any());
+        queue = start(100, 100, 10);
+
+        // When
+        queue.offerAll(hits);
+
+        // Then
+        verify(repository, timeout(3000).atLeast(1)).addToRollups(any());
+        waitFor(() -> meterRegistry.counter("stats.hits.ingested").count() == 3);
+        List<Stat> saved = written.stream().flatMap(List::stream).toList();
+        assertEquals(List.of(hits.get(0), hits.get(2), hits.get(3)), saved);
+        assertEquals(1, meterRegistry.counter("stats.hits.dropped").count());
+    }
+
+    private HitIngestionQueue start(int capacity, int batchSize, long flushIntervalMs) {
+        HitIngestionQueue started = new HitIngestionQueue(repository, mock(PlatformTransactionManager.class),
+                meterRegistry, capacity, batchSize, flushIntervalMs, 50);
+        started.start();
+        return started;
+    }
+
+    private void recordWrites() {
+        doAnswer(invocation -> {
+            written.add(List.copyOf(invocation.<Collection<Stat>>getArgument(0)));
+            return null;
+        }).when(repository).insertAll(any());
+    }
+
+    private static void waitFor(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.onSpinWait();
+        }
+    }
+
+    private static List<Stat> hits(int count) {
+        return new ArrayList<>(IntStream.range(0, count)
+                .mapToObj(i -> Stat.builder()
+                        .app("ewm-main-service")
+                        .uri("/events/" + i)
+                        .ip("192.168.0." + i)
+                        .timestamp(LocalDateTime.of(2024, 1, 1, 10, 0))
+                        .build())
+                .toList());
+    }
+
+}
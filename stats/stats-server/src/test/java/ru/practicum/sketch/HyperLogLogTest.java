@@ -0,0 +1,99 @@
+package ru.practicum.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimate_ShouldBeExactForFewValues() {
+        // Given
+        HyperLogLog sketch = new HyperLogLog(12);
+
+        // When
+        sketch.add("192.168.1.1");
+        sketch.add("192.168.1.2");
+        sketch.add("192.168.1.1");
+
+        // Then
+        assertEquals(2, sketch.estimate());
+    }
+
+    @Test
+    void estimate_ShouldStayWithinErrorBound() {
+        // Given
+        HyperLogLog sketch = new HyperLogLog(HyperLogLog.precisionFor(0.02));
+        int count = 200_000;
+
+        // When
+        for (int i = 0; i < count; i++) {
+            sketch.add(ip(i));
+        }
+
+        // Then - три стандартных отклонения
+        double error = Math.abs(sketch.estimate() - count) / (double) count;
+        assertTrue(error < 3 * sketch.relativeError(), "relative error " + error);
+    }
+
+    @Test
+    void merge_ShouldEqualSketchOfUnion() {
+        // Given
+        HyperLogLog first = new HyperLogLog(10);
+        HyperLogLog second = new HyperLogLog(10);
+        HyperLogLog union = new HyperLogLog(10);
+        for (int i = 0; i < 5_000; i++) {
+            first.add(ip(i));
+            union.add(ip(i));
+        }
+        for (int i = 3_000; i < 9_000; i++) {
+            second.add(ip(i));
+            union.add(ip(i));
+        }
+
+        // When
+        boolean changed = first.merge(second);
+
+        // Then
+        assertTrue(changed);
+        assertArrayEquals(union.toBytes(), first.toBytes());
+        assertFalse(first.merge(second));
+    }
+
+    @Test
+    void foldTo_ShouldEqualSketchBuiltWithLowerPrecision() {
+        // Given
+        HyperLogLog precise = new HyperLogLog(14);
+        HyperLogLog coarse = new HyperLogLog(11);
+        for (int i = 0; i < 50_000; i++) {
+            precise.add(ip(i));
+            coarse.add(ip(i));
+        }
+
+        // When
+        HyperLogLog folded = precise.foldTo(11);
+
+        // Then
+        assertArrayEquals(coarse.toBytes(), folded.toBytes());
+    }
+
+    @Test
+    void fromBytes_ShouldRestoreSketch() {
+        // Given
+        HyperLogLog sketch = new HyperLogLog(8);
+        sketch.add("10.0.0.1");
+
+        // When
+        HyperLogLog restored = HyperLogLog.fromBytes(sketch.toBytes());
+
+        // Then
+        assertEquals(8, restored.precision());
+        assertEquals(1, restored.estimate());
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[]{8, 0}));
+    }
+
+    private static String ip(int i) {
+        return "10." + (i >>> 16 & 255) + "." + (i >>> 8 & 255) + "." + (i & 255);
+    }
+
+}